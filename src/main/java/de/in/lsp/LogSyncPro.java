@@ -253,7 +253,8 @@ public class LogSyncPro extends JFrame implements LogViewListener {
 	}
 
 	private void backgroundLoadFiles(List<File> files) {
-		fileActions.backgroundLoadFiles(files, status -> statusBar.setStatus(status, status.contains("Loading")), this, columnVisibility);
+		statusBar.addLoadTask(
+				fileActions.backgroundLoadFiles(files, status -> statusBar.setStatus(status, status.contains("Loading")), this, columnVisibility));
 	}
 
 	private void handleArguments(String[] args) {
@@ -6,6 +6,9 @@ import java.util.List;
 import java.util.Set;
 
 import de.in.lsp.model.LogEntry;
+import de.in.lsp.model.LogStore;
+import de.in.lsp.model.LogStoreView;
+import de.in.lsp.model.MappedFileText;
 
 /**
  * Data Transfer Object representing a group of log entries belonging to the same application.
@@ -13,10 +16,48 @@ import de.in.lsp.model.LogEntry;
  * @author TiJaWo68 in cooperation with Gemini 3 Flash using Antigravity
  */
 public class LogGroup {
-	private final List<LogEntry> entries = new ArrayList<>();
+	private final LogStore entries;
 	private final Set<String> sourceFiles = new HashSet<>();
 
-	public List<LogEntry> getEntries() {
+	public LogGroup() {
+		this(new LogStore());
+	}
+
+	private LogGroup(LogStore entries) {
+		this.entries = entries;
+	}
+
+	/**
+	 * Combines groups of one application that were loaded separately, e.g. by different threads. The entries are not copied: a single
+	 * group is returned as is, several are joined in a read-only {@link LogStoreView} over their stores.
+	 */
+	public static LogGroup combine(List<LogGroup> groups) {
+		if (groups.size() == 1)
+			return groups.get(0);
+		List<LogStore> stores = new ArrayList<>();
+		for (LogGroup group : groups) {
+			stores.add(group.getEntries());
+		}
+		LogGroup combined = new LogGroup(LogStoreView.concat(stores));
+		for (LogGroup group : groups) {
+			combined.sourceFiles.addAll(group.getSourceFiles());
+		}
+		return combined;
+	}
+
+	/**
+	 * Returns a group of the same files whose entries are a {@link LogStoreView} of this group's entries, e.g. to sort them while the
+	 * store is read elsewhere. A group whose entries already are a view is returned as is.
+	 */
+	public LogGroup asView() {
+		if (entries instanceof LogStoreView)
+			return this;
+		LogGroup view = new LogGroup(LogStoreView.of(entries));
+		view.sourceFiles.addAll(sourceFiles);
+		return view;
+	}
+
+	public LogStore getEntries() {
 		return entries;
 	}
 
@@ -32,6 +73,13 @@ public class LogGroup {
 		entries.add(entry);
 	}
 
+	/**
+	 * Adds an entry whose raw text stays in the mapped file.
+	 */
+	public void addEntry(LogEntry entry, MappedFileText file, long offset, int length) {
+		entries.add(entry, file, offset, length);
+	}
+
 	public void addSourceFile(String sourceFile) {
 		sourceFiles.add(sourceFile);
 	}
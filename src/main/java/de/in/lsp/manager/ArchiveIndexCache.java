@@ -0,0 +1,757 @@
+package de.in.lsp.manager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import de.in.lsp.model.LogEntry;
+import de.in.lsp.model.Lz4Block;
+import de.in.lsp.model.SymbolTable;
+import de.in.lsp.parser.LogParser;
+import de.in.lsp.util.LspLogger;
+
+/**
+ * Keeps the parse result of archives on disk, so a support bundle that is opened again is read from its index instead of being unpacked
+ * and parsed again. An index is keyed by the path of the archive, its size, its modification time, a hash of its content and the
+ * system time zone the timestamps were converted to, and is only used while all of them match and the parsers it was built with are
+ * still registered. An archive with timestamps without a year, which the parsers place on today's date, is only replayed on the day it
+ * was indexed.
+ * <p>
+ * The index is written while the archive loads: the entries go into LZ4 compressed blocks, the repeating fields (level, thread, logger,
+ * ip, source) as ids into a dictionary that is defined inline on first use, the message as a range of the raw text wherever it is one.
+ * A footer with the entry count and the parser detected for every source closes the file, an index without footer is never read. The
+ * indexes of all archives share a directory bounded in size, the least recently used ones are evicted first.
+ *
+ * @author TiJaWo68
+ */
+public class ArchiveIndexCache {
+
+	/** Bound of the cache directory, {@code -Dlsp.index.cache.maxMB} overrides the default of 2 GB. */
+	public static final long DEFAULT_MAX_BYTES = Long.getLong("lsp.index.cache.maxMB", 2048) * 1024 * 1024;
+
+	private static final String SUFFIX = ".lspidx";
+	private static final int MAGIC = 0x4C535049;
+	private static final int VERSION = 4;
+	/** Uncompressed size from which a block is written. */
+	private static final int BLOCK_SIZE = 256 * 1024;
+	private static final int END_OF_BLOCKS = -1;
+	/** The content hash covers this many samples of this size, spread over the file, instead of reading a multi-GB archive twice. */
+	private static final int HASH_SAMPLES = 16;
+	private static final int HASH_SAMPLE_SIZE = 64 * 1024;
+
+	private static final byte SYMBOL = 1;
+	private static final byte ENTRY = 2;
+	/** How the message of an entry is stored: the raw text itself, a range of it or a separate text. */
+	private static final int MESSAGE_IS_RAW = 0;
+	private static final int MESSAGE_IN_RAW = 1;
+	private static final int MESSAGE_TEXT = 2;
+
+	private static final class Holder {
+		private static final ArchiveIndexCache DEFAULT = new ArchiveIndexCache(defaultDirectory(), DEFAULT_MAX_BYTES);
+	}
+
+	private final Path directory;
+	private final long maxBytes;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final Supplier<LocalDate> today;
+
+	public ArchiveIndexCache(Path directory, long maxBytes) {
+		this(directory, maxBytes, LocalDate::now);
+	}
+
+	ArchiveIndexCache(Path directory, long maxBytes, Supplier<LocalDate> today) {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		this.today = today;
+	}
+
+	/**
+	 * Returns the cache shared by all LogManagers of this JVM, in {@code ~/.logsyncpro/index-cache} unless {@code -Dlsp.index.cache.dir}
+	 * points elsewhere.
+	 */
+	public static ArchiveIndexCache getDefault() {
+		return Holder.DEFAULT;
+	}
+
+	private static Path defaultDirectory() {
+		String dir = System.getProperty("lsp.index.cache.dir");
+		return dir != null ? Path.of(dir) : Path.of(System.getProperty("user.home"), ".logsyncpro", "index-cache");
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Pushes the entries of the archive from its index to the sink. Returns false, without touching the sink, if there is no valid index
+	 * for the archive as it is now, it was built with a parser whose format is not among the known ones, on another day for timestamps
+	 * without a year or one of its blocks is damaged.
+	 * The checksums of all blocks are verified before the first entry is pushed, a damaged index is removed.
+	 *
+	 * @throws IOException
+	 *             if a block with a valid checksum cannot be decoded after entries were pushed, the index is removed
+	 */
+	public boolean replay(File archive, Consumer<LogEntry> sink, LoadProgress progress, Collection<String> knownFormats)
+			throws IOException {
+		Path index = indexFile(archive);
+		if (!Files.isRegularFile(index)) {
+			misses.incrementAndGet();
+			return false;
+		}
+		long start = System.nanoTime();
+		Footer footer;
+		try {
+			footer = readFooter(index, Key.of(archive), today.get().toString());
+		} catch (IOException e) {
+			LspLogger.warn("Index of " + archive.getName() + " is unreadable, it is rebuilt: " + e.getMessage());
+			footer = null;
+		}
+		if (footer == null || !knownFormats.containsAll(footer.formats().values())) {
+			misses.incrementAndGet();
+			return false;
+		}
+		try {
+			readBlocks(index, footer, (block, length, rawLength, position) -> {
+				// Only the checksums are checked here
+			});
+		} catch (IOException e) {
+			LspLogger.warn("Index of " + archive.getName() + " is damaged, it is rebuilt: " + e.getMessage());
+			Files.deleteIfExists(index);
+			misses.incrementAndGet();
+			return false;
+		}
+
+		long entries;
+		try {
+			entries = readEntries(index, footer, sink, progress, archive.length());
+		} catch (CancellationException e) {
+			throw e;
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(index);
+			throw new IOException("Corrupt index of " + archive.getName() + " removed, open the archive again", e);
+		}
+		hits.incrementAndGet();
+		try {
+			// The modification time of an index is its last use, the eviction removes the oldest ones first
+			Files.setLastModifiedTime(index, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			// Evicted a little earlier then
+		}
+		LspLogger.info(String.format("Read %d entries of %s from its index in %d ms", entries, archive.getName(),
+				(System.nanoTime() - start) / 1_000_000));
+		return true;
+	}
+
+	/**
+	 * Starts the index of the archive. The returned recorder passes every entry on to the sink and writes it to the index, which
+	 * replaces the previous one when the recorder is committed and is discarded when it is closed without.
+	 */
+	public Recorder record(File archive, Consumer<LogEntry> sink) throws IOException {
+		Files.createDirectories(directory);
+		Path temp = Files.createTempFile(directory, archive.getName(), ".tmp");
+		return new Recorder(this, archive, Key.of(archive), temp, sink);
+	}
+
+	/**
+	 * Returns the bytes of all indexes in the cache.
+	 */
+	public synchronized long size() {
+		return files(SUFFIX).stream().mapToLong(ArchiveIndexCache::fileSize).sum();
+	}
+
+	/**
+	 * Removes all indexes, and the leftovers of indexes that were never completed, and returns the bytes freed.
+	 */
+	public synchronized long clear() {
+		long freed = 0;
+		for (Path index : files(SUFFIX, ".tmp")) {
+			long size = fileSize(index);
+			if (delete(index)) {
+				freed += size;
+			}
+		}
+		LspLogger.info("Cleared index cache, " + freed / (1024 * 1024) + " MB freed");
+		return freed;
+	}
+
+	/**
+	 * Removes the least recently used indexes until the cache fits its bound.
+	 */
+	synchronized void evict() {
+		List<Path> indexes = files(SUFFIX);
+		long total = indexes.stream().mapToLong(ArchiveIndexCache::fileSize).sum();
+		if (total <= maxBytes)
+			return;
+		indexes.sort(Comparator.comparingLong(ArchiveIndexCache::lastUsed));
+		for (Path index : indexes) {
+			if (total <= maxBytes)
+				break;
+			long size = fileSize(index);
+			if (delete(index)) {
+				total -= size;
+				LspLogger.info("Evicted index " + index.getFileName() + " from the index cache");
+			}
+		}
+	}
+
+	/**
+	 * Returns the index file of the archive, named after the archive and a hash of its absolute path.
+	 */
+	Path indexFile(File archive) {
+		String path = archive.getAbsolutePath();
+		return directory.resolve(archive.getName() + "-" + Long.toHexString(hash64(path)) + SUFFIX);
+	}
+
+	private List<Path> files(String... suffixes) {
+		if (!Files.isDirectory(directory))
+			return new ArrayList<>();
+		try (Stream<Path> files = Files.list(directory)) {
+			return new ArrayList<>(files.filter(f -> Arrays.stream(suffixes).anyMatch(f.getFileName().toString()::endsWith)).toList());
+		} catch (IOException e) {
+			LspLogger.warn("Could not list index cache " + directory + ": " + e.getMessage());
+			return new ArrayList<>();
+		}
+	}
+
+	private static long fileSize(Path file) {
+		try {
+			return Files.size(file);
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	private static long lastUsed(Path file) {
+		try {
+			return Files.getLastModifiedTime(file).toMillis();
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	private static boolean delete(Path file) {
+		try {
+			return Files.deleteIfExists(file);
+		} catch (IOException e) {
+			LspLogger.warn("Could not delete " + file + ": " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the CRC32C of a block over its uncompressed length and its compressed bytes, so a damaged length is found before the
+	 * block is decompressed.
+	 */
+	private static int checksum(CRC32C crc, int rawLength, byte[] compressed, int compressedLength) {
+		crc.reset();
+		crc.update(new byte[] { (byte) (rawLength >>> 24), (byte) (rawLength >>> 16), (byte) (rawLength >>> 8), (byte) rawLength });
+		crc.update(compressed, 0, compressedLength);
+		return (int) crc.getValue();
+	}
+
+	private static long hash64(String text) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : text.getBytes(StandardCharsets.UTF_8)) {
+			hash = (hash ^ (b & 0xFF)) * 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Identifies the archive an index was built from, and the zone its zoned timestamps were converted to when they were parsed.
+	 */
+	record Key(String path, long size, long lastModified, long contentHash, String zone) {
+
+		static Key of(File archive) throws IOException {
+			return new Key(archive.getAbsolutePath(), archive.length(), archive.lastModified(), contentHash(archive),
+					ZoneId.systemDefault().getId());
+		}
+
+		/**
+		 * Hashes samples spread evenly over the file, including its first and last bytes. Together with size and modification time this
+		 * tells a rewritten archive from the indexed one without reading it completely.
+		 */
+		static long contentHash(File file) throws IOException {
+			CRC32C crc = new CRC32C();
+			byte[] sample = new byte[HASH_SAMPLE_SIZE];
+			try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+				long length = raf.length();
+				long stride = Math.max(HASH_SAMPLE_SIZE, (length - HASH_SAMPLE_SIZE) / (HASH_SAMPLES - 1));
+				for (long pos = 0; pos < length; pos += stride) {
+					long at = Math.min(pos, Math.max(0, length - HASH_SAMPLE_SIZE));
+					raf.seek(at);
+					int n = (int) Math.min(HASH_SAMPLE_SIZE, length - at);
+					raf.readFully(sample, 0, n);
+					crc.update(sample, 0, n);
+				}
+			}
+			return crc.getValue();
+		}
+
+		void write(DataOutputStream out) throws IOException {
+			out.writeUTF(path);
+			out.writeLong(size);
+			out.writeLong(lastModified);
+			out.writeLong(contentHash);
+			out.writeUTF(zone);
+		}
+
+		static Key read(DataInputStream in) throws IOException {
+			return new Key(in.readUTF(), in.readLong(), in.readLong(), in.readLong(), in.readUTF());
+		}
+	}
+
+	/**
+	 * The end of an index: where the blocks start, the number of entries and the format detected for every source.
+	 */
+	private record Footer(long blocksStart, long entryCount, Map<String, String> formats) {
+	}
+
+	/**
+	 * Reads header and footer, or returns null if the index belongs to another state of the archive or its timestamps to another day.
+	 */
+	private static Footer readFooter(Path index, Key key, String today) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(index.toFile(), "r")) {
+			if (raf.readInt() != MAGIC || raf.readInt() != VERSION)
+				return null;
+			Key stored = new Key(raf.readUTF(), raf.readLong(), raf.readLong(), raf.readLong(), raf.readUTF());
+			if (!stored.equals(key))
+				return null;
+			long blocksStart = raf.getFilePointer();
+			long length = raf.length();
+			if (length < blocksStart + 12)
+				return null;
+			raf.seek(length - 12);
+			long footerStart = raf.readLong();
+			if (raf.readInt() != MAGIC || footerStart < blocksStart || footerStart > length - 12)
+				return null;
+			raf.seek(footerStart);
+			long entryCount = raf.readLong();
+			int sources = raf.readInt();
+			Map<String, String> formats = new LinkedHashMap<>();
+			for (int i = 0; i < sources; i++) {
+				formats.put(raf.readUTF(), raf.readUTF());
+			}
+			// The day the entries were parsed on, empty unless a format places its timestamps on that day
+			String parseDate = raf.readUTF();
+			if (!parseDate.isEmpty() && !parseDate.equals(today))
+				return null;
+			return new Footer(blocksStart, entryCount, formats);
+		}
+	}
+
+	private static long readEntries(Path index, Footer footer, Consumer<LogEntry> sink, LoadProgress progress, long archiveSize)
+			throws IOException {
+		long indexSize = Files.size(index);
+		BlockReader reader = new BlockReader();
+		readBlocks(index, footer, (block, length, rawLength, position) -> {
+			byte[] raw = new byte[rawLength];
+			Lz4Block.decompress(block, length, raw);
+			reader.read(raw, sink);
+			// Progress relates to the archive, the index is read in proportion to it
+			progress.bytesReadUpTo(indexSize > 0 ? (long) (archiveSize * ((double) position / indexSize)) : 0);
+		});
+		if (reader.entries != footer.entryCount())
+			throw new IOException(reader.entries + " entries instead of " + footer.entryCount());
+		return reader.entries;
+	}
+
+	/**
+	 * Receives the compressed blocks of an index whose checksum matched, with the position of the index at the end of the block.
+	 */
+	@FunctionalInterface
+	private interface BlockVisitor {
+		void block(byte[] block, int length, int rawLength, long position) throws IOException;
+	}
+
+	/**
+	 * Reads the blocks of the index up to the end marker and checks their lengths and checksums on the way.
+	 */
+	private static void readBlocks(Path index, Footer footer, BlockVisitor visitor) throws IOException {
+		long indexSize = Files.size(index);
+		try (InputStream file = Files.newInputStream(index)) {
+			file.skipNBytes(footer.blocksStart());
+			DataInputStream in = new DataInputStream(new BufferedInputStream(file, BLOCK_SIZE));
+			long position = footer.blocksStart();
+			byte[] compressed = new byte[0];
+			CRC32C crc = new CRC32C();
+			while (true) {
+				int rawLength = in.readInt();
+				if (rawLength == END_OF_BLOCKS)
+					break;
+				int compressedLength = in.readInt();
+				int checksum = in.readInt();
+				// LZ4 expands by at most 255 times, anything else is a damaged length
+				if (compressedLength < 0 || compressedLength > indexSize - position || rawLength < 0 || rawLength > compressedLength * 255L)
+					throw new IOException("Invalid block at " + position);
+				if (compressed.length < compressedLength) {
+					compressed = new byte[compressedLength];
+				}
+				in.readFully(compressed, 0, compressedLength);
+				if (checksum(crc, rawLength, compressed, compressedLength) != checksum)
+					throw new IOException("Checksum mismatch at " + position);
+				position += 12 + compressedLength;
+				visitor.block(compressed, compressedLength, rawLength, position);
+			}
+		} catch (EOFException e) {
+			throw new IOException("Index ends early", e);
+		}
+	}
+
+	/**
+	 * Decodes the records of the blocks, the dictionary grows with the symbols defined in them.
+	 */
+	private static final class BlockReader {
+		private String[] symbols = new String[256];
+		private int symbolCount = 1;
+		private long lastTimestamp;
+		private long entries;
+		private byte[] data;
+		private int pos;
+
+		void read(byte[] block, Consumer<LogEntry> sink) throws IOException {
+			data = block;
+			pos = 0;
+			while (pos < block.length) {
+				byte type = block[pos++];
+				if (type == SYMBOL) {
+					if (symbolCount == symbols.length) {
+						symbols = Arrays.copyOf(symbols, symbolCount * 2);
+					}
+					symbols[symbolCount++] = SymbolTable.getInstance().intern(readString());
+				} else if (type == ENTRY) {
+					sink.accept(readEntry());
+					entries++;
+				} else {
+					throw new IOException("Unknown record " + type);
+				}
+			}
+		}
+
+		private LogEntry readEntry() {
+			lastTimestamp += unzigzag(readVarLong());
+			String level = symbol();
+			String thread = symbol();
+			String logger = symbol();
+			String ip = symbol();
+			String source = symbol();
+			int port = (int) readVarLong();
+			String raw = readString();
+			String message = switch ((int) readVarLong()) {
+			case MESSAGE_IS_RAW -> raw;
+			case MESSAGE_IN_RAW -> {
+				int from = (int) readVarLong();
+				yield raw.substring(from, from + (int) readVarLong());
+			}
+			default -> readString();
+			};
+			return new LogEntry(lastTimestamp, level, thread, logger, ip, port, message, source, raw);
+		}
+
+		private String symbol() {
+			return symbols[(int) readVarLong()];
+		}
+
+		private String readString() {
+			int length = (int) readVarLong() - 1;
+			if (length < 0)
+				return null;
+			String text = new String(data, pos, length, StandardCharsets.UTF_8);
+			pos += length;
+			return text;
+		}
+
+		private long readVarLong() {
+			long value = 0;
+			int shift = 0;
+			while (true) {
+				byte b = data[pos++];
+				value |= (long) (b & 0x7F) << shift;
+				if (b >= 0)
+					return value;
+				shift += 7;
+			}
+		}
+
+		private static long unzigzag(long value) {
+			return (value >>> 1) ^ -(value & 1);
+		}
+	}
+
+	/**
+	 * Writes the index of one archive while its entries are passed on. A failing write stops the recording, the entries keep flowing.
+	 */
+	public static final class Recorder implements Consumer<LogEntry>, Closeable {
+		private final ArchiveIndexCache cache;
+		private final File archive;
+		private final Path temp;
+		private final Consumer<LogEntry> sink;
+		private final Map<String, Integer> symbols = new HashMap<>();
+		private final Map<String, String> formats = new LinkedHashMap<>();
+		private final CRC32C crc = new CRC32C();
+		/** The day the recording started, the parsers place timestamps without a year on it. */
+		private final String parseDate;
+		/** Set when a source has timestamps without a year, the index is then only valid on the parse date. */
+		private volatile boolean datedOnParse;
+		private DataOutputStream out;
+		private byte[] block = new byte[BLOCK_SIZE + 1024];
+		private int length;
+		private long position;
+		private long lastTimestamp;
+		private long entries;
+		private boolean committed;
+		/** Set when a member of the archive failed part way, its entries in the index would be incomplete. */
+		private volatile String failedMember;
+
+		private Recorder(ArchiveIndexCache cache, File archive, Key key, Path temp, Consumer<LogEntry> sink) throws IOException {
+			this.cache = cache;
+			this.archive = archive;
+			this.temp = temp;
+			this.sink = sink;
+			this.parseDate = cache.today.get().toString();
+			out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), BLOCK_SIZE));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			key.write(out);
+			position = out.size();
+		}
+
+		/**
+		 * Remembers the format detected for a source of the archive.
+		 */
+		public void parserSelected(String sourceName, LogParser parser) {
+			formats.put(sourceName, parser.getFormatName());
+			if (parser.isDatedOnParse()) {
+				datedOnParse = true;
+			}
+		}
+
+		/**
+		 * Notes that a member of the archive could not be read completely. The index is not committed then, so the next open parses the
+		 * archive again instead of replaying the truncated member.
+		 */
+		public void memberFailed(String sourceName) {
+			failedMember = sourceName;
+		}
+
+		@Override
+		public void accept(LogEntry entry) {
+			if (out != null) {
+				try {
+					write(entry);
+				} catch (IOException e) {
+					LspLogger.warn("Index of " + archive.getName() + " not written: " + e.getMessage());
+					discard();
+				}
+			}
+			sink.accept(entry);
+		}
+
+		private void write(LogEntry entry) throws IOException {
+			int level = symbol(entry.level());
+			int thread = symbol(entry.thread());
+			int logger = symbol(entry.loggerName());
+			int ip = symbol(entry.ip());
+			int source = symbol(entry.sourceFile());
+			String raw = entry.rawLine();
+			String message = entry.message();
+			int messageMode = MESSAGE_TEXT;
+			int messageFrom = -1;
+			if (Objects.equals(message, raw)) {
+				messageMode = MESSAGE_IS_RAW;
+			} else if (message != null && raw != null) {
+				// The parsers mostly take the message from the end of the raw text
+				messageFrom = raw.endsWith(message) ? raw.length() - message.length() : raw.indexOf(message);
+				if (messageFrom >= 0) {
+					messageMode = MESSAGE_IN_RAW;
+				}
+			}
+			byte[] rawBytes = raw != null ? raw.getBytes(StandardCharsets.UTF_8) : null;
+			byte[] messageBytes = messageMode == MESSAGE_TEXT && message != null ? message.getBytes(StandardCharsets.UTF_8) : null;
+
+			ensureCapacity(64 + (rawBytes != null ? rawBytes.length : 0) + (messageBytes != null ? messageBytes.length : 0));
+			block[length++] = ENTRY;
+			writeVarLong(zigzag(entry.timestampNanos() - lastTimestamp));
+			lastTimestamp = entry.timestampNanos();
+			writeVarLong(level);
+			writeVarLong(thread);
+			writeVarLong(logger);
+			writeVarLong(ip);
+			writeVarLong(source);
+			writeVarLong(entry.port());
+			writeBytes(rawBytes);
+			writeVarLong(messageMode);
+			if (messageMode == MESSAGE_IN_RAW) {
+				writeVarLong(messageFrom);
+				writeVarLong(message.length());
+			} else if (messageMode == MESSAGE_TEXT) {
+				writeBytes(messageBytes);
+			}
+			entries++;
+			if (length >= BLOCK_SIZE) {
+				flushBlock();
+			}
+		}
+
+		/**
+		 * Returns the id of the value, defining it in the current block on first use. Null has id 0.
+		 */
+		private int symbol(String value) {
+			if (value == null)
+				return 0;
+			Integer id = symbols.get(value);
+			if (id != null)
+				return id;
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			ensureCapacity(16 + bytes.length);
+			block[length++] = SYMBOL;
+			writeBytes(bytes);
+			id = symbols.size() + 1;
+			symbols.put(value, id);
+			return id;
+		}
+
+		private void writeBytes(byte[] bytes) {
+			if (bytes == null) {
+				writeVarLong(0);
+				return;
+			}
+			writeVarLong(bytes.length + 1L);
+			System.arraycopy(bytes, 0, block, length, bytes.length);
+			length += bytes.length;
+		}
+
+		private void writeVarLong(long value) {
+			while ((value & ~0x7FL) != 0) {
+				block[length++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			block[length++] = (byte) value;
+		}
+
+		private static long zigzag(long value) {
+			return (value << 1) ^ (value >> 63);
+		}
+
+		private void ensureCapacity(int extra) {
+			if (length + extra > block.length) {
+				block = Arrays.copyOf(block, Math.max(block.length * 2, length + extra));
+			}
+		}
+
+		private void flushBlock() throws IOException {
+			if (length == 0)
+				return;
+			byte[] compressed = new byte[Lz4Block.maxCompressedLength(length)];
+			int compressedLength = Lz4Block.compress(block, length, compressed);
+			out.writeInt(length);
+			out.writeInt(compressedLength);
+			out.writeInt(checksum(crc, length, compressed, compressedLength));
+			out.write(compressed, 0, compressedLength);
+			position += 12 + compressedLength;
+			length = 0;
+		}
+
+		/**
+		 * Completes the index and puts it in place of the previous one of the archive, unless a member failed or timestamps without a year
+		 * were parsed across midnight.
+		 */
+		public void commit() {
+			if (out == null)
+				return;
+			if (failedMember != null) {
+				LspLogger.info("Index of " + archive.getName() + " not written, " + failedMember + " could not be read completely");
+				discard();
+				return;
+			}
+			if (datedOnParse && !parseDate.equals(cache.today.get().toString())) {
+				LspLogger.info("Index of " + archive.getName() + " not written, its times without a date were parsed across midnight");
+				discard();
+				return;
+			}
+			try {
+				flushBlock();
+				out.writeInt(END_OF_BLOCKS);
+				long footerStart = position + 4;
+				out.writeLong(entries);
+				out.writeInt(formats.size());
+				for (Map.Entry<String, String> format : formats.entrySet()) {
+					out.writeUTF(format.getKey());
+					out.writeUTF(format.getValue());
+				}
+				out.writeUTF(datedOnParse ? parseDate : "");
+				out.writeLong(footerStart);
+				out.writeInt(MAGIC);
+				out.close();
+				out = null;
+				Files.move(temp, cache.indexFile(archive), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				committed = true;
+			} catch (IOException e) {
+				LspLogger.warn("Index of " + archive.getName() + " not written: " + e.getMessage());
+				discard();
+				return;
+			}
+			cache.evict();
+		}
+
+		private void discard() {
+			try {
+				if (out != null) {
+					out.close();
+				}
+			} catch (IOException e) {
+				// The file is deleted anyway
+			}
+			out = null;
+			delete(temp);
+		}
+
+		/**
+		 * Discards the index unless it was committed, e.g. after a failed or cancelled load.
+		 */
+		@Override
+		public void close() {
+			if (!committed) {
+				discard();
+			}
+		}
+	}
+}
@@ -6,9 +6,10 @@ import java.io.FileOutputStream;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.function.BiFunction;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.sevenz.SevenZFile;
@@ -25,7 +26,7 @@ import de.in.lsp.model.LogEntry;
 public class ArchiveLogLoader {
 
 	private final LogManagerHelper helper;
-	private final BiFunction<InputStream, String, List<LogEntry>> parser;
+	private final StreamParser parser;
 
 	public interface LogManagerHelper {
 		boolean isSupportedLogFile(String name);
@@ -33,44 +34,64 @@ public class ArchiveLogLoader {
 		boolean shouldSkipExtension(String name);
 	}
 
-	public ArchiveLogLoader(LogManagerHelper helper, BiFunction<InputStream, String, List<LogEntry>> parser) {
+	/**
+	 * Parses one unpacked stream and pushes its entries to the sink.
+	 */
+	@FunctionalInterface
+	public interface StreamParser {
+		void parse(InputStream is, String name, Consumer<LogEntry> sink);
+	}
+
+	public ArchiveLogLoader(LogManagerHelper helper, StreamParser parser) {
 		this.helper = helper;
 		this.parser = parser;
 	}
 
-	public List<LogEntry> loadFromZip(File file) throws Exception {
-		try (InputStream is = new FileInputStream(file)) {
-			return loadFromZipStream(is);
+	public void loadFromZip(File file, Consumer<LogEntry> sink) throws Exception {
+		loadFromZip(file, sink, new LoadProgress(file));
+	}
+
+	/**
+	 * Loads the archive and counts the compressed bytes read from it in the progress.
+	 */
+	public void loadFromZip(File file, Consumer<LogEntry> sink, LoadProgress progress) throws Exception {
+		try (InputStream is = progress.count(new FileInputStream(file))) {
+			loadFromZipStream(is, sink);
 		}
 	}
 
-	public List<LogEntry> loadFromZipStream(InputStream is) throws Exception {
-		List<LogEntry> allEntries = new ArrayList<>();
+	public void loadFromZipStream(InputStream is, Consumer<LogEntry> sink) throws Exception {
 		try (ZipArchiveInputStream zis = new ZipArchiveInputStream(new CloseShieldInputStream(is))) {
 			ArchiveEntry entry;
 			while ((entry = zis.getNextEntry()) != null) {
 				if (!entry.isDirectory()) {
 					if (helper.shouldSkipExtension(entry.getName())) {
 						if (helper.isSupportedLogFile(entry.getName())) {
-							allEntries.addAll(loadNestedEntry(zis, entry.getName()));
+							loadNestedEntry(zis, entry.getName(), sink);
 						}
 						continue;
 					}
 					// Use CloseShieldInputStream to prevent parser from closing the Zip stream
-					allEntries.addAll(parser.apply(new CloseShieldInputStream(zis), entry.getName()));
+					parser.parse(new CloseShieldInputStream(zis), entry.getName(), sink);
 				}
 			}
 		}
-		return allEntries;
 	}
 
-	public List<LogEntry> loadFromGzip(File file) throws Exception {
-		try (InputStream is = new FileInputStream(file)) {
-			return loadFromGzipStream(is, file.getName());
+	public void loadFromGzip(File file, Consumer<LogEntry> sink) throws Exception {
+		loadFromGzip(file, sink, new LoadProgress(file));
+	}
+
+	/**
+	 * Loads the archive and counts the compressed bytes read from it in the progress.
+	 */
+	public void loadFromGzip(File file, Consumer<LogEntry> sink, LoadProgress progress) throws Exception {
+		try (InputStream is = progress.count(new FileInputStream(file))) {
+			loadFromGzipStream(is, file.getName(), sink);
 		}
 	}
 
-	public List<LogEntry> loadFromGzipStream(InputStream is, String name) throws Exception {
+	public void loadFromGzipStream(InputStream is, String name, Consumer<LogEntry> sink) throws Exception {
 		try (InputStream gzipIs = new GzipCompressorInputStream(new CloseShieldInputStream(is))) {
 			String innerName = name;
 			if (innerName.toLowerCase().endsWith(".gz")) {
@@ -78,48 +99,55 @@ public class ArchiveLogLoader {
 			}
 
 			if (helper.isSupportedLogFile(innerName)) {
-				return loadNestedEntry(gzipIs, innerName);
+				loadNestedEntry(gzipIs, innerName, sink);
 			} else {
-				return parser.apply(gzipIs, name);
+				parser.parse(gzipIs, name, sink);
 			}
 		}
 	}
 
-	public List<LogEntry> loadFrom7z(File file) throws Exception {
-		List<LogEntry> allEntries = new ArrayList<>();
-		try (SevenZFile sevenZFile = new SevenZFile.Builder().setFile(file).get()) {
+	public void loadFrom7z(File file, Consumer<LogEntry> sink) throws Exception {
+		loadFrom7z(file, sink, new LoadProgress(file));
+	}
+
+	/**
+	 * Loads the archive and counts the compressed bytes read from it in the progress. 7z archives are read with random access, so the
+	 * bytes are counted on the channel.
+	 */
+	public void loadFrom7z(File file, Consumer<LogEntry> sink, LoadProgress progress) throws Exception {
+		SeekableByteChannel channel = progress.count(Files.newByteChannel(file.toPath(), StandardOpenOption.READ));
+		try (channel; SevenZFile sevenZFile = new SevenZFile.Builder().setSeekableByteChannel(channel).get()) {
 			org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry entry;
 			while ((entry = sevenZFile.getNextEntry()) != null) {
 				if (!entry.isDirectory()) {
 					if (helper.shouldSkipExtension(entry.getName())) {
 						if (helper.isSupportedLogFile(entry.getName())) {
 							InputStream entryStream = sevenZFile.getInputStream(entry);
-							allEntries.addAll(loadNestedEntry(entryStream, entry.getName()));
+							loadNestedEntry(entryStream, entry.getName(), sink);
 						}
 						continue;
 					}
 					InputStream is = sevenZFile.getInputStream(entry);
-					allEntries.addAll(parser.apply(is, entry.getName()));
+					parser.parse(is, entry.getName(), sink);
 				}
 			}
 		}
-		return allEntries;
 	}
 
-	public List<LogEntry> loadNestedEntry(InputStream is, String name) throws Exception {
+	public void loadNestedEntry(InputStream is, String name, Consumer<LogEntry> sink) throws Exception {
 		String n = name.toLowerCase();
 		if (n.endsWith(".zip")) {
-			return loadFromZipStream(is);
+			loadFromZipStream(is, sink);
 		} else if (n.endsWith(".gz")) {
-			return loadFromGzipStream(is, name);
+			loadFromGzipStream(is, name, sink);
 		} else if (n.endsWith(".7z")) {
-			return loadFrom7zStream(is);
+			loadFrom7zStream(is, sink);
 		} else {
-			return parser.apply(is, name);
+			parser.parse(is, name, sink);
 		}
 	}
 
-	public List<LogEntry> loadFrom7zStream(InputStream is) throws Exception {
+	public void loadFrom7zStream(InputStream is, Consumer<LogEntry> sink) throws Exception {
 		File tempFile = File.createTempFile("nested-7z", ".7z");
 		tempFile.deleteOnExit();
 		try (FileOutputStream fos = new FileOutputStream(tempFile)) {
@@ -130,9 +158,8 @@ public class ArchiveLogLoader {
 			}
 		}
 
-		List<LogEntry> entries = loadFrom7z(tempFile);
+		loadFrom7z(tempFile, sink);
 		tempFile.delete();
-		return entries;
 	}
 
 	/**
@@ -0,0 +1,256 @@
+package de.in.lsp.manager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import de.in.lsp.model.LogEntry;
+import de.in.lsp.parser.ByteScanner;
+import de.in.lsp.parser.EntryClassifier;
+import de.in.lsp.parser.FallbackLogParser;
+import de.in.lsp.parser.LineSource;
+import de.in.lsp.parser.LogParser;
+import de.in.lsp.parser.MappedLineSource;
+
+/**
+ * Parses a single large plain log file in parallel. The file is split into byte ranges, every split is moved forward to the next line
+ * that starts a new entry for the selected parser, and the resulting chunks are parsed on a ForkJoin pool. Because every chunk (except
+ * the first) begins with an entry start, continuation lines always stay with the entry they belong to and the concatenated result equals
+ * a sequential parse.
+ *
+ * @author TiJaWo68
+ */
+public class ChunkedFileParser {
+
+	/** Files smaller than this are parsed sequentially, the split overhead is not worth it. */
+	public static final long MIN_PARALLEL_SIZE = 32L * 1024 * 1024;
+
+	private static final long DEFAULT_MIN_CHUNK_SIZE = 8L * 1024 * 1024;
+	private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+	private static final long CANCEL_CHECK_MS = 100;
+	/** Bytes a chunk parses before it adds them to the progress, so the chunks do not contend for the counter on every line. */
+	private static final long PROGRESS_STEP = 256 * 1024;
+
+	private final ForkJoinPool pool;
+	private final long minChunkSize;
+
+	public ChunkedFileParser() {
+		this(ForkJoinPool.commonPool(), DEFAULT_MIN_CHUNK_SIZE);
+	}
+
+	public ChunkedFileParser(ForkJoinPool pool, long minChunkSize) {
+		this.pool = pool;
+		this.minChunkSize = minChunkSize;
+	}
+
+	public List<LogEntry> parse(File file, LogParser parser, String sourceName) throws Exception {
+		List<LogEntry> result = new ArrayList<>();
+		parse(file, parser, sourceName, result::add);
+		return result;
+	}
+
+	/**
+	 * Parses the chunks in parallel and pushes their entries to the sink in file order. Each chunk's entries are released as soon as they
+	 * have been handed on.
+	 */
+	public void parse(File file, LogParser parser, String sourceName, Consumer<LogEntry> sink) throws Exception {
+		parse(file, parser, sourceName, sink, new LoadProgress(file));
+	}
+
+	/**
+	 * Like {@link #parse(File, LogParser, String, Consumer)}, and counts the bytes of every chunk in the progress while it is parsed. If
+	 * the load is cancelled, the running chunks stop at their next line, the chunks that have not started yet are cancelled and the
+	 * caller stops waiting for them.
+	 */
+	public void parse(File file, LogParser parser, String sourceName, Consumer<LogEntry> sink, LoadProgress progress) throws Exception {
+		List<ForkJoinTask<List<LogEntry>>> tasks = new ArrayList<>();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long[] bounds = computeChunkBounds(channel, parser);
+
+			for (int i = 0; i < bounds.length - 1; i++) {
+				long start = bounds[i];
+				long end = bounds[i + 1];
+				tasks.add(pool.submit(() -> {
+					try (LineSource lines = new ProgressLineSource(new MappedLineSource(channel, start, end), start, end, progress)) {
+						return parser.parse(lines, sourceName);
+					}
+				}));
+			}
+
+			for (int i = 0; i < tasks.size(); i++) {
+				await(tasks.get(i), progress).forEach(sink);
+				tasks.set(i, null);
+			}
+		} finally {
+			for (ForkJoinTask<List<LogEntry>> task : tasks) {
+				if (task != null) {
+					task.cancel(false);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Waits for the chunk, checking every {@value #CANCEL_CHECK_MS} ms whether the load was cancelled.
+	 */
+	private static List<LogEntry> await(ForkJoinTask<List<LogEntry>> task, LoadProgress progress) throws Exception {
+		while (true) {
+			progress.checkCancelled();
+			try {
+				return task.get(CANCEL_CHECK_MS, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				// Still parsing
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof CancellationException cancelled)
+					throw cancelled;
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Splits the file into roughly equal ranges and realigns every split to the start of the next entry. Splits that find no entry start
+	 * before the following split are dropped, so their bytes are parsed as part of the preceding chunk.
+	 */
+	long[] computeChunkBounds(FileChannel channel, LogParser parser) throws IOException {
+		long size = channel.size();
+		int parallelism = Math.max(1, pool.getParallelism());
+		int chunkCount = (int) Math.max(1, Math.min(parallelism, size / minChunkSize));
+		long chunkSize = size / chunkCount;
+
+		List<Long> bounds = new ArrayList<>();
+		bounds.add(0L);
+		for (int i = 1; i < chunkCount; i++) {
+			long from = Math.max(i * chunkSize, bounds.get(bounds.size() - 1) + 1);
+			long limit = (i + 1 < chunkCount) ? (i + 1) * chunkSize : size;
+			long boundary = findEntryStart(channel, parser, from, limit);
+			if (boundary > 0) {
+				bounds.add(boundary);
+			}
+		}
+		bounds.add(size);
+		return bounds.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	/**
+	 * Returns the offset of the first line starting at or after {@code from} (and before {@code limit}) that begins a new entry, or -1.
+	 */
+	private long findEntryStart(FileChannel channel, LogParser parser, long from, long limit) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		long pos = from;
+
+		// Skip the remainder of the line the split landed in, unless the split is already at a line start
+		boolean atLineStart = readByte(channel, from - 1) == '\n';
+		long lineStart = atLineStart ? from : -1;
+
+		while (pos < limit) {
+			buffer.clear();
+			int n = channel.read(buffer, pos);
+			if (n <= 0)
+				break;
+			int i = 0;
+			while (i < n) {
+				int newline = ByteScanner.indexOf(buffer, i, n, (byte) '\n');
+				int stop = newline < 0 ? n : newline;
+				if (lineStart >= 0) {
+					line.write(buffer.array(), i, stop - i);
+				}
+				if (newline < 0)
+					break;
+				if (lineStart >= 0 && isEntryStart(parser, line.toByteArray())) {
+					return lineStart;
+				}
+				line.reset();
+				lineStart = pos + newline + 1;
+				if (lineStart >= limit)
+					return -1;
+				i = newline + 1;
+			}
+			pos += n;
+		}
+		return -1;
+	}
+
+	private int readByte(FileChannel channel, long position) throws IOException {
+		if (position < 0)
+			return '\n';
+		ByteBuffer single = ByteBuffer.allocate(1);
+		return channel.read(single, position) == 1 ? single.get(0) : -1;
+	}
+
+	/**
+	 * A line is a safe split point only if the parser accepts it as the first line of an entry and actually produces a timed entry from
+	 * it. Lines that match the layout but fail e.g. date parsing are treated as continuation lines by the parsers, so they must not
+	 * start a chunk.
+	 */
+	private boolean isEntryStart(LogParser parser, byte[] lineBytes) {
+		if (parser instanceof FallbackLogParser)
+			return true;
+		int len = lineBytes.length;
+		if (len > 0 && lineBytes[len - 1] == '\r')
+			len--;
+		String line = new String(lineBytes, 0, len, StandardCharsets.UTF_8);
+		if (parser instanceof EntryClassifier classifier)
+			return classifier.classify(line) == EntryClassifier.LineKind.TIMED_ENTRY;
+		if (!parser.canParse(line))
+			return false;
+		try {
+			List<LogEntry> single = parser.parse(new MappedLineSource(ByteBuffer.wrap(lineBytes, 0, len)), "");
+			return single.size() == 1 && single.get(0).hasTimestamp();
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Passes the lines of a chunk on, counts their bytes in the progress and ends the chunk with a {@link CancellationException} once
+	 * the load is cancelled.
+	 */
+	private static final class ProgressLineSource implements LineSource {
+		private final MappedLineSource lines;
+		private final long end;
+		private final LoadProgress progress;
+		private long counted;
+		private long pending;
+
+		ProgressLineSource(MappedLineSource lines, long start, long end, LoadProgress progress) {
+			this.lines = lines;
+			this.end = end;
+			this.progress = progress;
+			this.counted = start;
+		}
+
+		@Override
+		public CharSequence readLine() throws IOException {
+			progress.checkCancelled();
+			CharSequence line = lines.readLine();
+			long position = line != null ? lines.lineEnd() : end;
+			pending += position - counted;
+			counted = position;
+			if (pending >= PROGRESS_STEP || line == null) {
+				progress.addBytes(pending);
+				pending = 0;
+			}
+			return line;
+		}
+
+		@Override
+		public void close() throws IOException {
+			lines.close();
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package de.in.lsp.manager;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+import de.in.lsp.model.LogEntry;
+import de.in.lsp.model.LogEntrySink;
+import de.in.lsp.model.MappedFileText;
+import de.in.lsp.parser.MappedLineSource;
+import de.in.lsp.util.LspLogger;
+
+/**
+ * Sits between a parser and a {@link LogEntrySink} that keeps entry texts in their file. It walks the lines of the file in step with
+ * the parser and hands every entry on together with the byte range of its raw text: the parsers join the lines of an entry with
+ * {@code \n}, so an entry with n line breaks covers the next n + 1 lines of the file.
+ * <p>
+ * Every range is checked against the entry (the decoded lines must add up to the length of its raw text). If they ever disagree, the
+ * remaining entries of the file are passed on with their texts.
+ *
+ * @author TiJaWo68
+ */
+final class FileRangeTracker implements Consumer<LogEntry>, Closeable {
+
+	private final LogEntrySink sink;
+	private final MappedFileText text;
+	private final MappedLineSource lines;
+	private boolean tracking = true;
+
+	FileRangeTracker(File file, LogEntrySink sink) throws IOException {
+		this.sink = sink;
+		this.text = MappedFileText.open(file);
+		this.lines = MappedLineSource.open(file);
+	}
+
+	@Override
+	public void accept(LogEntry entry) {
+		if (tracking && track(entry))
+			return;
+		sink.accept(entry);
+	}
+
+	private boolean track(LogEntry entry) {
+		String raw = entry.rawLine();
+		try {
+			if (raw == null)
+				throw new IOException("entry without raw text");
+			int lineCount = 1;
+			for (int i = raw.indexOf('\n'); i >= 0; i = raw.indexOf('\n', i + 1)) {
+				lineCount++;
+			}
+			long start = -1;
+			long chars = lineCount - 1;
+			for (int k = 0; k < lineCount; k++) {
+				CharSequence line = lines.readLine();
+				if (line == null)
+					throw new IOException("file ended before the entry");
+				if (k == 0) {
+					start = lines.lineStart();
+				}
+				chars += line.length();
+			}
+			long length = lines.lineEnd() - start;
+			if (chars != raw.length() || length > Integer.MAX_VALUE)
+				throw new IOException("lines do not match the entry");
+			sink.accept(entry, text, start, (int) length);
+			return true;
+		} catch (IOException | RuntimeException e) {
+			LspLogger.warn("Keeping the texts of " + text.getFile().getName() + " in memory from here on: " + e.getMessage());
+			tracking = false;
+			return false;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		lines.close();
+	}
+}
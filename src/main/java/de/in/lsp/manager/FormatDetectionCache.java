@@ -0,0 +1,170 @@
+package de.in.lsp.manager;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+import de.in.lsp.parser.LogParser;
+import de.in.lsp.util.LspLogger;
+
+/**
+ * Remembers the parser that won the format detection, keyed by the application group of the file (see
+ * {@link LogManager#detectApplicationName(String)}) and a fingerprint of its head. Rotated files of one application share both, so
+ * only the first of them needs a full detection. Parsers are stored by their format name and persisted in the user preferences, the
+ * caller confirms a cached parser against the head before using it.
+ *
+ * @author TiJaWo68
+ */
+public class FormatDetectionCache {
+
+	private static final String PREF_NODE = "formatDetection";
+	private static final int MAX_ENTRIES = 256;
+	/** Only the start of the first line is fingerprinted, it holds the timestamp and the fixed fields of the layout. */
+	private static final int FINGERPRINT_LENGTH = 48;
+	/** Preferences keys are limited to 80 characters. */
+	private static final int MAX_KEY_LENGTH = Preferences.MAX_KEY_LENGTH;
+
+	private static final class Holder {
+		private static final FormatDetectionCache DEFAULT = new FormatDetectionCache();
+	}
+
+	private final Preferences prefs;
+	private final Map<String, String> formats = new LinkedHashMap<>(16, 0.75f, true);
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public FormatDetectionCache() {
+		this(Preferences.userNodeForPackage(FormatDetectionCache.class).node(PREF_NODE));
+	}
+
+	/**
+	 * Returns the cache shared by all LogManagers of this JVM, persisted in the user preferences.
+	 */
+	public static FormatDetectionCache getDefault() {
+		return Holder.DEFAULT;
+	}
+
+	/**
+	 * @param prefs
+	 *            the node the cache is persisted in, or null for a cache that lives in memory only
+	 */
+	public FormatDetectionCache(Preferences prefs) {
+		this.prefs = prefs;
+		load();
+	}
+
+	/**
+	 * Returns the cache key for a log, made of the application name of the source and the fingerprint of the head.
+	 */
+	public static String key(String sourceName, byte[] head) {
+		String app = LogManager.detectApplicationName(new File(sourceName).getName());
+		String key = app + "|" + fingerprint(head);
+		if (key.length() > MAX_KEY_LENGTH) {
+			key = Integer.toHexString(key.hashCode()) + "|" + key.substring(key.length() - MAX_KEY_LENGTH + 9);
+		}
+		return key;
+	}
+
+	/**
+	 * Describes the shape of the first line: digit runs become 'd', letter runs become 'a', everything else is kept. Lines written with
+	 * the same layout share the fingerprint even though their timestamps, levels and threads differ.
+	 */
+	static String fingerprint(byte[] head) {
+		StringBuilder sb = new StringBuilder();
+		char last = 0;
+		for (int i = 0; i < head.length && i < FINGERPRINT_LENGTH; i++) {
+			char c = (char) (head[i] & 0xFF);
+			if (c == '\n' || c == '\r')
+				break;
+			if (c >= '0' && c <= '9') {
+				c = 'd';
+			} else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c >= 0x80) {
+				c = 'a';
+			}
+			if ((c == 'd' || c == 'a') && c == last)
+				continue;
+			sb.append(c);
+			last = c;
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the cached parser for the key, or null if the key is unknown or its format is no longer registered.
+	 */
+	public synchronized LogParser lookup(String key, List<LogParser> parsers) {
+		String format = formats.get(key);
+		if (format == null)
+			return null;
+		for (LogParser parser : parsers) {
+			if (format.equals(parser.getFormatName()))
+				return parser;
+		}
+		return null;
+	}
+
+	public synchronized void store(String key, LogParser parser) {
+		String format = parser.getFormatName();
+		if (format.equals(formats.put(key, format)))
+			return;
+		if (prefs != null)
+			prefs.put(key, format);
+		if (formats.size() > MAX_ENTRIES) {
+			String eldest = formats.keySet().iterator().next();
+			formats.remove(eldest);
+			if (prefs != null)
+				prefs.remove(eldest);
+		}
+	}
+
+	public void recordHit() {
+		hits.incrementAndGet();
+	}
+
+	public void recordMiss() {
+		misses.incrementAndGet();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public synchronized int size() {
+		return formats.size();
+	}
+
+	public synchronized void clear() {
+		formats.clear();
+		hits.set(0);
+		misses.set(0);
+		if (prefs != null) {
+			try {
+				prefs.clear();
+			} catch (BackingStoreException e) {
+				LspLogger.warn("Could not clear format detection cache: " + e.getMessage());
+			}
+		}
+	}
+
+	private void load() {
+		if (prefs == null)
+			return;
+		try {
+			for (String key : prefs.keys()) {
+				String format = prefs.get(key, null);
+				if (format != null)
+					formats.put(key, format);
+			}
+		} catch (BackingStoreException e) {
+			LspLogger.warn("Could not load format detection cache: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,209 @@
+package de.in.lsp.manager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import de.in.lsp.model.LogEntry;
+import de.in.lsp.parser.ByteScanner;
+import de.in.lsp.parser.EntryClassifier;
+import de.in.lsp.parser.EntryClassifier.LineKind;
+import de.in.lsp.parser.LineSource;
+import de.in.lsp.parser.LogParser;
+import de.in.lsp.parser.MappedLineSource;
+
+/**
+ * Selects the parser for the head of a log in a single pass. Every head line is classified by all parsers at once (see
+ * {@link EntryClassifier}), which yields the same timed and total entry counts as a trial parse per parser, without building LogEntry
+ * objects. Parsers that can no longer reach the best timed count are dropped early; parsers that are not classifiers are scored with a
+ * trial parse.
+ * <p>
+ * The winner rule is the one of the former trial parses: parsers whose pattern matches the first line are preferred, the most timed
+ * entries win, then the most entries, then the first registered parser. Null is returned if no parser finds a timed entry.
+ *
+ * @author TiJaWo68
+ */
+public class FormatDetector {
+
+	/** Number of lines before the first entry that a confirmed parser may treat as header. */
+	static final int MAX_HEADER_LINES = 100;
+
+	/**
+	 * Entry statistics of one parser over the head, counted like the parser's own header and entry handling.
+	 */
+	private static final class Score {
+		int timed;
+		int total;
+		boolean seenEntry;
+		boolean headerLines;
+		boolean eliminated;
+
+		void add(LineKind kind) {
+			if (kind == LineKind.CONTINUATION) {
+				if (!seenEntry)
+					headerLines = true;
+				return;
+			}
+			if (!seenEntry && headerLines) {
+				// The lines before the first entry become one header entry
+				total++;
+			}
+			seenEntry = true;
+			total++;
+			if (kind == LineKind.TIMED_ENTRY)
+				timed++;
+		}
+
+		void finish() {
+			if (!seenEntry && headerLines)
+				total++;
+		}
+	}
+
+	public LogParser detect(List<LogParser> parsers, byte[] head, String sourceName) throws IOException {
+		String firstLine = firstLine(head);
+		int count = parsers.size();
+		boolean[] candidate = new boolean[count];
+		boolean anyCandidate = false;
+		for (int i = 0; i < count; i++) {
+			candidate[i] = parsers.get(i).canParse(firstLine);
+			anyCandidate |= candidate[i];
+		}
+
+		Score[] scores = new Score[count];
+		EntryClassifier[] classifiers = new EntryClassifier[count];
+		for (int i = 0; i < count; i++) {
+			LogParser parser = parsers.get(i);
+			scores[i] = new Score();
+			if (parser instanceof EntryClassifier classifier) {
+				classifiers[i] = classifier;
+			} else {
+				trialParse(parser, head, sourceName, scores[i]);
+			}
+		}
+
+		int remaining = countLines(head);
+		try (LineSource lines = new MappedLineSource(ByteBuffer.wrap(head))) {
+			CharSequence line;
+			while ((line = lines.readLine()) != null) {
+				remaining--;
+				boolean active = false;
+				for (int i = 0; i < count; i++) {
+					if (classifiers[i] != null && !scores[i].eliminated) {
+						scores[i].add(classifiers[i].classify(line));
+						active = true;
+					}
+				}
+				if (!active)
+					break;
+				eliminate(scores, candidate, anyCandidate, remaining);
+			}
+		}
+		for (Score score : scores) {
+			score.finish();
+		}
+
+		LogParser best = null;
+		if (anyCandidate) {
+			best = selectBest(parsers, scores, candidate);
+		}
+		if (best == null) {
+			best = selectBest(parsers, scores, null);
+		}
+		return best;
+	}
+
+	/**
+	 * Checks that a previously detected parser still fits the head: the first line it accepts as an entry must be a timed entry and must
+	 * follow at most {@link #MAX_HEADER_LINES} header lines. Parsers that are not classifiers must accept the first line.
+	 */
+	public boolean confirms(LogParser parser, byte[] head) throws IOException {
+		if (!(parser instanceof EntryClassifier classifier))
+			return parser.canParse(firstLine(head));
+		try (LineSource lines = new MappedLineSource(ByteBuffer.wrap(head))) {
+			CharSequence line;
+			int lineCount = 0;
+			while ((line = lines.readLine()) != null && lineCount++ <= MAX_HEADER_LINES) {
+				LineKind kind = classifier.classify(line);
+				if (kind != LineKind.CONTINUATION)
+					return kind == LineKind.TIMED_ENTRY;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Drops parsers whose timed count cannot reach the best timed count any more, even if every remaining line were a timed entry. Only
+	 * strictly smaller upper bounds are dropped, so ties (decided by the total count and the order) are preserved. A candidate is only
+	 * compared with other candidates, because the candidates are ranked among themselves first.
+	 */
+	private void eliminate(Score[] scores, boolean[] candidate, boolean anyCandidate, int remaining) {
+		int bestAll = 0;
+		int bestCandidate = 0;
+		for (int i = 0; i < scores.length; i++) {
+			bestAll = Math.max(bestAll, scores[i].timed);
+			if (candidate[i])
+				bestCandidate = Math.max(bestCandidate, scores[i].timed);
+		}
+		for (int i = 0; i < scores.length; i++) {
+			Score score = scores[i];
+			if (score.eliminated)
+				continue;
+			if (candidate[i]) {
+				score.eliminated = score.timed + remaining < bestCandidate;
+			} else {
+				// Once a candidate has timed entries the candidates decide, the other parsers are not needed at all
+				score.eliminated = (anyCandidate && bestCandidate > 0) || score.timed + remaining < bestAll;
+			}
+		}
+	}
+
+	private LogParser selectBest(List<LogParser> parsers, Score[] scores, boolean[] candidate) {
+		LogParser best = null;
+		int maxTimed = 0;
+		int maxTotal = 0;
+		for (int i = 0; i < scores.length; i++) {
+			Score score = scores[i];
+			if (score.eliminated || (candidate != null && !candidate[i]))
+				continue;
+			// We prefer the parser that finds the most TIMED entries. If timed entries are equal, we take the one with more total entries.
+			if (score.timed > maxTimed || (score.timed == maxTimed && score.total > maxTotal)) {
+				maxTimed = score.timed;
+				maxTotal = score.total;
+				best = parsers.get(i);
+			}
+		}
+		return maxTimed > 0 ? best : null;
+	}
+
+	private void trialParse(LogParser parser, byte[] head, String sourceName, Score score) {
+		try {
+			List<LogEntry> entries = parser.parse(new MappedLineSource(ByteBuffer.wrap(head)), sourceName);
+			for (LogEntry e : entries) {
+				if (e.hasTimestamp())
+					score.timed++;
+			}
+			score.total = entries.size();
+			score.seenEntry = true;
+		} catch (Exception e) {
+			// A failing parser cannot win
+			score.eliminated = true;
+		}
+	}
+
+	private static String firstLine(byte[] head) {
+		ByteBuffer buffer = ByteBuffer.wrap(head);
+		int end = ByteScanner.indexOfLineEnd(buffer, 0, head.length);
+		return new String(head, 0, end, StandardCharsets.UTF_8);
+	}
+
+	private static int countLines(byte[] head) throws IOException {
+		int lines = 0;
+		try (LineSource source = new MappedLineSource(ByteBuffer.wrap(head))) {
+			while (source.readLine() != null)
+				lines++;
+		}
+		return lines;
+	}
+}
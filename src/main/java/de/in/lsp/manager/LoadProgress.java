@@ -0,0 +1,255 @@
+package de.in.lsp.manager;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Progress of loading one file: the bytes of the file read so far, the entries parsed from it and the resulting throughput. Archives
+ * count the compressed bytes read from the file, plain files the position of the parser in the mapped file, so the bytes always relate
+ * to the file size. A low MB/s with few entries per MB points at the disk, a low MB/s with many entries at the parser.
+ * <p>
+ * The streams and the entry counting check for cancellation and throw a {@link CancellationException}, which ends the parse of the
+ * file.
+ *
+ * @author TiJaWo68
+ */
+public class LoadProgress {
+
+	private final String name;
+	private final long size;
+	private final AtomicLong bytesRead = new AtomicLong();
+	private final LongAdder entries = new LongAdder();
+	private volatile long startNanos;
+	private volatile long endNanos;
+	private volatile boolean cancelled;
+
+	public LoadProgress(File file) {
+		this.name = file.getName();
+		this.size = file.length();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public long getBytesRead() {
+		return Math.min(bytesRead.get(), size);
+	}
+
+	public long getEntries() {
+		return entries.sum();
+	}
+
+	public boolean isStarted() {
+		return startNanos != 0;
+	}
+
+	public boolean isDone() {
+		return endNanos != 0;
+	}
+
+	void start() {
+		startNanos = System.nanoTime();
+	}
+
+	void finish() {
+		endNanos = System.nanoTime();
+	}
+
+	/**
+	 * Stops the parse of the file at the next read or entry.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Throws a {@link CancellationException} if the load was cancelled.
+	 */
+	public void checkCancelled() {
+		if (cancelled)
+			throw new CancellationException("Loading of " + name + " cancelled");
+	}
+
+	/**
+	 * Counts a parsed entry.
+	 */
+	public void entryParsed() {
+		checkCancelled();
+		entries.increment();
+	}
+
+	void addBytes(long count) {
+		bytesRead.addAndGet(count);
+	}
+
+	/**
+	 * Records that the file has been read up to the position, for sources that are not read as a stream.
+	 */
+	void bytesReadUpTo(long position) {
+		checkCancelled();
+		bytesRead.accumulateAndGet(position, Math::max);
+	}
+
+	/**
+	 * Returns the nanoseconds spent on the file so far, or in total once it is done.
+	 */
+	public long elapsedNanos() {
+		long start = startNanos;
+		if (start == 0)
+			return 0;
+		long end = endNanos;
+		return (end != 0 ? end : System.nanoTime()) - start;
+	}
+
+	public double megabytesPerSecond() {
+		return megabytesPerSecond(getBytesRead(), elapsedNanos());
+	}
+
+	/**
+	 * Returns the estimated milliseconds until the file is read at the current rate, 0 once it is done and -1 if there is no rate yet.
+	 */
+	public long etaMillis() {
+		if (isDone())
+			return 0;
+		return etaMillis(size - getBytesRead(), getBytesRead(), elapsedNanos());
+	}
+
+	/**
+	 * Returns the rate of reading the bytes in the nanoseconds in MB/s.
+	 */
+	public static double megabytesPerSecond(long bytes, long nanos) {
+		return nanos <= 0 ? 0 : bytes / (1024.0 * 1024.0) / (nanos / 1e9);
+	}
+
+	/**
+	 * Returns the milliseconds for the remaining bytes at the rate of the bytes read in the nanoseconds, or -1 if nothing was read yet.
+	 */
+	public static long etaMillis(long remainingBytes, long bytesRead, long nanos) {
+		if (bytesRead <= 0 || nanos <= 0)
+			return -1;
+		return (long) (remainingBytes * (nanos / 1e6) / bytesRead);
+	}
+
+	/**
+	 * Returns a stream that counts the bytes read through it.
+	 */
+	InputStream count(InputStream in) {
+		return new CountingInputStream(in, this);
+	}
+
+	/**
+	 * Returns a channel that counts the bytes read through it, for archives read with random access.
+	 */
+	SeekableByteChannel count(SeekableByteChannel channel) {
+		return new CountingChannel(channel, this);
+	}
+
+	private static class CountingInputStream extends FilterInputStream {
+		private final LoadProgress progress;
+
+		CountingInputStream(InputStream in, LoadProgress progress) {
+			super(in);
+			this.progress = progress;
+		}
+
+		@Override
+		public int read() throws IOException {
+			progress.checkCancelled();
+			int b = super.read();
+			if (b >= 0) {
+				progress.addBytes(1);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			progress.checkCancelled();
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				progress.addBytes(n);
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			progress.addBytes(skipped);
+			return skipped;
+		}
+	}
+
+	private static class CountingChannel implements SeekableByteChannel {
+		private final SeekableByteChannel channel;
+		private final LoadProgress progress;
+
+		CountingChannel(SeekableByteChannel channel, LoadProgress progress) {
+			this.channel = channel;
+			this.progress = progress;
+		}
+
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			progress.checkCancelled();
+			int n = channel.read(dst);
+			if (n > 0) {
+				progress.addBytes(n);
+			}
+			return n;
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+			return channel.write(src);
+		}
+
+		@Override
+		public long position() throws IOException {
+			return channel.position();
+		}
+
+		@Override
+		public SeekableByteChannel position(long newPosition) throws IOException {
+			channel.position(newPosition);
+			return this;
+		}
+
+		@Override
+		public long size() throws IOException {
+			return channel.size();
+		}
+
+		@Override
+		public SeekableByteChannel truncate(long size) throws IOException {
+			channel.truncate(size);
+			return this;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return channel.isOpen();
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+}
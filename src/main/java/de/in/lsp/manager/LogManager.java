@@ -1,22 +1,25 @@
 package de.in.lsp.manager;
 
-import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.io.SequenceInputStream;
-import java.io.StringReader;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 import de.in.lsp.model.LogEntry;
-import de.in.lsp.parser.ConfigurableLogParser;
-import de.in.lsp.parser.LogFormatConfig;
+import de.in.lsp.model.LogEntrySink;
+import de.in.lsp.parser.FallbackLogParser;
 import de.in.lsp.parser.LogParser;
-import de.in.lsp.parser.MultiPatternLogParser;
-import de.in.lsp.parser.PatternBasedLogParser;
+import de.in.lsp.parser.MappedLineSource;
+import de.in.lsp.parser.ParserRegistry;
+import de.in.lsp.util.LspLogger;
 
 /**
  * Handles the loading and orchestration of log files. Provides support for
@@ -27,94 +30,43 @@ import de.in.lsp.parser.PatternBasedLogParser;
  */
 public class LogManager implements ArchiveLogLoader.LogManagerHelper {
 
-	private final List<LogParser> parsers = new ArrayList<>();
-	private final ArchiveLogLoader archiveLoader;
+	/** Plain files from this size on are loaded file-backed if the sink supports it, see {@link LogEntrySink}. */
+	public static final long DEFAULT_FILE_BACKED_MIN_SIZE = 64L * 1024 * 1024;
 
+	/** The shared registry parsers plus the ones added to this manager, safe to iterate while loader threads detect formats. */
+	private final List<LogParser> parsers = new CopyOnWriteArrayList<>(ParserRegistry.getInstance().getParsers());
+	private final ArchiveLogLoader archiveLoader;
+	private final ChunkedFileParser chunkedParser = new ChunkedFileParser();
+	private final FormatDetector formatDetector = new FormatDetector();
+	private final FormatDetectionCache detectionCache;
+	private volatile long fileBackedMinSize = DEFAULT_FILE_BACKED_MIN_SIZE;
+	private volatile ArchiveIndexCache indexCache;
+
+	/**
+	 * Creates a manager with the shared format detection cache and the shared index cache for archives.
+	 */
 	public LogManager() {
-		// Quarkus (High priority, specific)
-		parsers.add(new PatternBasedLogParser("%d{yyyy-MM-dd HH:mm:ss,SSS} %level [%logger] (%t) %msg%n"));
-
-		// Default Parser: %d{yyy-MM-dd HH:mm:ss.SSS} [%t] %-5level %logger{36} - %msg%n
-		parsers.add(new PatternBasedLogParser("%d{yyyy-MM-dd HH:mm:ss.SSS} [%t] %-5level %logger{36} - %msg%n"));
-
-		// dicomPACS.log, DicomServer_in.log, PacsDBBrowser.log
-		parsers.add(new PatternBasedLogParser("%d{yyyy-MM-dd HH:mm:ss,SSS} [%t] (%logger) - %msg%n"));
-
-		// jDicomCC.log
-		parsers.add(new PatternBasedLogParser("%level %d{yyyy-MM-dd HH:mm:ss,SSS} [%t] (%logger) - %msg%n"));
-
-		// starter.log
-		parsers.add(new PatternBasedLogParser("%d{yyyy-MM-dd HH:mm:ss} : %msg%n"));
-
-		// sw.wrapper.log
-		parsers.add(new PatternBasedLogParser("%d{yyyy-MM-dd HH:mm:ss,SSS} %level - %msg%n"));
-
-		// debug.log
-		parsers.add(new PatternBasedLogParser("[%d{MMdd/HHmmss.SSS}:%level:%logger] %msg%n"));
-
-		// localhost.log
-		parsers.add(new PatternBasedLogParser("%d{dd-MMM-yyyy HH:mm:ss.SSS} %level [%t] %logger %msg%n"));
-
-		// postman-portable.log
-		parsers.add(new PatternBasedLogParser("%d{EEE, dd MMM yyyy HH:mm:ss z} %level %logger > %msg%n"));
-
-		// mirth.log (as PatternBased)
-		parsers.add(new PatternBasedLogParser("%level %d{yyyy-MM-dd HH:mm:ss.SSS} [%t] %logger: %msg%n"));
-
-		// diagnost-services (reported issue) 09:00:40.743 [restartedMain] INFO
-		// com.pacs.client.ClientServices - ... \tSourceFile
-		parsers.add(new PatternBasedLogParser("%d{HH:mm:ss.SSS} [%t] %level  %logger - %msg%n"));
-
-		// server.log (Broad pattern, moved lower)
-		parsers.add(new PatternBasedLogParser("%d{yyyy-MM-dd HH:mm:ss,SSS} %level %t [%logger] %msg%n"));
-
-		// SWV: Logback internal format (e.g. "10:31:39,416 |-INFO in ch.qos.logback...
-		// - message")
-		parsers.add(new ConfigurableLogParser(new LogFormatConfig("SWV Logback Internal",
-				"^\\d{2}:\\d{2}:\\d{2},\\d{3}\\s+\\|-\\w+\\s+in\\s+.*",
-				"^(\\d{2}:\\d{2}:\\d{2},\\d{3})\\s+\\|-(\\w+)\\s+in\\s+(.*?)\\s+-\\s+(.*)$", "HH:mm:ss,SSS", 1, 2, -1,
-				3, -1, 4)));
-
-		// SWV: Spring Boot condensed format (e.g. "10:31:50.633 INFO
-		// at.dedalus.swv.SwvApplication - Started...")
-		parsers.add(new ConfigurableLogParser(new LogFormatConfig("SWV Spring Boot",
-				"^\\d{2}:\\d{2}:\\d{2}\\.\\d{3}\\s+\\w+\\s+.*",
-				"^(\\d{2}:\\d{2}:\\d{2}\\.\\d{3})\\s+(\\w+)\\s+(.*?)\\s+-\\s+(.*)$", "HH:mm:ss.SSS", 1, 2, -1, 3, -1,
-				4)));
-
-		// Istio Proxy (Tab separated)
-		parsers.add(new ConfigurableLogParser(new LogFormatConfig("Istio Proxy",
-				"^\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d+Z\\t.*",
-				"^(\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d+Z)\\t(\\w+)\\t(.*?)(?:\\t([a-zA-Z0-9_.-]+))?$",
-				"yyyy-MM-dd'T'HH:mm:ss.SSSSSS'Z'", 1, 2, -1, 4, -1, 3)));
-
-		// server.log.dicomservices (Spring Boot default-ish with ISO8601)
-		parsers.add(new ConfigurableLogParser(new LogFormatConfig("server.log.dicomservices",
-				"^\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3}Z?\\s+.*",
-				"^(\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3}Z?)\\s+(\\w+)\\s+\\d+\\s+---\\s+\\[(.*?)\\]\\s*(?:\\[(.*?)\\]\\s*)?(.*?)\\s+:\\s+(.*)$",
-				"yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", 1, 2, 3, 5, -1, 6)));
-
-		// Postgres / Patroni
-		parsers.add(new MultiPatternLogParser("Postgres (mixed)",
-				Arrays.asList("%d{yyyy-MM-dd HH:mm:ss,SSS} %level: %msg%n",
-						"%d{yyyy-MM-dd HH:mm:ss.SSS} UTC [%t] %level %msg%n")));
-
-		// Access Log (Nginx/Apache)
-		parsers.add(new PatternBasedLogParser("%h - - [%d{dd/MMM/yyyy:HH:mm:ss Z}] %msg%n"));
-
-		// Legacy-Default as fallback
-		parsers.add(new ConfigurableLogParser(
-				new LogFormatConfig("Legacy-Default", "^\\[.*\\] .*", "^\\[(.*?)\\]\\s+(\\w+)\\s+(.*)$",
-						"yyyy-MM-dd HH:mm:ss", 1, 2, -1, -1, -1, 3)));
+		this(FormatDetectionCache.getDefault());
+		this.indexCache = ArchiveIndexCache.getDefault();
+	}
 
+	public LogManager(FormatDetectionCache detectionCache) {
+		this.detectionCache = detectionCache;
 		// Unpack ArchiveLogLoader which handles recursion We pass 'this::parseStream'
 		// to allow ArchiveLogLoader to call back into
 		// LogManager for parsing unpacked streams
-		this.archiveLoader = new ArchiveLogLoader(this, (is, name) -> {
+		this.archiveLoader = new ArchiveLogLoader(this, (is, name, sink) -> {
 			try {
-				return parseWithAutoDetect(is, name);
+				parseWithAutoDetect(is, name, sink);
+			} catch (CancellationException e) {
+				throw e;
 			} catch (Exception e) {
-				return new ArrayList<>();
+				// The entries are streamed, so a member that fails part way keeps the entries it delivered and the archive goes on with the
+				// next member. The index would hold the truncated member, it is not written.
+				LspLogger.warn("Archive member " + name + " could not be read completely: " + e.getMessage());
+				if (sink instanceof ArchiveIndexCache.Recorder recorder) {
+					recorder.memberFailed(name);
+				}
 			}
 		});
 	}
@@ -123,6 +75,28 @@ public class LogManager implements ArchiveLogLoader.LogManagerHelper {
 		parsers.add(parser);
 	}
 
+	List<LogParser> getParsers() {
+		return parsers;
+	}
+
+	public FormatDetectionCache getDetectionCache() {
+		return detectionCache;
+	}
+
+	/**
+	 * Sets the cache archives are read from when they are opened again, null to always unpack and parse them.
+	 */
+	public void setIndexCache(ArchiveIndexCache indexCache) {
+		this.indexCache = indexCache;
+	}
+
+	/**
+	 * Sets the size from which plain files keep their entry texts in the mapped file instead of the heap. Long.MAX_VALUE disables it.
+	 */
+	public void setFileBackedMinSize(long fileBackedMinSize) {
+		this.fileBackedMinSize = fileBackedMinSize;
+	}
+
 	public List<File> scanVisibleFiles(File dir) {
 		List<File> files = new ArrayList<>();
 		File[] list = dir.listFiles();
@@ -141,22 +115,138 @@ public class LogManager implements ArchiveLogLoader.LogManagerHelper {
 		return n.endsWith(".log") || n.endsWith(".txt") || n.endsWith(".zip") || n.endsWith(".7z") || n.endsWith(".gz");
 	}
 
+	/**
+	 * Group logs by "App Name" (ignores rotation numbers and common suffixes).
+	 */
+	public static String detectApplicationName(String fileName) {
+		String name = fileName;
+		String prev;
+
+		do {
+			prev = name;
+			// Remove common end-of-string extensions
+			name = name.replaceAll("(?i)\\.(gz|zip|7z|log|txt|bak|old|tmp)$", "");
+			// Remove integer suffixes (rotation)
+			name = name.replaceAll("\\.\\d+$", "");
+			// Remove trailing dates (YYYY-MM-DD, YYYYMMDD)
+			name = name.replaceAll("[-_.]?\\d{4}[-_.]?\\d{2}[-_.]?\\d{2}$", "");
+			// Remove version-like suffixes
+			name = name.replaceAll("[-_.]?(v|V)?\\d+(\\.\\d+)*$", "");
+		} while (!name.equals(prev));
+
+		// Final cleanup of trailing separators
+		name = name.replaceAll("[-_.]+$", "");
+
+		if (name.isEmpty())
+			return fileName;
+		return name;
+	}
+
 	public List<LogEntry> loadLog(File file) throws Exception {
+		List<LogEntry> entries = new ArrayList<>();
+		loadLog(file, entries::add);
+		return entries;
+	}
+
+	/**
+	 * Loads a plain log file or archive and pushes every entry to the sink as soon as it is parsed, without collecting per-file lists.
+	 * Large plain files are passed to a {@link LogEntrySink} with the file range of each entry, so it can keep the text in the file.
+	 */
+	public void loadLog(File file, Consumer<LogEntry> sink) throws Exception {
+		loadLog(file, sink, new LoadProgress(file));
+	}
+
+	/**
+	 * Like {@link #loadLog(File, Consumer)}, and counts the bytes read from the file in the progress. A cancelled progress ends the load
+	 * with a {@link CancellationException} at the next read.
+	 */
+	public void loadLog(File file, Consumer<LogEntry> sink, LoadProgress progress) throws Exception {
+		progress.checkCancelled();
+		progress.start();
+		try {
+			String name = file.getName().toLowerCase();
+			if (name.endsWith(".zip") || name.endsWith(".7z") || name.endsWith(".gz")) {
+				loadArchive(file, sink, progress);
+			} else {
+				loadPlainFile(file, sink, progress);
+			}
+			progress.bytesReadUpTo(progress.getSize());
+		} finally {
+			progress.finish();
+		}
+	}
+
+	/**
+	 * Reads the archive from its index if it was opened before, otherwise unpacks and parses it and writes the index on the way.
+	 */
+	private void loadArchive(File file, Consumer<LogEntry> sink, LoadProgress progress) throws Exception {
+		ArchiveIndexCache cache = indexCache;
+		if (cache == null) {
+			unpackArchive(file, sink, progress);
+			return;
+		}
+		if (cache.replay(file, sink, progress, getFormatNames()))
+			return;
+		try (ArchiveIndexCache.Recorder recorder = cache.record(file, sink)) {
+			unpackArchive(file, recorder, progress);
+			recorder.commit();
+		}
+	}
+
+	private void unpackArchive(File file, Consumer<LogEntry> sink, LoadProgress progress) throws Exception {
 		String name = file.getName().toLowerCase();
 		if (name.endsWith(".zip")) {
-			return archiveLoader.loadFromZip(file);
+			archiveLoader.loadFromZip(file, sink, progress);
 		} else if (name.endsWith(".7z")) {
-			return archiveLoader.loadFrom7z(file);
-		} else if (name.endsWith(".gz")) {
-			return archiveLoader.loadFromGzip(file);
+			archiveLoader.loadFrom7z(file, sink, progress);
 		} else {
-			return loadPlainFile(file);
+			archiveLoader.loadFromGzip(file, sink, progress);
+		}
+	}
+
+	/**
+	 * Returns the formats the parsers of this manager produce, including the fallback for logs no parser accepts.
+	 */
+	private Set<String> getFormatNames() {
+		Set<String> formats = new HashSet<>();
+		for (LogParser parser : parsers) {
+			formats.add(parser.getFormatName());
 		}
+		formats.add(new FallbackLogParser().getFormatName());
+		return formats;
 	}
 
-	private List<LogEntry> loadPlainFile(File file) throws Exception {
+	private void loadPlainFile(File file, Consumer<LogEntry> sink, LoadProgress progress) throws Exception {
+		byte[] head;
 		try (InputStream is = new FileInputStream(file)) {
-			return parseWithAutoDetect(is, file.getName());
+			head = readHead(is);
+		}
+		if (head.length == 0 || isBinaryContent(head, head.length)) {
+			return;
+		}
+		LogParser parser = selectParser(head, file.getName());
+
+		if (sink instanceof LogEntrySink entrySink && file.length() >= fileBackedMinSize) {
+			try (FileRangeTracker tracker = new FileRangeTracker(file, entrySink)) {
+				parsePlainFile(file, parser, tracker, progress);
+			}
+		} else {
+			parsePlainFile(file, parser, sink, progress);
+		}
+	}
+
+	private void parsePlainFile(File file, LogParser parser, Consumer<LogEntry> sink, LoadProgress progress) throws Exception {
+		if (file.length() >= ChunkedFileParser.MIN_PARALLEL_SIZE) {
+			chunkedParser.parse(file, parser, file.getName(), sink, progress);
+			return;
+		}
+		// Plain files are mapped instead of streamed, lines are matched directly on the mapped bytes. The bytes read are the end of the
+		// last line the parser took, it reads at most one line ahead of the entry it hands on.
+		try (MappedLineSource lines = MappedLineSource.open(file)) {
+			parser.parse(lines, file.getName(), entry -> {
+				progress.bytesReadUpTo(lines.lineEnd());
+				sink.accept(entry);
+			});
 		}
 	}
 
@@ -173,26 +263,23 @@ public class LogManager implements ArchiveLogLoader.LogManagerHelper {
 	}
 
 	public List<LogEntry> parseStream(InputStream is, String sourceName) throws Exception {
-		return parseWithAutoDetect(is, sourceName);
+		List<LogEntry> entries = new ArrayList<>();
+		parseWithAutoDetect(is, sourceName, entries::add);
+		return entries;
 	}
 
-	private List<LogEntry> parseWithAutoDetect(InputStream is, String sourceName) throws Exception {
-		// Read the first 128KB to detect the parser (increased from 16KB for large
-		// headers)
-		int bufferSize = 128 * 1024;
-		byte[] buffer = new byte[bufferSize];
-		int bytesRead = 0;
-		int n;
-		// Read up to bufferSize
-		while (bytesRead < bufferSize && (n = is.read(buffer, bytesRead, bufferSize - bytesRead)) != -1) {
-			bytesRead += n;
-		}
+	public void parseStream(InputStream is, String sourceName, Consumer<LogEntry> sink) throws Exception {
+		parseWithAutoDetect(is, sourceName, sink);
+	}
+
+	private void parseWithAutoDetect(InputStream is, String sourceName, Consumer<LogEntry> sink) throws Exception {
+		byte[] head = readHead(is);
 
-		if (bytesRead <= 0)
-			return new ArrayList<>();
+		if (head.length == 0)
+			return;
 
 		// Check for binary content in the read buffer
-		if (isBinaryContent(buffer, bytesRead)) {
+		if (isBinaryContent(head, head.length)) {
 			// Treat as binary, ignore. But we must NOT close the stream if it's a shielded
 			// stream from a zip, the caller handles the stream
 			// lifecycle (except valid parsing which consumes it). Actually,
@@ -202,45 +289,60 @@ public class LogManager implements ArchiveLogLoader.LogManagerHelper {
 			// here is a no-op for the underlying zip stream, but good practice to 'close'
 			// the wrapper.
 			is.close();
-			return new ArrayList<>();
+			return;
 		}
 
-		// Create a buffer for proper reuse
-		byte[] head = new byte[bytesRead];
-		System.arraycopy(buffer, 0, head, 0, bytesRead);
+		LogParser selectedParser = selectParser(head, sourceName);
+		if (sink instanceof ArchiveIndexCache.Recorder recorder) {
+			recorder.parserSelected(sourceName, selectedParser);
+		}
 
-		String firstLine = new BufferedReader(
-				new StringReader(new String(head, java.nio.charset.StandardCharsets.UTF_8))).readLine();
+		// Reconstruct the full stream: Head + Remaining Original Stream We pass this to
+		// the parser. The parser WILL close this stream. This
+		// is why we need CloseShieldInputStream in the caller.
+		InputStream fullStream = new SequenceInputStream(new ByteArrayInputStream(head), is);
+		selectedParser.parse(fullStream, sourceName, sink);
+	}
 
-		List<LogParser> candidates = new ArrayList<>();
-		for (LogParser parser : parsers) {
-			if (parser.canParse(firstLine)) {
-				candidates.add(parser);
-			}
+	/**
+	 * Reads the first 128KB of the stream, which are used to detect the parser (increased from 16KB for large headers).
+	 */
+	private byte[] readHead(InputStream is) throws Exception {
+		int bufferSize = 128 * 1024;
+		byte[] buffer = new byte[bufferSize];
+		int bytesRead = 0;
+		int n;
+		// Read up to bufferSize
+		while (bytesRead < bufferSize && (n = is.read(buffer, bytesRead, bufferSize - bytesRead)) != -1) {
+			bytesRead += n;
 		}
 
-		LogParser selectedParser = null;
-		if (!candidates.isEmpty()) {
-			// Try to find the best parser among candidates
-			selectedParser = findBestParser(candidates, head, sourceName);
-		}
+		// Create a buffer for proper reuse
+		byte[] head = new byte[bytesRead];
+		System.arraycopy(buffer, 0, head, 0, bytesRead);
+		return head;
+	}
 
-		if (selectedParser == null) {
-			// No candidate matched first line OR candidates produced no entries. Try ALL
-			// parsers (handles cases where the file starts with
-			// a header).
-			selectedParser = findBestParser(parsers, head, sourceName);
+	/**
+	 * Selects the parser for the given head of a log. Never returns null, the FallbackLogParser is used if no parser finds timed entries.
+	 * A parser remembered for the same application and head fingerprint is reused if it still accepts the first entry, otherwise the
+	 * full detection runs and its winner is remembered.
+	 */
+	private LogParser selectParser(byte[] head, String sourceName) throws Exception {
+		String key = FormatDetectionCache.key(sourceName, head);
+		LogParser cached = detectionCache.lookup(key, parsers);
+		if (cached != null && formatDetector.confirms(cached, head)) {
+			detectionCache.recordHit();
+			return cached;
 		}
+		detectionCache.recordMiss();
 
+		LogParser selectedParser = formatDetector.detect(parsers, head, sourceName);
 		if (selectedParser == null) {
-			selectedParser = new de.in.lsp.parser.FallbackLogParser();
+			return new FallbackLogParser();
 		}
-
-		// Reconstruct the full stream: Head + Remaining Original Stream We pass this to
-		// the parser. The parser WILL close this stream. This
-		// is why we need CloseShieldInputStream in the caller.
-		InputStream fullStream = new SequenceInputStream(new ByteArrayInputStream(head), is);
-		return selectedParser.parse(fullStream, sourceName);
+		detectionCache.store(key, selectedParser);
+		return selectedParser;
 	}
 
 	private boolean isBinaryContent(byte[] buffer, int length) {
@@ -271,40 +373,4 @@ public class LogManager implements ArchiveLogLoader.LogManagerHelper {
 		return false;
 	}
 
-	private LogParser findBestParser(List<LogParser> candidates, byte[] head, String sourceName) {
-		LogParser bestParser = null;
-		int maxTimedEntries = 0;
-		int maxTotalEntries = 0;
-
-		for (LogParser parser : candidates) {
-			try {
-				// Parse the header chunk to count entries
-				List<LogEntry> entries = parser.parse(new ByteArrayInputStream(head), sourceName);
-				int timedEntries = 0;
-				for (LogEntry e : entries) {
-					if (e.timestamp() != null) {
-						timedEntries++;
-					}
-				}
-
-				// We prefer the parser that finds the most TIMED entries. If timedEntries are
-				// equal, we take the one with more total
-				// entries.
-				if (timedEntries > maxTimedEntries
-						|| (timedEntries == maxTimedEntries && entries.size() > maxTotalEntries)) {
-					maxTimedEntries = timedEntries;
-					maxTotalEntries = entries.size();
-					bestParser = parser;
-				}
-			} catch (Exception e) {
-				// Ignore failure
-			}
-		}
-
-		// Return best parser if it found at least some TIMED entries. If no parser
-		// found timed entries, we prefer null to trigger
-		// FallbackLogParser.
-		return (maxTimedEntries > 0) ? bestParser : null;
-	}
-
 }
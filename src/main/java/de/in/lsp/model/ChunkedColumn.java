@@ -0,0 +1,144 @@
+package de.in.lsp.model;
+
+import java.util.Arrays;
+
+/**
+ * Primitive column of a {@link LogStore}, held in fixed-size chunks. Growing the column adds chunks and never moves the values already
+ * written, so a reader that obtained a row count through a volatile read can read every row below it while the writer keeps appending.
+ * Only the chunk directory is replaced when it grows. The new directory is filled completely before it is published through a volatile
+ * field, so a reader that sees it, even before the next row count is published, sees all of its chunks; the old one still holds all
+ * earlier chunks.
+ *
+ * @author TiJaWo68
+ */
+abstract class ChunkedColumn {
+
+	static final int CHUNK_SHIFT = 10;
+	static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	/** Number of chunks allocated, the directory may have room for more. */
+	int allocated;
+
+	/**
+	 * Returns the number of rows the column can hold without adding chunks.
+	 */
+	int capacity() {
+		return allocated << CHUNK_SHIFT;
+	}
+
+	/**
+	 * Adds chunks until the column can hold {@code rows} rows.
+	 */
+	abstract void ensureCapacity(int rows);
+
+	static int chunkCount(int rows) {
+		return (rows + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+	}
+
+	static final class OfLong extends ChunkedColumn {
+		private volatile long[][] chunks = new long[0][];
+
+		long get(int row) {
+			return chunks[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+		}
+
+		void set(int row, long value) {
+			chunks[row >>> CHUNK_SHIFT][row & CHUNK_MASK] = value;
+		}
+
+		@Override
+		void ensureCapacity(int rows) {
+			int count = chunkCount(rows);
+			if (count <= allocated)
+				return;
+			long[][] directory = chunks;
+			if (count > directory.length) {
+				directory = Arrays.copyOf(directory, Math.max(count, directory.length + (directory.length >> 1)));
+			}
+			while (allocated < count) {
+				directory[allocated++] = new long[CHUNK_SIZE];
+			}
+			chunks = directory;
+		}
+
+		/**
+		 * Copies rows [0, count) of another column to the rows starting at {@code row}.
+		 */
+		void copy(OfLong source, int count, int row) {
+			int copied = 0;
+			while (copied < count) {
+				int target = row + copied;
+				int length = Math.min(count - copied, Math.min(CHUNK_SIZE - (copied & CHUNK_MASK), CHUNK_SIZE - (target & CHUNK_MASK)));
+				System.arraycopy(source.chunks[copied >>> CHUNK_SHIFT], copied & CHUNK_MASK, chunks[target >>> CHUNK_SHIFT],
+						target & CHUNK_MASK, length);
+				copied += length;
+			}
+		}
+
+		/**
+		 * Returns a column whose row i holds the value of row {@code rows[i]} of this column.
+		 */
+		OfLong permute(int[] rows) {
+			OfLong result = new OfLong();
+			result.ensureCapacity(capacity());
+			for (int i = 0; i < rows.length; i++) {
+				result.set(i, get(rows[i]));
+			}
+			return result;
+		}
+	}
+
+	static final class OfInt extends ChunkedColumn {
+		private volatile int[][] chunks = new int[0][];
+
+		int get(int row) {
+			return chunks[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+		}
+
+		void set(int row, int value) {
+			chunks[row >>> CHUNK_SHIFT][row & CHUNK_MASK] = value;
+		}
+
+		@Override
+		void ensureCapacity(int rows) {
+			int count = chunkCount(rows);
+			if (count <= allocated)
+				return;
+			int[][] directory = chunks;
+			if (count > directory.length) {
+				directory = Arrays.copyOf(directory, Math.max(count, directory.length + (directory.length >> 1)));
+			}
+			while (allocated < count) {
+				directory[allocated++] = new int[CHUNK_SIZE];
+			}
+			chunks = directory;
+		}
+
+		/**
+		 * Copies rows [0, count) of another column to the rows starting at {@code row}.
+		 */
+		void copy(OfInt source, int count, int row) {
+			int copied = 0;
+			while (copied < count) {
+				int target = row + copied;
+				int length = Math.min(count - copied, Math.min(CHUNK_SIZE - (copied & CHUNK_MASK), CHUNK_SIZE - (target & CHUNK_MASK)));
+				System.arraycopy(source.chunks[copied >>> CHUNK_SHIFT], copied & CHUNK_MASK, chunks[target >>> CHUNK_SHIFT],
+						target & CHUNK_MASK, length);
+				copied += length;
+			}
+		}
+
+		/**
+		 * Returns a column whose row i holds the value of row {@code rows[i]} of this column.
+		 */
+		OfInt permute(int[] rows) {
+			OfInt result = new OfInt();
+			result.ensureCapacity(capacity());
+			for (int i = 0; i < rows.length; i++) {
+				result.set(i, get(rows[i]));
+			}
+			return result;
+		}
+	}
+}
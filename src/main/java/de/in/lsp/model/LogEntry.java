@@ -1,17 +1,34 @@
 package de.in.lsp.model;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 
 /**
  * Represents a single log entry with timestamp, level, message, and source information. Supports natural ordering based on the timestamp.
+ * <p>
+ * The timestamp is held as a primitive count of nanoseconds since 1970-01-01T00:00 on the local wall-clock timeline (the parsers convert
+ * zoned formats to the system zone), or {@link #NO_TIMESTAMP} for header lines. Sorting and searching compare these longs, a
+ * LocalDateTime is only built when a caller asks for {@link #timestamp()}.
  * 
  * @author TiJaWo68 in cooperation with Gemini 3 Flash using Antigravity
  */
-public record LogEntry(LocalDateTime timestamp, String level, String thread, String loggerName, String ip, int port, String message,
+public record LogEntry(long timestampNanos, String level, String thread, String loggerName, String ip, int port, String message,
 		String sourceFile, String rawLine) implements Comparable<LogEntry> {
 
+	/** Marks an entry without timestamp, e.g. the header lines before the first entry of a file. */
+	public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
 	private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+	/** Range representable as nanos in a long (about 1677-09-21 to 2262-04-11), anything outside is clamped. */
+	private static final long MIN_SECONDS = Long.MIN_VALUE / NANOS_PER_SECOND + 1;
+	private static final long MAX_SECONDS = Long.MAX_VALUE / NANOS_PER_SECOND - 1;
+
+	public LogEntry(LocalDateTime timestamp, String level, String thread, String loggerName, String ip, int port, String message,
+			String sourceFile, String rawLine) {
+		this(toNanos(timestamp), level, thread, loggerName, ip, port, message, sourceFile, rawLine);
+	}
 
 	/**
 	 * Backward-compatible constructor for cases where port is not known.
@@ -21,11 +38,68 @@ public record LogEntry(LocalDateTime timestamp, String level, String thread, Str
 		this(timestamp, level, thread, loggerName, ip, 0, message, sourceFile, rawLine);
 	}
 
+	/**
+	 * Returns the timestamp as LocalDateTime, or null if the entry has none.
+	 */
+	public LocalDateTime timestamp() {
+		return fromNanos(timestampNanos);
+	}
+
+	public boolean hasTimestamp() {
+		return timestampNanos != NO_TIMESTAMP;
+	}
+
 	public String getFormattedTimestamp() {
-		return timestamp != null ? timestamp.format(TIME_FORMATTER) : "";
+		return formatTimestamp(timestampNanos);
+	}
+
+	/**
+	 * Converts a wall-clock time to the nanos held by an entry; null yields {@link #NO_TIMESTAMP}.
+	 */
+	public static long toNanos(LocalDateTime timestamp) {
+		if (timestamp == null)
+			return NO_TIMESTAMP;
+		long seconds = timestamp.toEpochSecond(ZoneOffset.UTC);
+		if (seconds < MIN_SECONDS)
+			return MIN_SECONDS * NANOS_PER_SECOND;
+		if (seconds > MAX_SECONDS)
+			return MAX_SECONDS * NANOS_PER_SECOND;
+		return seconds * NANOS_PER_SECOND + timestamp.getNano();
+	}
+
+	/**
+	 * Inverse of {@link #toNanos(LocalDateTime)}.
+	 */
+	public static LocalDateTime fromNanos(long nanos) {
+		if (nanos == NO_TIMESTAMP)
+			return null;
+		return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, NANOS_PER_SECOND), (int) Math.floorMod(nanos, NANOS_PER_SECOND),
+				ZoneOffset.UTC);
+	}
+
+	/**
+	 * Formats the time of day of the given nanos for the table, or returns "" for {@link #NO_TIMESTAMP}.
+	 */
+	public static String formatTimestamp(long nanos) {
+		return formatTimestamp(fromNanos(nanos));
 	}
 
 	public String getSimpleLoggerName() {
+		return simpleLoggerName(loggerName);
+	}
+
+	public String getSimpleThreadName() {
+		return simpleThreadName(thread);
+	}
+
+	/**
+	 * Formats a timestamp like {@link #getFormattedTimestamp()}, for callers that read the fields from a {@link LogStore} column.
+	 */
+	public static String formatTimestamp(LocalDateTime timestamp) {
+		return timestamp != null ? timestamp.format(TIME_FORMATTER) : "";
+	}
+
+	public static String simpleLoggerName(String loggerName) {
 		if (loggerName == null || loggerName.isEmpty()) {
 			return "";
 		}
@@ -38,7 +112,7 @@ public record LogEntry(LocalDateTime timestamp, String level, String thread, Str
 		return lastDot != -1 ? clean.substring(lastDot + 1) : clean;
 	}
 
-	public String getSimpleThreadName() {
+	public static String simpleThreadName(String thread) {
 		if (thread == null || thread.isEmpty()) {
 			return "";
 		}
@@ -52,15 +126,27 @@ public record LogEntry(LocalDateTime timestamp, String level, String thread, Str
 		return lastDot != -1 ? clean.substring(lastDot + 1) : clean;
 	}
 
+	/**
+	 * Returns the entry with level, thread, logger, ip and source replaced by the shared instances of the {@link SymbolTable}, for
+	 * entries that were not built by a parser (e.g. events of the network receivers).
+	 */
+	public LogEntry internSymbols() {
+		SymbolTable symbols = SymbolTable.getInstance();
+		return new LogEntry(timestampNanos, symbols.intern(level), symbols.intern(thread), symbols.intern(loggerName), symbols.intern(ip), port,
+				message, symbols.intern(sourceFile), rawLine);
+	}
+
 	public LogEntry appendMessage(String extra) {
-		return new LogEntry(timestamp, level, thread, loggerName, ip, port, message + extra, sourceFile, rawLine + extra);
+		return new LogEntry(timestampNanos, level, thread, loggerName, ip, port, message + extra, sourceFile, rawLine + extra);
 	}
 
+	/**
+	 * Orders entries by timestamp, entries without timestamp come before all others. A {@link LogStore} sorted without comparator keeps
+	 * them next to their neighbors instead.
+	 */
 	@Override
 	public int compareTo(LogEntry other) {
-		if (this.timestamp == null || other.timestamp == null) {
-			return 0;
-		}
-		return this.timestamp.compareTo(other.timestamp);
+		// NO_TIMESTAMP is Long.MIN_VALUE, so this is a total order
+		return Long.compare(this.timestampNanos, other.timestampNanos);
 	}
 }
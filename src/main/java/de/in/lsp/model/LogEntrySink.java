@@ -0,0 +1,20 @@
+package de.in.lsp.model;
+
+import java.util.function.Consumer;
+
+/**
+ * Receives parsed entries. Sinks that can keep the text of an entry in its source file (such as {@link LogStore#add(LogEntry,
+ * MappedFileText, long, int)}) also accept the byte range of the entry; all others simply take the entry.
+ *
+ * @author TiJaWo68
+ */
+@FunctionalInterface
+public interface LogEntrySink extends Consumer<LogEntry> {
+
+	/**
+	 * Accepts an entry whose raw text is the byte range [offset, offset + length) of the mapped file. The default keeps the entry as is.
+	 */
+	default void accept(LogEntry entry, MappedFileText file, long offset, int length) {
+		accept(entry);
+	}
+}
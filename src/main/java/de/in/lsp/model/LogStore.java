@@ -0,0 +1,849 @@
+package de.in.lsp.model;
+
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Column-oriented list of log entries. Instead of one LogEntry record (with eight references) per line, the store keeps the entries'
+ * epoch nanos in a primitive timestamp column, int columns of {@link SymbolTable} ids for level, thread, logger, ip and source (values
+ * the shared table has no room for are kept in a table of the store, see {@link #symbol(int)}), and the
+ * raw texts in large byte pages. The message is nearly always a part of the raw line (the {@code %msg} group plus the continuation lines),
+ * so it is stored as a char range of the raw text instead of a second copy; only messages that do not occur in their raw text are stored
+ * on their own. {@link #get(int)} builds a LogEntry view on demand; code that scans many rows should use the column accessors such as
+ * {@link #level(int)}, {@link #threadId(int)} or {@link #hasTimestamp(int)}, which do not create entries.
+ * <p>
+ * Rows added with {@link #add(LogEntry, MappedFileText, long, int)} keep only the byte range of their raw text in the mapped source file.
+ * Their texts are decoded when a row is read, the last decoded texts are kept in a small LRU for the rows currently on screen.
+ * <p>
+ * The text pages are kept off the heap by default (see {@link TextStorage}), so only the columns count against {@code -Xmx} and the
+ * garbage collector never has to scan or copy the texts of large sessions. Full pages are LZ4-compressed unless compression is switched
+ * off with {@code -Dlsp.text.compression=false}; {@link #findMessages(Predicate)} scans the rows in parallel, grouped by the page their
+ * message is read from, so every block of a search is decompressed once, on several cores, in whatever order the rows are sorted.
+ * <p>
+ * Entries can be appended, replaced and sorted, but not removed individually. The store is append-only in the sense of the Java memory
+ * model: the columns are held in fixed-size chunks that never move, and a row is published by raising the volatile {@link #size()} after
+ * all of its values are written. One thread may append (e.g. a live stream on the EDT) while any number of threads read and scan the
+ * rows below the size they read, without locks and without {@link java.util.ConcurrentModificationException}. {@link #set(int, LogEntry)},
+ * {@link #sort(Comparator)} and {@link #clear()} rewrite published rows and need exclusive access, like all methods of ArrayList.
+ *
+ * @author TiJaWo68
+ */
+public class LogStore extends AbstractList<LogEntry> implements RandomAccess {
+
+	/**
+	 * Where the text pages of a store are allocated. The default is read from the system property {@code lsp.text.storage}
+	 * ({@code heap}, {@code direct} or {@code file}) and is {@link #DIRECT}.
+	 */
+	public enum TextStorage {
+		/** Byte arrays on the Java heap. */
+		HEAP,
+		/** Direct buffers outside the heap, limited by {@code -XX:MaxDirectMemorySize} (by default the same as {@code -Xmx}). */
+		DIRECT,
+		/** Memory-mapped temp files, limited only by the disk; the OS pages them out when memory gets short. */
+		FILE
+	}
+
+	private static volatile TextStorage defaultTextStorage = textStorageProperty();
+	private static volatile boolean defaultCompression = !"false".equalsIgnoreCase(System.getProperty("lsp.text.compression"));
+
+	private static final long NO_TIMESTAMP = LogEntry.NO_TIMESTAMP;
+	private static final long NO_TEXT = -1;
+	/** Text ref flag of a raw text in a mapped file: file index in bits 40-60, byte offset in bits 0-39, length in {@link #rawLengths}. */
+	private static final long FILE_REF = 1L << 62;
+	/** Text ref flag of a message that is a part of the row's raw text: char offset in bits 31-60, char length in bits 0-30. */
+	private static final long RANGE_REF = 1L << 61;
+	private static final int FILE_SHIFT = 40;
+	private static final long OFFSET_MASK = (1L << FILE_SHIFT) - 1;
+	private static final int RANGE_SHIFT = 31;
+	private static final long RANGE_LENGTH_MASK = (1L << RANGE_SHIFT) - 1;
+	private static final int DECODED_CACHE_SIZE = 512;
+	/** Rows per task of a parallel scan. */
+	private static final int SCAN_CHUNK = 1 << 14;
+
+	private final SymbolTable symbols = SymbolTable.getInstance();
+	/** Symbols the shared table had no room for, their ids are {@link SymbolTable#MAX_SYMBOLS} plus the id in this table. */
+	private SymbolTable localSymbols = new SymbolTable();
+	private final TextPages texts;
+	/** Symbol ids of all source files that were added, bit 0 stands for a null source. */
+	private final BitSet sourceCodes = new BitSet();
+	/** Files referenced by FILE_REF texts, the index is part of the ref. Copy-on-write, so readers see a file added after they started. */
+	private final List<MappedFileText> files = new CopyOnWriteArrayList<>();
+	/** Raw texts of file-backed rows decoded last, by text ref. */
+	private final Map<Long, String> decoded = new LinkedHashMap<>(DECODED_CACHE_SIZE, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+			return size() > DECODED_CACHE_SIZE;
+		}
+	};
+
+	private ChunkedColumn.OfLong timestamps;
+	private ChunkedColumn.OfInt levels;
+	private ChunkedColumn.OfInt threads;
+	private ChunkedColumn.OfInt loggers;
+	private ChunkedColumn.OfInt ips;
+	private ChunkedColumn.OfInt ports;
+	private ChunkedColumn.OfInt sources;
+	private ChunkedColumn.OfLong messages;
+	private ChunkedColumn.OfLong rawLines;
+	/** Byte length of file-backed raw texts. */
+	private ChunkedColumn.OfInt rawLengths;
+	/** Number of published rows. Rows are written completely before the size is raised, which publishes them to all readers. */
+	private volatile int size;
+
+	public LogStore() {
+		this(1024);
+	}
+
+	public LogStore(int initialCapacity) {
+		this(initialCapacity, defaultTextStorage);
+	}
+
+	public LogStore(int initialCapacity, TextStorage textStorage) {
+		this(initialCapacity, textStorage, defaultCompression);
+	}
+
+	public LogStore(int initialCapacity, TextStorage textStorage, boolean compressed) {
+		texts = new TextPages(textStorage, compressed);
+		allocate(initialCapacity);
+	}
+
+	public LogStore(Collection<? extends LogEntry> entries) {
+		this(entries.size());
+		appendAll(entries);
+	}
+
+	public static TextStorage getDefaultTextStorage() {
+		return defaultTextStorage;
+	}
+
+	/**
+	 * Sets the text storage of stores created from now on.
+	 */
+	public static void setDefaultTextStorage(TextStorage textStorage) {
+		defaultTextStorage = textStorage;
+	}
+
+	public static boolean isDefaultCompression() {
+		return defaultCompression;
+	}
+
+	/**
+	 * Sets whether stores created from now on compress their full text pages.
+	 */
+	public static void setDefaultCompression(boolean compressed) {
+		defaultCompression = compressed;
+	}
+
+	/**
+	 * Returns the list itself if it already is a store, otherwise a store holding a copy of its entries.
+	 */
+	public static LogStore of(List<? extends LogEntry> entries) {
+		return entries instanceof LogStore store ? store : new LogStore(entries);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Iterates over the rows present when the iterator is created. Unlike the iterators of other lists it does not fail when rows are
+	 * appended meanwhile, so readers can iterate while a live stream appends.
+	 */
+	@Override
+	public Iterator<LogEntry> iterator() {
+		int count = size();
+		return new Iterator<>() {
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				return next < count;
+			}
+
+			@Override
+			public LogEntry next() {
+				if (next >= count)
+					throw new NoSuchElementException();
+				return get(next++);
+			}
+		};
+	}
+
+	@Override
+	public LogEntry get(int index) {
+		checkIndex(index);
+		return new LogEntry(timestampNanos(index), level(index), thread(index), loggerName(index), ip(index), port(index), message(index),
+				sourceFile(index), rawLine(index));
+	}
+
+	@Override
+	public void add(int index, LogEntry entry) {
+		if (index != size)
+			throw new UnsupportedOperationException("Entries can only be appended");
+		append(entry);
+	}
+
+	private void append(LogEntry entry) {
+		int row = size;
+		grow(row + 1);
+		write(row, entry);
+		size = row + 1;
+		modCount++;
+	}
+
+	/**
+	 * Appends an entry whose raw text is the byte range [offset, offset + length) of the mapped file. Only the range is stored, the message
+	 * is kept like for any other row.
+	 */
+	public void add(LogEntry entry, MappedFileText file, long offset, int length) {
+		String raw = entry.rawLine();
+		if (raw == null || offset > OFFSET_MASK)
+			throw new IllegalArgumentException("The raw text of the entry cannot be kept in the file");
+		long rawRef = FILE_REF | ((long) fileIndex(file) << FILE_SHIFT) | offset;
+		int row = size;
+		grow(row + 1);
+		writeFields(row, entry);
+		rawLines.set(row, rawRef);
+		rawLengths.set(row, length);
+		messages.set(row, messageRef(entry.message(), raw));
+		size = row + 1;
+		modCount++;
+	}
+
+	@Override
+	public LogEntry set(int index, LogEntry entry) {
+		LogEntry previous = get(index);
+		write(index, entry);
+		return previous;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends LogEntry> entries) {
+		return appendAll(entries);
+	}
+
+	/**
+	 * Appends the entries, copying the columns of another store directly. Only calls methods that cannot be overridden, so the
+	 * constructor can use it.
+	 */
+	private boolean appendAll(Collection<? extends LogEntry> entries) {
+		if (!(entries instanceof LogStore other) || other instanceof LogStoreView) {
+			for (LogEntry entry : entries) {
+				append(entry);
+			}
+			return !entries.isEmpty();
+		}
+		int count = other.size;
+		if (count == 0)
+			return false;
+		// Both stores use the global symbol ids, so only the texts and the ids of the store tables need to be translated
+		int start = size;
+		grow(start + count);
+		timestamps.copy(other.timestamps, count, start);
+		levels.copy(other.levels, count, start);
+		threads.copy(other.threads, count, start);
+		loggers.copy(other.loggers, count, start);
+		ips.copy(other.ips, count, start);
+		ports.copy(other.ports, count, start);
+		sources.copy(other.sources, count, start);
+		rawLengths.copy(other.rawLengths, count, start);
+		for (ChunkedColumn.OfInt column : List.of(levels, threads, loggers, ips, sources)) {
+			for (int row = start; row < start + count; row++) {
+				int id = column.get(row);
+				if (id >= SymbolTable.MAX_SYMBOLS) {
+					column.set(row, symbolId(other.symbol(id)));
+				}
+			}
+		}
+		for (int code = other.sourceCodes.nextSetBit(0); code >= 0; code = other.sourceCodes.nextSetBit(code + 1)) {
+			sourceCodes.set(code <= SymbolTable.MAX_SYMBOLS ? code : symbolId(other.symbol(code - 1)) + 1);
+		}
+		texts.reserveHotPages(sourceCodes.cardinality());
+		int[] fileMap = new int[other.files.size()];
+		for (int f = 0; f < fileMap.length; f++) {
+			fileMap[f] = fileIndex(other.files.get(f));
+		}
+		for (int i = 0; i < count; i++) {
+			int row = start + i;
+			messages.set(row, copyText(other, other.messages.get(i), fileMap));
+			rawLines.set(row, copyText(other, other.rawLines.get(i), fileMap));
+		}
+		size = start + count;
+		modCount++;
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		texts.clear();
+		files.clear();
+		localSymbols = new SymbolTable();
+		synchronized (decoded) {
+			decoded.clear();
+		}
+		sourceCodes.clear();
+		size = 0;
+		allocate(0);
+		modCount++;
+	}
+
+	/**
+	 * Sorts the rows by reordering the columns, the texts are not touched. The sort is stable. Without a comparator the rows are
+	 * ordered by timestamp as a merge of the sorted runs of the loaded files, rows without timestamp stay next to the rows around them
+	 * (see {@link TimestampSort}).
+	 */
+	@Override
+	public void sort(Comparator<? super LogEntry> comparator) {
+		int count = size();
+		int[] rows;
+		if (comparator == null) {
+			rows = TimestampSort.order(this, count);
+		} else {
+			rows = new int[count];
+			for (int i = 0; i < count; i++) {
+				rows[i] = i;
+			}
+			mergeSort(rows, new int[count], 0, count, (a, b) -> comparator.compare(get(a), get(b)));
+		}
+		reorder(rows);
+		modCount++;
+	}
+
+	/**
+	 * Moves the row {@code rows[i]} to row i, for all rows.
+	 */
+	void reorder(int[] rows) {
+		timestamps = timestamps.permute(rows);
+		levels = levels.permute(rows);
+		threads = threads.permute(rows);
+		loggers = loggers.permute(rows);
+		ips = ips.permute(rows);
+		ports = ports.permute(rows);
+		sources = sources.permute(rows);
+		messages = messages.permute(rows);
+		rawLines = rawLines.permute(rows);
+		rawLengths = rawLengths.permute(rows);
+	}
+
+	/**
+	 * Searches the timestamp column like {@link java.util.Collections#binarySearch(List, Object)} with an entry of the given timestamp.
+	 */
+	public int binarySearch(LocalDateTime timestamp) {
+		return binarySearch(LogEntry.toNanos(timestamp));
+	}
+
+	/**
+	 * Same as {@link #binarySearch(LocalDateTime)} for a timestamp in epoch nanos, comparing primitive longs only.
+	 */
+	public int binarySearch(long timestampNanos) {
+		int low = 0;
+		int high = size() - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = compareTimestamp(mid, timestampNanos);
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+
+	public boolean hasTimestamp(int index) {
+		return timestampNanos(index) != NO_TIMESTAMP;
+	}
+
+	/**
+	 * Returns true if at least one entry has a timestamp.
+	 */
+	public boolean hasTimestamps() {
+		int count = size();
+		for (int i = 0; i < count; i++) {
+			if (timestampNanos(i) != NO_TIMESTAMP)
+				return true;
+		}
+		return false;
+	}
+
+	public LocalDateTime timestamp(int index) {
+		return LogEntry.fromNanos(timestampNanos(index));
+	}
+
+	/**
+	 * Returns the timestamp in epoch nanos, or {@link LogEntry#NO_TIMESTAMP}.
+	 */
+	public long timestampNanos(int index) {
+		checkIndex(index);
+		return timestamps.get(index);
+	}
+
+	public String level(int index) {
+		return symbol(levelId(index));
+	}
+
+	public String thread(int index) {
+		return symbol(threadId(index));
+	}
+
+	public String loggerName(int index) {
+		return symbol(loggerId(index));
+	}
+
+	public String ip(int index) {
+		return symbol(ipId(index));
+	}
+
+	public int port(int index) {
+		checkIndex(index);
+		return ports.get(index);
+	}
+
+	public String sourceFile(int index) {
+		return symbol(sourceId(index));
+	}
+
+	public String message(int index) {
+		return message(index, null);
+	}
+
+	/**
+	 * Reads the message through the reader of a scan task, or through the shared pages if the reader is null.
+	 */
+	private String message(int index, TextPages.Reader reader) {
+		checkIndex(index);
+		long ref = messages.get(index);
+		if (ref == NO_TEXT)
+			return null;
+		if ((ref & RANGE_REF) == 0)
+			return reader != null ? reader.read(ref) : texts.read(ref);
+		int start = (int) ((ref & ~RANGE_REF) >>> RANGE_SHIFT);
+		int length = (int) (ref & RANGE_LENGTH_MASK);
+		long rawRef = rawLines.get(index);
+		if ((rawRef & FILE_REF) != 0)
+			return readFile(rawRef, rawLengths.get(index)).substring(start, start + length);
+		return reader != null ? reader.read(rawRef, start, length) : texts.read(rawRef, start, length);
+	}
+
+	public String rawLine(int index) {
+		checkIndex(index);
+		long ref = rawLines.get(index);
+		if (ref != NO_TEXT && (ref & FILE_REF) != 0)
+			return readFile(ref, rawLengths.get(index));
+		return readText(ref);
+	}
+
+	/**
+	 * Returns the rows whose message (an empty string for rows without one) is accepted by the predicate. The rows are scanned in
+	 * parallel chunks, the predicate must be thread-safe.
+	 */
+	public BitSet findMessages(Predicate<String> predicate) {
+		return findMessages(0, size(), predicate);
+	}
+
+	/**
+	 * Like {@link #findMessages(Predicate)} for the rows from {@code start} (inclusive) to {@code end} (exclusive), e.g. the rows
+	 * appended since the last scan. The bits are set at the row indexes.
+	 */
+	public BitSet findMessages(int start, int end, Predicate<String> predicate) {
+		BitSet result = new BitSet(end);
+		for (int i : scanMessages(IntStream.range(start, end).toArray(), predicate)) {
+			result.set(start + i);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the positions in {@code rows} of the rows whose message is accepted by the predicate, in no particular order. The rows are
+	 * grouped by the text page their message is read from and every group is scanned by one task with its own {@link TextPages.Reader},
+	 * so each compressed block is decompressed once per scan even if the rows of many files are interleaved. Rows without a page (no
+	 * message, or a message in a mapped file) are scanned in chunks of {@link #SCAN_CHUNK}.
+	 */
+	int[] scanMessages(int[] rows, Predicate<String> predicate) {
+		// Page index + 1 of every row, 0 for rows without a page
+		int[] keys = new int[rows.length];
+		int maxKey = 0;
+		for (int i = 0; i < rows.length; i++) {
+			keys[i] = messagePage(rows[i]) + 1;
+			maxKey = Math.max(maxKey, keys[i]);
+		}
+		int[] starts = new int[maxKey + 2];
+		for (int key : keys) {
+			starts[key + 1]++;
+		}
+		for (int key = 1; key < starts.length; key++) {
+			starts[key] += starts[key - 1];
+		}
+		int[] order = new int[rows.length];
+		int[] next = Arrays.copyOf(starts, maxKey + 1);
+		for (int i = 0; i < rows.length; i++) {
+			order[next[keys[i]]++] = i;
+		}
+		List<int[]> groups = new ArrayList<>();
+		for (int from = 0; from < starts[1]; from += SCAN_CHUNK) {
+			groups.add(new int[] { from, Math.min(starts[1], from + SCAN_CHUNK) });
+		}
+		for (int key = 1; key <= maxKey; key++) {
+			if (starts[key] < starts[key + 1]) {
+				groups.add(new int[] { starts[key], starts[key + 1] });
+			}
+		}
+		return groups.parallelStream().flatMapToInt(group -> {
+			TextPages.Reader reader = texts.reader();
+			IntStream.Builder found = IntStream.builder();
+			for (int i = group[0]; i < group[1]; i++) {
+				String message = message(rows[order[i]], reader);
+				if (predicate.test(message != null ? message : "")) {
+					found.add(order[i]);
+				}
+			}
+			return found.build();
+		}).toArray();
+	}
+
+	/**
+	 * Returns the index of the text page the message of the row is read from, or -1 if it needs none.
+	 */
+	private int messagePage(int row) {
+		long ref = messages.get(row);
+		if (ref == NO_TEXT)
+			return -1;
+		if ((ref & RANGE_REF) != 0) {
+			ref = rawLines.get(row);
+			if ((ref & FILE_REF) != 0)
+				return -1;
+		}
+		return TextPages.pageIndex(ref);
+	}
+
+	/**
+	 * Returns true if the raw text of the row is read from its source file instead of the heap.
+	 */
+	public boolean isFileBacked(int index) {
+		checkIndex(index);
+		long ref = rawLines.get(index);
+		return ref != NO_TEXT && (ref & FILE_REF) != 0;
+	}
+
+	/**
+	 * Returns the symbol of an id of this store. Ids below {@link SymbolTable#MAX_SYMBOLS} are ids of the shared table and mean the
+	 * same in all stores; the ids above belong to the values this store kept itself because the shared table was full, they are only
+	 * meaningful for this store (a {@link LogStoreView} gives them ids of its own).
+	 */
+	public String symbol(int id) {
+		return id >= SymbolTable.MAX_SYMBOLS ? localSymbols.symbol(id - SymbolTable.MAX_SYMBOLS) : symbols.symbol(id);
+	}
+
+	/**
+	 * Returns the id of the value in the shared table, or in the table of the store if the shared table is full.
+	 */
+	final int symbolId(String value) {
+		int id = symbols.id(value);
+		if (id == SymbolTable.NULL_ID && value != null)
+			return SymbolTable.MAX_SYMBOLS + localSymbols.id(value);
+		return id;
+	}
+
+	/**
+	 * Symbol id of the level, to compare rows without decoding the string. See {@link SymbolTable} and {@link #symbol(int)}.
+	 */
+	public int levelId(int index) {
+		checkIndex(index);
+		return levels.get(index);
+	}
+
+	public int threadId(int index) {
+		checkIndex(index);
+		return threads.get(index);
+	}
+
+	public int loggerId(int index) {
+		checkIndex(index);
+		return loggers.get(index);
+	}
+
+	public int ipId(int index) {
+		checkIndex(index);
+		return ips.get(index);
+	}
+
+	public int sourceId(int index) {
+		checkIndex(index);
+		return sources.get(index);
+	}
+
+	/**
+	 * Returns the number of distinct source files that were added to the store, without scanning the rows.
+	 */
+	public int sourceCount() {
+		return sourceCodes.cardinality();
+	}
+
+	/**
+	 * Returns the number of text pages held as compressed blocks.
+	 */
+	int blockCount() {
+		return texts.blockCount();
+	}
+
+	/**
+	 * Returns the number of blocks decompressed so far, to check that reads and scans do not decompress blocks over and over.
+	 */
+	long decompressions() {
+		return texts.decompressions();
+	}
+
+	public TextStorage getTextStorage() {
+		return texts.storage();
+	}
+
+	public boolean isCompressed() {
+		return texts.isCompressed();
+	}
+
+	/**
+	 * Returns the bytes of the texts held by the store, with the compressed pages at their compressed size.
+	 */
+	public long textSize() {
+		return texts.capacity();
+	}
+
+	/**
+	 * Returns the bytes the texts held by the store take without compression.
+	 */
+	public long uncompressedTextSize() {
+		return texts.uncompressedSize();
+	}
+
+	/**
+	 * Returns the approximate heap size of the store in bytes: the columns and, with {@link TextStorage#HEAP}, the text pages. The shared
+	 * symbols are not included.
+	 */
+	public long estimatedSize() {
+		long columns = (long) timestamps.capacity() * (3 * Long.BYTES + 7 * Integer.BYTES);
+		return texts.storage() == TextStorage.HEAP ? columns + texts.capacity() : columns;
+	}
+
+	/**
+	 * Returns the bytes of text pages held outside the heap, 0 with {@link TextStorage#HEAP}.
+	 */
+	public long offHeapSize() {
+		return texts.storage() == TextStorage.HEAP ? 0 : texts.capacity();
+	}
+
+	/**
+	 * Distinct symbols referenced by the store and the estimated heap saved by sharing them instead of holding one String per field and
+	 * row.
+	 */
+	public record SymbolStats(int distinctSymbols, long savedBytes) {
+	}
+
+	/**
+	 * Counts the symbols of the level, thread, logger, ip and source columns in one pass.
+	 */
+	public SymbolStats symbolStats() {
+		BitSet used = new BitSet();
+		long[] stringSizes = new long[symbols.size()];
+		long referenced = 0;
+		int count = size();
+		List<IntUnaryOperator> columns = List.of(this::levelId, this::threadId, this::loggerId, this::ipId, this::sourceId);
+		for (IntUnaryOperator column : columns) {
+			for (int i = 0; i < count; i++) {
+				int id = column.applyAsInt(i);
+				if (id == SymbolTable.NULL_ID)
+					continue;
+				if (id >= stringSizes.length) {
+					stringSizes = Arrays.copyOf(stringSizes, Math.max(id + 1, symbols.size()));
+				}
+				if (stringSizes[id] == 0) {
+					stringSizes[id] = SymbolTable.stringSize(symbol(id));
+				}
+				used.set(id);
+				referenced += stringSizes[id];
+			}
+		}
+		long[] sizes = stringSizes;
+		long distinct = used.stream().mapToLong(id -> sizes[id]).sum();
+		return new SymbolStats(used.cardinality(), referenced - distinct);
+	}
+
+	private void write(int row, LogEntry entry) {
+		writeFields(row, entry);
+		String raw = entry.rawLine();
+		rawLines.set(row, raw == null ? NO_TEXT : texts.append(raw));
+		rawLengths.set(row, 0);
+		messages.set(row, messageRef(entry.message(), raw));
+	}
+
+	/**
+	 * Returns a range ref if the message occurs in the raw text, trying the usual suffix first, otherwise stores the message as text.
+	 */
+	private long messageRef(String message, String raw) {
+		if (message == null)
+			return NO_TEXT;
+		if (raw != null) {
+			int start = raw.endsWith(message) ? raw.length() - message.length() : raw.indexOf(message);
+			if (start >= 0 && start <= RANGE_LENGTH_MASK >>> 1)
+				return RANGE_REF | ((long) start << RANGE_SHIFT) | message.length();
+		}
+		return texts.append(message);
+	}
+
+	private void writeFields(int row, LogEntry entry) {
+		timestamps.set(row, entry.timestampNanos());
+		levels.set(row, symbolId(entry.level()));
+		threads.set(row, symbolId(entry.thread()));
+		loggers.set(row, symbolId(entry.loggerName()));
+		ips.set(row, symbolId(entry.ip()));
+		ports.set(row, entry.port());
+		sources.set(row, symbolId(entry.sourceFile()));
+		int sourceCode = sources.get(row) + 1;
+		if (!sourceCodes.get(sourceCode)) {
+			sourceCodes.set(sourceCode);
+			texts.reserveHotPages(sourceCodes.cardinality());
+		}
+	}
+
+	private int fileIndex(MappedFileText file) {
+		for (int i = 0; i < files.size(); i++) {
+			if (files.get(i) == file)
+				return i;
+		}
+		if (files.size() == 1 << (62 - FILE_SHIFT - 1))
+			throw new IllegalStateException("Too many files in one store");
+		files.add(file);
+		return files.size() - 1;
+	}
+
+	/**
+	 * Copies a text ref of another store: heap texts are copied, file refs get this store's file index, range refs stay as they are.
+	 */
+	private long copyText(LogStore other, long ref, int[] fileMap) {
+		if (ref == NO_TEXT || (ref & RANGE_REF) != 0)
+			return ref;
+		if ((ref & FILE_REF) != 0) {
+			int otherIndex = (int) ((ref & ~FILE_REF) >>> FILE_SHIFT);
+			return FILE_REF | ((long) fileMap[otherIndex] << FILE_SHIFT) | (ref & OFFSET_MASK);
+		}
+		return texts.copy(other.texts, ref);
+	}
+
+	private String readFile(long ref, int length) {
+		synchronized (decoded) {
+			String text = decoded.get(ref);
+			if (text != null)
+				return text;
+		}
+		MappedFileText file = files.get((int) ((ref & ~FILE_REF) >>> FILE_SHIFT));
+		String text = file.read(ref & OFFSET_MASK, length);
+		synchronized (decoded) {
+			decoded.put(ref, text);
+		}
+		return text;
+	}
+
+	private String readText(long ref) {
+		return ref == NO_TEXT ? null : texts.read(ref);
+	}
+
+	/**
+	 * Compares a row with a timestamp for the binary search, rows without timestamp match every timestamp.
+	 */
+	private int compareTimestamp(int row, long timestampNanos) {
+		long ts = timestampNanos(row);
+		if (ts == NO_TIMESTAMP || timestampNanos == NO_TIMESTAMP)
+			return 0;
+		return Long.compare(ts, timestampNanos);
+	}
+
+	/**
+	 * Stable top-down merge sort of row indexes. Runs that are already in order are not merged, so sorted input costs a linear pass.
+	 */
+	static void mergeSort(int[] rows, int[] buffer, int from, int to, IntBinaryOperator order) {
+		if (to - from <= 16) {
+			for (int i = from + 1; i < to; i++) {
+				int row = rows[i];
+				int j = i - 1;
+				while (j >= from && order.applyAsInt(rows[j], row) > 0) {
+					rows[j + 1] = rows[j];
+					j--;
+				}
+				rows[j + 1] = row;
+			}
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		mergeSort(rows, buffer, from, mid, order);
+		mergeSort(rows, buffer, mid, to, order);
+		if (order.applyAsInt(rows[mid - 1], rows[mid]) <= 0)
+			return;
+		System.arraycopy(rows, from, buffer, from, to - from);
+		int left = from;
+		int right = mid;
+		for (int i = from; i < to; i++) {
+			if (right >= to || (left < mid && order.applyAsInt(buffer[left], buffer[right]) <= 0)) {
+				rows[i] = buffer[left++];
+			} else {
+				rows[i] = buffer[right++];
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		timestamps = new ChunkedColumn.OfLong();
+		levels = new ChunkedColumn.OfInt();
+		threads = new ChunkedColumn.OfInt();
+		loggers = new ChunkedColumn.OfInt();
+		ips = new ChunkedColumn.OfInt();
+		ports = new ChunkedColumn.OfInt();
+		sources = new ChunkedColumn.OfInt();
+		messages = new ChunkedColumn.OfLong();
+		rawLines = new ChunkedColumn.OfLong();
+		rawLengths = new ChunkedColumn.OfInt();
+		grow(capacity);
+	}
+
+	private void grow(int minCapacity) {
+		if (minCapacity <= timestamps.capacity())
+			return;
+		for (ChunkedColumn column : List.of(timestamps, levels, threads, loggers, ips, ports, sources, messages, rawLines, rawLengths)) {
+			column.ensureCapacity(minCapacity);
+		}
+	}
+
+	private static TextStorage textStorageProperty() {
+		String value = System.getProperty("lsp.text.storage");
+		if (value != null) {
+			for (TextStorage storage : TextStorage.values()) {
+				if (storage.name().equalsIgnoreCase(value.trim()))
+					return storage;
+			}
+		}
+		return TextStorage.DIRECT;
+	}
+
+	private void checkIndex(int index) {
+		int count = size();
+		if (index < 0 || index >= count)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+	}
+}
@@ -0,0 +1,321 @@
+package de.in.lsp.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+/**
+ * Read-only window over the rows of other stores. A view holds one long per row (the index of its store and the row in it) and reads
+ * every column and text from the store the row belongs to, so opening a second view on a store, duplicating a view or merging views
+ * costs 8 bytes per row instead of a copy of the entries.
+ * <p>
+ * Views over views reference the underlying stores directly, they never chain. A view contains the rows present when it was created;
+ * rows appended to its stores later are not part of it until they are appended to the view with {@link #append(LogStore, int, int)},
+ * e.g. while the stores are still being loaded. Views can be sorted, which only reorders the row references.
+ *
+ * @author TiJaWo68
+ */
+public final class LogStoreView extends LogStore {
+
+	private static final long ROW_MASK = 0xFFFF_FFFFL;
+
+	/** Copy-on-write, so readers see a store added while rows are appended. */
+	private final List<LogStore> stores = new CopyOnWriteArrayList<>();
+	private ChunkedColumn.OfLong rows = new ChunkedColumn.OfLong();
+	private volatile int size;
+	private final BitSet sourceIds = new BitSet();
+
+	private LogStoreView() {
+		super(0, TextStorage.HEAP, false);
+	}
+
+	/**
+	 * Returns a view of all rows of the store.
+	 */
+	public static LogStoreView of(LogStore store) {
+		return concat(List.of(store));
+	}
+
+	/**
+	 * Returns a view of the rows [from, to) of the store.
+	 */
+	public static LogStoreView range(LogStore store, int from, int to) {
+		LogStoreView view = new LogStoreView();
+		view.append(store, from, to);
+		return view;
+	}
+
+	/**
+	 * Returns a view of the rows of all stores, one store after the other.
+	 */
+	public static LogStoreView concat(Collection<? extends LogStore> stores) {
+		LogStoreView view = new LogStoreView();
+		for (LogStore store : stores) {
+			view.append(store, 0, store.size());
+		}
+		return view;
+	}
+
+	/**
+	 * Appends the rows [from, to) of the store to the view. The rows must be complete, e.g. below the size of a store that another
+	 * thread is still appending to.
+	 */
+	public void append(LogStore store, int from, int to) {
+		if (from < 0 || to > store.size() || from > to)
+			throw new IndexOutOfBoundsException("Range " + from + "-" + to + " outside of " + store.size() + " rows");
+		int count = size;
+		rows.ensureCapacity(count + to - from);
+		if (store instanceof LogStoreView other) {
+			int[] storeIndexes = new int[other.stores.size()];
+			Arrays.fill(storeIndexes, -1);
+			for (int i = from; i < to; i++) {
+				long ref = other.rows.get(i);
+				int otherIndex = (int) (ref >>> 32);
+				if (storeIndexes[otherIndex] < 0) {
+					storeIndexes[otherIndex] = storeIndex(other.stores.get(otherIndex));
+				}
+				rows.set(count++, ((long) storeIndexes[otherIndex] << 32) | (ref & ROW_MASK));
+				sourceIds.set(viewId(other, other.sourceId(i)) + 1);
+			}
+		} else {
+			int index = storeIndex(store);
+			for (int i = from; i < to; i++) {
+				rows.set(count++, ((long) index << 32) | i);
+				sourceIds.set(viewId(store, store.sourceId(i)) + 1);
+			}
+		}
+		// The rows are written before the size is raised, like in LogStore
+		size = count;
+	}
+
+	/**
+	 * Returns the index of the store in {@link #stores}, adding it if needed. Stores are compared by identity, equals would compare
+	 * their entries.
+	 */
+	private int storeIndex(LogStore store) {
+		for (int index = stores.size() - 1; index >= 0; index--) {
+			if (stores.get(index) == store)
+				return index;
+		}
+		stores.add(store);
+		return stores.size() - 1;
+	}
+
+	/**
+	 * Returns the stores the rows of the view belong to.
+	 */
+	public List<LogStore> getStores() {
+		return List.copyOf(stores);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public long timestampNanos(int index) {
+		long ref = ref(index);
+		return store(ref).timestampNanos(row(ref));
+	}
+
+	@Override
+	public int levelId(int index) {
+		long ref = ref(index);
+		LogStore store = store(ref);
+		return viewId(store, store.levelId(row(ref)));
+	}
+
+	@Override
+	public int threadId(int index) {
+		long ref = ref(index);
+		LogStore store = store(ref);
+		return viewId(store, store.threadId(row(ref)));
+	}
+
+	@Override
+	public int loggerId(int index) {
+		long ref = ref(index);
+		LogStore store = store(ref);
+		return viewId(store, store.loggerId(row(ref)));
+	}
+
+	@Override
+	public int ipId(int index) {
+		long ref = ref(index);
+		LogStore store = store(ref);
+		return viewId(store, store.ipId(row(ref)));
+	}
+
+	@Override
+	public int port(int index) {
+		long ref = ref(index);
+		return store(ref).port(row(ref));
+	}
+
+	@Override
+	public int sourceId(int index) {
+		long ref = ref(index);
+		LogStore store = store(ref);
+		return viewId(store, store.sourceId(row(ref)));
+	}
+
+	@Override
+	public String message(int index) {
+		long ref = ref(index);
+		return store(ref).message(row(ref));
+	}
+
+	@Override
+	public String rawLine(int index) {
+		long ref = ref(index);
+		return store(ref).rawLine(row(ref));
+	}
+
+	/**
+	 * Lets every store scan its own rows of the view, grouped by text page like {@link LogStore#findMessages(Predicate)}, and maps the
+	 * matches back to the rows of the view.
+	 */
+	@Override
+	public BitSet findMessages(int start, int end, Predicate<String> predicate) {
+		if (start < 0 || end > size || start > end)
+			throw new IndexOutOfBoundsException("Range " + start + "-" + end + " outside of " + size + " rows");
+		int[] counts = new int[stores.size()];
+		for (int i = start; i < end; i++) {
+			counts[(int) (rows.get(i) >>> 32)]++;
+		}
+		int[][] storeRows = new int[counts.length][];
+		int[][] viewRows = new int[counts.length][];
+		for (int s = 0; s < counts.length; s++) {
+			storeRows[s] = new int[counts[s]];
+			viewRows[s] = new int[counts[s]];
+		}
+		Arrays.fill(counts, 0);
+		for (int i = start; i < end; i++) {
+			long ref = rows.get(i);
+			int s = (int) (ref >>> 32);
+			storeRows[s][counts[s]] = row(ref);
+			viewRows[s][counts[s]++] = i;
+		}
+		BitSet result = new BitSet(end);
+		for (int s = 0; s < counts.length; s++) {
+			for (int found : stores.get(s).scanMessages(storeRows[s], predicate)) {
+				result.set(viewRows[s][found]);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public boolean isFileBacked(int index) {
+		long ref = ref(index);
+		return store(ref).isFileBacked(row(ref));
+	}
+
+	@Override
+	public int sourceCount() {
+		return sourceIds.cardinality();
+	}
+
+	/**
+	 * A view holds no texts of its own.
+	 */
+	@Override
+	public long textSize() {
+		return 0;
+	}
+
+	@Override
+	public long uncompressedTextSize() {
+		return 0;
+	}
+
+	@Override
+	public long offHeapSize() {
+		return 0;
+	}
+
+	/**
+	 * Returns the heap size of the row references.
+	 */
+	@Override
+	public long estimatedSize() {
+		return (long) rows.capacity() * Long.BYTES;
+	}
+
+	@Override
+	public void add(int index, LogEntry entry) {
+		throw new UnsupportedOperationException("A view is read-only");
+	}
+
+	@Override
+	public void add(LogEntry entry, MappedFileText file, long offset, int length) {
+		throw new UnsupportedOperationException("A view is read-only");
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends LogEntry> entries) {
+		throw new UnsupportedOperationException("A view is read-only, use append");
+	}
+
+	@Override
+	public LogEntry set(int index, LogEntry entry) {
+		throw new UnsupportedOperationException("A view is read-only");
+	}
+
+	@Override
+	public void clear() {
+		stores.clear();
+		rows = new ChunkedColumn.OfLong();
+		size = 0;
+		sourceIds.clear();
+		modCount++;
+	}
+
+	/**
+	 * Makes the view show the rows of another view, e.g. of a sorted copy that was prepared in the background. The views share the row
+	 * references afterwards, so the other view must not be changed any more.
+	 */
+	public void replaceWith(LogStoreView other) {
+		stores.clear();
+		stores.addAll(other.stores);
+		rows = other.rows;
+		sourceIds.clear();
+		for (int code = other.sourceIds.nextSetBit(0); code >= 0; code = other.sourceIds.nextSetBit(code + 1)) {
+			sourceIds.set(viewId(other, code - 1) + 1);
+		}
+		size = other.size;
+		modCount++;
+	}
+
+	@Override
+	void reorder(int[] order) {
+		rows = rows.permute(order);
+	}
+
+	/**
+	 * Translates a symbol id of a store into an id of the view. Ids of the shared table stay, ids of the store's own table (see
+	 * {@link LogStore#symbol(int)}) get an id in the table of the view, so equal values have equal ids in all rows of the view.
+	 */
+	private int viewId(LogStore store, int id) {
+		return id < SymbolTable.MAX_SYMBOLS ? id : symbolId(store.symbol(id));
+	}
+
+	private long ref(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		return rows.get(index);
+	}
+
+	private LogStore store(long ref) {
+		return stores.get((int) (ref >>> 32));
+	}
+
+	private static int row(long ref) {
+		return (int) (ref & ROW_MASK);
+	}
+}
@@ -0,0 +1,156 @@
+package de.in.lsp.model;
+
+/**
+ * Pure Java compressor for the LZ4 block format, used by {@link TextPages} for pages that are no longer written to and for the blocks
+ * of the archive index cache. Log text is highly repetitive (timestamps, logger names, stack frames), so the simple greedy matcher
+ * already reaches most of the ratio of the native library, and decompression is little more than array copies.
+ * <p>
+ * A block is a sequence of tokens: literal length and match length in the two nibbles, the literals, a two-byte little-endian offset of
+ * the match and extra length bytes where a nibble overflows. The last sequence has literals only.
+ *
+ * @author TiJaWo68
+ */
+public final class Lz4Block {
+
+	private static final int MIN_MATCH = 4;
+	/** The last five bytes are always literals and no match starts in the last twelve, as the format requires. */
+	private static final int LAST_LITERALS = 5;
+	private static final int MATCH_FIND_LIMIT = 12;
+	private static final int MAX_OFFSET = 65535;
+	private static final int HASH_BITS = 14;
+	private static final int SKIP_TRIGGER = 6;
+
+	private Lz4Block() {
+	}
+
+	/**
+	 * Returns the size of a buffer that is large enough for the compressed form of {@code length} bytes.
+	 */
+	public static int maxCompressedLength(int length) {
+		return length + length / 255 + 16;
+	}
+
+	/**
+	 * Compresses {@code src[0, length)} into {@code dst} and returns the compressed length.
+	 */
+	public static int compress(byte[] src, int length, byte[] dst) {
+		int[] table = new int[1 << HASH_BITS];
+		int anchor = 0;
+		int op = 0;
+		int matchLimit = length - MATCH_FIND_LIMIT;
+		int literalLimit = length - LAST_LITERALS;
+		int ip = 1;
+		while (ip < matchLimit) {
+			int sequence = readInt(src, ip);
+			int hash = hash(sequence);
+			int ref = table[hash];
+			table[hash] = ip;
+			if (ip - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+				// Data without matches is skipped faster the longer the run of literals gets
+				ip += 1 + ((ip - anchor) >>> SKIP_TRIGGER);
+				continue;
+			}
+			while (ip > anchor && ref > 0 && src[ip - 1] == src[ref - 1]) {
+				ip--;
+				ref--;
+			}
+			int matchEnd = ip + MIN_MATCH;
+			int matchRef = ref + MIN_MATCH;
+			while (matchEnd < literalLimit && src[matchEnd] == src[matchRef]) {
+				matchEnd++;
+				matchRef++;
+			}
+			op = writeSequence(dst, op, src, anchor, ip - anchor, ip - ref, matchEnd - ip - MIN_MATCH);
+			ip = matchEnd;
+			anchor = ip;
+			if (ip - 2 > 0 && ip < matchLimit) {
+				table[hash(readInt(src, ip - 2))] = ip - 2;
+			}
+		}
+		int literals = length - anchor;
+		dst[op++] = (byte) (Math.min(literals, 15) << 4);
+		op = writeLength(dst, op, literals - 15);
+		System.arraycopy(src, anchor, dst, op, literals);
+		return op + literals;
+	}
+
+	/**
+	 * Decompresses {@code src[0, length)} into {@code dst}, which must have exactly the original length.
+	 */
+	public static void decompress(byte[] src, int length, byte[] dst) {
+		int ip = 0;
+		int op = 0;
+		while (true) {
+			int token = src[ip++] & 0xFF;
+			int literals = token >>> 4;
+			if (literals == 15) {
+				int b;
+				do {
+					b = src[ip++] & 0xFF;
+					literals += b;
+				} while (b == 255);
+			}
+			System.arraycopy(src, ip, dst, op, literals);
+			ip += literals;
+			op += literals;
+			if (ip >= length)
+				break;
+			int offset = (src[ip++] & 0xFF) | (src[ip++] & 0xFF) << 8;
+			int matchLength = token & 15;
+			if (matchLength == 15) {
+				int b;
+				do {
+					b = src[ip++] & 0xFF;
+					matchLength += b;
+				} while (b == 255);
+			}
+			matchLength += MIN_MATCH;
+			int from = op - offset;
+			if (offset == 0 || from < 0)
+				throw new IllegalStateException("Corrupt block: invalid match offset " + offset);
+			if (offset >= matchLength) {
+				System.arraycopy(dst, from, dst, op, matchLength);
+			} else {
+				// Overlapping match, repeats the last offset bytes
+				for (int i = 0; i < matchLength; i++) {
+					dst[op + i] = dst[from + i];
+				}
+			}
+			op += matchLength;
+		}
+		if (op != dst.length)
+			throw new IllegalStateException("Corrupt block: " + op + " bytes instead of " + dst.length);
+	}
+
+	private static int writeSequence(byte[] dst, int op, byte[] src, int literalStart, int literals, int offset, int matchLength) {
+		dst[op++] = (byte) ((Math.min(literals, 15) << 4) | Math.min(matchLength, 15));
+		op = writeLength(dst, op, literals - 15);
+		System.arraycopy(src, literalStart, dst, op, literals);
+		op += literals;
+		dst[op++] = (byte) offset;
+		dst[op++] = (byte) (offset >>> 8);
+		return writeLength(dst, op, matchLength - 15);
+	}
+
+	/**
+	 * Writes the part of a length that did not fit into its nibble, nothing if the remainder is negative.
+	 */
+	private static int writeLength(byte[] dst, int op, int remainder) {
+		if (remainder < 0)
+			return op;
+		while (remainder >= 255) {
+			dst[op++] = (byte) 255;
+			remainder -= 255;
+		}
+		dst[op++] = (byte) remainder;
+		return op;
+	}
+
+	private static int readInt(byte[] bytes, int pos) {
+		return (bytes[pos] & 0xFF) | (bytes[pos + 1] & 0xFF) << 8 | (bytes[pos + 2] & 0xFF) << 16 | (bytes[pos + 3] & 0xFF) << 24;
+	}
+
+	private static int hash(int sequence) {
+		return (sequence * -1640531535) >>> (32 - HASH_BITS);
+	}
+}
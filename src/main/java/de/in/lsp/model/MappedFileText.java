@@ -0,0 +1,80 @@
+package de.in.lsp.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only, memory-mapped log file whose entries are decoded on demand instead of being copied into the heap. {@link LogStore} rows
+ * that were loaded in file-backed mode keep only a byte range into this file.
+ * <p>
+ * The file is mapped in segments when it is opened and the channel is closed right away; the mapping stays valid until the object is
+ * garbage collected. Line terminators ({@code \r\n}, {@code \r}, {@code \n}) inside a range are returned as {@code \n}, like the parsers
+ * join the lines of an entry. The file must not be truncated or rewritten while it is open, appending is harmless.
+ *
+ * @author TiJaWo68
+ */
+public final class MappedFileText {
+
+	private static final int SEGMENT_SIZE = 1 << 30;
+
+	private final File file;
+	private final long size;
+	private final MappedByteBuffer[] segments;
+
+	private MappedFileText(File file, long size, MappedByteBuffer[] segments) {
+		this.file = file;
+		this.size = size;
+		this.segments = segments;
+	}
+
+	public static MappedFileText open(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+			for (int i = 0; i < segments.length; i++) {
+				long start = (long) i * SEGMENT_SIZE;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+			}
+			return new MappedFileText(file, size, segments);
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Decodes the given byte range as UTF-8, with every line terminator turned into {@code \n}.
+	 */
+	public String read(long offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > size)
+			throw new IndexOutOfBoundsException("Range " + offset + "+" + length + " outside of " + file.getName());
+		byte[] bytes = new byte[length];
+		int copied = 0;
+		while (copied < length) {
+			long position = offset + copied;
+			MappedByteBuffer segment = segments[(int) (position / SEGMENT_SIZE)];
+			int start = (int) (position % SEGMENT_SIZE);
+			int count = Math.min(length - copied, segment.limit() - start);
+			segment.get(start, bytes, copied, count);
+			copied += count;
+		}
+
+		boolean ascii = true;
+		boolean carriageReturn = false;
+		for (byte b : bytes) {
+			ascii &= b >= 0;
+			carriageReturn |= b == '\r';
+		}
+		String text = ascii ? new String(bytes, StandardCharsets.ISO_8859_1) : new String(bytes, StandardCharsets.UTF_8);
+		return carriageReturn ? text.replace("\r\n", "\n").replace('\r', '\n') : text;
+	}
+}
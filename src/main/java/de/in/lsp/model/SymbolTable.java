@@ -0,0 +1,126 @@
+package de.in.lsp.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JVM-wide interning table for the short, highly repetitive fields of log entries: levels, thread names, logger names, IPs and source
+ * names. Every distinct value is kept once and has a small int id; {@link LogStore} columns hold these ids, so views can compare them
+ * instead of strings, and merging stores only needs to translate the codes of the values a store keeps itself.
+ * <p>
+ * Parsers and receivers call {@link #intern(String)} for each field, from any number of threads. Symbols are never removed, so a table
+ * takes at most its limit of values, the shared instance {@value #DEFAULT_MAX_SYMBOLS} unless {@code -Dlsp.symbols.max} says otherwise.
+ * Access logs or thread-per-request servers can bring millions of distinct IPs and thread names; once the table is full, new values are
+ * returned as they are by {@link #intern(String)} and kept by the stores in tables of their own (ids from {@link #MAX_SYMBOLS} on, see
+ * {@link LogStore#symbol(int)}), which go with the store. A separate table of this kind holds the stack frame lines of the stored texts
+ * (see {@link TextPages}).
+ *
+ * @author TiJaWo68
+ */
+public final class SymbolTable {
+
+	/** Id of the null symbol. */
+	public static final int NULL_ID = -1;
+	static final int DEFAULT_MAX_SYMBOLS = 1 << 18;
+	/** Limit of the shared table. Ids of the shared table are below it, the ids of the store tables start at it. */
+	public static final int MAX_SYMBOLS = Integer.getInteger("lsp.symbols.max", DEFAULT_MAX_SYMBOLS);
+
+	private static final class Holder {
+		private static final SymbolTable INSTANCE = new SymbolTable(MAX_SYMBOLS);
+	}
+
+	private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+	/**
+	 * Symbol per id. A symbol is stored before its id is put into {@link #ids}, and grown arrays are published through the volatile
+	 * field, so any thread that obtained an id sees its symbol.
+	 */
+	private volatile String[] symbols = new String[256];
+	private int size;
+	private volatile int limit;
+
+	SymbolTable() {
+		this(Integer.MAX_VALUE);
+	}
+
+	SymbolTable(int limit) {
+		this.limit = limit;
+	}
+
+	public static SymbolTable getInstance() {
+		return Holder.INSTANCE;
+	}
+
+	/**
+	 * Returns the id of the value, adding it to the table if it is new. Null yields {@link #NULL_ID}, and so does a new value once the
+	 * table holds its limit.
+	 */
+	public int id(String value) {
+		if (value == null)
+			return NULL_ID;
+		Integer id = ids.get(value);
+		return id != null ? id : add(value);
+	}
+
+	/**
+	 * Returns the id of the value without adding it, or {@link #NULL_ID} if it is not in the table.
+	 */
+	public int find(String value) {
+		Integer id = value != null ? ids.get(value) : null;
+		return id != null ? id : NULL_ID;
+	}
+
+	/**
+	 * Returns the shared instance equal to the value, or the value itself if it is new and the table is full.
+	 */
+	public String intern(String value) {
+		int id = id(value);
+		return id != NULL_ID ? symbols[id] : value;
+	}
+
+	public String symbol(int id) {
+		return id == NULL_ID ? null : symbols[id];
+	}
+
+	public int size() {
+		return ids.size();
+	}
+
+	int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Sets the number of values the table takes, e.g. to let a test reach the limit of the shared table. Values already in the table
+	 * stay.
+	 */
+	void setLimit(int limit) {
+		this.limit = limit;
+	}
+
+	/**
+	 * Approximate heap size of one String instance holding the value: object header, fields and the Latin-1 or UTF-16 byte array.
+	 */
+	public static long stringSize(String value) {
+		if (value == null)
+			return 0;
+		boolean latin1 = value.chars().allMatch(c -> c < 256);
+		long bytes = (long) value.length() * (latin1 ? 1 : 2);
+		return 24 + ((16 + bytes + 7) & ~7L);
+	}
+
+	private synchronized int add(String value) {
+		Integer existing = ids.get(value);
+		if (existing != null)
+			return existing;
+		if (size >= limit)
+			return NULL_ID;
+		String[] current = symbols;
+		if (size == current.length) {
+			current = Arrays.copyOf(current, size * 2);
+		}
+		current[size] = value;
+		symbols = current;
+		ids.put(value, size);
+		return size++;
+	}
+}
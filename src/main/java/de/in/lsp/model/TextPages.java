@@ -0,0 +1,573 @@
+package de.in.lsp.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only storage for the texts of a {@link LogStore}. Texts are written back to back into large byte pages: Latin-1 texts (nearly
+ * all log lines) with one byte per char, all others as UTF-16. Each text is prefixed with a varint holding its length and encoding, so a
+ * single long reference (page index in the upper, offset in the lower 32 bits) is enough to read it back.
+ * <p>
+ * Multi-line texts with stack frames (lines like {@code \tat com.example.Service.call(Service.java:42)}) are stored as a line sequence
+ * in which every frame is the int id of the line in a shared frame dictionary. Exception-heavy logs repeat the same frames thousands of
+ * times, each occurrence then costs one to three bytes; the text is rebuilt with its exact lines when it is read.
+ * <p>
+ * Where the pages live is chosen by the {@link LogStore.TextStorage} the pages were created with. Off-heap pages are only read through
+ * absolute accessors, so concurrent readers never disturb each other.
+ * <p>
+ * With compression enabled, every page that is full is packed into an {@link Lz4Block} and only the block is kept (unless the page does
+ * not compress). Blocks are decompressed on demand when one of their texts is read. The last decompressed pages are kept on the heap,
+ * {@value #HOT_PAGES} plus one per source file of the store (see {@link #reserveHotPages(int)}): after a sort by timestamp neighbouring
+ * rows read from one open page per file, so scrolling through the table decompresses each block only once. Scans read through a
+ * {@link Reader} of their own, which keeps the page of the rows it reads and leaves the shared pages alone.
+ * <p>
+ * One writer may append while any number of threads read texts whose refs were published to them (see {@link LogStore}): written bytes
+ * never move, the page directory is published through a volatile field, and a page that is compressed keeps its buffer until the block
+ * is completely visible.
+ *
+ * @author TiJaWo68
+ */
+final class TextPages {
+
+	static final int PAGE_SIZE = 1 << 20;
+	static final int HOT_PAGES = 8;
+	/** Upper limit of the decompressed pages kept for a store with many files, each one takes a page of heap. */
+	static final int MAX_HOT_PAGES = Integer.getInteger("lsp.text.maxHotPages", 64);
+
+	/** Text kinds in the low bits of a text header, the char length of the text is in the bits above. */
+	private static final int LATIN1 = 0;
+	private static final int UTF16 = 1;
+	private static final int TRACE = 2;
+	private static final int KIND_BITS = 2;
+	private static final long KIND_MASK = (1 << KIND_BITS) - 1;
+	/** Position in the scratch array where the payload of a trace is encoded before its headers are known. */
+	private static final int TRACE_OFFSET = 16;
+	/**
+	 * Stack frame lines of all stores. Ids are global like the {@link SymbolTable} ids, so traces can be copied between stores. Frames
+	 * are never removed, so the table only grows up to {@link #MAX_FRAMES} distinct lines; further frame lines are stored as literals.
+	 */
+	private static final int MAX_FRAMES = Integer.getInteger("lsp.text.maxFrames", 1 << 18);
+	private static final SymbolTable FRAMES = new SymbolTable(MAX_FRAMES);
+
+	private final LogStore.TextStorage storage;
+	private final boolean compressed;
+	/** Page directory, replaced when it grows and published only after the new page is in it. */
+	private volatile Page[] pages = new Page[16];
+	private int pageCount;
+	private ByteBuffer current;
+	private int position;
+	/** Encoding buffer for the bytes of one text, written to the page in one bulk put. */
+	private byte[] scratch = new byte[256];
+	/** Number of decompressed pages kept in {@link #hot}. */
+	private volatile int hotPages = HOT_PAGES;
+	/** Decompressed blocks read last, by page index. */
+	private final Map<Integer, ByteBuffer> hot = new LinkedHashMap<>(HOT_PAGES, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, ByteBuffer> eldest) {
+			return size() > hotPages;
+		}
+	};
+	/** Number of blocks decompressed so far. */
+	private final AtomicLong decompressions = new AtomicLong();
+
+	TextPages(LogStore.TextStorage storage, boolean compressed) {
+		this.storage = storage;
+		this.compressed = compressed;
+	}
+
+	LogStore.TextStorage storage() {
+		return storage;
+	}
+
+	boolean isCompressed() {
+		return compressed;
+	}
+
+	/**
+	 * Keeps one more decompressed page per source file, up to {@link #MAX_HOT_PAGES}.
+	 */
+	void reserveHotPages(int sources) {
+		hotPages = Math.min(MAX_HOT_PAGES, HOT_PAGES + sources);
+	}
+
+	/**
+	 * Returns a reader for one thread that decompresses the blocks it needs without adding them to the shared pages.
+	 */
+	Reader reader() {
+		return new Reader();
+	}
+
+	long append(CharSequence text) {
+		String value = text.toString();
+		int length = value.length();
+		boolean trace = hasFrames(value);
+		// Room for the headers, plus every line as UTF-16 literal with a token
+		int bound = trace ? 2 * TRACE_OFFSET + 5 * (lineCount(value) + 1) + 2 * length : 5 + 2 * length;
+		byte[] bytes = bound <= scratch.length ? scratch : new byte[bound];
+		if (bytes.length <= PAGE_SIZE) {
+			scratch = bytes;
+		}
+		int total = trace ? encodeTrace(value, bytes) : encodeText(value, bytes);
+		long ref = reserve(total);
+		current.put(position, bytes, 0, total);
+		position += total;
+		return ref;
+	}
+
+	/**
+	 * Copies a text of another store without decoding it. Frame ids are global, so traces are copied as they are.
+	 */
+	long copy(TextPages source, long sourceRef) {
+		ByteBuffer page = source.page(pageIndex(sourceRef));
+		int start = (int) sourceRef;
+		long header = readVarint(page, start);
+		int length = (int) (header >>> KIND_BITS);
+		int total = varintSize(header);
+		switch ((int) (header & KIND_MASK)) {
+		case LATIN1:
+			total += length;
+			break;
+		case UTF16:
+			total += length * 2;
+			break;
+		default:
+			long payload = readVarint(page, start + total);
+			total += varintSize(payload) + (int) payload;
+		}
+		long ref = reserve(total);
+		current.put(position, page, start, total);
+		position += total;
+		return ref;
+	}
+
+	String read(long ref) {
+		return read(page(pageIndex(ref)), ref);
+	}
+
+	/**
+	 * Decodes the chars [start, start + length) of a text without decoding the rest of it (traces are always decoded as a whole).
+	 */
+	String read(long ref, int start, int length) {
+		return read(page(pageIndex(ref)), ref, start, length);
+	}
+
+	/**
+	 * Returns the index of the page a text is stored in.
+	 */
+	static int pageIndex(long ref) {
+		return (int) (ref >>> 32);
+	}
+
+	private static String read(ByteBuffer page, long ref) {
+		long header = readVarint(page, (int) ref);
+		return read(page, ref, 0, (int) (header >>> KIND_BITS));
+	}
+
+	private static String read(ByteBuffer page, long ref, int start, int length) {
+		int pos = (int) ref;
+		long header = readVarint(page, pos);
+		int textLength = (int) (header >>> KIND_BITS);
+		if (start < 0 || length < 0 || start + length > textLength)
+			throw new IndexOutOfBoundsException("Range " + start + "+" + length + " outside of a text of " + textLength + " chars");
+		int kind = (int) (header & KIND_MASK);
+		pos += varintSize(header);
+		if (kind == TRACE) {
+			String trace = readTrace(page, pos, textLength);
+			return start == 0 && length == textLength ? trace : trace.substring(start, start + length);
+		}
+		boolean latin1 = kind == LATIN1;
+		int offset = pos + (latin1 ? start : start * 2);
+		int byteCount = latin1 ? length : length * 2;
+		byte[] bytes;
+		if (page.hasArray()) {
+			bytes = page.array();
+		} else {
+			bytes = new byte[byteCount];
+			page.get(offset, bytes, 0, byteCount);
+			offset = 0;
+		}
+		return new String(bytes, offset, byteCount, latin1 ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_16BE);
+	}
+
+	/**
+	 * Returns the number of pages that are only held as compressed blocks.
+	 */
+	int blockCount() {
+		int blocks = 0;
+		for (int i = 0; i < pageCount; i++) {
+			if (pages[i].buffer == null) {
+				blocks++;
+			}
+		}
+		return blocks;
+	}
+
+	/**
+	 * Returns the number of blocks decompressed so far, by the shared pages and all readers.
+	 */
+	long decompressions() {
+		return decompressions.get();
+	}
+
+	/**
+	 * Returns the number of bytes held by the pages and blocks, not counting the decompressed pages in the cache.
+	 */
+	long capacity() {
+		long bytes = 0;
+		for (int i = 0; i < pageCount; i++) {
+			ByteBuffer buffer = pages[i].buffer;
+			bytes += buffer != null ? buffer.capacity() : pages[i].block.capacity();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Returns the number of bytes of text written to the pages, the size the texts would take without compression.
+	 */
+	long uncompressedSize() {
+		long bytes = 0;
+		for (int i = 0; i < pageCount; i++) {
+			bytes += pages[i].buffer == current ? position : pages[i].length;
+		}
+		return bytes;
+	}
+
+	void clear() {
+		pages = new Page[16];
+		pageCount = 0;
+		current = null;
+		position = 0;
+		hotPages = HOT_PAGES;
+		synchronized (hot) {
+			hot.clear();
+		}
+	}
+
+	/**
+	 * Returns the page with the given index, decompressing its block if the page is cold.
+	 */
+	private ByteBuffer page(int index) {
+		return page(index, true);
+	}
+
+	/**
+	 * Returns the page with the given index. A cold page is decompressed and, if {@code share} is set, kept in {@link #hot}.
+	 */
+	private ByteBuffer page(int index, boolean share) {
+		Page entry = pages[index];
+		ByteBuffer page = entry.buffer;
+		if (page != null)
+			return page;
+		synchronized (hot) {
+			page = hot.get(index);
+		}
+		if (page != null)
+			return page;
+		ByteBuffer block = entry.block;
+		byte[] bytes = new byte[entry.length];
+		Lz4Block.decompress(toArray(block, block.capacity()), block.capacity(), bytes);
+		decompressions.incrementAndGet();
+		page = ByteBuffer.wrap(bytes);
+		if (share) {
+			synchronized (hot) {
+				hot.put(index, page);
+			}
+		}
+		return page;
+	}
+
+	/**
+	 * Compresses the page that was written last. The block replaces the page if it saves at least an eighth of it.
+	 */
+	private void seal() {
+		Page page = pages[pageCount - 1];
+		page.length = position;
+		if (!compressed)
+			return;
+		byte[] source = toArray(current, position);
+		byte[] target = new byte[Lz4Block.maxCompressedLength(position)];
+		int length = Lz4Block.compress(source, position, target);
+		if (length > position - (position >>> 3))
+			return;
+		ByteBuffer block = allocate(length);
+		block.put(0, target, 0, length);
+		page.block = block;
+		page.buffer = null;
+	}
+
+	/**
+	 * Makes room for {@code size} bytes and returns the reference of their start. Texts never span pages, a text larger than a page
+	 * gets a page of its own.
+	 */
+	private long reserve(int size) {
+		if (current == null || position + size > current.capacity()) {
+			if (current != null) {
+				seal();
+			}
+			Page[] directory = pages;
+			if (pageCount == directory.length) {
+				directory = Arrays.copyOf(directory, pageCount * 2);
+			}
+			current = allocate(Math.max(PAGE_SIZE, size));
+			directory[pageCount++] = new Page(current);
+			pages = directory;
+			position = 0;
+		}
+		return ((long) (pageCount - 1) << 32) | position;
+	}
+
+	private ByteBuffer allocate(int size) {
+		switch (storage) {
+		case HEAP:
+			return ByteBuffer.allocate(size);
+		case DIRECT:
+			return ByteBuffer.allocateDirect(size);
+		default:
+			return mapTempFile(size);
+		}
+	}
+
+	/**
+	 * Maps a new temp file of the given size. The file is deleted when the channel is closed right after mapping, the mapping itself
+	 * stays valid until the page is garbage collected, and the OS can write its pages out to disk under memory pressure.
+	 */
+	private static ByteBuffer mapTempFile(int size) {
+		try {
+			Path file = Files.createTempFile("lsp-text-", ".page");
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+					StandardOpenOption.DELETE_ON_CLOSE)) {
+				return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not create a temp file for log texts", e);
+		}
+	}
+
+	/**
+	 * Returns the first {@code length} bytes of the buffer as an array, without copying if the buffer is backed by one.
+	 */
+	private static byte[] toArray(ByteBuffer buffer, int length) {
+		if (buffer.hasArray())
+			return buffer.array();
+		byte[] bytes = new byte[length];
+		buffer.get(0, bytes, 0, length);
+		return bytes;
+	}
+
+	/**
+	 * Writes a plain text: the header with char length and encoding, then the chars as Latin-1 or UTF-16. Returns the byte count.
+	 */
+	private static int encodeText(String text, byte[] bytes) {
+		int length = text.length();
+		boolean latin1 = isLatin1(text, 0, length);
+		int pos = writeVarint(bytes, 0, ((long) length << KIND_BITS) | (latin1 ? LATIN1 : UTF16));
+		return writeChars(text, 0, length, latin1, bytes, pos);
+	}
+
+	/**
+	 * Writes a text with stack frames: the header, the byte count of the payload and the payload, which is the line count followed by
+	 * one token per line. A frame line is its id in {@link #FRAMES} (token bit 0 set), any other line is a literal with its char length
+	 * and encoding in the token, followed by its chars. Returns the byte count.
+	 */
+	private static int encodeTrace(String text, byte[] bytes) {
+		int pos = writeVarint(bytes, TRACE_OFFSET, lineCount(text));
+		int lineStart = 0;
+		while (lineStart <= text.length()) {
+			int lineEnd = text.indexOf('\n', lineStart);
+			if (lineEnd < 0) {
+				lineEnd = text.length();
+			}
+			int frame = isFrame(text, lineStart, lineEnd) ? FRAMES.id(text.substring(lineStart, lineEnd)) : SymbolTable.NULL_ID;
+			if (frame != SymbolTable.NULL_ID) {
+				pos = writeVarint(bytes, pos, ((long) frame << 1) | 1);
+			} else {
+				boolean latin1 = isLatin1(text, lineStart, lineEnd);
+				pos = writeVarint(bytes, pos, ((long) (lineEnd - lineStart) << 2) | (latin1 ? 0 : 2));
+				pos = writeChars(text, lineStart, lineEnd, latin1, bytes, pos);
+			}
+			lineStart = lineEnd + 1;
+		}
+		int payload = pos - TRACE_OFFSET;
+		int headerEnd = writeVarint(bytes, 0, ((long) text.length() << KIND_BITS) | TRACE);
+		headerEnd = writeVarint(bytes, headerEnd, payload);
+		System.arraycopy(bytes, TRACE_OFFSET, bytes, headerEnd, payload);
+		return headerEnd + payload;
+	}
+
+	private static String readTrace(ByteBuffer page, int pos, int textLength) {
+		long payload = readVarint(page, pos);
+		pos += varintSize(payload);
+		long lines = readVarint(page, pos);
+		pos += varintSize(lines);
+		StringBuilder text = new StringBuilder(textLength);
+		for (long line = 0; line < lines; line++) {
+			if (line > 0) {
+				text.append('\n');
+			}
+			long token = readVarint(page, pos);
+			pos += varintSize(token);
+			if ((token & 1) != 0) {
+				text.append(FRAMES.symbol((int) (token >>> 1)));
+				continue;
+			}
+			int length = (int) (token >>> 2);
+			if ((token & 2) == 0) {
+				for (int i = 0; i < length; i++) {
+					text.append((char) (page.get(pos++) & 0xFF));
+				}
+			} else {
+				for (int i = 0; i < length; i++) {
+					text.append((char) ((page.get(pos++) & 0xFF) << 8 | (page.get(pos++) & 0xFF)));
+				}
+			}
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Returns true if the text has more than one line and at least one of them is a stack frame.
+	 */
+	private static boolean hasFrames(String text) {
+		int newline = text.indexOf('\n');
+		if (newline < 0)
+			return false;
+		if (isFrame(text, 0, newline))
+			return true;
+		while (newline >= 0) {
+			int lineStart = newline + 1;
+			newline = text.indexOf('\n', lineStart);
+			if (isFrame(text, lineStart, newline < 0 ? text.length() : newline))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * A stack frame line is {@code at } after optional indentation, followed by a method and its location in parentheses.
+	 */
+	static boolean isFrame(String text, int from, int to) {
+		int pos = from;
+		while (pos < to && (text.charAt(pos) == '\t' || text.charAt(pos) == ' ')) {
+			pos++;
+		}
+		if (to - pos <= 4 || !text.startsWith("at ", pos))
+			return false;
+		// Only the line itself is searched, a search to the end of the text would make long texts quadratic
+		for (int i = pos + 3; i < to; i++) {
+			if (text.charAt(i) == '(')
+				return true;
+		}
+		return false;
+	}
+
+	private static int lineCount(String text) {
+		int lines = 1;
+		for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1)) {
+			lines++;
+		}
+		return lines;
+	}
+
+	private static boolean isLatin1(String text, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (text.charAt(i) > 0xFF)
+				return false;
+		}
+		return true;
+	}
+
+	private static int writeChars(String text, int from, int to, boolean latin1, byte[] bytes, int pos) {
+		if (latin1) {
+			for (int i = from; i < to; i++) {
+				bytes[pos++] = (byte) text.charAt(i);
+			}
+		} else {
+			for (int i = from; i < to; i++) {
+				char c = text.charAt(i);
+				bytes[pos++] = (byte) (c >> 8);
+				bytes[pos++] = (byte) c;
+			}
+		}
+		return pos;
+	}
+
+	private static long readVarint(ByteBuffer page, int pos) {
+		long header = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = page.get(pos++);
+			header |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return header;
+	}
+
+	private static int writeVarint(byte[] bytes, int pos, long value) {
+		while ((value & ~0x7FL) != 0) {
+			bytes[pos++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[pos++] = (byte) value;
+		return pos;
+	}
+
+	private static int varintSize(long value) {
+		int size = 1;
+		while ((value & ~0x7FL) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+
+	/**
+	 * Reads texts for one thread, e.g. one task of a parallel scan. The reader keeps the page it read last, so rows grouped by page
+	 * decompress each block once, and it does not evict the pages other threads read.
+	 */
+	final class Reader {
+		private int index = -1;
+		private ByteBuffer page;
+
+		String read(long ref) {
+			return TextPages.read(page(pageIndex(ref)), ref);
+		}
+
+		String read(long ref, int start, int length) {
+			return TextPages.read(page(pageIndex(ref)), ref, start, length);
+		}
+
+		private ByteBuffer page(int pageIndex) {
+			if (pageIndex != index) {
+				page = TextPages.this.page(pageIndex, false);
+				index = pageIndex;
+			}
+			return page;
+		}
+	}
+
+	/**
+	 * A page and, once it is full and compressed, its block. The buffer is cleared after the block and the length are set, so a reader
+	 * that sees no buffer sees the block.
+	 */
+	private static final class Page {
+		volatile ByteBuffer buffer;
+		ByteBuffer block;
+		/** Bytes used in the page, the length of the decompressed block. */
+		int length;
+
+		Page(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+	}
+}
@@ -0,0 +1,220 @@
+package de.in.lsp.model;
+
+import java.util.Arrays;
+import java.util.function.IntBinaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Computes the timestamp order of the rows of a {@link LogStore}. Logs are appended file by file and every file is already (almost) in
+ * order, so instead of sorting all rows the ascending runs are found in one pass and merged with a k-way heap merge. Stretches of short
+ * runs, i.e. files that turn out to be unsorted, are cut into blocks that are sorted in parallel and then take part in the merge like
+ * any other run.
+ * <p>
+ * A row without timestamp is ordered by the timestamp of the row before it in the same file, header lines at the start of a file by
+ * the first timestamp after them, so they stay next to their neighbors. Rows with equal keys keep their order, the sort is stable.
+ *
+ * @author TiJaWo68
+ */
+final class TimestampSort {
+
+	/** Ascending runs from this length on are merged as they are, shorter ones are sorted in blocks. */
+	static final int MIN_RUN = 1 << 12;
+	/** Rows per block of short runs, the blocks are sorted in parallel. */
+	static final int BLOCK_SIZE = 1 << 14;
+
+	private final long[] keys;
+	private final int[] rows;
+	private int[] runStarts = new int[16];
+	private int runCount;
+
+	private TimestampSort(LogStore store, int count) {
+		keys = sortKeys(store, count);
+		rows = new int[count];
+		for (int i = 0; i < count; i++) {
+			rows[i] = i;
+		}
+	}
+
+	/**
+	 * Returns the rows [0, count) of the store in timestamp order.
+	 */
+	static int[] order(LogStore store, int count) {
+		TimestampSort sort = new TimestampSort(store, count);
+		sort.findRuns();
+		return sort.merge();
+	}
+
+	/**
+	 * Returns the timestamp of every row, for rows without one the timestamp of the row before it in the same source or, at the start
+	 * of a source, the first timestamp after it.
+	 */
+	static long[] sortKeys(LogStore store, int count) {
+		long[] keys = new long[count];
+		int[] sources = new int[count];
+		long last = LogEntry.NO_TIMESTAMP;
+		for (int i = 0; i < count; i++) {
+			sources[i] = store.sourceId(i);
+			if (i > 0 && sources[i] != sources[i - 1]) {
+				last = LogEntry.NO_TIMESTAMP;
+			}
+			long ts = store.timestampNanos(i);
+			if (ts != LogEntry.NO_TIMESTAMP) {
+				last = ts;
+			}
+			keys[i] = last;
+		}
+		long next = LogEntry.NO_TIMESTAMP;
+		for (int i = count - 1; i >= 0; i--) {
+			if (i < count - 1 && sources[i] != sources[i + 1]) {
+				next = LogEntry.NO_TIMESTAMP;
+			}
+			if (keys[i] == LogEntry.NO_TIMESTAMP) {
+				keys[i] = next;
+			} else {
+				next = keys[i];
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * Splits the rows into ascending runs. Short runs are collected into blocks, which are sorted in parallel and become runs.
+	 */
+	private void findRuns() {
+		int count = rows.length;
+		int[] blocks = new int[16];
+		int blockCount = 0;
+		int blockStart = -1;
+		int start = 0;
+		while (start < count) {
+			int end = start + 1;
+			while (end < count && keys[end - 1] <= keys[end]) {
+				end++;
+			}
+			if (end - start >= MIN_RUN) {
+				blockStart = -1;
+				addRun(start);
+			} else if (blockStart < 0 || start - blockStart >= BLOCK_SIZE) {
+				blockStart = start;
+				addRun(start);
+				if (blockCount == blocks.length) {
+					blocks = Arrays.copyOf(blocks, blockCount * 2);
+				}
+				blocks[blockCount++] = runCount - 1;
+			}
+			start = end;
+		}
+		sortBlocks(blocks, blockCount);
+		coalesceRuns();
+	}
+
+	/**
+	 * Starts a run at the row, the run before it ends there.
+	 */
+	private void addRun(int start) {
+		if (runCount == runStarts.length) {
+			runStarts = Arrays.copyOf(runStarts, runCount * 2);
+		}
+		runStarts[runCount++] = start;
+	}
+
+	private int runEnd(int run) {
+		return run + 1 < runCount ? runStarts[run + 1] : rows.length;
+	}
+
+	private void sortBlocks(int[] blocks, int blockCount) {
+		if (blockCount == 0)
+			return;
+		int[] buffer = new int[rows.length];
+		IntBinaryOperator order = (a, b) -> Long.compare(keys[a], keys[b]);
+		IntStream.range(0, blockCount).parallel().forEach(block -> {
+			int run = blocks[block];
+			LogStore.mergeSort(rows, buffer, runStarts[run], runEnd(run), order);
+		});
+	}
+
+	/**
+	 * Joins runs that continue where the run before them ended, e.g. neighboring blocks of an almost sorted file.
+	 */
+	private void coalesceRuns() {
+		int joined = 0;
+		for (int run = 1; run < runCount; run++) {
+			if (keys[rows[runStarts[run] - 1]] > keys[rows[runStarts[run]]]) {
+				runStarts[++joined] = runStarts[run];
+			}
+		}
+		runCount = Math.min(runCount, joined + 1);
+	}
+
+	/**
+	 * Merges the runs with a binary heap of run indexes, keyed by the key of their next row. Ties are taken from the earlier run, which
+	 * keeps the merge stable.
+	 */
+	private int[] merge() {
+		if (runCount <= 1)
+			return rows;
+		int[] positions = new int[runCount];
+		int[] ends = new int[runCount];
+		long[] heads = new long[runCount];
+		int[] heap = new int[runCount];
+		for (int run = 0; run < runCount; run++) {
+			positions[run] = runStarts[run];
+			ends[run] = runEnd(run);
+			heads[run] = keys[rows[positions[run]]];
+			heap[run] = run;
+		}
+		int heapSize = runCount;
+		for (int i = heapSize / 2 - 1; i >= 0; i--) {
+			siftDown(heap, heapSize, i, heads);
+		}
+		int[] result = new int[rows.length];
+		int i = 0;
+		while (heapSize > 1) {
+			int run = heap[0];
+			int position = positions[run];
+			int end = ends[run];
+			// Rows are taken from the top run as long as it stays ahead of the runner-up, without touching the heap
+			long limit = heads[heap[1]];
+			int runnerUp = heap[1];
+			if (heapSize > 2 && before(heap[2], runnerUp, heads)) {
+				runnerUp = heap[2];
+				limit = heads[runnerUp];
+			}
+			do {
+				result[i++] = rows[position++];
+			} while (position < end && (keys[rows[position]] < limit || (keys[rows[position]] == limit && run < runnerUp)));
+			positions[run] = position;
+			if (position == end) {
+				heap[0] = heap[--heapSize];
+			} else {
+				heads[run] = keys[rows[position]];
+			}
+			siftDown(heap, heapSize, 0, heads);
+		}
+		int run = heap[0];
+		int remaining = ends[run] - positions[run];
+		System.arraycopy(rows, positions[run], result, i, remaining);
+		return result;
+	}
+
+	private static void siftDown(int[] heap, int heapSize, int index, long[] heads) {
+		int run = heap[index];
+		while (true) {
+			int child = 2 * index + 1;
+			if (child >= heapSize)
+				break;
+			if (child + 1 < heapSize && before(heap[child + 1], heap[child], heads)) {
+				child++;
+			}
+			if (!before(heap[child], run, heads))
+				break;
+			heap[index] = heap[child];
+			index = child;
+		}
+		heap[index] = run;
+	}
+
+	private static boolean before(int run, int other, long[] heads) {
+		return heads[run] < heads[other] || (heads[run] == heads[other] && run < other);
+	}
+}
@@ -0,0 +1,114 @@
+package de.in.lsp.parser;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Byte-level scanning helpers for the ASCII fast path. The buffer is read eight bytes at a time as a little-endian long and every byte
+ * of the word is tested at once (SWAR), so finding line ends, delimiters or non-ASCII bytes costs a few instructions per eight bytes
+ * instead of a branch per byte. The remaining tail is scanned byte by byte.
+ *
+ * @author TiJaWo68
+ */
+public final class ByteScanner {
+
+	private static final VarHandle LONG_VIEW = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	private static final long ONES = 0x0101010101010101L;
+	private static final long HIGH_BITS = 0x8080808080808080L;
+	private static final long NEWLINES = ONES * '\n';
+	private static final long CARRIAGE_RETURNS = ONES * '\r';
+
+	private ByteScanner() {
+	}
+
+	/**
+	 * Returns the index of the first {@code \n} or {@code \r} in [from, to), or {@code to} if the range contains no line terminator.
+	 */
+	public static int indexOfLineEnd(ByteBuffer buffer, int from, int to) {
+		int i = from;
+		for (; i + Long.BYTES <= to; i += Long.BYTES) {
+			long word = (long) LONG_VIEW.get(buffer, i);
+			long found = matches(word, NEWLINES) | matches(word, CARRIAGE_RETURNS);
+			if (found != 0) {
+				return i + (Long.numberOfTrailingZeros(found) >>> 3);
+			}
+		}
+		for (; i < to; i++) {
+			byte b = buffer.get(i);
+			if (b == '\n' || b == '\r') {
+				return i;
+			}
+		}
+		return to;
+	}
+
+	/**
+	 * Returns the index of the first occurrence of {@code value} in [from, to), or -1.
+	 */
+	public static int indexOf(ByteBuffer buffer, int from, int to, byte value) {
+		long pattern = ONES * (value & 0xFF);
+		int i = from;
+		for (; i + Long.BYTES <= to; i += Long.BYTES) {
+			long found = matches((long) LONG_VIEW.get(buffer, i), pattern);
+			if (found != 0) {
+				return i + (Long.numberOfTrailingZeros(found) >>> 3);
+			}
+		}
+		for (; i < to; i++) {
+			if (buffer.get(i) == value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns true if no byte in [from, to) has its high bit set, i.e. the range is plain 7-bit ASCII.
+	 */
+	public static boolean isAscii(ByteBuffer buffer, int from, int to) {
+		int i = from;
+		long highBits = 0;
+		for (; i + Long.BYTES <= to; i += Long.BYTES) {
+			highBits |= (long) LONG_VIEW.get(buffer, i);
+		}
+		if ((highBits & HIGH_BITS) != 0) {
+			return false;
+		}
+		for (; i < to; i++) {
+			if (buffer.get(i) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the index of {@code c} in the sequence starting at {@code from}, or -1. Uses the word-wise scan for mapped ASCII lines.
+	 */
+	public static int indexOf(CharSequence seq, char c, int from) {
+		if (seq instanceof ByteSlice slice) {
+			return slice.indexOf(c, from);
+		}
+		if (seq instanceof String s) {
+			return s.indexOf(c, from);
+		}
+		for (int i = Math.max(from, 0); i < seq.length(); i++) {
+			if (seq.charAt(i) == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Sets the high bit of every byte of {@code word} that equals the corresponding byte of {@code pattern}. Bytes above the first match
+	 * may be flagged spuriously by the borrow, so only the lowest flagged byte is reliable.
+	 */
+	private static long matches(long word, long pattern) {
+		long x = word ^ pattern;
+		return (x - ONES) & ~x & HIGH_BITS;
+	}
+}
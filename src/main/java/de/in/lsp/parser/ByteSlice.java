@@ -0,0 +1,73 @@
+package de.in.lsp.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A CharSequence over a line of pure ASCII bytes. It is used as a reusable flyweight by {@link MappedLineSource}: the line is copied from
+ * the mapped buffer into a recycled array, so regex matching runs on plain array reads and Strings are only created for the groups that
+ * are actually kept.
+ *
+ * @author TiJaWo68
+ */
+final class ByteSlice implements CharSequence {
+
+	private byte[] bytes = new byte[256];
+	private ByteBuffer view = ByteBuffer.wrap(bytes);
+	private int length;
+
+	ByteSlice() {
+	}
+
+	ByteSlice(ByteBuffer buffer, int offset, int length) {
+		set(buffer, offset, length);
+	}
+
+	void set(ByteBuffer buffer, int offset, int length) {
+		if (length > bytes.length) {
+			bytes = new byte[Math.max(length, bytes.length * 2)];
+			view = ByteBuffer.wrap(bytes);
+		}
+		buffer.get(offset, bytes, 0, length);
+		this.length = length;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length)
+			throw new IndexOutOfBoundsException(index);
+		return (char) bytes[index];
+	}
+
+	/**
+	 * Returns the index of {@code c} at or after {@code from}, or -1. Non-ASCII characters can never occur in a slice.
+	 */
+	int indexOf(char c, int from) {
+		if (c > 0x7F)
+			return -1;
+		int start = Math.max(from, 0);
+		return start < length ? ByteScanner.indexOf(view, start, length, (byte) c) : -1;
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return substring(start, end);
+	}
+
+	String substring(int start, int end) {
+		if (start < 0 || end > length || start > end)
+			throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+		// Only used for ASCII content, where ISO-8859-1 and UTF-8 decode identically and the JDK can use its compact Latin-1 strings
+		return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+	}
+
+	@Override
+	public String toString() {
+		return substring(0, length);
+	}
+}
@@ -1,19 +1,12 @@
 package de.in.lsp.parser;
 
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import de.in.lsp.model.LogEntry;
+import de.in.lsp.model.SymbolTable;
 
 /**
  * A general-purpose LogParser implementation that uses RegEx-based
@@ -22,16 +15,22 @@ import de.in.lsp.model.LogEntry;
  * 
  * @author TiJaWo68 in cooperation with Gemini 3 Flash using Antigravity
  */
-public class ConfigurableLogParser implements LogParser {
+public class ConfigurableLogParser implements LogParser, EntryClassifier {
 
 	private final LogFormatConfig config;
 	private final Pattern pattern;
 	private final DateTimeFormatter formatter;
+	private final TimestampDecoder timestampDecoder;
+	private final boolean utcTimestamps;
+	private final boolean datedOnParse;
 
 	public ConfigurableLogParser(LogFormatConfig config) {
 		this.config = config;
 		this.pattern = Pattern.compile(config.entryRegex());
 		this.formatter = DateTimeFormatter.ofPattern(config.timestampPattern());
+		this.timestampDecoder = TimestampDecoder.compile(config.timestampPattern());
+		this.utcTimestamps = Timestamps.isUtc(config.timestampPattern());
+		this.datedOnParse = Timestamps.isDatedOnParse(config.timestampPattern());
 	}
 
 	@Override
@@ -42,65 +41,66 @@ public class ConfigurableLogParser implements LogParser {
 	}
 
 	@Override
-	public List<LogEntry> parse(InputStream inputStream, String sourceName) throws Exception {
-		List<LogEntry> entries = new ArrayList<>();
-		try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
-			String line;
-			LogEntry lastEntry = null;
-			List<String> headerBuffer = new ArrayList<>();
-			while ((line = reader.readLine()) != null) {
-				Matcher matcher = pattern.matcher(line);
-				if (matcher.find()) {
-					try {
-						LocalDateTime ts;
-						try {
-							ts = LocalDateTime.parse(matcher.group(config.timestampGroup()), formatter);
-						} catch (Exception dateEx) {
-							// Fallback for time-only formats (e.g. HH:mm:ss,SSS)
-							LocalTime time = LocalTime.parse(matcher.group(config.timestampGroup()), formatter);
-							ts = time.atDate(LocalDate.now());
-						}
-						String level = matcher.group(config.levelGroup());
-						String thread = getGroupOrDefault(matcher, config.threadGroup(), "");
-						String logger = getGroupOrDefault(matcher, config.loggerGroup(), "");
-						String ip = getGroupOrDefault(matcher, config.ipGroup(), "");
-						String message = getGroupOrDefault(matcher, config.messageGroup(), "");
-
-						// Flush header buffer if first match
-						if (lastEntry == null && !headerBuffer.isEmpty()) {
-							String combinedHeader = String.join("\n", headerBuffer);
-							entries.add(new LogEntry(null, "", "", "", "", 0, combinedHeader, sourceName, combinedHeader));
-							headerBuffer.clear();
-						}
-
-						lastEntry = new LogEntry(ts, level, thread, logger, ip, 0, message, sourceName, line);
-						entries.add(lastEntry);
-					} catch (Exception e) {
-						// If parsing fails but it matched the regex, treat it as part of the previous
-						// message
-						if (lastEntry != null) {
-							lastEntry = lastEntry.appendMessage("\n" + line);
-							entries.set(entries.size() - 1, lastEntry);
-						} else {
-							headerBuffer.add(line);
-						}
-					}
-				} else if (lastEntry != null) {
-					// Multi-line support: append to the previous entry
-					lastEntry = lastEntry.appendMessage("\n" + line);
-					entries.set(entries.size() - 1, lastEntry);
-				} else {
-					// Initial header
-					headerBuffer.add(line);
+	public void parse(LineSource lines, String sourceName, Consumer<LogEntry> sink) throws Exception {
+		PendingEntry pending = new PendingEntry(sourceName);
+		ParseContext context = new ParseContext(timestampDecoder, null, pattern);
+		CharSequence line;
+		while ((line = lines.readLine()) != null) {
+			Matcher matcher = context.matcher(line);
+			LogEntry newEntry = null;
+			if (matcher.find()) {
+				try {
+					long ts = parseTimestamp(line, matcher, context.timestampCache);
+					SymbolTable symbols = SymbolTable.getInstance();
+					String level = symbols.intern(matcher.group(config.levelGroup()));
+					String thread = symbols.intern(getGroupOrDefault(matcher, config.threadGroup(), ""));
+					String logger = symbols.intern(getGroupOrDefault(matcher, config.loggerGroup(), ""));
+					String ip = symbols.intern(getGroupOrDefault(matcher, config.ipGroup(), ""));
+					String message = getGroupOrDefault(matcher, config.messageGroup(), "");
+					newEntry = new LogEntry(ts, level, thread, logger, ip, 0, message, sourceName, line.toString());
+				} catch (Exception e) {
+					// If parsing fails but it matched the regex, treat it as part of the previous
+					// message
 				}
 			}
-			// If we NEVER found a match, but have headers, add them as one entry
-			if (lastEntry == null && !headerBuffer.isEmpty()) {
-				String combinedHeader = String.join("\n", headerBuffer);
-				entries.add(new LogEntry(null, "", "", "", "", 0, combinedHeader, sourceName, combinedHeader));
+			if (newEntry != null) {
+				pending.start(newEntry, sink);
+			} else {
+				// Multi-line support: append to the previous entry (or the initial header)
+				pending.append(line);
 			}
 		}
-		return entries;
+		pending.emit(sink);
+	}
+
+	@Override
+	public LineKind classify(CharSequence line) {
+		Matcher matcher = pattern.matcher(line);
+		if (!matcher.find())
+			return LineKind.CONTINUATION;
+		try {
+			// Same steps that can fail in parse: the timestamp and the group lookups
+			parseTimestamp(line, matcher, null);
+			matcher.group(config.levelGroup());
+			getGroupOrDefault(matcher, config.threadGroup(), "");
+			getGroupOrDefault(matcher, config.loggerGroup(), "");
+			getGroupOrDefault(matcher, config.ipGroup(), "");
+			getGroupOrDefault(matcher, config.messageGroup(), "");
+			return LineKind.TIMED_ENTRY;
+		} catch (Exception e) {
+			return LineKind.CONTINUATION;
+		}
+	}
+
+	private long parseTimestamp(CharSequence line, Matcher matcher, TimestampDecoder.Cache cache) {
+		int start = matcher.start(config.timestampGroup());
+		if (timestampDecoder != null && start >= 0) {
+			long ts = timestampDecoder.decode(line, start, matcher.end(config.timestampGroup()), cache);
+			if (ts != LogEntry.NO_TIMESTAMP)
+				return ts;
+		}
+		// Also covers time-only formats (e.g. HH:mm:ss,SSS), which are placed on today's date
+		return Timestamps.parse(matcher.group(config.timestampGroup()), formatter, utcTimestamps);
 	}
 
 	private String getGroupOrDefault(Matcher matcher, int group, String defaultValue) {
@@ -115,4 +115,9 @@ public class ConfigurableLogParser implements LogParser {
 	public String getFormatName() {
 		return config.name();
 	}
+
+	@Override
+	public boolean isDatedOnParse() {
+		return datedOnParse;
+	}
 }
@@ -0,0 +1,22 @@
+package de.in.lsp.parser;
+
+/**
+ * Implemented by parsers that can tell from a single line whether it starts a new entry, without building the entry. This is what the
+ * parser's own {@code parse} decides per line, so counting the results over the head of a file gives the same entry statistics as a
+ * trial parse. Used for format detection and for finding chunk boundaries.
+ *
+ * @author TiJaWo68
+ */
+public interface EntryClassifier {
+
+	enum LineKind {
+		/** The line continues the previous entry (or belongs to the header before the first entry). */
+		CONTINUATION,
+		/** The line starts an entry without timestamp. */
+		ENTRY,
+		/** The line starts an entry with a parsed timestamp. */
+		TIMED_ENTRY
+	}
+
+	LineKind classify(CharSequence line);
+}
@@ -1,11 +1,6 @@
 package de.in.lsp.parser;
 
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.function.Consumer;
 
 import de.in.lsp.model.LogEntry;
 
@@ -14,7 +9,7 @@ import de.in.lsp.model.LogEntry;
  * 
  * @author TiJaWo68 in cooperation with Gemini 3 Flash using Antigravity
  */
-public class FallbackLogParser implements LogParser {
+public class FallbackLogParser implements LogParser, EntryClassifier {
 
 	@Override
 	public boolean canParse(String firstLine) {
@@ -22,16 +17,19 @@ public class FallbackLogParser implements LogParser {
 	}
 
 	@Override
-	public List<LogEntry> parse(InputStream inputStream, String sourceName) throws Exception {
-		List<LogEntry> entries = new ArrayList<>();
-		try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
-			String line;
-			while ((line = reader.readLine()) != null) {
-				// Create a LogEntry with null/empty fields except for the message Timestamp, Level, Thread, Logger are null/UNKNOWN
-				entries.add(new LogEntry(null, "", "", "", "", 0, line, sourceName, line));
-			}
+	public void parse(LineSource lines, String sourceName, Consumer<LogEntry> sink) throws Exception {
+		CharSequence line;
+		while ((line = lines.readLine()) != null) {
+			// Create a LogEntry with null/empty fields except for the message Timestamp, Level, Thread, Logger are null/UNKNOWN
+			String text = line.toString();
+			sink.accept(new LogEntry(LogEntry.NO_TIMESTAMP, "", "", "", "", 0, text, sourceName, text));
 		}
-		return entries;
+	}
+
+	@Override
+	public LineKind classify(CharSequence line) {
+		// Every line is an entry of its own
+		return LineKind.ENTRY;
 	}
 
 	@Override
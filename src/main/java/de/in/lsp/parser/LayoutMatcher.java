@@ -0,0 +1,186 @@
+package de.in.lsp.parser;
+
+import java.util.Arrays;
+
+/**
+ * A matcher compiled from a Logback-style layout that replaces the generated regex of {@link PatternBasedLogParser}. The layout is a
+ * sequence of literal characters, whitespace runs ({@code \s+}), level words ({@code \w+}), lazy fields ({@code .*?}) and a greedy
+ * message ({@code .*}), anchored at both ends of the line.
+ * <p>
+ * Matching tries the alternatives in exactly the order the regex engine would (lazy fields shortest first, greedy tokens longest first),
+ * so the field boundaries are identical to the regex groups. Lazy fields jump straight to the next occurrence of the following literal
+ * with indexOf instead of growing one character at a time. Lines containing line terminator characters must be matched with the regex,
+ * because {@code .} does not match them.
+ *
+ * @author TiJaWo68
+ */
+final class LayoutMatcher {
+
+	static final int LITERAL = 0;
+	static final int WHITESPACE = 1;
+	static final int WORD = 2;
+	static final int LAZY = 3;
+	static final int GREEDY = 4;
+
+	private final int[] kinds;
+	private final char[] literals;
+	/** Capturing group number per token, or 0 for tokens without a group. */
+	private final int[] groups;
+	private final int groupCount;
+
+	private LayoutMatcher(int[] kinds, char[] literals, int[] groups, int groupCount) {
+		this.kinds = kinds;
+		this.literals = literals;
+		this.groups = groups;
+		this.groupCount = groupCount;
+	}
+
+	/**
+	 * Collects the tokens while the layout is translated.
+	 */
+	static final class Builder {
+		private int[] kinds = new int[16];
+		private char[] literals = new char[16];
+		private int[] groups = new int[16];
+		private int size;
+		private int groupCount;
+
+		Builder literal(char c) {
+			return add(LITERAL, c, 0);
+		}
+
+		Builder whitespace() {
+			return add(WHITESPACE, '\0', 0);
+		}
+
+		/**
+		 * Adds a capturing token of the given kind ({@link #WORD}, {@link #LAZY} or {@link #GREEDY}) with the given group number.
+		 */
+		Builder group(int kind, int group) {
+			groupCount = Math.max(groupCount, group);
+			return add(kind, '\0', group);
+		}
+
+		private Builder add(int kind, char literal, int group) {
+			if (size == kinds.length) {
+				kinds = Arrays.copyOf(kinds, size * 2);
+				literals = Arrays.copyOf(literals, size * 2);
+				groups = Arrays.copyOf(groups, size * 2);
+			}
+			kinds[size] = kind;
+			literals[size] = literal;
+			groups[size] = group;
+			size++;
+			return this;
+		}
+
+		LayoutMatcher build() {
+			return new LayoutMatcher(Arrays.copyOf(kinds, size), Arrays.copyOf(literals, size), Arrays.copyOf(groups, size), groupCount);
+		}
+	}
+
+	/**
+	 * Returns a bounds array for {@link #match}: start and end offset for every group, indexed by {@code 2 * group}.
+	 */
+	int[] newBounds() {
+		return new int[2 * (groupCount + 1)];
+	}
+
+	/**
+	 * Matches the whole line and stores the group offsets in {@code bounds}. The line must not contain line terminator characters.
+	 */
+	boolean match(CharSequence line, int[] bounds) {
+		return match(line, 0, 0, bounds);
+	}
+
+	/**
+	 * Returns true if the line contains a character that {@code .} does not match, so the layout cannot be matched without the regex.
+	 */
+	static boolean hasLineTerminator(CharSequence line) {
+		if (line instanceof ByteSlice) {
+			// Mapped lines are pure ASCII and split at \n and \r
+			return false;
+		}
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == '\n' || c == '\r' || c == '\u0085' || c == 0x2028 || c == 0x2029)
+				return true;
+		}
+		return false;
+	}
+
+	private boolean match(CharSequence line, int token, int pos, int[] bounds) {
+		int length = line.length();
+		while (token < kinds.length) {
+			int kind = kinds[token];
+			if (kind == LITERAL) {
+				if (pos >= length || line.charAt(pos) != literals[token])
+					return false;
+				pos++;
+				token++;
+				continue;
+			}
+
+			int group = groups[token];
+			if (kind == LAZY) {
+				int next = token + 1;
+				if (next == kinds.length) {
+					// A trailing lazy field has to take the rest of the line
+					return capture(bounds, group, pos, length);
+				}
+				for (int end = pos; end <= length; end++) {
+					if (kinds[next] == LITERAL) {
+						// Only positions where the following literal occurs can succeed
+						end = ByteScanner.indexOf(line, literals[next], end);
+						if (end < 0)
+							return false;
+					}
+					if (match(line, next, end, bounds))
+						return capture(bounds, group, pos, end);
+				}
+				return false;
+			}
+
+			// Greedy tokens: take the longest run first, then give back one character at a time
+			int end = pos;
+			if (kind == WHITESPACE) {
+				while (end < length && isWhitespace(line.charAt(end)))
+					end++;
+			} else if (kind == WORD) {
+				while (end < length && isWordChar(line.charAt(end)))
+					end++;
+			} else {
+				end = length;
+			}
+			int min = (kind == GREEDY) ? pos : pos + 1;
+			if (end < min)
+				return false;
+			if (token + 1 == kinds.length) {
+				// Last token: only the full run can reach the end of the line
+				return end == length && capture(bounds, group, pos, end);
+			}
+			for (; end >= min; end--) {
+				if (match(line, token + 1, end, bounds))
+					return capture(bounds, group, pos, end);
+			}
+			return false;
+		}
+		return pos == length;
+	}
+
+	private static boolean capture(int[] bounds, int group, int start, int end) {
+		if (group > 0) {
+			bounds[2 * group] = start;
+			bounds[2 * group + 1] = end;
+		}
+		return true;
+	}
+
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+	}
+
+	private static boolean isWordChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+	}
+}
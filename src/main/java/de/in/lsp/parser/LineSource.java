@@ -0,0 +1,27 @@
+package de.in.lsp.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A source of log lines for the parsers. Lines are returned without their terminator; {@code \n}, {@code \r} and {@code \r\n} are
+ * recognized like in {@link java.io.BufferedReader#readLine()}. The returned sequence may be a flyweight over a shared buffer and is
+ * only valid until the next call to {@link #readLine()}, so callers must call {@code toString()} on anything they keep.
+ *
+ * @author TiJaWo68
+ */
+public interface LineSource extends Closeable {
+
+	/**
+	 * Returns the next line, or null if the end of the source has been reached.
+	 */
+	CharSequence readLine() throws IOException;
+
+	/**
+	 * Creates a line source decoding the given stream as UTF-8.
+	 */
+	static LineSource of(InputStream inputStream) {
+		return new ReaderLineSource(inputStream);
+	}
+}
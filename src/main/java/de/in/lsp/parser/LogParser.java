@@ -1,7 +1,9 @@
 package de.in.lsp.parser;
 
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import de.in.lsp.model.LogEntry;
 
@@ -20,10 +22,46 @@ public interface LogParser {
 	/**
 	 * Parses the input stream and returns a list of log entries.
 	 */
-	List<LogEntry> parse(InputStream inputStream, String sourceName) throws Exception;
+	default List<LogEntry> parse(InputStream inputStream, String sourceName) throws Exception {
+		List<LogEntry> entries = new ArrayList<>();
+		parse(inputStream, sourceName, entries::add);
+		return entries;
+	}
+
+	/**
+	 * Parses the input stream and pushes every completed entry to the sink.
+	 */
+	default void parse(InputStream inputStream, String sourceName, Consumer<LogEntry> sink) throws Exception {
+		try (LineSource lines = LineSource.of(inputStream)) {
+			parse(lines, sourceName, sink);
+		}
+	}
+
+	/**
+	 * Parses all lines of the given source and returns a list of log entries.
+	 */
+	default List<LogEntry> parse(LineSource lines, String sourceName) throws Exception {
+		List<LogEntry> entries = new ArrayList<>();
+		parse(lines, sourceName, entries::add);
+		return entries;
+	}
+
+	/**
+	 * Parses all lines of the given source and pushes every entry to the sink, in file order, as soon as it is complete. An entry is
+	 * complete when the next entry starts or the source ends, so continuation lines are always included. Lines are only valid until the
+	 * next line is read.
+	 */
+	void parse(LineSource lines, String sourceName, Consumer<LogEntry> sink) throws Exception;
 
 	/**
 	 * Returns a human-readable name of the format.
 	 */
 	String getFormatName();
+
+	/**
+	 * Returns true if the timestamps of this format have no year, so they are placed on the date of the day they are parsed.
+	 */
+	default boolean isDatedOnParse() {
+		return false;
+	}
 }
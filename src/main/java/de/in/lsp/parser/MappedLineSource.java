@@ -0,0 +1,146 @@
+package de.in.lsp.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A LineSource backed by {@link FileChannel#map}. Lines are returned as slices (offset/length) over the mapped buffer, so the page cache
+ * does the I/O and no String is allocated for a line unless the parser keeps it. Pure ASCII lines are exposed as {@link ByteSlice}
+ * flyweights; lines with non-ASCII bytes are decoded as UTF-8.
+ * <p>
+ * Large ranges are mapped in windows; a line crossing the end of a window causes the next window to start at that line.
+ *
+ * @author TiJaWo68
+ */
+public class MappedLineSource implements LineSource {
+
+	private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+	private final FileChannel channel;
+	private final boolean ownsChannel;
+	private final long end;
+	private final long windowSize;
+	private final ByteSlice slice = new ByteSlice();
+
+	private ByteBuffer window;
+	private long windowStart;
+	private int position;
+	private long lineStart = -1;
+	private long lineEnd = -1;
+
+	/**
+	 * Maps the byte range [start, end) of a channel the caller keeps ownership of. Several sources may share the same channel.
+	 */
+	public MappedLineSource(FileChannel channel, long start, long end) throws IOException {
+		this(channel, false, start, end, WINDOW_SIZE);
+	}
+
+	MappedLineSource(FileChannel channel, boolean ownsChannel, long start, long end, long windowSize) throws IOException {
+		this.channel = channel;
+		this.ownsChannel = ownsChannel;
+		this.end = end;
+		this.windowSize = windowSize;
+		mapWindow(start);
+	}
+
+	/**
+	 * Creates a line source over an in-memory buffer, e.g. the detection head of a stream.
+	 */
+	public MappedLineSource(ByteBuffer buffer) {
+		this.channel = null;
+		this.ownsChannel = false;
+		this.end = buffer.remaining();
+		this.windowSize = end;
+		this.window = buffer.slice();
+		this.windowStart = 0;
+	}
+
+	/**
+	 * Opens and maps a whole file. Closing the source closes the file.
+	 */
+	public static MappedLineSource open(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			return new MappedLineSource(channel, true, 0, channel.size(), WINDOW_SIZE);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private void mapWindow(long start) throws IOException {
+		long size = Math.min(windowSize, end - start);
+		window = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+		windowStart = start;
+		position = 0;
+	}
+
+	@Override
+	public CharSequence readLine() throws IOException {
+		while (true) {
+			int limit = window.limit();
+			if (position >= limit && windowStart + limit >= end) {
+				return null;
+			}
+
+			int lineStart = position;
+			int i = ByteScanner.indexOfLineEnd(window, lineStart, limit);
+
+			boolean moreData = windowStart + limit < end;
+			if (moreData && (i == limit || (window.get(i) == '\r' && i + 1 == limit))) {
+				// Line (or its CRLF terminator) crosses the window: continue with a window starting at this line
+				if (lineStart == 0) {
+					throw new IOException("Line longer than mapping window of " + windowSize + " bytes");
+				}
+				mapWindow(windowStart + lineStart);
+				continue;
+			}
+
+			int lineEnd = i;
+			if (i < limit) {
+				position = (window.get(i) == '\r' && i + 1 < limit && window.get(i + 1) == '\n') ? i + 2 : i + 1;
+			} else {
+				position = limit;
+			}
+			this.lineStart = windowStart + lineStart;
+			this.lineEnd = windowStart + lineEnd;
+			return toLine(lineStart, lineEnd, ByteScanner.isAscii(window, lineStart, lineEnd));
+		}
+	}
+
+	/**
+	 * Returns the offset of the first byte of the line returned last, relative to the start of the channel.
+	 */
+	public long lineStart() {
+		return lineStart;
+	}
+
+	/**
+	 * Returns the offset after the last byte of the line returned last, excluding its terminator.
+	 */
+	public long lineEnd() {
+		return lineEnd;
+	}
+
+	private CharSequence toLine(int start, int end, boolean ascii) {
+		if (ascii) {
+			slice.set(window, start, end - start);
+			return slice;
+		}
+		byte[] bytes = new byte[end - start];
+		window.get(start, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public void close() throws IOException {
+		window = null;
+		if (ownsChannel) {
+			channel.close();
+		}
+	}
+}
@@ -1,11 +1,8 @@
 package de.in.lsp.parser;
 
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import de.in.lsp.model.LogEntry;
 
@@ -14,17 +11,18 @@ import de.in.lsp.model.LogEntry;
  * 
  * @author TiJaWo68 in cooperation with Gemini 3 Flash using Antigravity
  */
-public class MultiPatternLogParser implements LogParser {
+public class MultiPatternLogParser implements LogParser, EntryClassifier {
 
 	private final List<PatternBasedLogParser> delegates;
 	private final String name;
 
 	public MultiPatternLogParser(String name, List<String> patterns) {
 		this.name = name;
-		this.delegates = new ArrayList<>();
+		List<PatternBasedLogParser> list = new ArrayList<>();
 		for (String p : patterns) {
-			delegates.add(new PatternBasedLogParser(p));
+			list.add(new PatternBasedLogParser(p));
 		}
+		this.delegates = List.copyOf(list);
 	}
 
 	@Override
@@ -40,50 +38,47 @@ public class MultiPatternLogParser implements LogParser {
 	}
 
 	@Override
-	public List<LogEntry> parse(InputStream inputStream, String sourceName) throws Exception {
-		List<LogEntry> allEntries = new ArrayList<>();
-		try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
-			String line;
-			LogEntry lastEntry = null;
-			List<String> headerBuffer = new ArrayList<>();
-			while ((line = reader.readLine()) != null) {
-				LogEntry newEntry = null;
-				for (PatternBasedLogParser delegate : delegates) {
-					// Try to see if it's a new entry
-					if (delegate.canParse(line)) {
-						newEntry = delegate.parseLine(line, sourceName, null);
-						if (newEntry != null)
-							break;
-					}
-				}
-
-				if (newEntry != null) {
-					if (lastEntry == null && !headerBuffer.isEmpty()) {
-						String combinedHeader = String.join("\n", headerBuffer);
-						allEntries.add(new LogEntry(null, "", "", "", "", 0, combinedHeader, sourceName, combinedHeader));
-						headerBuffer.clear();
-					}
-					lastEntry = newEntry;
-					allEntries.add(lastEntry);
-				} else if (lastEntry != null) {
-					// Continuation
-					lastEntry = lastEntry.appendMessage("\n" + line);
-					allEntries.set(allEntries.size() - 1, lastEntry);
-				} else {
-					// Initial header line
-					headerBuffer.add(line);
-				}
+	public void parse(LineSource lines, String sourceName, Consumer<LogEntry> sink) throws Exception {
+		PendingEntry pending = new PendingEntry(sourceName);
+		ParseContext[] contexts = new ParseContext[delegates.size()];
+		for (int i = 0; i < contexts.length; i++) {
+			contexts[i] = delegates.get(i).newContext();
+		}
+		CharSequence line;
+		while ((line = lines.readLine()) != null) {
+			LogEntry newEntry = null;
+			for (int i = 0; i < contexts.length && newEntry == null; i++) {
+				// Try to see if it's a new entry
+				newEntry = delegates.get(i).parseEntry(line, sourceName, contexts[i]);
 			}
-			if (lastEntry == null && !headerBuffer.isEmpty()) {
-				String combinedHeader = String.join("\n", headerBuffer);
-				allEntries.add(new LogEntry(null, "", "", "", "", 0, combinedHeader, sourceName, combinedHeader));
+
+			if (newEntry != null) {
+				pending.start(newEntry, sink);
+			} else {
+				// Continuation or initial header line
+				pending.append(line);
 			}
 		}
-		return allEntries;
+		pending.emit(sink);
+	}
+
+	@Override
+	public LineKind classify(CharSequence line) {
+		for (PatternBasedLogParser delegate : delegates) {
+			LineKind kind = delegate.classify(line);
+			if (kind != LineKind.CONTINUATION)
+				return kind;
+		}
+		return LineKind.CONTINUATION;
 	}
 
 	@Override
 	public String getFormatName() {
 		return name;
 	}
+
+	@Override
+	public boolean isDatedOnParse() {
+		return delegates.stream().anyMatch(PatternBasedLogParser::isDatedOnParse);
+	}
 }
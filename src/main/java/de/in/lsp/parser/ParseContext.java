@@ -0,0 +1,45 @@
+package de.in.lsp.parser;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Mutable scratch state of one parse run: the timestamp prefix cache, the group offsets of the last layout match and a reusable regex
+ * matcher. Parsers create a context per call and never store it, which keeps the parsers themselves immutable and shareable between
+ * threads.
+ *
+ * @author TiJaWo68
+ */
+final class ParseContext {
+
+	final TimestampDecoder.Cache timestampCache;
+	final int[] bounds;
+	private final Pattern pattern;
+	private Matcher matcher;
+
+	/**
+	 * @param decoder
+	 *            the parser's timestamp decoder, or null if its date pattern has none
+	 * @param bounds
+	 *            the group offset array for the parser's layout, or null if it matches with the regex only
+	 * @param pattern
+	 *            the regex whose matcher is reused for every line
+	 */
+	ParseContext(TimestampDecoder decoder, int[] bounds, Pattern pattern) {
+		this.timestampCache = decoder != null ? decoder.newCache() : null;
+		this.bounds = bounds;
+		this.pattern = pattern;
+	}
+
+	/**
+	 * Returns the run's matcher, reset to the given line.
+	 */
+	Matcher matcher(CharSequence line) {
+		if (matcher == null) {
+			matcher = pattern.matcher(line);
+		} else {
+			matcher.reset(line);
+		}
+		return matcher;
+	}
+}
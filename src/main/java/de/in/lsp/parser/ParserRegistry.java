@@ -0,0 +1,113 @@
+package de.in.lsp.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Holds the built-in parsers, compiled once per JVM. The parsers are immutable after construction and keep all state of a parse run in a
+ * {@link ParseContext}, so a single instance can be used by any number of loader threads at the same time.
+ *
+ * @author TiJaWo68
+ */
+public final class ParserRegistry {
+
+	private static final class Holder {
+		private static final ParserRegistry INSTANCE = new ParserRegistry();
+	}
+
+	private final List<LogParser> parsers;
+
+	private ParserRegistry() {
+		List<LogParser> list = new ArrayList<>();
+
+		// Quarkus (High priority, specific)
+		list.add(new PatternBasedLogParser("%d{yyyy-MM-dd HH:mm:ss,SSS} %level [%logger] (%t) %msg%n"));
+
+		// Default Parser: %d{yyy-MM-dd HH:mm:ss.SSS} [%t] %-5level %logger{36} - %msg%n
+		list.add(new PatternBasedLogParser("%d{yyyy-MM-dd HH:mm:ss.SSS} [%t] %-5level %logger{36} - %msg%n"));
+
+		// dicomPACS.log, DicomServer_in.log, PacsDBBrowser.log
+		list.add(new PatternBasedLogParser("%d{yyyy-MM-dd HH:mm:ss,SSS} [%t] (%logger) - %msg%n"));
+
+		// jDicomCC.log
+		list.add(new PatternBasedLogParser("%level %d{yyyy-MM-dd HH:mm:ss,SSS} [%t] (%logger) - %msg%n"));
+
+		// starter.log
+		list.add(new PatternBasedLogParser("%d{yyyy-MM-dd HH:mm:ss} : %msg%n"));
+
+		// sw.wrapper.log
+		list.add(new PatternBasedLogParser("%d{yyyy-MM-dd HH:mm:ss,SSS} %level - %msg%n"));
+
+		// debug.log
+		list.add(new PatternBasedLogParser("[%d{MMdd/HHmmss.SSS}:%level:%logger] %msg%n"));
+
+		// localhost.log
+		list.add(new PatternBasedLogParser("%d{dd-MMM-yyyy HH:mm:ss.SSS} %level [%t] %logger %msg%n"));
+
+		// postman-portable.log
+		list.add(new PatternBasedLogParser("%d{EEE, dd MMM yyyy HH:mm:ss z} %level %logger > %msg%n"));
+
+		// mirth.log (as PatternBased)
+		list.add(new PatternBasedLogParser("%level %d{yyyy-MM-dd HH:mm:ss.SSS} [%t] %logger: %msg%n"));
+
+		// diagnost-services (reported issue) 09:00:40.743 [restartedMain] INFO
+		// com.pacs.client.ClientServices - ... \tSourceFile
+		list.add(new PatternBasedLogParser("%d{HH:mm:ss.SSS} [%t] %level  %logger - %msg%n"));
+
+		// server.log (Broad pattern, moved lower)
+		list.add(new PatternBasedLogParser("%d{yyyy-MM-dd HH:mm:ss,SSS} %level %t [%logger] %msg%n"));
+
+		// SWV: Logback internal format (e.g. "10:31:39,416 |-INFO in ch.qos.logback...
+		// - message")
+		list.add(new ConfigurableLogParser(new LogFormatConfig("SWV Logback Internal",
+				"^\\d{2}:\\d{2}:\\d{2},\\d{3}\\s+\\|-\\w+\\s+in\\s+.*",
+				"^(\\d{2}:\\d{2}:\\d{2},\\d{3})\\s+\\|-(\\w+)\\s+in\\s+(.*?)\\s+-\\s+(.*)$", "HH:mm:ss,SSS", 1, 2, -1,
+				3, -1, 4)));
+
+		// SWV: Spring Boot condensed format (e.g. "10:31:50.633 INFO
+		// at.dedalus.swv.SwvApplication - Started...")
+		list.add(new ConfigurableLogParser(new LogFormatConfig("SWV Spring Boot",
+				"^\\d{2}:\\d{2}:\\d{2}\\.\\d{3}\\s+\\w+\\s+.*",
+				"^(\\d{2}:\\d{2}:\\d{2}\\.\\d{3})\\s+(\\w+)\\s+(.*?)\\s+-\\s+(.*)$", "HH:mm:ss.SSS", 1, 2, -1, 3, -1,
+				4)));
+
+		// Istio Proxy (Tab separated)
+		list.add(new ConfigurableLogParser(new LogFormatConfig("Istio Proxy",
+				"^\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d+Z\\t.*",
+				"^(\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d+Z)\\t(\\w+)\\t(.*?)(?:\\t([a-zA-Z0-9_.-]+))?$",
+				"yyyy-MM-dd'T'HH:mm:ss.SSSSSS'Z'", 1, 2, -1, 4, -1, 3)));
+
+		// server.log.dicomservices (Spring Boot default-ish with ISO8601)
+		list.add(new ConfigurableLogParser(new LogFormatConfig("server.log.dicomservices",
+				"^\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3}Z?\\s+.*",
+				"^(\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3}Z?)\\s+(\\w+)\\s+\\d+\\s+---\\s+\\[(.*?)\\]\\s*(?:\\[(.*?)\\]\\s*)?(.*?)\\s+:\\s+(.*)$",
+				"yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", 1, 2, 3, 5, -1, 6)));
+
+		// Postgres / Patroni
+		list.add(new MultiPatternLogParser("Postgres (mixed)",
+				Arrays.asList("%d{yyyy-MM-dd HH:mm:ss,SSS} %level: %msg%n",
+						"%d{yyyy-MM-dd HH:mm:ss.SSS} UTC [%t] %level %msg%n")));
+
+		// Access Log (Nginx/Apache)
+		list.add(new PatternBasedLogParser("%h - - [%d{dd/MMM/yyyy:HH:mm:ss Z}] %msg%n"));
+
+		// Legacy-Default as fallback
+		list.add(new ConfigurableLogParser(
+				new LogFormatConfig("Legacy-Default", "^\\[.*\\] .*", "^\\[(.*?)\\]\\s+(\\w+)\\s+(.*)$",
+						"yyyy-MM-dd HH:mm:ss", 1, 2, -1, -1, -1, 3)));
+
+		this.parsers = List.copyOf(list);
+	}
+
+	public static ParserRegistry getInstance() {
+		return Holder.INSTANCE;
+	}
+
+	/**
+	 * Returns the built-in parsers in detection priority order. The list is unmodifiable.
+	 */
+	public List<LogParser> getParsers() {
+		return parsers;
+	}
+}
@@ -1,18 +1,12 @@
 package de.in.lsp.parser;
 
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import de.in.lsp.model.LogEntry;
+import de.in.lsp.model.SymbolTable;
 
 /**
  * A LogParser that can be configured using a pattern string similar to Logback/Log4j. Supported placeholders: %d{pattern} - Timestamp %t -
@@ -21,25 +15,40 @@ import de.in.lsp.model.LogEntry;
  * 
  * @author TiJaWo68 in cooperation with Gemini 3 Flash using Antigravity
  */
-public class PatternBasedLogParser implements LogParser {
+public class PatternBasedLogParser implements LogParser, EntryClassifier {
 
 	private final String originalPattern;
 	private final Pattern regexPattern;
 	private final DateTimeFormatter dateTimeFormatter;
+	private final TimestampDecoder timestampDecoder;
+	private final boolean utcTimestamps;
+	private final boolean datedOnParse;
+	/** Delimiters like '[', ']' or '-' that every matching line contains in this order. */
+	private final char[] requiredLiterals;
+	/** Regex-free matcher for the same layout, the regex is only used for lines it cannot handle. */
+	private final LayoutMatcher layout;
 
-	private int timestampGroup = -1;
-	private int levelGroup = -1;
-	private int threadGroup = -1;
-	private int loggerGroup = -1;
-	private int ipGroup = -1;
-	private int messageGroup = -1;
+	private final int timestampGroup;
+	private final int levelGroup;
+	private final int threadGroup;
+	private final int loggerGroup;
+	private final int ipGroup;
+	private final int messageGroup;
 
 	public PatternBasedLogParser(String pattern) {
 		this.originalPattern = pattern;
 
 		StringBuilder regexBuilder = new StringBuilder();
 		StringBuilder dateFormatBuilder = new StringBuilder();
+		StringBuilder literalBuilder = new StringBuilder();
+		LayoutMatcher.Builder layoutBuilder = new LayoutMatcher.Builder();
 
+		int timestampGroup = -1;
+		int levelGroup = -1;
+		int threadGroup = -1;
+		int loggerGroup = -1;
+		int ipGroup = -1;
+		int messageGroup = -1;
 		int groupCount = 1;
 		for (int i = 0; i < pattern.length(); i++) {
 			char c = pattern.charAt(i);
@@ -55,15 +64,18 @@ public class PatternBasedLogParser implements LogParser {
 							String df = pattern.substring(i + 2, end);
 							dateFormatBuilder.append(df);
 							regexBuilder.append("(.*?)");
+							layoutBuilder.group(LayoutMatcher.LAZY, groupCount);
 							timestampGroup = groupCount++;
 							i = end;
 						}
 					}
 				} else if (next == 'h') {
 					regexBuilder.append("(.*?)");
+					layoutBuilder.group(LayoutMatcher.LAZY, groupCount);
 					ipGroup = groupCount++;
 				} else if (next == 't') {
 					regexBuilder.append("(.*?)");
+					layoutBuilder.group(LayoutMatcher.LAZY, groupCount);
 					threadGroup = groupCount++;
 				} else if (next == '-' || (next >= '0' && next <= '9')) {
 					// Start of %-5level or %5level
@@ -73,10 +85,12 @@ public class PatternBasedLogParser implements LogParser {
 					}
 					if (j < pattern.length() && pattern.startsWith("level", j)) {
 						regexBuilder.append("(\\w+)");
+						layoutBuilder.group(LayoutMatcher.WORD, groupCount);
 						levelGroup = groupCount++;
 						i = j + 4; // skip 'level'
 					} else if (j < pattern.length() && pattern.startsWith("logger", j)) {
 						regexBuilder.append("(.*?)");
+						layoutBuilder.group(LayoutMatcher.LAZY, groupCount);
 						loggerGroup = groupCount++;
 						i = j + 5; // skip 'logger'
 						if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '{') {
@@ -87,16 +101,19 @@ public class PatternBasedLogParser implements LogParser {
 					}
 				} else if (next == 'l' && pattern.startsWith("evel", i + 1)) {
 					regexBuilder.append("(\\w+)");
+					layoutBuilder.group(LayoutMatcher.WORD, groupCount);
 					levelGroup = groupCount++;
 					i += 4;
 				} else if (next == 'm' && pattern.startsWith("sg", i + 1)) {
 					regexBuilder.append("(.*)");
+					layoutBuilder.group(LayoutMatcher.GREEDY, groupCount);
 					messageGroup = groupCount++;
 					i += 2;
 				} else if (next == 'n') {
 					// skip
 				} else if (next == 'l' && pattern.startsWith("ogger", i + 1)) {
 					regexBuilder.append("(.*?)");
+					layoutBuilder.group(LayoutMatcher.LAZY, groupCount);
 					loggerGroup = groupCount++;
 					i += 5;
 					if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '{') {
@@ -114,9 +131,12 @@ public class PatternBasedLogParser implements LogParser {
 							// already have a space
 						} else {
 							regexBuilder.append("\\s+");
+							layoutBuilder.whitespace();
 						}
 					} else {
 						regexBuilder.append(Pattern.quote(String.valueOf(next)));
+						literalBuilder.append(next);
+						layoutBuilder.literal(next);
 					}
 				}
 			} else {
@@ -125,9 +145,12 @@ public class PatternBasedLogParser implements LogParser {
 						// already have a space
 					} else {
 						regexBuilder.append("\\s+");
+						layoutBuilder.whitespace();
 					}
 				} else {
 					regexBuilder.append(Pattern.quote(String.valueOf(c)));
+					literalBuilder.append(c);
+					layoutBuilder.literal(c);
 				}
 			}
 		}
@@ -136,114 +159,192 @@ public class PatternBasedLogParser implements LogParser {
 		// System.out.println("Generated Regex: " + finalRegex);
 
 		this.regexPattern = Pattern.compile("^" + finalRegex + "$");
+		this.requiredLiterals = literalBuilder.toString().toCharArray();
+		this.layout = layoutBuilder.build();
 
 		this.dateTimeFormatter = DateTimeFormatter.ofPattern(dateFormatBuilder.toString(), java.util.Locale.US);
+		this.timestampDecoder = TimestampDecoder.compile(dateFormatBuilder.toString());
+		this.utcTimestamps = Timestamps.isUtc(dateFormatBuilder.toString());
+		this.datedOnParse = Timestamps.isDatedOnParse(dateFormatBuilder.toString());
+
+		this.timestampGroup = timestampGroup;
+		this.levelGroup = levelGroup;
+		this.threadGroup = threadGroup;
+		this.loggerGroup = loggerGroup;
+		this.ipGroup = ipGroup;
+		this.messageGroup = messageGroup;
 	}
 
 	@Override
 	public boolean canParse(String firstLine) {
-		if (firstLine == null)
+		return canParse((CharSequence) firstLine);
+	}
+
+	/**
+	 * Same as {@link #canParse(String)}, but works directly on a line slice of a {@link LineSource}.
+	 */
+	public boolean canParse(CharSequence line) {
+		if (line == null)
 			return false;
-		return regexPattern.matcher(firstLine).matches();
+		return matchBounds(line, null) != null;
+	}
+
+	/**
+	 * Cheap pre-check before the regex: continuation lines such as stack trace frames usually lack the layout delimiters and are
+	 * rejected by a word-wise scan without running the matcher.
+	 */
+	private boolean containsRequiredLiterals(CharSequence line) {
+		int pos = 0;
+		for (char literal : requiredLiterals) {
+			pos = ByteScanner.indexOf(line, literal, pos);
+			if (pos < 0)
+				return false;
+			pos++;
+		}
+		return true;
 	}
 
 	@Override
-	public List<LogEntry> parse(InputStream inputStream, String sourceName) throws Exception {
-		List<LogEntry> entries = new ArrayList<>();
-		try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
-			String line;
-			LogEntry lastEntry = null;
-			List<String> headerBuffer = new ArrayList<>();
-			while ((line = reader.readLine()) != null) {
-				// Check if the line matches a NEW entry
-				if (canParse(line)) {
-					LogEntry newEntry = parseLine(line, sourceName, null);
-					if (newEntry != null) {
-						// Flush header buffer if first match If this is the first match, flush header buffer as a single multi-line entry
-						if (lastEntry == null && !headerBuffer.isEmpty()) {
-							String combinedHeader = String.join("\n", headerBuffer);
-							entries.add(new LogEntry(null, "", "", "", "", 0, combinedHeader, sourceName, combinedHeader));
-							headerBuffer.clear();
-						}
-						entries.add(newEntry);
-						lastEntry = newEntry;
-					} else {
-						// Regex matched but parse failed (e.g. date)
-						if (lastEntry != null) {
-							lastEntry = lastEntry.appendMessage("\n" + line);
-							entries.set(entries.size() - 1, lastEntry);
-						} else {
-							headerBuffer.add(line);
-						}
-					}
-				} else if (lastEntry != null) {
-					// Continuation
-					lastEntry = lastEntry.appendMessage("\n" + line);
-					entries.set(entries.size() - 1, lastEntry);
-				} else {
-					// Initial header
-					headerBuffer.add(line);
-				}
-			}
-			// If we NEVER found a match, but have headers, add them as one entry
-			if (lastEntry == null && !headerBuffer.isEmpty()) {
-				String combinedHeader = String.join("\n", headerBuffer);
-				entries.add(new LogEntry(null, "", "", "", "", 0, combinedHeader, sourceName, combinedHeader));
+	public void parse(LineSource lines, String sourceName, Consumer<LogEntry> sink) throws Exception {
+		PendingEntry pending = new PendingEntry(sourceName);
+		ParseContext context = newContext();
+		CharSequence line;
+		while ((line = lines.readLine()) != null) {
+			// Check if the line matches a NEW entry
+			LogEntry newEntry = parseEntry(line, sourceName, context);
+			if (newEntry != null) {
+				pending.start(newEntry, sink);
+			} else {
+				// Continuation, initial header or regex matched but parse failed (e.g. date)
+				pending.append(line);
 			}
 		}
-		return entries;
+		pending.emit(sink);
 	}
 
 	/**
 	 * Parses a single line. If the line matches the pattern, a new LogEntry is returned. If the line does not match but lastEntry is
 	 * provided, it is appended to lastEntry and the updated entry is returned. Otherwise returns null.
 	 */
-	public LogEntry parseLine(String line, String sourceName, LogEntry lastEntry) {
-		Matcher matcher = regexPattern.matcher(line);
-		if (matcher.matches()) {
-			try {
-				LocalDateTime ts = null;
-				if (timestampGroup != -1) {
-					String tsStr = matcher.group(timestampGroup).trim();
-					try {
-						ts = LocalDateTime.parse(tsStr, dateTimeFormatter);
-					} catch (Exception e) {
-						// Fallback for time-only formats
-						try {
-							java.time.LocalTime time = java.time.LocalTime.parse(tsStr, dateTimeFormatter);
-							ts = time.atDate(LocalDate.now());
-						} catch (Exception e2) {
-							// If both fail, we can't parse the timestamp. If this is the start of a match, we might still want to return a
-							// "date-less" entry? For now, let it fail to parseLine(null) to be treated as header or continuation.
-							throw e;
-						}
-					}
-				}
+	public LogEntry parseLine(CharSequence line, String sourceName, LogEntry lastEntry) {
+		LogEntry entry = parseEntry(line, sourceName, newContext());
+		if (entry != null) {
+			return entry;
+		}
+		// If parsing fails (no match or e.g. an invalid date), treat the line as continuation if possible
+		return lastEntry != null ? lastEntry.appendMessage("\n" + line) : null;
+	}
 
-				String level = (levelGroup != -1) ? matcher.group(levelGroup).trim() : "";
-				String thread = (threadGroup != -1) ? matcher.group(threadGroup).trim() : "";
-				String logger = (loggerGroup != -1) ? matcher.group(loggerGroup).trim() : "";
-				String ip = (ipGroup != -1) ? matcher.group(ipGroup).trim() : "";
-				String message = (messageGroup != -1) ? matcher.group(messageGroup) : line;
-
-				return new LogEntry(ts, level, thread, logger, ip, 0, message, sourceName, line);
-			} catch (Exception e) {
-				// If parsing fails for a line that matches the regex, treat it as multiline if possible
-				if (lastEntry != null) {
-					return lastEntry.appendMessage("\n" + line);
-				}
-				// If we match but can't parse date and have no parent, we still return a "partial" entry? For now, return null to fallback
-				// or skip if it's the very first line and broken.
-				return null;
+	@Override
+	public LineKind classify(CharSequence line) {
+		int[] bounds = matchBounds(line, null);
+		if (bounds == null)
+			return LineKind.CONTINUATION;
+		if (timestampGroup == -1)
+			return LineKind.ENTRY;
+		try {
+			parseTimestamp(line, bounds[2 * timestampGroup], bounds[2 * timestampGroup + 1], null);
+			return LineKind.TIMED_ENTRY;
+		} catch (Exception e) {
+			return LineKind.CONTINUATION;
+		}
+	}
+
+	/**
+	 * Creates the scratch state for one parse run.
+	 */
+	ParseContext newContext() {
+		return new ParseContext(timestampDecoder, layout.newBounds(), regexPattern);
+	}
+
+	/**
+	 * Matches the line once and builds the entry, or returns null if the line does not start an entry.
+	 */
+	LogEntry parseEntry(CharSequence line, String sourceName, ParseContext context) {
+		int[] bounds = matchBounds(line, context);
+		if (bounds == null)
+			return null;
+		try {
+			long ts = LogEntry.NO_TIMESTAMP;
+			if (timestampGroup != -1) {
+				ts = parseTimestamp(line, bounds[2 * timestampGroup], bounds[2 * timestampGroup + 1], context.timestampCache);
 			}
-		} else if (lastEntry != null) {
-			return lastEntry.appendMessage("\n" + line);
+
+			// The short, repeating fields are shared through the symbol table
+			SymbolTable symbols = SymbolTable.getInstance();
+			String level = (levelGroup != -1) ? symbols.intern(group(line, bounds, levelGroup).trim()) : "";
+			String thread = (threadGroup != -1) ? symbols.intern(group(line, bounds, threadGroup).trim()) : "";
+			String logger = (loggerGroup != -1) ? symbols.intern(group(line, bounds, loggerGroup).trim()) : "";
+			String ip = (ipGroup != -1) ? symbols.intern(group(line, bounds, ipGroup).trim()) : "";
+			String rawLine = line.toString();
+			String message = (messageGroup != -1) ? group(line, bounds, messageGroup) : rawLine;
+
+			return new LogEntry(ts, level, thread, logger, ip, 0, message, sourceName, rawLine);
+		} catch (Exception e) {
+			// If we match but can't parse the date, the line is treated as header or continuation by the caller
+			return null;
+		}
+	}
+
+	/**
+	 * Matches the whole line against the layout and returns the group offsets (start and end at {@code 2 * group}), or null if the line
+	 * does not match. The offsets are written to the context's array, which is only valid until the next line; without a context a new
+	 * array is used.
+	 */
+	private int[] matchBounds(CharSequence line, ParseContext context) {
+		if (!containsRequiredLiterals(line))
+			return null;
+		int[] bounds = context != null ? context.bounds : layout.newBounds();
+		if (!LayoutMatcher.hasLineTerminator(line)) {
+			return layout.match(line, bounds) ? bounds : null;
 		}
-		return null;
+		// '.' stops at line terminator characters, leave such lines to the regex
+		Matcher matcher = context != null ? context.matcher(line) : regexPattern.matcher(line);
+		if (!matcher.matches())
+			return null;
+		for (int g = 1; g <= matcher.groupCount(); g++) {
+			bounds[2 * g] = matcher.start(g);
+			bounds[2 * g + 1] = matcher.end(g);
+		}
+		return bounds;
+	}
+
+	Pattern regexPattern() {
+		return regexPattern;
+	}
+
+	LayoutMatcher layout() {
+		return layout;
+	}
+
+	private static String group(CharSequence line, int[] bounds, int group) {
+		return line.subSequence(bounds[2 * group], bounds[2 * group + 1]).toString();
+	}
+
+	private long parseTimestamp(CharSequence line, int start, int end, TimestampDecoder.Cache cache) {
+		// Same bounds as group(...).trim()
+		while (start < end && line.charAt(start) <= ' ')
+			start++;
+		while (end > start && line.charAt(end - 1) <= ' ')
+			end--;
+		if (timestampDecoder != null) {
+			long ts = timestampDecoder.decode(line, start, end, cache);
+			if (ts != LogEntry.NO_TIMESTAMP)
+				return ts;
+		}
+
+		// Textual and zoned patterns (and anything the decoder rejects) go through the formatter; if it fails the line is not an entry
+		// start
+		return Timestamps.parse(line.subSequence(start, end).toString(), dateTimeFormatter, utcTimestamps);
 	}
 
 	@Override
 	public String getFormatName() {
 		return "Parameterized (" + originalPattern + ")";
 	}
+
+	@Override
+	public boolean isDatedOnParse() {
+		return datedOnParse;
+	}
 }
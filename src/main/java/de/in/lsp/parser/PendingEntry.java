@@ -0,0 +1,71 @@
+package de.in.lsp.parser;
+
+import java.util.function.Consumer;
+
+import de.in.lsp.model.LogEntry;
+
+/**
+ * Collects the entry that is currently being parsed together with its continuation lines (stack traces, wrapped messages) and builds the
+ * final LogEntry only once, when the next entry starts or the input ends. Continuation lines are appended to a StringBuilder, so an entry
+ * with n lines costs O(n) instead of copying the whole message again for every line. Only the raw text is collected, the continuation of
+ * the message is the same text and is taken from it when the entry is built.
+ * <p>
+ * Lines before the first entry are collected as a header entry without timestamp.
+ *
+ * @author TiJaWo68
+ */
+final class PendingEntry {
+
+	private final String sourceName;
+	private LogEntry first;
+	private StringBuilder rawLine;
+
+	PendingEntry(String sourceName) {
+		this.sourceName = sourceName;
+	}
+
+	boolean isPresent() {
+		return first != null;
+	}
+
+	/**
+	 * Emits the pending entry (if any) and starts a new one.
+	 */
+	void start(LogEntry entry, Consumer<LogEntry> sink) {
+		emit(sink);
+		first = entry;
+	}
+
+	/**
+	 * Appends a line that does not start a new entry. Before the first entry the line becomes part of the header entry.
+	 */
+	void append(CharSequence line) {
+		if (first == null) {
+			String text = line.toString();
+			first = new LogEntry(LogEntry.NO_TIMESTAMP, "", "", "", "", 0, text, sourceName, text);
+			return;
+		}
+		if (rawLine == null) {
+			rawLine = new StringBuilder(String.valueOf(first.rawLine()));
+		}
+		rawLine.append('\n').append(line);
+	}
+
+	/**
+	 * Builds the pending entry, hands it to the sink and resets the builder.
+	 */
+	void emit(Consumer<LogEntry> sink) {
+		if (first == null)
+			return;
+		LogEntry entry = first;
+		if (rawLine != null) {
+			String raw = rawLine.toString();
+			String continuation = raw.substring(String.valueOf(first.rawLine()).length());
+			entry = new LogEntry(first.timestampNanos(), first.level(), first.thread(), first.loggerName(), first.ip(), first.port(),
+					first.message() + continuation, first.sourceFile(), raw);
+		}
+		first = null;
+		rawLine = null;
+		sink.accept(entry);
+	}
+}
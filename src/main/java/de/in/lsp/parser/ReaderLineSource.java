@@ -0,0 +1,32 @@
+package de.in.lsp.parser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A LineSource for streams that cannot be mapped (archive entries, SSH streams). Decodes the stream as UTF-8 and returns one String per
+ * line.
+ *
+ * @author TiJaWo68
+ */
+public class ReaderLineSource implements LineSource {
+
+	private final BufferedReader reader;
+
+	public ReaderLineSource(InputStream inputStream) {
+		this.reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public CharSequence readLine() throws IOException {
+		return reader.readLine();
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
@@ -0,0 +1,264 @@
+package de.in.lsp.parser;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.in.lsp.model.LogEntry;
+
+/**
+ * Decodes timestamps of purely numeric, fixed-width date patterns (e.g. {@code yyyy-MM-dd HH:mm:ss,SSS}, {@code HH:mm:ss.SSS} or
+ * {@code yyyy-MM-dd'T'HH:mm:ss.SSSSSS'Z'}) to epoch nanos with plain digit arithmetic instead of
+ * {@link java.time.format.DateTimeFormatter}. A trailing {@code 'Z'} marks UTC, such times are moved to the system zone like
+ * {@link Timestamps#parse} does.
+ * <p>
+ * The decoder never throws: any text that does not fit the layout exactly, or has values the formatter would resolve specially, yields
+ * {@link LogEntry#NO_TIMESTAMP} and the caller falls back to the formatter. Patterns with textual or variable-width fields
+ * ({@code MMM}, {@code EEE}, zones, optional sections) cannot be compiled and always use the formatter.
+ *
+ * @author TiJaWo68
+ */
+final class TimestampDecoder {
+
+	private static final int LITERAL = 0;
+	private static final int YEAR = 1;
+	private static final int MONTH = 2;
+	private static final int DAY = 3;
+	private static final int HOUR = 4;
+	private static final int MINUTE = 5;
+	private static final int SECOND = 6;
+	private static final int FRACTION = 7;
+
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+	private static final long SECONDS_PER_DAY = 86_400L;
+	/** Years whose nanos fit into a long; the formatter fallback clamps anything outside. */
+	private static final int MIN_YEAR = 1678;
+	private static final int MAX_YEAR = 2261;
+	private static final long NONE = LogEntry.NO_TIMESTAMP;
+
+	private static final int[] POWERS_OF_TEN = { 1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000, 1_000_000_000 };
+
+	/** Field type per character position of the layout. */
+	private final int[] types;
+	/** Expected character for literal positions. */
+	private final char[] literals;
+	private final int width;
+	private final boolean hasDate;
+	private final boolean utc;
+	/** Everything before this offset is date and time up to the second and can be reused from the cache. */
+	private final int prefixLength;
+	private final int fractionStart;
+	private final int fractionDigits;
+
+	/**
+	 * Remembers the last decoded second of one parse run, so consecutive lines of the same second only decode their fraction. A cache
+	 * belongs to one decoder and must not be shared between threads.
+	 */
+	static final class Cache {
+		private final char[] prefix;
+		private long base = NONE;
+
+		private Cache(int prefixLength) {
+			this.prefix = new char[prefixLength];
+		}
+	}
+
+	private TimestampDecoder(int[] types, char[] literals, boolean hasDate, boolean utc, int fractionStart, int fractionDigits) {
+		this.types = types;
+		this.literals = literals;
+		this.width = types.length;
+		this.hasDate = hasDate;
+		this.utc = utc;
+		this.fractionStart = fractionStart;
+		this.fractionDigits = fractionDigits;
+		this.prefixLength = fractionStart >= 0 ? fractionStart : width;
+	}
+
+	/**
+	 * Compiles the given DateTimeFormatter pattern, or returns null if it is not a fixed-width numeric layout.
+	 */
+	static TimestampDecoder compile(String pattern) {
+		List<Integer> types = new ArrayList<>();
+		StringBuilder literals = new StringBuilder();
+		boolean[] seen = new boolean[FRACTION + 1];
+		int fractionStart = -1;
+		int fractionDigits = 0;
+
+		int i = 0;
+		while (i < pattern.length()) {
+			char c = pattern.charAt(i);
+			if (c == '\'') {
+				int end = pattern.indexOf('\'', i + 1);
+				if (end < 0)
+					return null;
+				if (end == i + 1) {
+					addLiteral(types, literals, '\'');
+				} else {
+					for (int k = i + 1; k < end; k++) {
+						addLiteral(types, literals, pattern.charAt(k));
+					}
+				}
+				i = end + 1;
+				continue;
+			}
+			if (!((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z'))) {
+				if (c == '[' || c == ']' || c == '{' || c == '}' || c == '#')
+					return null;
+				addLiteral(types, literals, c);
+				i++;
+				continue;
+			}
+
+			int run = 1;
+			while (i + run < pattern.length() && pattern.charAt(i + run) == c)
+				run++;
+			int type;
+			if ((c == 'y' || c == 'u') && run == 4)
+				type = YEAR;
+			else if (c == 'M' && run == 2)
+				type = MONTH;
+			else if (c == 'd' && run == 2)
+				type = DAY;
+			else if (c == 'H' && run == 2)
+				type = HOUR;
+			else if (c == 'm' && run == 2)
+				type = MINUTE;
+			else if (c == 's' && run == 2)
+				type = SECOND;
+			else if (c == 'S' && run <= 9)
+				type = FRACTION;
+			else
+				return null;
+			if (seen[type])
+				return null;
+			seen[type] = true;
+			if (type == FRACTION) {
+				fractionStart = types.size();
+				fractionDigits = run;
+			}
+			for (int k = 0; k < run; k++) {
+				types.add(type);
+				literals.append('\0');
+			}
+			i += run;
+		}
+
+		boolean hasDate = seen[YEAR] || seen[MONTH] || seen[DAY];
+		if (hasDate && !(seen[YEAR] && seen[MONTH] && seen[DAY]))
+			return null;
+		if (!(seen[HOUR] && seen[MINUTE] && seen[SECOND]))
+			return null;
+		// Only literals may follow the fraction, so the prefix before it covers the whole second and can be cached
+		for (int k = fractionStart + fractionDigits; fractionStart >= 0 && k < types.size(); k++) {
+			if (types.get(k) != LITERAL)
+				return null;
+		}
+
+		int[] typeArray = types.stream().mapToInt(Integer::intValue).toArray();
+		return new TimestampDecoder(typeArray, literals.toString().toCharArray(), hasDate, Timestamps.isUtc(pattern), fractionStart,
+				fractionDigits);
+	}
+
+	private static void addLiteral(List<Integer> types, StringBuilder literals, char c) {
+		types.add(LITERAL);
+		literals.append(c);
+	}
+
+	Cache newCache() {
+		return new Cache(prefixLength);
+	}
+
+	/**
+	 * Decodes text[start, end) to epoch nanos. Time-only layouts are placed on today's date, like the LocalTime fallback of the parsers.
+	 * Returns {@link LogEntry#NO_TIMESTAMP} if the text does not fit the layout; the caller should then use the DateTimeFormatter.
+	 */
+	long decode(CharSequence text, int start, int end, Cache cache) {
+		if (end - start != width)
+			return NONE;
+
+		long base;
+		if (cache != null && cache.base != NONE && prefixMatches(text, start, cache.prefix)) {
+			base = cache.base;
+		} else {
+			base = decodePrefix(text, start);
+			if (base == NONE)
+				return NONE;
+			if (cache != null) {
+				for (int k = 0; k < prefixLength; k++) {
+					cache.prefix[k] = text.charAt(start + k);
+				}
+				cache.base = base;
+			}
+		}
+
+		int nanos = 0;
+		for (int k = prefixLength; k < width; k++) {
+			char c = text.charAt(start + k);
+			if (types[k] == LITERAL) {
+				if (c != literals[k])
+					return NONE;
+			} else {
+				int digit = c - '0';
+				if (digit < 0 || digit > 9)
+					return NONE;
+				nanos = nanos * 10 + digit;
+			}
+		}
+		if (fractionStart >= 0) {
+			return base + (long) nanos * POWERS_OF_TEN[9 - fractionDigits];
+		}
+		return base;
+	}
+
+	private boolean prefixMatches(CharSequence text, int start, char[] prefix) {
+		for (int k = 0; k < prefixLength; k++) {
+			if (text.charAt(start + k) != prefix[k])
+				return false;
+		}
+		return true;
+	}
+
+	private long decodePrefix(CharSequence text, int start) {
+		int[] values = new int[FRACTION];
+		for (int k = 0; k < prefixLength; k++) {
+			char c = text.charAt(start + k);
+			int type = types[k];
+			if (type == LITERAL) {
+				if (c != literals[k])
+					return NONE;
+			} else {
+				int digit = c - '0';
+				if (digit < 0 || digit > 9)
+					return NONE;
+				values[type] = values[type] * 10 + digit;
+			}
+		}
+
+		int hour = values[HOUR];
+		int minute = values[MINUTE];
+		int second = values[SECOND];
+		if (hour > 23 || minute > 59 || second > 59)
+			return NONE;
+		long secondOfDay = hour * 3600L + minute * 60L + second;
+		if (!hasDate)
+			return toNanos(LocalDate.now().toEpochDay(), secondOfDay);
+
+		int year = values[YEAR];
+		int month = values[MONTH];
+		int day = values[DAY];
+		// Year 0 and days beyond the month length are resolved specially by the formatter (error or clamping), so leave them to it
+		// Years outside the long nanos range are clamped by the formatter fallback
+		if (year < MIN_YEAR || year > MAX_YEAR || month < 1 || month > 12 || day < 1 || day > 31)
+			return NONE;
+		if (day > 28 && day > Month.of(month).length(Year.isLeap(year)))
+			return NONE;
+		return toNanos(LocalDate.of(year, month, day).toEpochDay(), secondOfDay);
+	}
+
+	private long toNanos(long epochDay, long secondOfDay) {
+		long nanos = (epochDay * SECONDS_PER_DAY + secondOfDay) * NANOS_PER_SECOND;
+		return utc ? Timestamps.utcToLocal(nanos) : nanos;
+	}
+}
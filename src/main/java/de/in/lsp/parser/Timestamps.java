@@ -0,0 +1,91 @@
+package de.in.lsp.parser;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
+
+import de.in.lsp.model.LogEntry;
+
+/**
+ * Turns parsed timestamp text into the epoch nanos of a {@link LogEntry}. Zoned timestamps (offsets like {@code +0100}, zone names like
+ * {@code GMT}, or a literal {@code 'Z'} at the end of the pattern, which marks UTC) are converted to the system zone at parse time, so
+ * entries of differently zoned files sort on one wall-clock timeline.
+ *
+ * @author TiJaWo68
+ */
+final class Timestamps {
+
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+	private Timestamps() {
+	}
+
+	/**
+	 * Returns true if the DateTimeFormatter pattern ends with a quoted {@code 'Z'}: the text is UTC, although the formatter treats the
+	 * marker as a plain literal.
+	 */
+	static boolean isUtc(String pattern) {
+		return pattern.endsWith("'Z'");
+	}
+
+	/**
+	 * Returns true if the DateTimeFormatter pattern has fields but no year, like {@code HH:mm:ss.SSS} or {@code MMdd/HHmmss.SSS}: its
+	 * times are placed on today's date.
+	 */
+	static boolean isDatedOnParse(String pattern) {
+		boolean fields = false;
+		boolean quoted = false;
+		for (int i = 0; i < pattern.length(); i++) {
+			char c = pattern.charAt(i);
+			if (c == '\'') {
+				quoted = !quoted;
+			} else if (!quoted && Character.isLetter(c)) {
+				if (c == 'y' || c == 'u' || c == 'Y')
+					return false;
+				fields = true;
+			}
+		}
+		return fields;
+	}
+
+	/**
+	 * Parses the text with the formatter. Time-only patterns are placed on today's date.
+	 *
+	 * @throws DateTimeException
+	 *             if the text does not fit the pattern
+	 */
+	static long parse(String text, DateTimeFormatter formatter, boolean utc) {
+		TemporalAccessor parsed = formatter.parse(text);
+		if (parsed.isSupported(ChronoField.INSTANT_SECONDS)) {
+			return LogEntry.toNanos(LocalDateTime.ofInstant(Instant.from(parsed), ZoneId.systemDefault()));
+		}
+		long nanos;
+		if (parsed.query(TemporalQueries.localDate()) != null) {
+			nanos = LogEntry.toNanos(LocalDateTime.from(parsed));
+		} else {
+			nanos = LogEntry.toNanos(LocalTime.from(parsed).atDate(LocalDate.now()));
+		}
+		return utc ? utcToLocal(nanos) : nanos;
+	}
+
+	/**
+	 * Moves a UTC wall-clock time in epoch nanos to the system zone.
+	 */
+	static long utcToLocal(long nanos) {
+		long seconds = Math.floorDiv(nanos, NANOS_PER_SECOND);
+		int offset = ZoneId.systemDefault().getRules().getOffset(Instant.ofEpochSecond(seconds)).getTotalSeconds();
+		try {
+			return Math.addExact(nanos, offset * NANOS_PER_SECOND);
+		} catch (ArithmeticException e) {
+			// Clamped timestamp at the edge of the range, keep it there
+			return nanos;
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package de.in.lsp.service;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.in.lsp.manager.LoadProgress;
+
+/**
+ * One load of dropped or opened files: the progress of every file, the totals over all files and the cancel switch. Created before
+ * the load starts, the files are added once the directories have been scanned. All methods can be called from any thread, the UI
+ * polls the task while the loader threads update it.
+ *
+ * @author TiJaWo68
+ */
+public class LoadTask {
+
+	private volatile List<LoadProgress> files = List.of();
+	private volatile long startNanos;
+	private volatile long endNanos;
+	private volatile boolean cancelled;
+
+	/**
+	 * Sets the files of the load and starts the clock.
+	 */
+	synchronized List<LoadProgress> start(List<File> fileList) {
+		List<LoadProgress> progress = new ArrayList<>();
+		for (File file : fileList) {
+			LoadProgress fileProgress = new LoadProgress(file);
+			if (cancelled) {
+				fileProgress.cancel();
+			}
+			progress.add(fileProgress);
+		}
+		files = List.copyOf(progress);
+		startNanos = System.nanoTime();
+		return files;
+	}
+
+	void finish() {
+		endNanos = System.nanoTime();
+	}
+
+	/**
+	 * Stops the load: the files being parsed stop at their next read or entry, the remaining files are not started.
+	 */
+	public synchronized void cancel() {
+		cancelled = true;
+		files.forEach(LoadProgress::cancel);
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	public boolean isDone() {
+		return endNanos != 0;
+	}
+
+	public List<LoadProgress> getFiles() {
+		return files;
+	}
+
+	public int getDoneFileCount() {
+		return (int) files.stream().filter(LoadProgress::isDone).count();
+	}
+
+	public long getTotalBytes() {
+		return files.stream().mapToLong(LoadProgress::getSize).sum();
+	}
+
+	public long getBytesRead() {
+		return files.stream().mapToLong(LoadProgress::getBytesRead).sum();
+	}
+
+	public long getEntries() {
+		return files.stream().mapToLong(LoadProgress::getEntries).sum();
+	}
+
+	public long elapsedNanos() {
+		long start = startNanos;
+		if (start == 0)
+			return 0;
+		long end = endNanos;
+		return (end != 0 ? end : System.nanoTime()) - start;
+	}
+
+	/**
+	 * Returns the throughput of the whole load, over all files loaded at the same time.
+	 */
+	public double megabytesPerSecond() {
+		return LoadProgress.megabytesPerSecond(getBytesRead(), elapsedNanos());
+	}
+
+	/**
+	 * Returns the estimated milliseconds until all files are read at the current rate, 0 once the load is done and -1 if there is no
+	 * rate yet.
+	 */
+	public long etaMillis() {
+		if (isDone())
+			return 0;
+		long bytesRead = getBytesRead();
+		return LoadProgress.etaMillis(getTotalBytes() - bytesRead, bytesRead, elapsedNanos());
+	}
+}
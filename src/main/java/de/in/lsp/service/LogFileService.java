@@ -1,16 +1,33 @@
 package de.in.lsp.service;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import de.in.lsp.dto.LogGroup;
+import de.in.lsp.manager.FormatDetectionCache;
+import de.in.lsp.manager.LoadProgress;
 import de.in.lsp.manager.LogManager;
 import de.in.lsp.model.LogEntry;
+import de.in.lsp.model.LogEntrySink;
+import de.in.lsp.model.LogStore;
+import de.in.lsp.model.LogStoreView;
+import de.in.lsp.model.MappedFileText;
 import de.in.lsp.util.LspLogger;
 
 /**
@@ -19,81 +36,284 @@ import de.in.lsp.util.LspLogger;
  * @author TiJaWo68 in cooperation with Gemini 3 Flash using Antigravity
  */
 public class LogFileService {
-	private final LogManager logManager = new LogManager();
 
+	/** Interval in which the rows loaded so far are passed to a {@link LoadListener}. */
+	static final long PUBLISH_INTERVAL_MS = 250;
+	/** Worker threads for loading several files, {@code -Dlsp.load.threads} overrides the default of one per core. */
+	static final int DEFAULT_LOAD_THREADS = Integer.getInteger("lsp.load.threads",
+			Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+	private final LogManager logManager;
+	private volatile int loadThreads = DEFAULT_LOAD_THREADS;
+	private volatile long publishIntervalMs = PUBLISH_INTERVAL_MS;
+
+	public LogFileService() {
+		this(new LogManager());
+	}
+
+	public LogFileService(LogManager logManager) {
+		this.logManager = logManager;
+	}
+
+	/**
+	 * Sets the number of files loaded at the same time.
+	 */
+	public void setLoadThreads(int loadThreads) {
+		this.loadThreads = Math.max(1, loadThreads);
+	}
+
+	void setPublishInterval(long publishIntervalMs) {
+		this.publishIntervalMs = publishIntervalMs;
+	}
+
+	/**
+	 * Receives the entries of the applications while their files are loading and the complete groups at the end.
+	 */
+	public interface LoadListener {
+
+		/**
+		 * Called on the loading thread with the rows that were loaded for the application since the last call. The rows stay valid: the
+		 * stores behind them are only appended to, and the final group is sorted through a view instead of in place.
+		 */
+		void rowsLoaded(String appName, LogStoreView rows);
+
+		/**
+		 * Called on the loading thread once per application with the complete group, sorted by timestamp.
+		 */
+		void groupLoaded(String appName, LogGroup group);
+
+		/**
+		 * Called on the loading thread if the load was cancelled, instead of {@link #groupLoaded(String, LogGroup)}. The rows handed out
+		 * before stay valid until they are released by the listener.
+		 */
+		default void loadCancelled() {
+		}
+	}
+
+	/**
+	 * Loads the files and the visible files of the directories, groups their entries by application and passes every group, sorted by
+	 * timestamp, to the consumer. The files are loaded on a bounded pool: every worker takes the next file from the list and adds it to
+	 * its own groups, so no store is written by two threads. The groups of the workers are combined at the end without copying their
+	 * entries, see {@link LogGroup#combine(List)}.
+	 */
 	public void loadAndMergeByPath(String[] paths, BiConsumer<String, LogGroup> onGroupResult) {
-		Map<String, LogGroup> appGroups = new HashMap<>();
+		load(paths, new LoadTask(), new LoadListener() {
+			@Override
+			public void rowsLoaded(String appName, LogStoreView rows) {
+				// Only the complete groups are of interest
+			}
+
+			@Override
+			public void groupLoaded(String appName, LogGroup group) {
+				onGroupResult.accept(appName, group);
+			}
+		}, false);
+	}
+
+	/**
+	 * Like {@link #loadAndMergeByPath(String[], BiConsumer)}, but while the files are loading the rows loaded so far are passed to the
+	 * listener every {@value #PUBLISH_INTERVAL_MS} ms, so views can be opened and filled before the last file is in.
+	 */
+	public void loadAndMergeByPath(String[] paths, LoadListener listener) {
+		loadAndMergeByPath(paths, listener, new LoadTask());
+	}
+
+	/**
+	 * Like {@link #loadAndMergeByPath(String[], LoadListener)}, and reports the progress of every file in the task. If the task is
+	 * cancelled, the files being parsed stop at their next read or entry, the entries loaded so far are dropped and the listener gets
+	 * {@link LoadListener#loadCancelled()} instead of the groups.
+	 */
+	public void loadAndMergeByPath(String[] paths, LoadListener listener, LoadTask task) {
+		load(paths, task, listener, true);
+	}
 
+	private void load(String[] paths, LoadTask task, LoadListener listener, boolean progressive) {
+		List<File> files = new ArrayList<>();
 		for (String path : paths) {
 			File f = new File(path);
 			if (f.isDirectory()) {
-				for (File child : logManager.scanVisibleFiles(f)) {
-					processFileIntoGroups(child, appGroups);
-				}
+				files.addAll(logManager.scanVisibleFiles(f));
 			} else if (f.isFile()) {
-				processFileIntoGroups(f, appGroups);
+				files.add(f);
+			}
+		}
+
+		List<LoadProgress> progress = task.start(files);
+		long start = System.nanoTime();
+		int threads = Math.max(1, Math.min(loadThreads, files.size()));
+		List<Map<String, LogGroup>> workerGroups = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			// Written by its worker, read by the publishing thread while loading
+			workerGroups.add(Collections.synchronizedMap(new LinkedHashMap<>()));
+		}
+		Map<LogStore, Integer> published = new IdentityHashMap<>();
+		AtomicInteger next = new AtomicInteger();
+		try (ExecutorService pool = Executors.newFixedThreadPool(threads)) {
+			List<Future<?>> workers = new ArrayList<>();
+			for (Map<String, LogGroup> groups : workerGroups) {
+				workers.add(pool.submit(() -> loadFiles(files, progress, next, groups)));
+			}
+			pool.shutdown();
+			while (!pool.awaitTermination(publishIntervalMs, TimeUnit.MILLISECONDS)) {
+				if (progressive) {
+					publishRows(workerGroups, published, listener);
+				}
 			}
+			for (Future<?> worker : workers) {
+				worker.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			LspLogger.warn("Loading of " + files.size() + " files interrupted");
+		} catch (ExecutionException e) {
+			LspLogger.error("Error loading files", e.getCause());
+		} finally {
+			task.finish();
+		}
+
+		if (task.isCancelled()) {
+			dropGroups(workerGroups, published);
+			LspLogger.info(String.format("Loading of %d files cancelled after %d ms, %d of %d MB read", files.size(),
+					(System.nanoTime() - start) / 1_000_000, task.getBytesRead() / (1024 * 1024), task.getTotalBytes() / (1024 * 1024)));
+			listener.loadCancelled();
+			return;
+		}
+
+		Map<String, List<LogGroup>> parts = new LinkedHashMap<>();
+		for (Map<String, LogGroup> groups : workerGroups) {
+			groups.forEach((appName, group) -> parts.computeIfAbsent(appName, k -> new ArrayList<>()).add(group));
+		}
+		LspLogger.info(String.format("Loaded %d files into %d groups with %d threads in %d ms", files.size(), parts.size(), threads,
+				(System.nanoTime() - start) / 1_000_000));
+		for (LoadProgress file : progress) {
+			LspLogger.debug(String.format("Loaded %s: %d KB in %d ms, %.1f MB/s, %d entries", file.getName(), file.getBytesRead() / 1024,
+					file.elapsedNanos() / 1_000_000, file.megabytesPerSecond(), file.getEntries()));
 		}
 
-		appGroups.forEach((appName, group) -> {
+		parts.forEach((appName, groups) -> {
+			LogGroup group = LogGroup.combine(groups);
+			// Stores whose rows are already shown must not be reordered in place
+			if (groups.stream().anyMatch(g -> published.containsKey(g.getEntries()))) {
+				group = group.asView();
+			}
+			// Merges the ascending runs of the loaded files, only unsorted files are actually sorted
 			Collections.sort(group.getEntries());
-			onGroupResult.accept(appName, group);
+			listener.groupLoaded(appName, group);
 		});
+
+		FormatDetectionCache cache = logManager.getDetectionCache();
+		LspLogger.info("Format detection cache: " + cache.getHits() + " hits, " + cache.getMisses() + " misses");
+	}
+
+	/**
+	 * Releases the entries of a cancelled load. Stores whose rows were not handed out are cleared right away, the others are left to the
+	 * listener, which may still show them until it has closed its views.
+	 */
+	private void dropGroups(List<Map<String, LogGroup>> workerGroups, Map<LogStore, Integer> published) {
+		for (Map<String, LogGroup> groups : workerGroups) {
+			for (LogGroup group : groups.values()) {
+				if (!published.containsKey(group.getEntries())) {
+					group.getEntries().clear();
+				}
+			}
+			groups.clear();
+		}
+	}
+
+	/**
+	 * Passes the rows the workers added since the last call to the listener, one view per application.
+	 */
+	private void publishRows(List<Map<String, LogGroup>> workerGroups, Map<LogStore, Integer> published, LoadListener listener) {
+		Map<String, LogStoreView> batches = new LinkedHashMap<>();
+		for (Map<String, LogGroup> groups : workerGroups) {
+			List<Map.Entry<String, LogGroup>> snapshot;
+			synchronized (groups) {
+				snapshot = new ArrayList<>(groups.entrySet());
+			}
+			for (Map.Entry<String, LogGroup> entry : snapshot) {
+				LogStore store = entry.getValue().getEntries();
+				int from = published.getOrDefault(store, 0);
+				int to = store.size();
+				if (to > from) {
+					batches.computeIfAbsent(entry.getKey(), k -> LogStoreView.range(store, 0, 0)).append(store, from, to);
+					published.put(store, to);
+				}
+			}
+		}
+		batches.forEach(listener::rowsLoaded);
+	}
+
+	/**
+	 * Loads files from the shared list until it is exhausted or the load is cancelled, into groups owned by the calling thread.
+	 */
+	private void loadFiles(List<File> files, List<LoadProgress> progress, AtomicInteger next, Map<String, LogGroup> groups) {
+		for (int i = next.getAndIncrement(); i < files.size(); i = next.getAndIncrement()) {
+			if (progress.get(i).isCancelled())
+				return;
+			processFileIntoGroups(files.get(i), groups, progress.get(i));
+		}
 	}
 
 	public void processFileIntoGroups(File file, Map<String, LogGroup> groups) {
-		try {
-			List<LogEntry> entries = logManager.loadLog(file);
+		processFileIntoGroups(file, groups, new LoadProgress(file));
+	}
 
-			for (LogEntry entry : entries) {
-				String sourceName = new File(entry.sourceFile()).getName();
-				String appName = detectApplicationName(sourceName);
+	/**
+	 * Loads the file into the groups and counts its bytes and entries in the progress. A cancelled load ends quietly, the entries added
+	 * up to then stay in the groups.
+	 */
+	public void processFileIntoGroups(File file, Map<String, LogGroup> groups, LoadProgress progress) {
+		// Entries arrive grouped by source, so the group lookup (and its regex based name detection) runs once per source file
+		Map<String, LogGroup> groupBySource = new HashMap<>();
+		Function<String, LogGroup> groupOf = source -> groupBySource.computeIfAbsent(source, sourceFile -> {
+			String sourceName = new File(sourceFile).getName();
+			LogGroup target = groups.computeIfAbsent(detectApplicationName(sourceName), k -> new LogGroup());
+			target.addSourceFile(sourceName);
+			return target;
+		});
+		try {
+			// Large plain files keep the entry texts in the mapped file, everything else is copied into the group's store
+			logManager.loadLog(file, new LogEntrySink() {
+				@Override
+				public void accept(LogEntry entry) {
+					progress.entryParsed();
+					groupOf.apply(entry.sourceFile()).addEntry(entry);
+				}
 
-				LogGroup group = groups.computeIfAbsent(appName, k -> new LogGroup());
-				group.addEntry(entry);
-				group.addSourceFile(sourceName);
-			}
+				@Override
+				public void accept(LogEntry entry, MappedFileText text, long offset, int length) {
+					progress.entryParsed();
+					groupOf.apply(entry.sourceFile()).addEntry(entry, text, offset, length);
+				}
+			}, progress);
+		} catch (CancellationException e) {
+			// The load was cancelled, the caller drops the groups
 		} catch (Exception e) {
 			LspLogger.error("Error loading " + file.getName(), e);
 		}
 	}
 
 	/**
-	 * Group logs by "App Name" (ignores rotation numbers and common suffixes).
+	 * Group logs by "App Name", see {@link LogManager#detectApplicationName(String)}.
 	 */
 	public static String detectApplicationName(String fileName) {
-		String name = fileName;
-		String prev;
-
-		do {
-			prev = name;
-			// Remove common end-of-string extensions
-			name = name.replaceAll("(?i)\\.(gz|zip|7z|log|txt|bak|old|tmp)$", "");
-			// Remove integer suffixes (rotation)
-			name = name.replaceAll("\\.\\d+$", "");
-			// Remove trailing dates (YYYY-MM-DD, YYYYMMDD)
-			name = name.replaceAll("[-_.]?\\d{4}[-_.]?\\d{2}[-_.]?\\d{2}$", "");
-			// Remove version-like suffixes
-			name = name.replaceAll("[-_.]?(v|V)?\\d+(\\.\\d+)*$", "");
-		} while (!name.equals(prev));
-
-		// Final cleanup of trailing separators
-		name = name.replaceAll("[-_.]+$", "");
-
-		if (name.isEmpty())
-			return fileName;
-		return name;
-	}
-
-	public void backgroundLoadFiles(List<File> files, Consumer<String> statusUpdate, BiConsumer<String, LogGroup> onGroupResult) {
+		return LogManager.detectApplicationName(fileName);
+	}
+
+	/**
+	 * Loads the files on a background thread and returns the task, which reports the progress of the load and cancels it.
+	 */
+	public LoadTask backgroundLoadFiles(List<File> files, Consumer<String> statusUpdate, LoadListener listener) {
 		statusUpdate.accept("Loading files");
+		LoadTask task = new LoadTask();
 		new Thread(() -> {
 			try {
 				String[] paths = files.stream().map(File::getAbsolutePath).toArray(String[]::new);
-				loadAndMergeByPath(paths, onGroupResult);
+				loadAndMergeByPath(paths, listener, task);
 			} finally {
-				statusUpdate.accept("Ready");
+				statusUpdate.accept(task.isCancelled() ? "Cancelled" : "Ready");
 			}
 		}).start();
+		return task;
 	}
 }
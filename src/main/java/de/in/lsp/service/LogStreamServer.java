@@ -78,7 +78,7 @@ public abstract class LogStreamServer implements Runnable {
 	protected abstract void handleConnection(Socket socket);
 
 	protected void publish(LogEntry entry, SocketAddress remoteAddress) {
-		entryConsumer.accept(entry, remoteAddress);
+		entryConsumer.accept(entry.internSymbols(), remoteAddress);
 	}
 
 	protected void publishDisconnect(SocketAddress remoteAddress) {
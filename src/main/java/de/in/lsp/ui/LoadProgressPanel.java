@@ -0,0 +1,127 @@
+package de.in.lsp.ui;
+
+import java.awt.BorderLayout;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.util.List;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.Timer;
+
+import com.formdev.flatlaf.util.UIScale;
+
+import de.in.lsp.manager.LoadProgress;
+import de.in.lsp.service.LoadTask;
+
+/**
+ * Shows the progress of a {@link LoadTask} in the status bar: files, MB read, MB/s, entries and ETA of the whole load in the bar, the
+ * same per file in its tooltip, and a button to cancel the load. The panel removes itself once the load is done.
+ *
+ * @author TiJaWo68
+ */
+public class LoadProgressPanel extends JPanel {
+
+	private static final int REFRESH_MS = 500;
+	/** Files listed in the tooltip, the ones being loaded first. */
+	private static final int MAX_TOOLTIP_FILES = 20;
+
+	private final LoadTask task;
+	private final JProgressBar bar;
+	private final JButton cancelButton;
+	private final Timer refreshTimer;
+
+	public LoadProgressPanel(LoadTask task) {
+		super(new BorderLayout(5, 0));
+		this.task = task;
+		setOpaque(false);
+		setBorder(BorderFactory.createEmptyBorder(0, 10, 0, 10));
+
+		bar = new JProgressBar(0, 1000);
+		bar.setStringPainted(true);
+		bar.setPreferredSize(new Dimension(UIScale.scale(480), UIScale.scale(18)));
+
+		cancelButton = new JButton("Cancel");
+		cancelButton.setToolTipText("Stop loading and close the views of this load");
+		cancelButton.addActionListener(e -> {
+			task.cancel();
+			cancelButton.setEnabled(false);
+			refresh();
+		});
+
+		add(bar, BorderLayout.CENTER);
+		add(cancelButton, BorderLayout.EAST);
+
+		refreshTimer = new Timer(REFRESH_MS, e -> refresh());
+		refreshTimer.start();
+		refresh();
+	}
+
+	private void refresh() {
+		if (task.isDone()) {
+			refreshTimer.stop();
+			Container parent = getParent();
+			if (parent != null) {
+				parent.remove(this);
+				parent.revalidate();
+				parent.repaint();
+			}
+			return;
+		}
+		long total = task.getTotalBytes();
+		long read = task.getBytesRead();
+		bar.setValue(total > 0 ? (int) (read * 1000 / total) : 0);
+		if (task.isCancelled()) {
+			bar.setString("Cancelling...");
+			return;
+		}
+		bar.setString(String.format("%d/%d files, %s of %s MB, %.1f MB/s, %,d entries, ETA %s", task.getDoneFileCount(),
+				task.getFiles().size(), megabytes(read), megabytes(total), task.megabytesPerSecond(), task.getEntries(),
+				formatEta(task.etaMillis())));
+		bar.setToolTipText(fileTable(task.getFiles()));
+	}
+
+	/**
+	 * Lists the files being loaded, then the loaded ones and the waiting ones.
+	 */
+	private static String fileTable(List<LoadProgress> files) {
+		StringBuilder html = new StringBuilder("<html><table><tr><th align=left>File</th><th>MB</th><th>MB/s</th><th>Entries</th>"
+				+ "<th>ETA</th></tr>");
+		int rows = 0;
+		for (int pass = 0; pass < 3 && rows < MAX_TOOLTIP_FILES; pass++) {
+			for (LoadProgress file : files) {
+				boolean running = file.isStarted() && !file.isDone();
+				boolean listed = switch (pass) {
+				case 0 -> running;
+				case 1 -> file.isDone();
+				default -> !file.isStarted();
+				};
+				if (!listed)
+					continue;
+				if (rows == MAX_TOOLTIP_FILES)
+					break;
+				rows++;
+				html.append(String.format("<tr><td>%s</td><td align=right>%s / %s</td><td align=right>%.1f</td><td align=right>%,d</td>"
+						+ "<td align=right>%s</td></tr>", file.getName(), megabytes(file.getBytesRead()), megabytes(file.getSize()),
+						file.megabytesPerSecond(), file.getEntries(), file.isDone() ? "done" : formatEta(file.etaMillis())));
+			}
+		}
+		if (files.size() > MAX_TOOLTIP_FILES) {
+			html.append("<tr><td colspan=5>... ").append(files.size() - MAX_TOOLTIP_FILES).append(" more files</td></tr>");
+		}
+		return html.append("</table></html>").toString();
+	}
+
+	private static String megabytes(long bytes) {
+		return String.format("%,.1f", bytes / (1024.0 * 1024.0));
+	}
+
+	private static String formatEta(long millis) {
+		if (millis < 0)
+			return "-";
+		long seconds = (millis + 999) / 1000;
+		return String.format("%d:%02d", seconds / 60, seconds % 60);
+	}
+}
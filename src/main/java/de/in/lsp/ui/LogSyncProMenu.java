@@ -13,6 +13,7 @@ import javax.swing.event.MenuEvent;
 import javax.swing.event.MenuListener;
 
 import de.in.lsp.LogSyncPro;
+import de.in.lsp.manager.ArchiveIndexCache;
 import de.in.lsp.service.LogStreamServer;
 import de.in.lsp.service.ReceiverManager;
 import de.in.lsp.service.UpdateService;
@@ -67,6 +68,10 @@ public class LogSyncProMenu extends JMenuBar {
 		mergeItem.addActionListener(e -> viewActions.mergeLogs(mainFrame, columnVisibility));
 		selectedViewsMenu.add(mergeItem);
 
+		JMenuItem duplicateItem = new JMenuItem("Duplicate");
+		duplicateItem.addActionListener(e -> viewActions.duplicateSelectedViews(mainFrame, columnVisibility));
+		selectedViewsMenu.add(duplicateItem);
+
 		JMenuItem closeSelectedItem = new JMenuItem("Close");
 		closeSelectedItem.addActionListener(e -> viewActions.closeSelectedViews());
 		selectedViewsMenu.add(closeSelectedItem);
@@ -145,6 +150,15 @@ public class LogSyncProMenu extends JMenuBar {
 		loggingSettingsItem.addActionListener(e -> new LoggingSettingsDialog(mainFrame).setVisible(true));
 		settingsMenu.add(loggingSettingsItem);
 
+		JMenuItem clearIndexCacheItem = new JMenuItem("Clear Index Cache");
+		clearIndexCacheItem.setToolTipText("Remove the stored parse results of opened archives, they are unpacked and parsed again");
+		clearIndexCacheItem.addActionListener(e -> {
+			long freed = ArchiveIndexCache.getDefault().clear();
+			JOptionPane.showMessageDialog(mainFrame, String.format("Index cache cleared, %d MB freed.", freed / (1024 * 1024)),
+					"Index Cache", JOptionPane.INFORMATION_MESSAGE);
+		});
+		settingsMenu.add(clearIndexCacheItem);
+
 		add(settingsMenu);
 
 		add(Box.createHorizontalGlue());
@@ -5,17 +5,19 @@ import java.util.List;
 import javax.swing.table.AbstractTableModel;
 
 import de.in.lsp.model.LogEntry;
+import de.in.lsp.model.LogStore;
 
 /**
  * Custom table model for displaying list of LogEntry objects. Maps entry fields to table columns: Timestamp, Level, Message, and Source.
+ * The entries are held in a {@link LogStore}, cells are read from its columns without building LogEntry objects.
  * 
  * @author TiJaWo68 in cooperation with Gemini 3 Flash using Antigravity
  */
 public class LogTableModel extends AbstractTableModel {
-	private final List<LogEntry> entries;
+	private final LogStore entries;
 
 	public LogTableModel(List<LogEntry> entries) {
-		this.entries = entries;
+		this.entries = LogStore.of(entries);
 	}
 
 	@Override
@@ -35,18 +37,17 @@ public class LogTableModel extends AbstractTableModel {
 
 	@Override
 	public Object getValueAt(int rowIndex, int columnIndex) {
-		LogEntry entry = entries.get(rowIndex);
 		LogColumn col = LogColumn.fromIndex(columnIndex);
 		if (col == null)
 			return null;
 		return switch (col) {
-		case TIMESTAMP -> entry.getFormattedTimestamp();
-		case LEVEL -> entry.level();
-		case THREAD -> entry.getSimpleThreadName();
-		case LOGGER -> entry.getSimpleLoggerName();
-		case IP -> entry.ip();
-		case MESSAGE -> entry.message();
-		case SOURCE -> entry.sourceFile();
+		case TIMESTAMP -> LogEntry.formatTimestamp(entries.timestampNanos(rowIndex));
+		case LEVEL -> entries.level(rowIndex);
+		case THREAD -> LogEntry.simpleThreadName(entries.thread(rowIndex));
+		case LOGGER -> LogEntry.simpleLoggerName(entries.loggerName(rowIndex));
+		case IP -> entries.ip(rowIndex);
+		case MESSAGE -> entries.message(rowIndex);
+		case SOURCE -> entries.sourceFile(rowIndex);
 		};
 	}
 
@@ -54,7 +55,7 @@ public class LogTableModel extends AbstractTableModel {
 		return entries.get(rowIndex);
 	}
 
-	public List<LogEntry> getEntries() {
+	public LogStore getEntries() {
 		return entries;
 	}
 
@@ -64,6 +65,6 @@ public class LogTableModel extends AbstractTableModel {
 	}
 
 	public int getUniqueSourceCount() {
-		return (int) entries.stream().map(LogEntry::sourceFile).distinct().count();
+		return entries.sourceCount();
 	}
 }
@@ -7,7 +7,6 @@ import java.awt.event.ComponentEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.time.LocalDateTime;
-import java.util.Collections;
 import java.util.List;
 import java.util.function.BiConsumer;
 
@@ -26,6 +25,8 @@ import javax.swing.SwingUtilities;
 import javax.swing.table.TableRowSorter;
 
 import de.in.lsp.model.LogEntry;
+import de.in.lsp.model.LogStore;
+import de.in.lsp.model.LogStoreView;
 import de.in.lsp.ui.helper.DetailViewManager;
 import de.in.lsp.ui.helper.LogViewColumnManager;
 
@@ -41,7 +42,7 @@ public class LogView extends JInternalFrame {
     private final JTable table;
     private final LogViewColumnManager columnManager;
     private final TableRowSorter<LogTableModel> sorter;
-    private final List<LogEntry> entries;
+    private final LogStore entries;
     private final BiConsumer<LogView, LocalDateTime> onSelectionChanged;
     private final LogViewListener listener;
     private DetailViewManager detailViewManager;
@@ -59,7 +60,7 @@ public class LogView extends JInternalFrame {
     private boolean isSelectedForAction = false; // Internal selection state
 
     private boolean followLog = false;
-    private final String baseTitle;
+    private String baseTitle;
     private boolean isProgrammaticSelection = false;
 
     public LogView(List<LogEntry> entries, String title, BiConsumer<LogView, LocalDateTime> onSelectionChanged,
@@ -67,13 +68,13 @@ public class LogView extends JInternalFrame {
             ViewType viewType) {
         super(title, true, true, true, true);
         this.baseTitle = title;
-        this.entries = entries;
+        this.entries = LogStore.of(entries);
         this.onSelectionChanged = onSelectionChanged;
         this.listener = listener;
         this.viewType = viewType;
-        this.model = new LogTableModel(entries);
+        this.model = new LogTableModel(this.entries);
         this.table = new JTable(model);
-        this.columnManager = new LogViewColumnManager(table, model, entries);
+        this.columnManager = new LogViewColumnManager(table, model, this.entries);
         this.sorter = new TableRowSorter<>(model);
         for (int i = 0; i < model.getColumnCount(); i++) {
             sorter.setSortable(i, false);
@@ -240,8 +241,7 @@ public class LogView extends JInternalFrame {
 
     public void scrollToTimestamp(LocalDateTime timestamp) {
         // Binary Search for nearest timestamp
-        int index = Collections.binarySearch(entries,
-                new LogEntry(timestamp, null, null, null, null, 0, null, null, null));
+        int index = entries.binarySearch(timestamp);
         if (index < 0) {
             index = -(index + 1);
         }
@@ -262,7 +262,7 @@ public class LogView extends JInternalFrame {
         return maximized;
     }
 
-    public List<LogEntry> getEntries() {
+    public LogStore getEntries() {
         return model.getEntries();
     }
 
@@ -323,6 +323,15 @@ public class LogView extends JInternalFrame {
         return baseTitle;
     }
 
+    public void setBaseTitle(String title) {
+        this.baseTitle = title;
+        updateTitleAndIcon();
+    }
+
+    public ViewType getViewType() {
+        return viewType;
+    }
+
     public boolean isFollowLog() {
         return followLog;
     }
@@ -372,7 +381,7 @@ public class LogView extends JInternalFrame {
     }
 
     public boolean hasTimestamps() {
-        return entries.stream().anyMatch(e -> e.timestamp() != null);
+        return entries.hasTimestamps();
     }
 
     public void setMetaData(String appName, String clientIp, int port) {
@@ -408,6 +417,31 @@ public class LogView extends JInternalFrame {
         return initialLoggerName;
     }
 
+    /**
+     * Appends rows of files that are still loading. The view must have been opened on a {@link LogStoreView}.
+     */
+    public void appendRows(LogStoreView rows) {
+        LogStoreView view = (LogStoreView) entries;
+        int first = view.size();
+        view.append(rows, 0, rows.size());
+        if (view.size() > first) {
+            model.fireTableRowsInserted(first, view.size() - 1);
+            filterPanel.refreshFilters();
+        }
+    }
+
+    /**
+     * Replaces the rows appended while loading by the complete, sorted rows.
+     */
+    public void replaceRows(LogStoreView rows) {
+        ((LogStoreView) entries).replaceWith(rows);
+        model.fireTableDataChanged();
+        columnManager.showSourceColumnIfNeeded();
+        // The message filter matched the rows by index, it is rebuilt for the new order
+        filterPanel.applyFilters();
+        filterPanel.updateFilters();
+    }
+
     public void addEntry(LogEntry entry) {
         SwingUtilities.invokeLater(() -> {
             boolean atBottom = isAtBottom();
@@ -430,7 +464,7 @@ public class LogView extends JInternalFrame {
             }
 
             if (filterPanel != null) {
-                filterPanel.updateFilters();
+                filterPanel.refreshFilters();
             }
         });
     }
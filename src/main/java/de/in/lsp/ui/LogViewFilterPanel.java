@@ -2,9 +2,12 @@ package de.in.lsp.ui;
 
 import java.awt.Color;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.UnaryOperator;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
@@ -17,6 +20,7 @@ import javax.swing.SwingUtilities;
 import javax.swing.table.TableRowSorter;
 
 import de.in.lsp.model.LogEntry;
+import de.in.lsp.model.LogStore;
 
 /**
  * A panel that displays a row of filters aligned with table columns.
@@ -31,6 +35,8 @@ public class LogViewFilterPanel extends AbstractTableFilterPanel<LogTableModel>
 	private MultiSelectFilter ipFilter;
 	private MultiSelectFilter sourceFilter;
 	private JTextField messageFilterField;
+	/** The options found in the rows scanned so far. */
+	private Facets facets;
 
 	public LogViewFilterPanel(JTable table, TableRowSorter<LogTableModel> sorter, List<LogEntry> entries) {
 		super(table, sorter);
@@ -74,74 +80,95 @@ public class LogViewFilterPanel extends AbstractTableFilterPanel<LogTableModel>
 
 	@Override
 	protected void onTableDataChanged() {
-		updateFilters();
+		refreshFilters();
 	}
 
+	/**
+	 * Scans all rows again for the options of the filters, e.g. after the rows have been replaced.
+	 */
 	public void updateFilters() {
+		facets = null;
+		refreshFilters();
+	}
+
+	/**
+	 * Adds the options of the rows appended since the last scan to the filters. All rows are scanned again only if a selection or the
+	 * message filter has changed, so a view that is filled while its files load scans every row once.
+	 */
+	public void refreshFilters() {
 		if (levelFilter == null)
 			return;
 
-		Set<String> levels = new HashSet<>();
-		Set<String> threads = new HashSet<>();
-		Set<String> loggers = new HashSet<>();
-		Set<String> ips = new HashSet<>();
-		Set<String> sources = new HashSet<>();
-
 		LogTableModel model = (LogTableModel) table.getModel();
-		List<LogEntry> entries = model.getEntries();
+		LogStore entries = model.getEntries();
+
+		SymbolSelection level = new SymbolSelection(levelFilter, LogStore::levelId, UnaryOperator.identity());
+		SymbolSelection thread = new SymbolSelection(threadFilter, LogStore::threadId, LogEntry::simpleThreadName);
+		SymbolSelection logger = new SymbolSelection(loggerFilter, LogStore::loggerId, LogEntry::simpleLoggerName);
+		SymbolSelection ip = new SymbolSelection(ipFilter, LogStore::ipId, UnaryOperator.identity());
+		SymbolSelection source = new SymbolSelection(sourceFilter, LogStore::sourceId, UnaryOperator.identity());
 
 		String msgText = messageFilterField.getText();
+		List<Object> state = Arrays.asList(level.selected, thread.selected, logger.selected, ip.selected, source.selected, msgText);
+		if (facets == null || !facets.state.equals(state) || facets.rows > entries.size()) {
+			facets = new Facets(state);
+		}
+		int from = facets.rows;
+		int to = entries.size();
+
+		java.util.regex.Pattern msgPattern = null;
+		if (!msgText.isEmpty()) {
+			try {
+				msgPattern = java.util.regex.Pattern.compile(msgText, java.util.regex.Pattern.CASE_INSENSITIVE);
+			} catch (Exception e) {
+				// An incomplete expression matches everything
+			}
+		}
 
-		for (LogEntry entry : entries) {
-			String level = entry.level();
-			String thread = entry.getSimpleThreadName();
-			String logger = entry.getSimpleLoggerName();
-			String msg = entry.message();
+		// The rows are compared by symbol id, each distinct id is resolved to its display name only once
+		BitSet levels = facets.levels;
+		BitSet threads = facets.threads;
+		BitSet loggers = facets.loggers;
+		BitSet ips = facets.ips;
+		BitSet sources = facets.sources;
+		// The message filter is evaluated up front, in parallel over the (possibly compressed) texts
+		java.util.regex.Pattern pattern = msgPattern;
+		BitSet messageMatches = pattern != null ? entries.findMessages(from, to, msg -> pattern.matcher(msg).find()) : null;
+		for (int i = from; i < to; i++) {
+			int levelId = entries.levelId(i);
+			int threadId = entries.threadId(i);
+			int loggerId = entries.loggerId(i);
+			int ipId = entries.ipId(i);
+			int sourceId = entries.sourceId(i);
 
 			// Faceted search checks
-			boolean matchesMessage = msgText.isEmpty();
-			if (!matchesMessage) {
-				try {
-					matchesMessage = java.util.regex.Pattern.compile(msgText, java.util.regex.Pattern.CASE_INSENSITIVE).matcher(msg).find();
-				} catch (Exception e) {
-					matchesMessage = true;
-				}
-			}
+			boolean matchesMessage = messageMatches == null || messageMatches.get(i);
 
-			boolean matchesLevel = !levelFilter.isActive() || levelFilter.getSelectedOptions().contains(level);
-			boolean matchesThread = !threadFilter.isActive() || threadFilter.getSelectedOptions().contains(thread);
-			boolean matchesLogger = !loggerFilter.isActive() || loggerFilter.getSelectedOptions().contains(logger);
-			boolean matchesIp = !ipFilter.isActive() || ipFilter.getSelectedOptions().contains(entry.ip());
-			boolean matchesSource = !sourceFilter.isActive() || sourceFilter.getSelectedOptions().contains(entry.sourceFile());
+			boolean matchesLevel = level.accepts(entries, levelId);
+			boolean matchesThread = thread.accepts(entries, threadId);
+			boolean matchesLogger = logger.accepts(entries, loggerId);
+			boolean matchesIp = ip.accepts(entries, ipId);
+			boolean matchesSource = source.accepts(entries, sourceId);
 
 			// Add to options if other filters match
-			if (matchesThread && matchesLogger && matchesIp && matchesSource && matchesMessage) {
-				if (level != null && !level.isEmpty())
-					levels.add(level);
-			}
-			if (matchesLevel && matchesLogger && matchesIp && matchesSource && matchesMessage) {
-				if (thread != null && !thread.isEmpty())
-					threads.add(thread);
-			}
-			if (matchesLevel && matchesThread && matchesIp && matchesSource && matchesMessage) {
-				if (logger != null && !logger.isEmpty())
-					loggers.add(logger);
-			}
-			if (matchesLevel && matchesThread && matchesLogger && matchesSource && matchesMessage) {
-				if (entry.ip() != null && !entry.ip().isEmpty())
-					ips.add(entry.ip());
-			}
-			if (matchesLevel && matchesThread && matchesLogger && matchesIp && matchesMessage) {
-				if (entry.sourceFile() != null && !entry.sourceFile().isEmpty())
-					sources.add(entry.sourceFile());
-			}
+			if (matchesThread && matchesLogger && matchesIp && matchesSource && matchesMessage)
+				levels.set(levelId + 1);
+			if (matchesLevel && matchesLogger && matchesIp && matchesSource && matchesMessage)
+				threads.set(threadId + 1);
+			if (matchesLevel && matchesThread && matchesIp && matchesSource && matchesMessage)
+				loggers.set(loggerId + 1);
+			if (matchesLevel && matchesThread && matchesLogger && matchesSource && matchesMessage)
+				ips.set(ipId + 1);
+			if (matchesLevel && matchesThread && matchesLogger && matchesIp && matchesMessage)
+				sources.set(sourceId + 1);
 		}
+		facets.rows = to;
 
-		levelFilter.setOptions(levels);
-		threadFilter.setOptions(threads);
-		loggerFilter.setOptions(loggers);
-		ipFilter.setOptions(ips);
-		sourceFilter.setOptions(sources);
+		levelFilter.setOptions(level.options(entries, levels));
+		threadFilter.setOptions(thread.options(entries, threads));
+		loggerFilter.setOptions(logger.options(entries, loggers));
+		ipFilter.setOptions(ip.options(entries, ips));
+		sourceFilter.setOptions(source.options(entries, sources));
 	}
 
 	public void applyFilters() {
@@ -152,65 +179,16 @@ public class LogViewFilterPanel extends AbstractTableFilterPanel<LogTableModel>
 		try {
 			List<RowFilter<LogTableModel, Integer>> filters = new ArrayList<>();
 
-			if (levelFilter.isActive()) {
-				Set<String> selected = levelFilter.getSelectedOptions();
-				filters.add(new RowFilter<>() {
-					@Override
-					public boolean include(Entry<? extends LogTableModel, ? extends Integer> entry) {
-						Object val = entry.getValue(LogColumn.LEVEL.getIndex());
-						return val != null && selected.contains(val.toString());
-					}
-				});
-			}
-
-			if (threadFilter.isActive()) {
-				Set<String> selected = threadFilter.getSelectedOptions();
-				filters.add(new RowFilter<>() {
-					@Override
-					public boolean include(Entry<? extends LogTableModel, ? extends Integer> entry) {
-						Object val = entry.getValue(LogColumn.THREAD.getIndex());
-						return val != null && selected.contains(val.toString());
-					}
-				});
-			}
-
-			if (loggerFilter.isActive()) {
-				Set<String> selected = loggerFilter.getSelectedOptions();
-				filters.add(new RowFilter<>() {
-					@Override
-					public boolean include(Entry<? extends LogTableModel, ? extends Integer> entry) {
-						Object val = entry.getValue(LogColumn.LOGGER.getIndex());
-						return val != null && selected.contains(val.toString());
-					}
-				});
-			}
-
-			if (ipFilter.isActive()) {
-				Set<String> selected = ipFilter.getSelectedOptions();
-				filters.add(new RowFilter<>() {
-					@Override
-					public boolean include(Entry<? extends LogTableModel, ? extends Integer> entry) {
-						Object val = entry.getValue(LogColumn.IP.getIndex());
-						return val != null && selected.contains(val.toString());
-					}
-				});
-			}
-
-			if (sourceFilter.isActive()) {
-				Set<String> selected = sourceFilter.getSelectedOptions();
-				filters.add(new RowFilter<>() {
-					@Override
-					public boolean include(Entry<? extends LogTableModel, ? extends Integer> entry) {
-						Object val = entry.getValue(LogColumn.SOURCE.getIndex());
-						return val != null && selected.contains(val.toString());
-					}
-				});
-			}
+			addSymbolFilter(filters, new SymbolSelection(levelFilter, LogStore::levelId, UnaryOperator.identity()));
+			addSymbolFilter(filters, new SymbolSelection(threadFilter, LogStore::threadId, LogEntry::simpleThreadName));
+			addSymbolFilter(filters, new SymbolSelection(loggerFilter, LogStore::loggerId, LogEntry::simpleLoggerName));
+			addSymbolFilter(filters, new SymbolSelection(ipFilter, LogStore::ipId, UnaryOperator.identity()));
+			addSymbolFilter(filters, new SymbolSelection(sourceFilter, LogStore::sourceId, UnaryOperator.identity()));
 
 			String msgText = messageFilterField.getText();
 			if (!msgText.isEmpty()) {
 				try {
-					filters.add(RowFilter.regexFilter(msgText, LogColumn.MESSAGE.getIndex()));
+					addMessageFilter(filters, java.util.regex.Pattern.compile(msgText));
 				} catch (java.util.regex.PatternSyntaxException e) {
 					// Ignore invalid regex
 				}
@@ -266,4 +244,109 @@ public class LogViewFilterPanel extends AbstractTableFilterPanel<LogTableModel>
 	public JTextField getMessageFilterField() {
 		return messageFilterField;
 	}
+
+	private static void addSymbolFilter(List<RowFilter<LogTableModel, Integer>> filters, SymbolSelection selection) {
+		if (!selection.isActive())
+			return;
+		filters.add(new RowFilter<>() {
+			@Override
+			public boolean include(Entry<? extends LogTableModel, ? extends Integer> entry) {
+				int row = entry.getIdentifier();
+				LogStore store = entry.getModel().getEntries();
+				return selection.accepts(store, selection.column.id(store, row));
+			}
+		});
+	}
+
+	/**
+	 * Adds a filter that matches the message like {@link RowFilter#regexFilter(String, int...)} on the message column. The rows present
+	 * now are matched in one parallel scan of the store, rows appended later are matched one by one.
+	 */
+	private void addMessageFilter(List<RowFilter<LogTableModel, Integer>> filters, java.util.regex.Pattern pattern) {
+		LogStore entries = ((LogTableModel) table.getModel()).getEntries();
+		int scanned = entries.size();
+		BitSet matches = entries.findMessages(msg -> pattern.matcher(msg).find());
+		filters.add(new RowFilter<>() {
+			@Override
+			public boolean include(Entry<? extends LogTableModel, ? extends Integer> entry) {
+				int row = entry.getIdentifier();
+				if (row < scanned)
+					return matches.get(row);
+				String message = entry.getModel().getEntries().message(row);
+				return pattern.matcher(message != null ? message : "").find();
+			}
+		});
+	}
+
+	/**
+	 * The ids (as bits at id + 1) of the options of every filter in the first {@link #rows} rows, for the selections and message filter
+	 * they were collected with.
+	 */
+	private static final class Facets {
+		private final List<Object> state;
+		private final BitSet levels = new BitSet();
+		private final BitSet threads = new BitSet();
+		private final BitSet loggers = new BitSet();
+		private final BitSet ips = new BitSet();
+		private final BitSet sources = new BitSet();
+		private int rows;
+
+		Facets(List<Object> state) {
+			this.state = state;
+		}
+	}
+
+	/**
+	 * Reads the symbol id of one column of a row.
+	 */
+	private interface SymbolColumn {
+		int id(LogStore store, int row);
+	}
+
+	/**
+	 * The selected options of one multi-select filter, checked by symbol id. An id is mapped to its display name (e.g. the simple
+	 * thread name) and looked up in the selection once; all further rows with that id cost a bit lookup.
+	 */
+	private static final class SymbolSelection {
+		private final Set<String> selected;
+		private final SymbolColumn column;
+		private final UnaryOperator<String> displayName;
+		/** Bits are indexed by id + 1, so the null id -1 maps to bit 0. */
+		private final BitSet resolved = new BitSet();
+		private final BitSet accepted = new BitSet();
+
+		SymbolSelection(MultiSelectFilter filter, SymbolColumn column, UnaryOperator<String> displayName) {
+			this.selected = filter.isActive() ? filter.getSelectedOptions() : null;
+			this.column = column;
+			this.displayName = displayName;
+		}
+
+		boolean isActive() {
+			return selected != null;
+		}
+
+		boolean accepts(LogStore store, int id) {
+			if (selected == null)
+				return true;
+			if (!resolved.get(id + 1)) {
+				String name = displayName.apply(store.symbol(id));
+				accepted.set(id + 1, name != null && selected.contains(name));
+				resolved.set(id + 1);
+			}
+			return accepted.get(id + 1);
+		}
+
+		/**
+		 * Returns the non-empty display names of the given ids (as bits at id + 1).
+		 */
+		Set<String> options(LogStore store, BitSet ids) {
+			Set<String> names = new HashSet<>();
+			ids.stream().forEach(bit -> {
+				String name = displayName.apply(store.symbol(bit - 1));
+				if (name != null && !name.isEmpty())
+					names.add(name);
+			});
+			return names;
+		}
+	}
 }
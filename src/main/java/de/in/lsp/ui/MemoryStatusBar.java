@@ -7,6 +7,9 @@ import java.awt.FlowLayout;
 import java.awt.Graphics;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
 
 import javax.swing.BorderFactory;
 import javax.swing.JLabel;
@@ -17,15 +20,21 @@ import javax.swing.Timer;
 
 import com.formdev.flatlaf.util.UIScale;
 
+import de.in.lsp.service.LoadTask;
+
 /**
- * A graphically appealing status bar showing memory usage.
+ * A graphically appealing status bar showing memory usage. The bar shows the Java heap, the label next to it the off-heap buffers (the
+ * direct and mapped pools, which hold the log texts and the mapped log files).
  * 
  * @author TiJaWo68 in cooperation with Gemini 3 Flash using Antigravity
  */
 public class MemoryStatusBar extends JPanel {
 
 	private final JProgressBar memoryBar;
+	private final JLabel offHeapLabel;
+	private final List<BufferPoolMXBean> bufferPools = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class);
 	private final JLabel statusLabel;
+	private final JPanel loadTasks;
 	private final Timer loadingTimer;
 	private int loadingStep = 0;
 
@@ -42,9 +51,15 @@ public class MemoryStatusBar extends JPanel {
 
 		JPanel container = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
 		container.setOpaque(false);
+		offHeapLabel = new JLabel();
+		container.add(offHeapLabel);
 		container.add(memoryBar);
 
+		loadTasks = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+		loadTasks.setOpaque(false);
+
 		add(statusLabel, BorderLayout.WEST);
+		add(loadTasks, BorderLayout.CENTER);
 		add(container, BorderLayout.EAST);
 
 		Timer refreshTimer = new Timer(2000, e -> updateMemoryInfo());
@@ -65,6 +80,7 @@ public class MemoryStatusBar extends JPanel {
 		addMouseListener(gcListener);
 		memoryBar.addMouseListener(gcListener);
 		statusLabel.addMouseListener(gcListener); // Add to label too for good measure
+		offHeapLabel.addMouseListener(gcListener);
 
 		updateMemoryInfo();
 	}
@@ -86,6 +102,16 @@ public class MemoryStatusBar extends JPanel {
 		});
 	}
 
+	/**
+	 * Shows the progress of the load with a cancel button until it is done.
+	 */
+	public void addLoadTask(LoadTask task) {
+		SwingUtilities.invokeLater(() -> {
+			loadTasks.add(new LoadProgressPanel(task));
+			loadTasks.revalidate();
+		});
+	}
+
 	private void animateLoading() {
 		StringBuilder dots = new StringBuilder();
 		for (int i = 0; i < (loadingStep % 4); i++) {
@@ -114,9 +140,25 @@ public class MemoryStatusBar extends JPanel {
 			memoryBar.setForeground(new Color(50, 150, 50)); // Green
 		}
 
-		String info = String.format("%d%% (Used: %d MB / Max: %d MB)", percent, usedMemory / (1024 * 1024), maxMemory / (1024 * 1024));
+		String info = String.format("Heap %d%% (Used: %d MB / Max: %d MB)", percent, usedMemory / (1024 * 1024),
+				maxMemory / (1024 * 1024));
 
 		memoryBar.setString(info);
+		updateOffHeapInfo();
+	}
+
+	private void updateOffHeapInfo() {
+		long offHeap = 0;
+		StringBuilder tooltip = new StringBuilder("<html>Memory outside the Java heap:");
+		for (BufferPoolMXBean pool : bufferPools) {
+			if (pool.getMemoryUsed() <= 0)
+				continue;
+			offHeap += pool.getMemoryUsed();
+			tooltip.append(String.format("<br>%s: %d MB in %d buffers", pool.getName(), pool.getMemoryUsed() / (1024 * 1024),
+					pool.getCount()));
+		}
+		offHeapLabel.setText(String.format("Off-heap: %d MB", offHeap / (1024 * 1024)));
+		offHeapLabel.setToolTipText(tooltip.append("</html>").toString());
 	}
 
 	@Override
@@ -2,7 +2,6 @@ package de.in.lsp.ui;
 
 import java.net.SocketAddress;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -14,6 +13,10 @@ import javax.swing.JDesktopPane;
 import javax.swing.SwingUtilities;
 
 import de.in.lsp.model.LogEntry;
+import de.in.lsp.model.LogStore;
+import de.in.lsp.model.LogStoreView;
+import de.in.lsp.model.SymbolTable;
+import de.in.lsp.util.LspLogger;
 
 /**
  * Manages LogView instances, their synchronization, and layout within the main window.
@@ -74,7 +77,22 @@ public class ViewManager {
 			SwingUtilities.invokeLater(() -> addLogView(entries, title, columnVisibility, listener, viewType, appName, clientIp, port));
 			return null;
 		}
-		LogView logView = new LogView(new ArrayList<>(entries), title, this::syncOtherViews, listener, viewType);
+		// A LogStore (e.g. of a loaded LogGroup) is taken over, other lists are copied into a new store
+		LogStore store = LogStore.of(entries);
+		LogView logView = new LogView(store, title, this::syncOtherViews, listener, viewType);
+		if (!store.isEmpty()) {
+			if (store instanceof LogStoreView view) {
+				LspLogger.info(String.format("View '%s': %d entries referencing %d stores, %d KB of row references", title, view.size(),
+						view.getStores().size(), view.estimatedSize() / 1024));
+			} else {
+				LogStore.SymbolStats stats = store.symbolStats();
+				LspLogger.info(String.format(
+						"View '%s': %d entries, %d distinct symbols (%d in symbol table), ~%d KB saved by shared symbols, "
+								+ "texts %d KB (%d KB uncompressed)",
+						title, store.size(), stats.distinctSymbols(), SymbolTable.getInstance().size(), stats.savedBytes() / 1024,
+						store.textSize() / 1024, store.uncompressedTextSize() / 1024));
+			}
+		}
 		logView.setMetaData(appName, clientIp, port);
 		if (!entries.isEmpty() && entries.get(0).loggerName() != null) {
 			logView.setInitialLoggerName(entries.get(0).loggerName());
@@ -1,13 +1,20 @@
 package de.in.lsp.ui.actions;
 
 import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
 
 import javax.swing.SwingUtilities;
 
+import de.in.lsp.dto.LogGroup;
+import de.in.lsp.model.LogStoreView;
+import de.in.lsp.service.LoadTask;
 import de.in.lsp.service.LogFileService;
+import de.in.lsp.ui.LogView;
 import de.in.lsp.ui.LogViewListener;
 import de.in.lsp.ui.ViewManager;
 import de.in.lsp.ui.ViewType;
@@ -20,24 +27,89 @@ import de.in.lsp.util.LspLogger;
  */
 public class FileActions {
 	private final ViewManager viewManager;
-	private final LogFileService logFileService = new LogFileService();
+	private final LogFileService logFileService;
 
 	public FileActions(ViewManager viewManager) {
+		this(viewManager, new LogFileService());
+	}
+
+	FileActions(ViewManager viewManager, LogFileService logFileService) {
 		this.viewManager = viewManager;
+		this.logFileService = logFileService;
 	}
 
-	public void backgroundLoadFiles(List<File> files, Consumer<String> statusConsumer, LogViewListener listener,
+	/**
+	 * Loads the files in the background and returns the task reporting their progress. Cancelling it closes the views opened for the
+	 * load.
+	 */
+	public LoadTask backgroundLoadFiles(List<File> files, Consumer<String> statusConsumer, LogViewListener listener,
 			Map<Integer, Boolean> columnVisibility) {
 		LspLogger.info("Starting background loading of " + files.size() + " files.");
-		logFileService.backgroundLoadFiles(files, statusConsumer, (appName, group) -> {
-			String title = appName;
-			if (group.getFileCount() > 1) {
-				title += " (Auto-Merged)";
+		// A view is opened with the first rows of its application and grows while the files are loading, the map is used on the EDT only
+		Map<String, LogView> loadingViews = new HashMap<>();
+		// Applications whose loading view the user closed, their further rows are not shown until the application is loaded
+		Set<String> closedApps = new HashSet<>();
+		return logFileService.backgroundLoadFiles(files, statusConsumer, new LogFileService.LoadListener() {
+			@Override
+			public void rowsLoaded(String appName, LogStoreView rows) {
+				SwingUtilities.invokeLater(() -> {
+					if (closedApps.contains(appName))
+						return;
+					LogView view = loadingViews.get(appName);
+					if (view != null && !isOpen(view)) {
+						// Closed by the user, the whole application is shown when it is loaded
+						loadingViews.remove(appName);
+						closedApps.add(appName);
+						return;
+					}
+					if (view != null) {
+						view.appendRows(rows);
+					} else {
+						loadingViews.put(appName, viewManager.addLogView(rows, appName, columnVisibility, listener, ViewType.FILE));
+					}
+				});
+			}
+
+			@Override
+			public void groupLoaded(String appName, LogGroup group) {
+				String title = appName;
+				if (group.getFileCount() > 1) {
+					title += " (Auto-Merged)";
+				}
+				final String finalTitle = title;
+				LspLogger.info("Loaded application '" + appName + "' with " + group.getEntries().size() + " entries.");
+				SwingUtilities.invokeLater(() -> {
+					closedApps.remove(appName);
+					LogView view = loadingViews.remove(appName);
+					if (view != null && isOpen(view) && group.getEntries() instanceof LogStoreView sorted) {
+						view.replaceRows(sorted);
+						view.setBaseTitle(finalTitle);
+					} else {
+						if (view != null) {
+							viewManager.removeView(view);
+						}
+						viewManager.addLogView(group.getEntries(), finalTitle, columnVisibility, listener, ViewType.FILE);
+					}
+				});
+			}
+
+			@Override
+			public void loadCancelled() {
+				LspLogger.info("Loading of " + files.size() + " files cancelled.");
+				SwingUtilities.invokeLater(() -> {
+					// The partially loaded views go, with them the last references to their entries
+					loadingViews.values().forEach(viewManager::removeView);
+					loadingViews.clear();
+					closedApps.clear();
+				});
 			}
-			final String finalTitle = title;
-			LspLogger.info("Loaded application '" + appName + "' with " + group.getEntries().size() + " entries.");
-			SwingUtilities
-					.invokeLater(() -> viewManager.addLogView(group.getEntries(), finalTitle, columnVisibility, listener, ViewType.FILE));
 		});
 	}
+
+	/**
+	 * Returns true if the view was not closed by the user meanwhile.
+	 */
+	private boolean isOpen(LogView view) {
+		return viewManager.getLogViews().contains(view) || viewManager.getMinimizedViews().contains(view);
+	}
 }
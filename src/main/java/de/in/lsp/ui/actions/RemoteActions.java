@@ -155,11 +155,11 @@ public class RemoteActions {
 				if (selected.isEmpty())
 					return;
 
+				LogManager lm = new LogManager();
 				for (var target : selected) {
 					pm.setNote("Streaming logs from " + target.pod + "...");
 					LspLogger.info("Streaming logs from " + target.namespace + "/" + target.pod + "/" + target.container);
 					try (InputStream is = sshService.streamLogs(target.namespace, target.pod, target.container)) {
-						LogManager lm = new LogManager();
 						String sourceName = target.pod + "_" + target.container + ".log";
 						List<LogEntry> entries = lm.parseStream(is, sourceName);
 						LspLogger.info("Finished streaming " + entries.size() + " entries from " + target.pod);
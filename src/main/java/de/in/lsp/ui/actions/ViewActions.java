@@ -9,7 +9,6 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.zip.ZipEntry;
@@ -20,7 +19,8 @@ import javax.swing.JFrame;
 import javax.swing.JOptionPane;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
-import de.in.lsp.model.LogEntry;
+import de.in.lsp.model.LogStore;
+import de.in.lsp.model.LogStoreView;
 import de.in.lsp.ui.LogView;
 import de.in.lsp.ui.LogViewListener;
 import de.in.lsp.ui.SearchDialog;
@@ -63,14 +63,30 @@ public class ViewActions {
 			}
 		}
 
-		List<LogEntry> allEntries = new ArrayList<>();
+		// The merged view references the rows of the selected views, sorting only reorders the references
+		List<LogStore> stores = new ArrayList<>();
 		for (LogView view : selectedViews) {
-			allEntries.addAll(view.getEntries());
+			stores.add(view.getEntries());
 			viewManager.toggleViewMinimized(view, true);
 		}
-		Collections.sort(allEntries);
+		LogStoreView merged = LogStoreView.concat(stores);
+		merged.sort(null);
 		LspLogger.info("Merged " + selectedViews.size() + " views into a new view.");
-		viewManager.addLogView(allEntries, "Merged View", columnVisibility, listener, ViewType.MERGED);
+		viewManager.addLogView(merged, "Merged View", columnVisibility, listener, ViewType.MERGED);
+	}
+
+	public void duplicateSelectedViews(LogViewListener listener, Map<Integer, Boolean> columnVisibility) {
+		List<LogView> selectedViews = viewManager.getLogViews().stream().filter(LogView::isViewSelected).toList();
+		if (selectedViews.isEmpty()) {
+			JOptionPane.showMessageDialog(parentFrame, "No log views selected.");
+			return;
+		}
+		for (LogView view : selectedViews) {
+			// A duplicate shares the rows of its view, it is a snapshot and does not receive entries of a live stream
+			ViewType type = view.getViewType() == ViewType.TCP ? ViewType.FILE : view.getViewType();
+			viewManager.addLogView(LogStoreView.of(view.getEntries()), view.getBaseTitle() + " (copy)", columnVisibility, listener, type);
+		}
+		LspLogger.info("Duplicated " + selectedViews.size() + " views.");
 	}
 
 	public void closeSelectedViews() {
@@ -182,8 +198,11 @@ public class ViewActions {
 	private void exportSingleView(LogView view, File target) throws IOException {
 		try (BufferedWriter writer = new BufferedWriter(
 				new OutputStreamWriter(new FileOutputStream(target), StandardCharsets.UTF_8))) {
-			for (LogEntry entry : view.getEntries()) {
-				writer.write(entry.rawLine());
+			LogStore entries = view.getEntries();
+			// Exports the rows present now, a live stream may keep appending
+			int count = entries.size();
+			for (int i = 0; i < count; i++) {
+				writer.write(entries.rawLine(i));
 				writer.newLine();
 			}
 		}
@@ -195,8 +214,10 @@ public class ViewActions {
 				String entryName = sanitizeFilename(view.getBaseTitle()) + ".log";
 				zos.putNextEntry(new ZipEntry(entryName));
 				BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(zos, StandardCharsets.UTF_8));
-				for (LogEntry entry : view.getEntries()) {
-					writer.write(entry.rawLine());
+				LogStore entries = view.getEntries();
+				int count = entries.size();
+				for (int i = 0; i < count; i++) {
+					writer.write(entries.rawLine(i));
 					writer.newLine();
 				}
 				writer.flush();
@@ -4,6 +4,7 @@ import java.awt.Component;
 import java.awt.Font;
 import java.awt.FontMetrics;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -16,6 +17,8 @@ import javax.swing.table.TableColumn;
 import javax.swing.table.TableColumnModel;
 
 import de.in.lsp.model.LogEntry;
+import de.in.lsp.model.LogStore;
+import de.in.lsp.model.SymbolTable;
 import de.in.lsp.ui.LogColumn;
 import de.in.lsp.ui.LogTableModel;
 import de.in.lsp.ui.ZebraTableRenderer;
@@ -32,7 +35,7 @@ public class LogViewColumnManager {
 
 	private final JTable table;
 	private final LogTableModel model;
-	private final List<LogEntry> entries;
+	private final LogStore entries;
 	private final Set<Integer> permanentlyHiddenColumns = new HashSet<>();
 	private final Set<Integer> manuallyExpandedColumns = new HashSet<>();
 	private final TableColumn[] allColumns;
@@ -40,7 +43,7 @@ public class LogViewColumnManager {
 	public LogViewColumnManager(JTable table, LogTableModel model, List<LogEntry> entries) {
 		this.table = table;
 		this.model = model;
-		this.entries = entries;
+		this.entries = LogStore.of(entries);
 
 		// Store all columns initially
 		TableColumnModel tcm = table.getColumnModel();
@@ -58,32 +61,49 @@ public class LogViewColumnManager {
 		if (!hasTimestamps)
 			permanentlyHiddenColumns.add(LogColumn.TIMESTAMP.getIndex());
 
-		// 1: Level
-		boolean hasLevel = entries.stream().anyMatch(e -> isNotEmpty(e.level()));
+		// 1: Level, 2: Thread, 3: Logger, 4: IP - one pass over the symbol ids, each id is checked only once
+		boolean hasLevel = false;
+		boolean hasThread = false;
+		boolean hasLogger = false;
+		boolean hasIp = false;
+		BitSet checked = new BitSet();
+		BitSet notEmpty = new BitSet();
+		int firstSource = SymbolTable.NULL_ID;
+		boolean multipleSources = false;
+		for (int i = 0; i < entries.size(); i++) {
+			hasLevel = hasLevel || isNotEmpty(entries.levelId(i), checked, notEmpty);
+			hasThread = hasThread || isNotEmpty(entries.threadId(i), checked, notEmpty);
+			hasLogger = hasLogger || isNotEmpty(entries.loggerId(i), checked, notEmpty);
+			hasIp = hasIp || isNotEmpty(entries.ipId(i), checked, notEmpty);
+			// 6: Source (Only for Merged views usually)
+			int source = entries.sourceId(i);
+			if (!multipleSources && source != firstSource && isNotEmpty(source, checked, notEmpty)) {
+				multipleSources = firstSource != SymbolTable.NULL_ID;
+				firstSource = source;
+			}
+		}
 		if (!hasLevel)
 			permanentlyHiddenColumns.add(LogColumn.LEVEL.getIndex());
-
-		// 2: Thread
-		boolean hasThread = entries.stream().anyMatch(e -> isNotEmpty(e.thread()));
 		if (!hasThread)
 			permanentlyHiddenColumns.add(LogColumn.THREAD.getIndex());
-
-		// 3: Logger
-		boolean hasLogger = entries.stream().anyMatch(e -> isNotEmpty(e.loggerName()));
 		if (!hasLogger)
 			permanentlyHiddenColumns.add(LogColumn.LOGGER.getIndex());
-
-		// 4: IP
-		boolean hasIp = entries.stream().anyMatch(e -> isNotEmpty(e.ip()));
 		if (!hasIp)
 			permanentlyHiddenColumns.add(LogColumn.IP.getIndex());
-
-		// 6: Source (Only for Merged views usually)
-		long uniqueSources = entries.stream().map(LogEntry::sourceFile).filter(this::isNotEmpty).distinct().count();
-		if (uniqueSources <= 1)
+		if (!multipleSources)
 			permanentlyHiddenColumns.add(LogColumn.SOURCE.getIndex());
 	}
 
+	private boolean isNotEmpty(int id, BitSet checked, BitSet notEmpty) {
+		if (id == SymbolTable.NULL_ID)
+			return false;
+		if (!checked.get(id)) {
+			checked.set(id);
+			notEmpty.set(id, isNotEmpty(entries.symbol(id)));
+		}
+		return notEmpty.get(id);
+	}
+
 	private boolean isNotEmpty(String value) {
 		return value != null && !value.trim().isEmpty() && !"UNKNOWN".equalsIgnoreCase(value.trim());
 	}
@@ -261,6 +281,17 @@ public class LogViewColumnManager {
 		}
 	}
 
+	/**
+	 * Shows the source column after all if the rows come from several sources by now, e.g. once all files of a view that was opened
+	 * while loading are in.
+	 */
+	public void showSourceColumnIfNeeded() {
+		int source = LogColumn.SOURCE.getIndex();
+		if (entries.sourceCount() < 2 || !permanentlyHiddenColumns.remove(source))
+			return;
+		setColumnVisibility(source, true);
+	}
+
 	public void hideColumnPermanently(int modelIndex) {
 		permanentlyHiddenColumns.add(modelIndex);
 		SwingUtilities.invokeLater(this::setupTableColumns);
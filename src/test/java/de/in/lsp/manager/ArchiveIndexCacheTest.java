@@ -0,0 +1,322 @@
+package de.in.lsp.manager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.in.lsp.model.LogEntry;
+
+/**
+ * Tests that archives opened again are read from their index with the same entries, that changed archives are parsed again, and that
+ * the cache stays within its bound. The comparison of a first and a second open of a large bundle is disabled by default, run it with
+ * {@code -Dlsp.benchmark=true}.
+ *
+ * @author TiJaWo68
+ */
+class ArchiveIndexCacheTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void testReopenedArchiveIsReadFromItsIndex() throws Exception {
+		File zip = tempDir.resolve("bundle.zip").toFile();
+		try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zip))) {
+			zos.putNextEntry(new ZipEntry("server.log"));
+			zos.write(log(500, "server").getBytes(StandardCharsets.UTF_8));
+			zos.putNextEntry(new ZipEntry("nested/worker.log.gz"));
+			zos.write(gzip(log(300, "worker")));
+			zos.putNextEntry(new ZipEntry("notes.txt"));
+			zos.write("Just some notes\nwithout any timestamp\n".getBytes(StandardCharsets.UTF_8));
+		}
+		ArchiveIndexCache cache = new ArchiveIndexCache(tempDir.resolve("cache"), Long.MAX_VALUE);
+		LogManager manager = manager(cache);
+
+		List<LogEntry> parsed = new ArrayList<>();
+		manager.loadLog(zip, parsed::add);
+		assertEquals(1, cache.getMisses());
+		assertTrue(Files.exists(cache.indexFile(zip)));
+
+		LoadProgress progress = new LoadProgress(zip);
+		List<LogEntry> replayed = new ArrayList<>();
+		manager.loadLog(zip, replayed::add, progress);
+		assertEquals(1, cache.getHits());
+		assertEquals(parsed, replayed);
+		assertTrue(parsed.size() > 800);
+		assertEquals(zip.length(), progress.getBytesRead());
+		assertTrue(cache.size() < zip.length() * 4);
+
+		// An index built with a parser that is no longer registered is not used
+		LogManager withoutParsers = new LogManager(new FormatDetectionCache(null));
+		withoutParsers.getParsers().clear();
+		withoutParsers.setIndexCache(cache);
+		List<LogEntry> fallback = new ArrayList<>();
+		withoutParsers.loadLog(zip, fallback::add);
+		assertEquals(1, cache.getHits());
+		assertNotEquals(parsed.size(), fallback.size());
+	}
+
+	@Test
+	void testChangedArchiveIsParsedAgain() throws Exception {
+		File zip = tempDir.resolve("app.zip").toFile();
+		writeStoredZip(zip, log(2000, "first"));
+		ArchiveIndexCache cache = new ArchiveIndexCache(tempDir.resolve("cache"), Long.MAX_VALUE);
+		LogManager manager = manager(cache);
+		List<LogEntry> first = manager.loadLog(zip);
+
+		// Same size and modification time, different content
+		long size = zip.length();
+		long modified = zip.lastModified();
+		writeStoredZip(zip, log(2000, "other"));
+		assertEquals(size, zip.length());
+		assertTrue(zip.setLastModified(modified));
+
+		List<LogEntry> second = manager.loadLog(zip);
+		assertEquals(0, cache.getHits());
+		assertEquals(first.size(), second.size());
+		assertTrue(second.get(5).message().contains("other"));
+		assertEquals(second, manager.loadLog(zip));
+		assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	void testIndexOfAnotherTimeZoneIsNotUsed() throws Exception {
+		File zip = tempDir.resolve("travel.zip").toFile();
+		writeStoredZip(zip, log(1000, "travel"));
+		ArchiveIndexCache cache = new ArchiveIndexCache(tempDir.resolve("cache"), Long.MAX_VALUE);
+		LogManager manager = manager(cache);
+		TimeZone original = TimeZone.getDefault();
+		try {
+			TimeZone.setDefault(TimeZone.getTimeZone("Europe/Berlin"));
+			manager.loadLog(zip);
+
+			// Zoned timestamps are converted to the system zone when they are parsed, the index holds the times of the old zone
+			TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+			List<LogEntry> parsed = manager.loadLog(zip);
+			assertEquals(0, cache.getHits());
+			assertEquals(parsed, manager.loadLog(zip));
+			assertEquals(1, cache.getHits());
+		} finally {
+			TimeZone.setDefault(original);
+		}
+	}
+
+	@Test
+	void testIndexOfTimesWithoutDateIsOnlyUsedOnTheDayItWasBuilt() throws Exception {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			text.append(String.format("10:%02d:%02d.%03d [main] INFO  de.in.lsp.Clock - Tick %d%n", (i / 60) % 60, i % 60, i % 1000, i));
+		}
+		File zip = tempDir.resolve("clock.zip").toFile();
+		writeStoredZip(zip, text.toString());
+		AtomicReference<LocalDate> today = new AtomicReference<>(LocalDate.now());
+		ArchiveIndexCache cache = new ArchiveIndexCache(tempDir.resolve("cache"), Long.MAX_VALUE, today::get);
+		LogManager manager = manager(cache);
+
+		List<LogEntry> parsed = manager.loadLog(zip);
+		assertEquals(1000, parsed.size());
+		assertEquals(today.get(), parsed.get(0).timestamp().toLocalDate());
+		assertEquals(parsed, manager.loadLog(zip));
+		assertEquals(1, cache.getHits());
+
+		// The parsers place the times on the day they run, the index holds the date of the day it was built
+		today.set(today.get().plusDays(1));
+		List<LogEntry> nextDay = manager.loadLog(zip);
+		assertEquals(1, cache.getHits());
+		assertEquals(1000, nextDay.size());
+		assertEquals(LocalDate.now(), nextDay.get(0).timestamp().toLocalDate());
+	}
+
+	@Test
+	void testFailedLoadsLeaveNoIndex() throws Exception {
+		File gz = tempDir.resolve("app.log.gz").toFile();
+		Files.write(gz.toPath(), gzip(log(20_000, "app")));
+		ArchiveIndexCache cache = new ArchiveIndexCache(tempDir.resolve("cache"), Long.MAX_VALUE);
+		LogManager manager = manager(cache);
+
+		LoadProgress cancelled = new LoadProgress(gz);
+		assertThrows(CancellationException.class, () -> manager.loadLog(gz, entry -> cancelled.cancel(), cancelled));
+		assertEquals(List.of(), cacheFiles(cache));
+	}
+
+	@Test
+	void testArchiveWithTruncatedMemberIsNotIndexed() throws Exception {
+		File zip = tempDir.resolve("truncated.zip").toFile();
+		byte[] worker = gzip(log(3000, "worker"));
+		try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zip))) {
+			zos.putNextEntry(new ZipEntry("server.log"));
+			zos.write(log(500, "server").getBytes(StandardCharsets.UTF_8));
+			zos.putNextEntry(new ZipEntry("worker.log.gz"));
+			zos.write(worker, 0, worker.length / 2);
+		}
+		ArchiveIndexCache cache = new ArchiveIndexCache(tempDir.resolve("cache"), Long.MAX_VALUE);
+		LogManager manager = manager(cache);
+
+		// The intact member is loaded, the truncated one keeps the entries read before it failed
+		List<LogEntry> entries = manager.loadLog(zip);
+		assertTrue(entries.stream().filter(e -> "server.log".equals(e.sourceFile())).count() >= 500);
+		assertFalse(Files.exists(cache.indexFile(zip)));
+		assertEquals(List.of(), cacheFiles(cache));
+		assertEquals(entries, manager.loadLog(zip));
+		assertEquals(0, cache.getHits());
+	}
+
+	@Test
+	void testDamagedBlockFallsBackToTheArchive() throws Exception {
+		File gz = tempDir.resolve("app.log.gz").toFile();
+		Files.write(gz.toPath(), gzip(log(20_000, "app")));
+		ArchiveIndexCache cache = new ArchiveIndexCache(tempDir.resolve("cache"), Long.MAX_VALUE);
+		LogManager manager = manager(cache);
+		List<LogEntry> entries = manager.loadLog(gz);
+
+		// A byte in one of the last blocks, the blocks before it are intact
+		Path index = cache.indexFile(gz);
+		try (RandomAccessFile raf = new RandomAccessFile(index.toFile(), "rw")) {
+			long pos = raf.length() * 3 / 4;
+			raf.seek(pos);
+			int b = raf.read();
+			raf.seek(pos);
+			raf.write(b ^ 0xFF);
+		}
+		assertEquals(entries, manager.loadLog(gz));
+		assertEquals(0, cache.getHits());
+		// The index was built again on the way
+		assertEquals(entries, manager.loadLog(gz));
+		assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	void testLeastRecentlyUsedIndexesAreEvicted() throws Exception {
+		Path dir = tempDir.resolve("cache");
+		List<File> archives = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			File gz = tempDir.resolve("app-" + i + ".log.gz").toFile();
+			Files.write(gz.toPath(), gzip(log(3000, "app " + i)));
+			archives.add(gz);
+		}
+		ArchiveIndexCache unbounded = new ArchiveIndexCache(dir, Long.MAX_VALUE);
+		manager(unbounded).loadLog(archives.get(0));
+		long indexSize = unbounded.size();
+
+		ArchiveIndexCache cache = new ArchiveIndexCache(dir, indexSize * 5 / 2);
+		LogManager manager = manager(cache);
+		for (File archive : archives) {
+			manager.loadLog(archive);
+			long minutesAgo = archives.size() - archives.indexOf(archive);
+			Files.setLastModifiedTime(cache.indexFile(archive), FileTime.fromMillis(System.currentTimeMillis() - minutesAgo * 60_000));
+			if (archive == archives.get(1)) {
+				// The first archive is used again and becomes the most recent one
+				manager.loadLog(archives.get(0));
+			}
+		}
+		assertTrue(cache.size() <= indexSize * 5 / 2);
+		assertFalse(Files.exists(cache.indexFile(archives.get(1))));
+		assertTrue(Files.exists(cache.indexFile(archives.get(0))));
+		assertTrue(Files.exists(cache.indexFile(archives.get(3))));
+
+		assertTrue(cache.clear() > 0);
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "lsp.benchmark", matches = "true")
+	void compareFirstAndSecondOpen() throws Exception {
+		File zip = tempDir.resolve("support-bundle.zip").toFile();
+		try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zip))) {
+			for (int i = 0; i < 20; i++) {
+				zos.putNextEntry(new ZipEntry("logs/app-" + i + ".log"));
+				zos.write(log(100_000, "app " + i).getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		ArchiveIndexCache cache = new ArchiveIndexCache(tempDir.resolve("cache"), Long.MAX_VALUE);
+		LogManager manager = manager(cache);
+		for (int round = 0; round < 3; round++) {
+			cache.clear();
+			long start = System.nanoTime();
+			List<LogEntry> parsed = manager.loadLog(zip);
+			long firstOpen = System.nanoTime() - start;
+			start = System.nanoTime();
+			List<LogEntry> replayed = manager.loadLog(zip);
+			long secondOpen = System.nanoTime() - start;
+			assertEquals(parsed.size(), replayed.size());
+			System.out.printf("round %d: %d entries, %d MB zip, %d MB index, first open %d ms, second open %d ms%n", round,
+					parsed.size(), zip.length() >> 20, cache.size() >> 20, firstOpen / 1_000_000, secondOpen / 1_000_000);
+		}
+	}
+
+	private static LogManager manager(ArchiveIndexCache cache) {
+		LogManager manager = new LogManager(new FormatDetectionCache(null));
+		manager.setIndexCache(cache);
+		return manager;
+	}
+
+	private static List<Path> cacheFiles(ArchiveIndexCache cache) throws Exception {
+		try (Stream<Path> files = Files.list(cache.getDirectory())) {
+			return files.toList();
+		}
+	}
+
+	private static String log(int entries, String name) {
+		StringBuilder sb = new StringBuilder("Log of " + name + "\n");
+		for (int i = 0; i < entries; i++) {
+			sb.append(String.format("2024-02-%02d 10:%02d:%02d.%03d [worker-%d] %s de.in.lsp.%s - Processing item %d of %s%n",
+					i % 28 + 1, (i / 60) % 60, i % 60, i % 1000, i % 8, i % 7 == 0 ? "WARN " : "INFO ", name.replace(' ', '_'), i, name));
+			if (i % 50 == 0) {
+				sb.append("java.lang.IllegalStateException: item ").append(i).append("\n\tat de.in.lsp.Worker.run(Worker.java:42)\n");
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Writes the text uncompressed into a zip, so a text of the same length gives a zip of the same size.
+	 */
+	private static void writeStoredZip(File zip, String text) throws Exception {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		ZipEntry entry = new ZipEntry("app.log");
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(bytes.length);
+		entry.setCrc(crc.getValue());
+		entry.setTime(0);
+		try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zip))) {
+			zos.putNextEntry(entry);
+			zos.write(bytes);
+		}
+	}
+
+	private static byte[] gzip(String text) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (GZIPOutputStream gos = new GZIPOutputStream(bytes)) {
+			gos.write(text.getBytes(StandardCharsets.UTF_8));
+		}
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,135 @@
+package de.in.lsp.manager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.in.lsp.model.LogEntry;
+import de.in.lsp.parser.LineSource;
+import de.in.lsp.parser.PatternBasedLogParser;
+
+/**
+ * Tests that parallel chunked parsing produces exactly the same entries as a sequential parse, and that a cancelled load stops the
+ * running chunks.
+ *
+ * @author TiJaWo68
+ */
+class ChunkedFileParserTest {
+
+	@TempDir
+	Path tempDir;
+
+	private final PatternBasedLogParser parser = new PatternBasedLogParser("%d{yyyy-MM-dd HH:mm:ss.SSS} [%t] %-5level %logger{36} - %msg%n");
+
+	@Test
+	void testChunkedParseEqualsSequentialParse() throws Exception {
+		File file = writeLog(2000);
+
+		List<LogEntry> sequential;
+		try (InputStream is = new FileInputStream(file)) {
+			sequential = parser.parse(is, "server.log");
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			ChunkedFileParser chunked = new ChunkedFileParser(pool, 4096);
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				assertTrue(chunked.computeChunkBounds(channel, parser).length > 2, "File should be split into several chunks");
+			}
+			List<LogEntry> parallel = chunked.parse(file, parser, "server.log");
+			assertEquals(sequential, parallel);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void testStackTracesStayWithTheirEntry() throws Exception {
+		File file = writeLog(500);
+
+		ForkJoinPool pool = new ForkJoinPool(8);
+		try {
+			List<LogEntry> entries = new ChunkedFileParser(pool, 1024).parse(file, parser, "server.log");
+			// Header entry + 500 log entries
+			assertEquals(501, entries.size());
+			for (LogEntry entry : entries.subList(1, entries.size())) {
+				if (entry.level().equals("ERROR")) {
+					assertTrue(entry.message().endsWith("at de.in.Worker.run(Worker.java:42)"), "Stack trace must not be split");
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void testCancelStopsRunningChunks() throws Exception {
+		int count = 200_000;
+		File file = writeLog(count);
+		LoadProgress progress = new LoadProgress(file);
+		AtomicInteger parsed = new AtomicInteger();
+		PatternBasedLogParser cancelling = new PatternBasedLogParser("%d{yyyy-MM-dd HH:mm:ss.SSS} [%t] %-5level %logger{36} - %msg%n") {
+			@Override
+			public void parse(LineSource lines, String sourceName, Consumer<LogEntry> sink) throws Exception {
+				super.parse(lines, sourceName, entry -> {
+					if (parsed.incrementAndGet() == 1000) {
+						progress.cancel();
+					}
+					sink.accept(entry);
+				});
+			}
+		};
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			ChunkedFileParser chunked = new ChunkedFileParser(pool, 4096);
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				assertEquals(5, chunked.computeChunkBounds(channel, cancelling).length, "File should be split into four chunks");
+			}
+			assertThrows(CancellationException.class, () -> chunked.parse(file, cancelling, "server.log", entry -> {
+			}, progress));
+			assertTrue(pool.awaitQuiescence(10, TimeUnit.SECONDS));
+			// Every chunk stops at its next line, far before the end of the file
+			assertTrue(parsed.get() < count / 2, "Chunks kept parsing after the cancel: " + parsed.get());
+			assertTrue(progress.getBytesRead() < file.length() / 2);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private File writeLog(int count) throws Exception {
+		File file = tempDir.resolve("server.log").toFile();
+		try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8)) {
+			writer.println("Starting server ...");
+			for (int i = 0; i < count; i++) {
+				String level = (i % 7 == 0) ? "ERROR" : "INFO";
+				writer.printf("2023-10-27 10:%02d:%02d.%03d [worker-%d] %-5s de.in.Worker - Processing item %d%n", (i / 60) % 60, i % 60, i % 1000,
+						i % 5, level, i);
+				if (level.equals("ERROR")) {
+					writer.println("java.lang.IllegalStateException: item " + i);
+					writer.println("\tat de.in.Worker.process(Worker.java:17)");
+					writer.println("\tat de.in.Worker.run(Worker.java:42)");
+				}
+			}
+		}
+		return file;
+	}
+}
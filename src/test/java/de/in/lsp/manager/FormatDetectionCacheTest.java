@@ -0,0 +1,113 @@
+package de.in.lsp.manager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.prefs.Preferences;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.in.lsp.model.LogEntry;
+import de.in.lsp.parser.LogParser;
+
+/**
+ * Tests that the format detection cache skips detection for rotated files, falls back to detection on a mismatch and survives a restart.
+ *
+ * @author TiJaWo68
+ */
+class FormatDetectionCacheTest {
+
+	private static final String DEFAULT_LINE = "2023-10-27 10:%02d:00.%03d [main] %s de.in.Server - Message %d%n";
+	private static final String QUARKUS_LINE = "2023-10-27 10:%02d:00,%03d %s [io.quarkus] (main) Message %d%n";
+
+	@TempDir
+	Path tempDir;
+
+	private Preferences prefs;
+
+	@AfterEach
+	void tearDown() throws Exception {
+		if (prefs != null) {
+			prefs.removeNode();
+		}
+	}
+
+	@Test
+	void testRotatedFilesSkipDetection() throws Exception {
+		LogManager manager = new LogManager(new FormatDetectionCache(null));
+		List<LogEntry> first = manager.loadLog(writeLog("server.log.1", DEFAULT_LINE, 1));
+		List<LogEntry> second = manager.loadLog(writeLog("server.log.2", DEFAULT_LINE, 2));
+
+		FormatDetectionCache cache = manager.getDetectionCache();
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getHits());
+		assertEquals(new LogManager(new FormatDetectionCache(null)).loadLog(new File(tempDir.toFile(), "server.log.2")), second);
+		assertEquals(50, first.size());
+		assertNotNull(second.get(0).timestamp());
+	}
+
+	@Test
+	void testMismatchFallsBackToDetection() throws Exception {
+		LogManager manager = new LogManager(new FormatDetectionCache(null));
+		File file = writeLog("server.log", QUARKUS_LINE, 3);
+		byte[] head = Files.readAllBytes(file.toPath());
+		String key = FormatDetectionCache.key(file.getName(), head);
+
+		// Remember a parser that does not fit the file any more
+		LogParser wrong = manager.getParsers().get(1);
+		manager.getDetectionCache().store(key, wrong);
+
+		List<LogEntry> entries = manager.loadLog(file);
+		assertEquals(0, manager.getDetectionCache().getHits());
+		assertEquals(1, manager.getDetectionCache().getMisses());
+		assertEquals("WARN", entries.get(0).level());
+		assertEquals("io.quarkus", entries.get(0).loggerName());
+		assertSame(manager.getParsers().get(0), manager.getDetectionCache().lookup(key, manager.getParsers()));
+	}
+
+	@Test
+	void testCacheIsPersisted() throws Exception {
+		prefs = Preferences.userRoot().node("lsp-test-format-cache-" + System.nanoTime());
+		LogManager manager = new LogManager(new FormatDetectionCache(prefs));
+		manager.loadLog(writeLog("pacs-2023-10-27.log", DEFAULT_LINE, 4));
+
+		LogManager restarted = new LogManager(new FormatDetectionCache(prefs));
+		restarted.loadLog(writeLog("pacs-2023-10-28.log", DEFAULT_LINE, 5));
+		assertEquals(1, restarted.getDetectionCache().getHits());
+		assertEquals(0, restarted.getDetectionCache().getMisses());
+
+		restarted.getDetectionCache().clear();
+		assertEquals(0, new FormatDetectionCache(prefs).size());
+	}
+
+	@Test
+	void testFingerprintIgnoresValuesButNotLayout() {
+		String a = FormatDetectionCache.fingerprint("2023-10-27 10:00:00.123 [main] INFO de.in.X - a\n".getBytes(StandardCharsets.UTF_8));
+		String b = FormatDetectionCache.fingerprint("2024-01-02 23:59:59.999 [worker-1] ERROR de.in.Y - b\n".getBytes(StandardCharsets.UTF_8));
+		String c = FormatDetectionCache.fingerprint("2023-10-27 10:00:00,123 INFO [io.quarkus] (main) a\n".getBytes(StandardCharsets.UTF_8));
+		assertEquals(a.substring(0, 16), b.substring(0, 16));
+		assertNotEquals(a, c);
+		assertNull(new FormatDetectionCache(null).lookup(FormatDetectionCache.key("x.log", new byte[0]), List.of()));
+	}
+
+	private File writeLog(String name, String format, int seed) throws Exception {
+		File file = tempDir.resolve(name).toFile();
+		try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8)) {
+			for (int i = 0; i < 50; i++) {
+				writer.printf(format, (i + seed) % 60, i, i % 3 == 0 ? "WARN" : "INFO", i);
+			}
+		}
+		return file;
+	}
+}
@@ -0,0 +1,112 @@
+package de.in.lsp.manager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import de.in.lsp.model.LogEntry;
+import de.in.lsp.parser.LogParser;
+
+/**
+ * Compares the single-pass format detection with the former trial parse of every parser, on heads mixed from the formats of the built-in
+ * parsers.
+ *
+ * @author TiJaWo68
+ */
+class FormatDetectorTest {
+
+	private static final String[] LINES = { "2026-01-06 11:02:35,715 INFO  [io.quarkus] (main) Started",
+			"2023-10-27 10:00:00.123 [main] INFO  de.in.lsp.Main - App started", "2023-10-27 10:00:00,123 [main] (de.in.Dicom) - Stored",
+			"INFO 2023-10-27 10:00:00,123 [main] (de.in.Dicom) - Stored", "2023-10-27 10:00:00 : starter running",
+			"2023-10-27 10:00:00,123 INFO - wrapper started", "[1027/100000.123:INFO:chrome] message",
+			"27-Oct-2023 10:00:00.123 INFO [main] org.apache.Catalina Server started",
+			"INFO  2023-01-19 09:38:21.291 [Shutdown Hook Thread] com.mirth.connect.server.Mirth: shutting down mirth",
+			"09:00:40.743 [restartedMain] INFO  com.pacs.client.ClientServices - Starting ClientServices",
+			"2023-10-27 10:00:00,123 INFO main [de.in.Server] started",
+			"10:31:39,416 |-INFO in ch.qos.logback.classic.LoggerContext[default] - This is logback-classic version 1.5.18",
+			"10:31:50.633 INFO  at.dedalus.swv.SwvApplication - Starting SwvApplication v1.0.0 using Java 21.0.9",
+			"2025-12-25T08:59:40.206963Z\tinfo\tFLAG: --concurrency=\"0\"\tact4telerad-0_istio-proxy.log",
+			"2024-05-02T10:00:00.123Z  INFO 1 --- [main] [ctx] de.in.App : started",
+			"2026-01-09 03:49:31,808 INFO: no action. I am (act4telerad-0), the leader with the lock",
+			"2026-01-09 03:49:31.808 UTC [42] LOG checkpoint starting",
+			"127.0.0.6 - - [06/Jan/2026:11:02:42 +0000] \"GET /viewer/ HTTP/1.1\" 200 1373", "[2023-10-27 10:00:00] INFO This is a test message",
+			"java.lang.IllegalStateException: failed", "\tat de.in.Worker.run(Worker.java:42)", "Banner Line", "", "2023-13-45 99:99:99,999 INFO - broken" };
+
+	@Test
+	void testDetectionEqualsTrialParse() throws Exception {
+		LogManager manager = new LogManager(new FormatDetectionCache(null));
+		List<LogParser> parsers = manager.getParsers();
+		FormatDetector detector = new FormatDetector();
+		Random random = new Random(3);
+
+		for (int round = 0; round < 400; round++) {
+			StringBuilder sb = new StringBuilder();
+			// Mostly one dominant format with some noise, sometimes a wild mix of formats
+			String dominant = LINES[random.nextInt(LINES.length)];
+			int lines = 1 + random.nextInt(60);
+			boolean mixed = round % 4 == 0;
+			for (int i = 0; i < lines; i++) {
+				String line = (mixed || random.nextInt(5) == 0) ? LINES[random.nextInt(LINES.length)] : dominant;
+				sb.append(line).append(random.nextInt(10) == 0 ? "\r\n" : "\n");
+			}
+			byte[] head = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+			LogParser expected = trialParseSelection(parsers, head);
+			LogParser actual = detector.detect(parsers, head, "test.log");
+			assertSame(expected, actual, "Head:\n" + sb);
+		}
+	}
+
+	@Test
+	void testEachFormatSelectsAParser() throws Exception {
+		LogManager manager = new LogManager(new FormatDetectionCache(null));
+		FormatDetector detector = new FormatDetector();
+		for (String line : LINES) {
+			byte[] head = (line + "\n" + line + "\n").getBytes(StandardCharsets.UTF_8);
+			assertEquals(trialParseSelection(manager.getParsers(), head), detector.detect(manager.getParsers(), head, "test.log"), line);
+		}
+	}
+
+	/**
+	 * The selection as it was done before the detector: candidates by first line, trial parse of the head, most timed entries win.
+	 */
+	private LogParser trialParseSelection(List<LogParser> parsers, byte[] head) throws Exception {
+		String firstLine = new BufferedReader(new StringReader(new String(head, StandardCharsets.UTF_8))).readLine();
+		List<LogParser> candidates = new ArrayList<>();
+		for (LogParser parser : parsers) {
+			if (parser.canParse(firstLine))
+				candidates.add(parser);
+		}
+		LogParser selected = candidates.isEmpty() ? null : findBestParser(candidates, head);
+		return selected != null ? selected : findBestParser(parsers, head);
+	}
+
+	private LogParser findBestParser(List<LogParser> candidates, byte[] head) {
+		LogParser bestParser = null;
+		int maxTimedEntries = 0;
+		int maxTotalEntries = 0;
+		for (LogParser parser : candidates) {
+			try {
+				List<LogEntry> entries = parser.parse(new ByteArrayInputStream(head), "test.log");
+				int timedEntries = (int) entries.stream().filter(e -> e.timestamp() != null).count();
+				if (timedEntries > maxTimedEntries || (timedEntries == maxTimedEntries && entries.size() > maxTotalEntries)) {
+					maxTimedEntries = timedEntries;
+					maxTotalEntries = entries.size();
+					bestParser = parser;
+				}
+			} catch (Exception e) {
+				// Ignore failure
+			}
+		}
+		return (maxTimedEntries > 0) ? bestParser : null;
+	}
+}
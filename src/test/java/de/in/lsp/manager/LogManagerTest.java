@@ -1,13 +1,20 @@
 package de.in.lsp.manager;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -15,6 +22,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import de.in.lsp.model.LogEntry;
+import de.in.lsp.model.LogEntrySink;
+import de.in.lsp.model.LogStore;
+import de.in.lsp.model.MappedFileText;
 
 /**
  * Test for LogManager log loading capabilities.
@@ -42,7 +52,7 @@ class LogManagerTest {
 			zos.closeEntry();
 		}
 
-		LogManager manager = new LogManager();
+		LogManager manager = new LogManager(new FormatDetectionCache(null));
 		List<LogEntry> entries = manager.loadLog(zipFile);
 
 		// Expecting 2 entries, one from each file
@@ -71,7 +81,7 @@ class LogManagerTest {
 			zos.closeEntry();
 		}
 
-		LogManager manager = new LogManager();
+		LogManager manager = new LogManager(new FormatDetectionCache(null));
 		List<LogEntry> entries = manager.loadLog(zipFile);
 
 		// Should only load the text log file
@@ -101,7 +111,7 @@ class LogManagerTest {
 			zos.closeEntry();
 		}
 
-		LogManager manager = new LogManager();
+		LogManager manager = new LogManager(new FormatDetectionCache(null));
 		List<LogEntry> entries = manager.loadLog(outerZipFile);
 
 		// Expecting 2 entries: 1 from outer.log, 1 from inner.log (inside inner.zip)
@@ -109,4 +119,95 @@ class LogManagerTest {
 		assertTrue(entries.stream().anyMatch(e -> e.message().equals("Outer Message")));
 		assertTrue(entries.stream().anyMatch(e -> e.message().equals("Inner Message")));
 	}
+
+	@Test
+	void testFileBackedLoadMatchesHeapLoad() throws Exception {
+		File file = tempDir.resolve("server.log").toFile();
+		String content = "Header line\r\n\r\n"
+				+ "2023-10-27 10:00:01.000 [main] INFO  de.in.App - Grüße € first\r\n"
+				+ "java.lang.IllegalStateException: boom\r\n\tat de.in.App.run(App.java:1)\r"
+				+ "2023-10-27 10:00:00.000 [worker-1] WARN  de.in.Worker - second\n"
+				+ "2023-10-27 10:00:02.000 [main] ERROR de.in.App - last";
+		Files.writeString(file.toPath(), content, StandardCharsets.UTF_8);
+
+		LogManager manager = new LogManager(new FormatDetectionCache(null));
+		manager.setFileBackedMinSize(0);
+		List<LogEntry> expected = manager.loadLog(file);
+
+		LogStore store = new LogStore();
+		manager.loadLog(file, new LogEntrySink() {
+			@Override
+			public void accept(LogEntry entry) {
+				store.add(entry);
+			}
+
+			@Override
+			public void accept(LogEntry entry, MappedFileText text, long offset, int length) {
+				store.add(entry, text, offset, length);
+			}
+		});
+
+		assertEquals(4, expected.size());
+		assertEquals(expected, store);
+		for (int i = 0; i < store.size(); i++) {
+			assertTrue(store.isFileBacked(i), "row " + i);
+		}
+
+		// Sorting and copying keep the file ranges
+		LogEntry other = new LogEntry(LocalDateTime.of(2023, 10, 27, 10, 0, 1, 500_000_000), "INFO", "t", "l", "", 0, "other", "other.log",
+				"other");
+		LogStore merged = new LogStore();
+		merged.add(other);
+		merged.addAll(store);
+		merged.sort(null);
+		// Compared with a store holding the texts on the heap, the header stays in front of the first entry of its file
+		LogStore heapStore = new LogStore();
+		heapStore.add(other);
+		heapStore.addAll(expected);
+		heapStore.sort(null);
+		assertEquals(heapStore, merged);
+		assertEquals("Header line", merged.get(1).message().strip());
+		assertTrue(merged.get(2).message().contains("first"));
+	}
+
+	@Test
+	void testProgressCountsFileBytesAndStopsWhenCancelled() throws Exception {
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < 20_000; i++) {
+			content.append(String.format("2023-10-27 10:%02d:%02d.000 [main] INFO  de.in.App - line %d%n", (i / 60) % 60, i % 60, i));
+		}
+		File plain = tempDir.resolve("app.log").toFile();
+		Files.writeString(plain.toPath(), content, StandardCharsets.UTF_8);
+		File gzip = tempDir.resolve("app.log.gz").toFile();
+		try (GZIPOutputStream gos = new GZIPOutputStream(new FileOutputStream(gzip))) {
+			gos.write(content.toString().getBytes(StandardCharsets.UTF_8));
+		}
+		File zip = tempDir.resolve("app.zip").toFile();
+		try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zip))) {
+			zos.putNextEntry(new ZipEntry("app.log"));
+			zos.write(content.toString().getBytes(StandardCharsets.UTF_8));
+			zos.closeEntry();
+		}
+
+		LogManager manager = new LogManager(new FormatDetectionCache(null));
+		for (File file : List.of(plain, gzip, zip)) {
+			// Archives count the compressed bytes, so every file is read up to its size
+			LoadProgress progress = new LoadProgress(file);
+			List<LogEntry> entries = new ArrayList<>();
+			manager.loadLog(file, entries::add, progress);
+			assertEquals(20_000, entries.size(), file.getName());
+			assertEquals(file.length(), progress.getBytesRead(), file.getName());
+			assertTrue(progress.isDone());
+			assertEquals(0, progress.etaMillis());
+
+			LoadProgress cancelled = new LoadProgress(file);
+			AtomicInteger parsed = new AtomicInteger();
+			assertThrows(CancellationException.class, () -> manager.loadLog(file, entry -> {
+				parsed.incrementAndGet();
+				cancelled.cancel();
+			}, cancelled), file.getName());
+			assertTrue(parsed.get() < 20_000, file.getName());
+			assertTrue(cancelled.getBytesRead() < file.length(), file.getName());
+		}
+	}
 }
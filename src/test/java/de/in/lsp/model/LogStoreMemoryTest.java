@@ -0,0 +1,58 @@
+package de.in.lsp.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import de.in.lsp.parser.PatternBasedLogParser;
+
+/**
+ * Rough heap comparison of a list of LogEntry records and a LogStore holding the same parsed entries. Disabled by default, run with
+ * {@code -Dlsp.benchmark=true}.
+ *
+ * @author TiJaWo68
+ */
+@EnabledIfSystemProperty(named = "lsp.benchmark", matches = "true")
+class LogStoreMemoryTest {
+
+	private static final int ENTRIES = 1_000_000;
+	private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+	@Test
+	void compareListAndStoreHeap() {
+		PatternBasedLogParser parser = new PatternBasedLogParser("%d{yyyy-MM-dd HH:mm:ss.SSS} [%t] %-5level %logger{36} - %msg%n");
+		LocalDateTime base = LocalDateTime.of(2023, 10, 27, 0, 0);
+
+		long before = usedHeap();
+		List<LogEntry> list = new ArrayList<>();
+		for (int i = 0; i < ENTRIES; i++) {
+			String line = String.format("%s [worker-%d] INFO  de.in.lsp.Worker - Processing item %d of the current batch",
+					base.plusNanos(i * 1_000_000L).format(FORMAT), i % 8, i);
+			list.add(parser.parseLine(line, "server.log", null));
+		}
+		long listBytes = usedHeap() - before;
+
+		before = usedHeap();
+		LogStore store = new LogStore(list);
+		long storeBytes = usedHeap() - before;
+		assertEquals(ENTRIES, store.size());
+
+		System.out.printf("List: %d bytes/entry, LogStore: %d bytes/entry (estimated %d)%n", listBytes / ENTRIES, storeBytes / ENTRIES,
+				store.estimatedSize() / ENTRIES);
+		list.clear();
+	}
+
+	private static long usedHeap() {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
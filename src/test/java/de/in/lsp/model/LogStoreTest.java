@@ -0,0 +1,384 @@
+package de.in.lsp.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the columnar store returns exactly the entries it was given and sorts and searches like a plain list.
+ *
+ * @author TiJaWo68
+ */
+class LogStoreTest {
+
+	@Test
+	void testEntriesRoundTrip() {
+		List<LogEntry> entries = new ArrayList<>();
+		entries.add(new LogEntry(null, "", "", "", "", 0, "Header line", "app.log", "Header line"));
+		entries.add(new LogEntry(LocalDateTime.of(2023, 10, 27, 10, 0, 0, 123_456_789), "INFO", "main", "de.in.App", "10.0.0.1", 8080,
+				"Started", "app.log", "2023-10-27 10:00:00.123 [main] INFO de.in.App - Started"));
+		entries.add(new LogEntry(LocalDateTime.of(1601, 1, 1, 0, 0), null, null, null, null, 0, null, null, null));
+		entries.add(new LogEntry(LocalDateTime.of(9999, 12, 31, 23, 59, 59), "WARN", "t", "l", "", 0, "Grüße 日本 €",
+				"other.log", "raw €"));
+		entries.add(new LogEntry(LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_999_999), "ERROR", "t", "l", "", 0,
+				"x".repeat(3 * TextPages.PAGE_SIZE), "app.log", "y"));
+
+		LogStore store = new LogStore(entries);
+		assertEquals(entries, store);
+		assertEquals(entries.get(3).message(), store.message(3));
+		assertNull(store.level(2));
+		assertFalse(store.hasTimestamp(0));
+		assertEquals(3, store.sourceCount());
+		assertTrue(store.hasTimestamps());
+
+		// Copying a store keeps the symbol ids and copies the texts
+		LogStore copy = new LogStore();
+		copy.add(new LogEntry(null, "DEBUG", "other", "", "", 0, "first", "x.log", "first"));
+		copy.addAll(store);
+		assertEquals(entries, copy.subList(1, copy.size()));
+		assertSame(store, LogStore.of(store));
+		assertEquals(store.threadId(1), copy.threadId(2));
+
+		// "app.log" is referenced three times but kept once
+		LogStore.SymbolStats stats = store.symbolStats();
+		assertTrue(stats.savedBytes() >= 2 * SymbolTable.stringSize("app.log"));
+		assertThrows(UnsupportedOperationException.class, () -> store.add(0, entries.get(0)));
+	}
+
+	@Test
+	void testMessagesShareTheirRawText() {
+		String message = "Request failed: Grüße 日本\n\tat de.in.App.main(App.java:1)";
+		String raw = "2023-10-27 10:00:00.123 [main] ERROR de.in.App - " + message;
+		List<LogEntry> entries = List.of(
+				new LogEntry(LocalDateTime.of(2023, 10, 27, 10, 0), "ERROR", "main", "de.in.App", "", 0, message, "app.log", raw),
+				new LogEntry(LocalDateTime.of(2023, 10, 27, 10, 0), "INFO", "main", "de.in.App", "", 0, "middle", "app.log",
+						"{\"msg\":\"middle\",\"level\":\"INFO\"}"),
+				new LogEntry(LocalDateTime.of(2023, 10, 27, 10, 0), "INFO", "main", "de.in.App", "", 0, "rewritten", "app.log", "raw"),
+				new LogEntry(LocalDateTime.of(2023, 10, 27, 10, 0), "INFO", "main", "de.in.App", "", 0, "", "app.log", "raw"));
+		LogStore store = new LogStore(entries);
+		assertEquals(entries, store);
+
+		LogStore copy = new LogStore();
+		copy.addAll(store);
+		copy.sort(null);
+		assertEquals(entries, copy);
+
+		// Messages that are part of their raw line take no room of their own
+		LogStore shared = new LogStore();
+		LogStore rawOnly = new LogStore();
+		for (int i = 0; i < 20_000; i++) {
+			shared.add(new LogEntry(null, "", "", "", "", 0, message + i, "app.log", raw + i));
+			rawOnly.add(new LogEntry(null, "", "", "", "", 0, null, "app.log", raw + i));
+		}
+		assertEquals(rawOnly.estimatedSize() + rawOnly.offHeapSize(), shared.estimatedSize() + shared.offHeapSize());
+	}
+
+	@Test
+	void testTextStorages() {
+		List<LogEntry> entries = new ArrayList<>();
+		for (int i = 0; i < 5_000; i++) {
+			String message = i % 7 == 0 ? "Grüße 日本 " + i : "Processing item " + i;
+			entries.add(new LogEntry(LocalDateTime.of(2023, 10, 27, 10, 0).plusSeconds(i), "INFO", "worker-" + (i % 4), "de.in.Worker", "",
+					0, message, "app.log", "2023-10-27 [worker] INFO " + message));
+		}
+		entries.add(new LogEntry(null, "", "", "", "", 0, "big", "app.log", "z".repeat(2 * TextPages.PAGE_SIZE)));
+
+		for (LogStore.TextStorage storage : LogStore.TextStorage.values()) {
+			LogStore store = new LogStore(16, storage, false);
+			store.addAll(entries);
+			assertEquals(storage, store.getTextStorage());
+			assertEquals(entries, store);
+			if (storage == LogStore.TextStorage.HEAP) {
+				assertEquals(0, store.offHeapSize());
+			} else {
+				assertTrue(store.offHeapSize() > 2L * TextPages.PAGE_SIZE);
+			}
+
+			// Copies between stores of different storages read the pages of the other store directly
+			LogStore heap = new LogStore(16, LogStore.TextStorage.HEAP);
+			heap.addAll(store);
+			assertEquals(entries, heap);
+			store.clear();
+			store.addAll(heap);
+			assertEquals(entries, store);
+		}
+	}
+
+	@Test
+	void testCompressedPages() {
+		List<LogEntry> entries = new ArrayList<>();
+		for (int i = 0; i < 100_000; i++) {
+			String message = i % 1000 == 0 ? "Failed: Grüße 日本 " + i : "Processing item " + i + " of the current batch";
+			entries.add(new LogEntry(LocalDateTime.of(2023, 10, 27, 10, 0).plusNanos(i * 1_000_000L), "INFO", "worker-" + (i % 8),
+					"de.in.Worker", "", 0, message, "app.log", "2023-10-27 10:00:00.000 [worker-" + (i % 8) + "] INFO  de.in.Worker - "
+							+ message));
+		}
+		for (LogStore.TextStorage storage : LogStore.TextStorage.values()) {
+			LogStore store = new LogStore(16, storage, true);
+			store.addAll(entries);
+			assertTrue(store.isCompressed());
+			assertTrue(store.textSize() * 3 < store.uncompressedTextSize(),
+					store.textSize() + " of " + store.uncompressedTextSize() + " bytes");
+
+			// Reads jump between blocks, more than the hot pages can hold
+			Random random = new Random(7);
+			for (int n = 0; n < 2_000; n++) {
+				int i = random.nextInt(entries.size());
+				assertEquals(entries.get(i), store.get(i));
+			}
+			assertEquals(entries, store);
+
+			BitSet failed = store.findMessages(message -> message.startsWith("Failed"));
+			assertEquals(100, failed.cardinality());
+			assertTrue(failed.get(99_000));
+			assertEquals("Failed: Grüße 日本 99000", store.message(99_000));
+			// Only the rows appended since an earlier scan
+			BitSet appended = (BitSet) failed.clone();
+			appended.clear(0, 90_000);
+			assertEquals(appended, store.findMessages(90_000, store.size(), message -> message.startsWith("Failed")));
+
+			LogStore copy = new LogStore(16, LogStore.TextStorage.HEAP, false);
+			copy.addAll(store);
+			assertEquals(entries, copy);
+		}
+	}
+
+	@Test
+	void testSortedStoreOfManySourcesDecompressesEveryBlockOnce() {
+		int sources = 20;
+		int rowsPerSource = 10_000;
+		LogStore store = new LogStore(16, LogStore.TextStorage.HEAP, true);
+		LocalDateTime start = LocalDateTime.of(2023, 10, 27, 10, 0);
+		int expected = 0;
+		// One file after the other, like the members of an archive
+		for (int s = 0; s < sources; s++) {
+			for (int i = 0; i < rowsPerSource; i++) {
+				String message = "Request " + i + " of the current batch handled by pod " + s + (i % 100 == 0 ? " slowly" : "");
+				expected += i % 100 == 0 ? 1 : 0;
+				store.add(new LogEntry(start.plusNanos((i * (long) sources + s) * 1_000_000L), "INFO", "worker-" + (i % 8), "de.in.Pod", "",
+						0, message, "pod-" + s + ".log", "2023-10-27 10:00:00.000 [worker-" + (i % 8) + "] INFO  de.in.Pod - " + message));
+			}
+		}
+		store.sort(null);
+		for (int i = 0; i < sources; i++) {
+			assertEquals("pod-" + i + ".log", store.sourceFile(i));
+		}
+		int blocks = store.blockCount();
+		assertTrue(blocks >= sources, blocks + " blocks");
+
+		long before = store.decompressions();
+		BitSet slow = store.findMessages(message -> message.endsWith("slowly"));
+		assertEquals(expected, slow.cardinality());
+		assertTrue(store.decompressions() - before <= blocks, (store.decompressions() - before) + " decompressions of " + blocks + " blocks");
+
+		// Painting the rows in order keeps the open page of every file
+		before = store.decompressions();
+		for (int i = 0; i < store.size(); i++) {
+			assertEquals(slow.get(i), store.message(i).endsWith("slowly"));
+		}
+		assertTrue(store.decompressions() - before <= blocks, (store.decompressions() - before) + " decompressions of " + blocks + " blocks");
+
+		// A view lets its store scan the rows
+		before = store.decompressions();
+		assertEquals(slow, LogStoreView.of(store).findMessages(message -> message.endsWith("slowly")));
+		assertTrue(store.decompressions() - before <= blocks, (store.decompressions() - before) + " decompressions of " + blocks + " blocks");
+	}
+
+	@Test
+	void testValuesPastTheSymbolLimitStayInTheStore() {
+		SymbolTable shared = SymbolTable.getInstance();
+		int limit = shared.getLimit();
+		// The level is known, the thread names and IPs come after the shared table is full
+		int info = shared.id("INFO");
+		shared.setLimit(shared.size());
+		try {
+			List<LogEntry> entries = new ArrayList<>();
+			for (int i = 0; i < 100; i++) {
+				entries.add(new LogEntry(LocalDateTime.of(2023, 10, 27, 10, 0).plusSeconds(i), "INFO", "overflow-thread-" + (i % 40), "l",
+						"10.9." + (i % 50) + ".1", 0, "m" + i, "overflow.log", "raw " + i));
+			}
+			int sharedSize = shared.size();
+			LogStore store = new LogStore(entries);
+			assertEquals(entries, store);
+			assertEquals(sharedSize, shared.size());
+			assertTrue(store.threadId(0) >= SymbolTable.MAX_SYMBOLS);
+			assertEquals(store.threadId(0), store.threadId(40));
+			assertEquals(info, store.levelId(0));
+			assertEquals(1, store.sourceCount());
+
+			// Another store numbers its own values differently, copies and views translate them
+			LogStore other = new LogStore(entries.subList(30, 100));
+			assertEquals(entries.subList(30, 100), other);
+			LogStore copy = new LogStore(16);
+			copy.addAll(other);
+			copy.addAll(store);
+			assertEquals(entries.subList(30, 100), copy.subList(0, 70));
+			assertEquals(entries, copy.subList(70, 170));
+			assertEquals(1, copy.sourceCount());
+			LogStoreView view = LogStoreView.concat(List.of(other, store));
+			assertEquals(copy, view);
+			assertEquals(view.threadId(0), view.threadId(70 + 30));
+			assertEquals("overflow-thread-30", view.thread(0));
+			assertEquals(1, view.sourceCount());
+			assertTrue(store.symbolStats().distinctSymbols() >= 90);
+		} finally {
+			shared.setLimit(limit);
+		}
+	}
+
+	@Test
+	void testStackFramesAreShared() {
+		List<LogEntry> entries = new ArrayList<>();
+		for (int i = 0; i < 2_000; i++) {
+			StringBuilder trace = new StringBuilder("java.lang.IllegalStateException: Study " + i + " not found");
+			for (int frame = 0; frame < 40; frame++) {
+				trace.append("\n\tat com.pacs.dicom.StudyService.lookup").append(frame).append("(StudyService.java:").append(100 + frame)
+						.append(')');
+			}
+			trace.append("\nCaused by: Grüße 日本 ").append(i);
+			trace.append("\n    at com.pacs.Db.query(Db.java:7) ~[db.jar:1.0]\n\t... 12 more");
+			String message = trace.toString();
+			entries.add(new LogEntry(LocalDateTime.of(2023, 10, 27, 10, 0).plusSeconds(i), "ERROR", "main", "de.in.App", "", 0, message,
+					"app.log", "2023-10-27 10:00:00.000 [main] ERROR de.in.App - " + message));
+		}
+		entries.add(new LogEntry(null, "", "", "", "", 0, "at the end\nat noon\n", "app.log", "at the end\nat noon\n"));
+		entries.add(new LogEntry(null, "", "", "", "", 0, "\tat x.Y.z(Y.java:1)", "app.log", "\tat x.Y.z(Y.java:1)\n"));
+		entries.add(new LogEntry(null, "", "", "", "", 0, "Retrying\n\tat least one retry failed\n\tat x.Y.z(Y.java:1)", "app.log", ""));
+		assertFalse(TextPages.isFrame("\tat least one retry failed", 0, 26));
+		assertFalse(TextPages.isFrame("at least once\n\tat x.Y.z(Y.java:1)", 0, 13));
+		assertTrue(TextPages.isFrame("\tat x.Y.z(Y.java:1)", 0, 19));
+
+		LogStore store = new LogStore(16, LogStore.TextStorage.HEAP, false);
+		store.addAll(entries);
+		assertEquals(entries, store);
+		// Each frame line of about 50 chars takes two bytes
+		assertTrue(store.uncompressedTextSize() * 8 < rawSize(entries), store.uncompressedTextSize() + " bytes for " + rawSize(entries)
+				+ " chars");
+
+		LogStore copy = new LogStore(16, LogStore.TextStorage.DIRECT, true);
+		copy.addAll(store);
+		assertEquals(entries, copy);
+	}
+
+	@Test
+	void testLongPayloadWithoutFramesIsStoredInLinearTime() {
+		// An HL7 like payload of 200k lines, each starting like a frame but without a parenthesis
+		StringBuilder payload = new StringBuilder("Received message");
+		for (int i = 0; i < 200_000; i++) {
+			payload.append("\nat segment OBX|").append(i).append("|ST|value");
+		}
+		String message = payload.toString();
+		LogEntry entry = new LogEntry(LocalDateTime.of(2023, 10, 27, 10, 0), "INFO", "main", "de.in.App", "", 0, message, "app.log", message);
+
+		LogStore store = new LogStore(16, LogStore.TextStorage.HEAP, true);
+		assertTimeoutPreemptively(Duration.ofSeconds(10), () -> store.add(entry));
+		assertEquals(message, store.message(0));
+	}
+
+	private static long rawSize(List<LogEntry> entries) {
+		return entries.stream().mapToLong(entry -> entry.rawLine().length()).sum();
+	}
+
+	@Test
+	void testReadersSeeConsistentPrefixWhileAppending() throws Exception {
+		LogStore store = new LogStore(16, LogStore.TextStorage.DIRECT, true);
+		LocalDateTime base = LocalDateTime.of(2023, 10, 27, 10, 0);
+		int total = 200_000;
+		AtomicBoolean done = new AtomicBoolean();
+		ExecutorService readers = Executors.newFixedThreadPool(4);
+		List<Future<Integer>> results = new ArrayList<>();
+		for (int r = 0; r < 4; r++) {
+			results.add(readers.submit(() -> {
+				int scans = 0;
+				while (!done.get()) {
+					int count = store.size();
+					// A snapshot iterator never fails while rows are appended
+					int i = 0;
+					for (LogEntry entry : store) {
+						assertEquals("item " + i, entry.message());
+						i++;
+					}
+					assertTrue(i >= count);
+					if (count > 0) {
+						int row = count - 1;
+						assertEquals(LogEntry.toNanos(base.plusNanos(row * 1000L)), store.timestampNanos(row));
+						assertEquals("[w] item " + row, store.rawLine(row));
+					}
+					BitSet found = store.findMessages(message -> message.endsWith("7"));
+					assertTrue(found.stream().allMatch(row -> row % 10 == 7));
+					assertTrue(found.cardinality() >= (count + 2) / 10);
+					scans++;
+				}
+				return scans;
+			}));
+		}
+		for (int i = 0; i < total; i++) {
+			store.add(new LogEntry(base.plusNanos(i * 1000L), "INFO", "w", "l", "", 0, "item " + i, "app.log", "[w] item " + i));
+		}
+		done.set(true);
+		for (Future<Integer> result : results) {
+			assertTrue(result.get() > 0);
+		}
+		readers.shutdown();
+		assertEquals(total, store.size());
+	}
+
+	@Test
+	void testSortAndSearchMatchList() {
+		Random random = new Random(42);
+		List<LogEntry> entries = new ArrayList<>();
+		// Header entries without timestamp at the start, like the parsers produce them
+		entries.add(new LogEntry(null, "", "", "", "", 0, "header", "a.log", "header"));
+		for (int i = 0; i < 5000; i++) {
+			LocalDateTime ts = LocalDateTime.of(2023, 10, 27, 0, 0).plusNanos(random.nextInt(1000) * 1_000_000L);
+			entries.add(new LogEntry(ts, "INFO", "t" + (i % 7), "l", "", 0, "message " + i, i % 2 == 0 ? "a.log" : "b.log", "raw " + i));
+		}
+
+		LogStore store = new LogStore(entries);
+		Collections.sort(store);
+		// The header stays in front of the entry that followed it, the other entries are ordered like a sorted list
+		LogEntry header = entries.get(0);
+		List<LogEntry> timed = new ArrayList<>(entries.subList(1, entries.size()));
+		Collections.sort(timed);
+		int headerIndex = 0;
+		while (timed.get(headerIndex).compareTo(entries.get(1)) < 0) {
+			headerIndex++;
+		}
+		List<LogEntry> expectedOrder = new ArrayList<>(timed);
+		expectedOrder.add(headerIndex, header);
+		assertEquals(expectedOrder, store);
+		assertTrue(header.compareTo(entries.get(1)) < 0);
+
+		entries = timed;
+		store = new LogStore(timed);
+		for (int i = 0; i < 200; i++) {
+			LocalDateTime probe = LocalDateTime.of(2023, 10, 27, 0, 0).plusNanos(random.nextInt(1100) * 1_000_000L);
+			int expected = Collections.binarySearch(entries, new LogEntry(probe, null, null, null, null, 0, null, null, null));
+			assertEquals(expected, store.binarySearch(probe));
+		}
+
+		Comparator<LogEntry> byMessage = Comparator.comparing(LogEntry::message);
+		entries.sort(byMessage);
+		store.sort(byMessage);
+		assertEquals(entries, store);
+	}
+}
@@ -0,0 +1,114 @@
+package de.in.lsp.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that views read the rows of their stores without copying them and behave like the lists they stand for.
+ *
+ * @author TiJaWo68
+ */
+class LogStoreViewTest {
+
+	@Test
+	void testViewsReadTheirStores() {
+		List<LogEntry> first = entries("a.log", 0, 2, 3000);
+		List<LogEntry> second = entries("b.log", 1, 2, 2000);
+		LogStore a = new LogStore(first);
+		LogStore b = new LogStore(second);
+
+		LogStoreView view = LogStoreView.of(a);
+		assertEquals(first, view);
+		assertEquals(first.subList(10, 2500), LogStoreView.range(a, 10, 2500));
+		assertThrows(IndexOutOfBoundsException.class, () -> LogStoreView.range(a, 10, 3001));
+		assertThrows(IndexOutOfBoundsException.class, () -> view.get(3000));
+
+		List<LogEntry> both = new ArrayList<>(first);
+		both.addAll(second);
+		LogStoreView merged = LogStoreView.concat(List.of(a, b));
+		assertEquals(both, merged);
+		assertEquals(2, merged.sourceCount());
+		assertEquals(first.get(7).message(), merged.message(7));
+		assertEquals(second.get(7).rawLine(), merged.rawLine(3007));
+	}
+
+	@Test
+	void testSortReordersOnlyTheView() {
+		List<LogEntry> first = entries("a.log", 0, 2, 3000);
+		List<LogEntry> second = entries("b.log", 1, 2, 2000);
+		LogStore a = new LogStore(first);
+		LogStore b = new LogStore(second);
+
+		LogStoreView merged = LogStoreView.concat(List.of(a, b));
+		merged.sort(null);
+		List<LogEntry> expected = new ArrayList<>(first);
+		expected.addAll(second);
+		expected.sort(Comparator.comparing(LogEntry::timestamp));
+		assertEquals(expected, merged);
+		assertEquals(first, a);
+		assertEquals(second, b);
+
+		merged.sort(Comparator.comparing(LogEntry::message).reversed());
+		expected.sort(Comparator.comparing(LogEntry::message).reversed());
+		assertEquals(expected, merged);
+	}
+
+	@Test
+	void testViewsOfViewsReferenceTheStores() {
+		LogStore a = new LogStore(entries("a.log", 0, 1, 100));
+		LogStore b = new LogStore(entries("b.log", 0, 1, 100));
+		LogStoreView merged = LogStoreView.concat(List.of(a, b));
+		LogStoreView copy = LogStoreView.of(merged);
+		LogStoreView nested = LogStoreView.concat(List.of(copy, LogStoreView.range(a, 0, 50)));
+
+		assertEquals(merged, copy);
+		assertEquals(2, nested.getStores().size());
+		assertSame(a, nested.getStores().get(0));
+		assertEquals(250, nested.size());
+		assertEquals(a.get(49), nested.get(249));
+	}
+
+	@Test
+	void testViewsAreReadOnlyAndSmall() {
+		LogStore store = new LogStore(entries("a.log", 0, 1, 5000));
+		LogStoreView view = LogStoreView.of(store);
+		LogEntry entry = store.get(0);
+
+		assertThrows(UnsupportedOperationException.class, () -> view.add(entry));
+		assertThrows(UnsupportedOperationException.class, () -> view.set(0, entry));
+		assertThrows(UnsupportedOperationException.class, () -> view.addAll(List.of(entry)));
+		assertThrows(UnsupportedOperationException.class, () -> view.addAll(new LogStore(List.of(entry))));
+		assertThrows(UnsupportedOperationException.class, () -> view.addAll(LogStoreView.of(new LogStore(List.of(entry)))));
+		assertEquals(0, view.textSize());
+		assertTrue(view.estimatedSize() <= (5000L + ChunkedColumn.CHUNK_SIZE) * Long.BYTES);
+
+		// Rows appended to the store later are not part of the view
+		store.add(entry);
+		assertEquals(5000, view.size());
+
+		// Adding a view to a store copies its entries
+		LogStore copy = new LogStore();
+		copy.addAll(LogStoreView.range(store, 100, 200));
+		assertEquals(store.subList(100, 200), copy);
+	}
+
+	private static List<LogEntry> entries(String source, int offset, int step, int count) {
+		List<LogEntry> entries = new ArrayList<>();
+		LocalDateTime start = LocalDateTime.of(2024, 3, 1, 12, 0);
+		for (int i = 0; i < count; i++) {
+			String message = source + " message " + i;
+			entries.add(new LogEntry(start.plusNanos((offset + (long) i * step) * 1_000_000), i % 3 == 0 ? "WARN" : "INFO", "main",
+					"de.in.App", "", 0, message, source, "12:00 INFO " + message));
+		}
+		return entries;
+	}
+}
@@ -0,0 +1,53 @@
+package de.in.lsp.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that LZ4 blocks decompress to their input, for log text, random bytes, long runs and all the small sizes around the format's
+ * end-of-block limits.
+ *
+ * @author TiJaWo68
+ */
+class Lz4BlockTest {
+
+	@Test
+	void testRoundTrips() {
+		StringBuilder log = new StringBuilder();
+		for (int i = 0; i < 20_000; i++) {
+			log.append("2023-10-27 10:00:").append(i % 60).append(".123 [worker-").append(i % 8)
+					.append("] INFO  de.in.lsp.Worker - Processing item ").append(i).append('\n');
+		}
+		byte[] text = log.toString().getBytes(StandardCharsets.ISO_8859_1);
+		int compressed = assertRoundTrip(text);
+		assertTrue(compressed * 4 < text.length, "log text compresses to " + compressed + " of " + text.length + " bytes");
+
+		byte[] random = new byte[100_000];
+		new Random(42).nextBytes(random);
+		assertRoundTrip(random);
+
+		byte[] run = new byte[70_000];
+		Arrays.fill(run, (byte) 'x');
+		assertTrue(assertRoundTrip(run) < 400);
+
+		for (int length = 0; length < 40; length++) {
+			assertRoundTrip(Arrays.copyOf(text, length));
+			assertRoundTrip(Arrays.copyOf(run, length));
+		}
+	}
+
+	private static int assertRoundTrip(byte[] data) {
+		byte[] compressed = new byte[Lz4Block.maxCompressedLength(data.length)];
+		int length = Lz4Block.compress(data, data.length, compressed);
+		byte[] restored = new byte[data.length];
+		Lz4Block.decompress(compressed, length, restored);
+		assertArrayEquals(data, restored);
+		return length;
+	}
+}
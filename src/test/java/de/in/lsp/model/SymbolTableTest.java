@@ -0,0 +1,76 @@
+package de.in.lsp.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that concurrent parsers get one shared instance and one id per distinct symbol.
+ *
+ * @author TiJaWo68
+ */
+class SymbolTableTest {
+
+	@Test
+	void testInternReturnsSharedInstance() {
+		SymbolTable table = new SymbolTable();
+		String first = table.intern(new String("main"));
+		assertSame(first, table.intern(new String("main")));
+		assertEquals(table.id("main"), table.id(new String("main")));
+		assertEquals(SymbolTable.NULL_ID, table.id(null));
+		assertNull(table.intern(null));
+		assertEquals(table.id("main"), table.find("main"));
+		assertEquals(SymbolTable.NULL_ID, table.find("worker"));
+		assertEquals(1, table.size());
+	}
+
+	@Test
+	void testFullTableReturnsNewValuesAsTheyAre() {
+		SymbolTable table = new SymbolTable(2);
+		assertEquals(0, table.id("INFO"));
+		assertEquals(1, table.id("WARN"));
+		assertEquals(SymbolTable.NULL_ID, table.id("10.0.0.1"));
+		String ip = new String("10.0.0.2");
+		assertSame(ip, table.intern(ip));
+		assertSame(table.intern("INFO"), table.intern(new String("INFO")));
+		assertEquals(SymbolTable.NULL_ID, table.find("10.0.0.2"));
+		assertEquals(2, table.size());
+	}
+
+	@Test
+	void testConcurrentInterning() throws Exception {
+		SymbolTable table = new SymbolTable();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<int[]>> results = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				results.add(executor.submit(() -> {
+					int[] ids = new int[2000];
+					for (int i = 0; i < ids.length; i++) {
+						ids[i] = table.id("thread-" + i);
+					}
+					return ids;
+				}));
+			}
+			int[] expected = results.get(0).get();
+			for (Future<int[]> result : results) {
+				int[] ids = result.get();
+				for (int i = 0; i < ids.length; i++) {
+					assertEquals(expected[i], ids[i]);
+					assertEquals("thread-" + i, table.symbol(ids[i]));
+				}
+			}
+			assertEquals(2000, table.size());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
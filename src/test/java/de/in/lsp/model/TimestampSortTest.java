@@ -0,0 +1,128 @@
+package de.in.lsp.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Tests that the run merge orders rows exactly like a stable sort of their keys, for sorted, almost sorted and shuffled files. The
+ * comparison with sorting all rows is disabled by default, run it with {@code -Dlsp.benchmark=true}.
+ *
+ * @author TiJaWo68
+ */
+class TimestampSortTest {
+
+	private static final LocalDateTime START = LocalDateTime.of(2024, 5, 1, 8, 0);
+
+	@Test
+	void testMergeMatchesStableSort() {
+		Random random = new Random(7);
+		LogStore store = new LogStore();
+		// Rotated files that overlap in time, one of them written by threads slightly out of order, and an unsorted one
+		for (int file = 0; file < 6; file++) {
+			store.add(new LogEntry(null, "", "", "", "", 0, "header " + file, "app." + file + ".log", "header " + file));
+			for (int i = 0; i < 20_000; i++) {
+				long millis = switch (file) {
+				case 4 -> i * 3L + random.nextInt(40);
+				case 5 -> random.nextInt(60_000);
+				default -> file * 10_000L + i * 2L;
+				};
+				store.add(entry(millis, "app." + file + ".log", file + "/" + i));
+				if (i % 1000 == 999) {
+					store.add(new LogEntry(null, "", "", "", "", 0, "\tat continuation " + i, "app." + file + ".log", "continuation"));
+				}
+			}
+		}
+
+		int count = store.size();
+		long[] keys = TimestampSort.sortKeys(store, count);
+		Integer[] expected = new Integer[count];
+		Arrays.setAll(expected, i -> i);
+		Arrays.sort(expected, Comparator.comparingLong(i -> keys[i]));
+		assertArrayEquals(Arrays.stream(expected).mapToInt(Integer::intValue).toArray(), TimestampSort.order(store, count));
+	}
+
+	@Test
+	void testRowsWithoutTimestampKeepTheirNeighbors() {
+		List<LogEntry> entries = new ArrayList<>();
+		entries.add(new LogEntry(null, "", "", "", "", 0, "header b", "b.log", "header b"));
+		entries.add(entry(5, "b.log", "b1"));
+		entries.add(new LogEntry(null, "", "", "", "", 0, "trace b1", "b.log", "trace b1"));
+		entries.add(entry(7, "b.log", "b2"));
+		entries.add(new LogEntry(null, "", "", "", "", 0, "header a", "a.log", "header a"));
+		entries.add(entry(1, "a.log", "a1"));
+		entries.add(entry(6, "a.log", "a2"));
+		entries.add(new LogEntry(null, "", "", "", "", 0, "trace a2", "a.log", "trace a2"));
+
+		LogStore store = new LogStore(entries);
+		store.sort(null);
+		List<String> messages = new ArrayList<>();
+		for (LogEntry entry : store) {
+			messages.add(entry.message());
+		}
+		assertEquals(List.of("header a", "a1", "header b", "b1", "trace b1", "a2", "trace a2", "b2"), messages);
+	}
+
+	@Test
+	void testCompareToIsATotalOrder() {
+		LogEntry none = new LogEntry(null, "", "", "", "", 0, "header", "a.log", "header");
+		LogEntry early = entry(1, "a.log", "early");
+		LogEntry late = entry(2, "a.log", "late");
+		assertEquals(0, none.compareTo(new LogEntry(null, "", "", "", "", 0, "other", "b.log", "other")));
+		assertTrue(none.compareTo(early) < 0 && early.compareTo(none) > 0);
+		assertTrue(none.compareTo(late) < 0 && early.compareTo(late) < 0);
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "lsp.benchmark", matches = "true")
+	void compareRunMergeWithFullSort() {
+		int files = 30;
+		int perFile = 200_000;
+		Random random = new Random(3);
+		// Rotated files one after the other, files that overlap in time, files with slightly unordered lines and shuffled files
+		String[] layouts = { "rotated", "overlapping", "jittered", "shuffled" };
+		for (String layout : layouts) {
+			LogStore store = new LogStore();
+			for (int file = 0; file < files; file++) {
+				for (int i = 0; i < perFile; i++) {
+					long millis = switch (layout) {
+					case "rotated" -> (file * (long) perFile + i) * 7L;
+					case "overlapping" -> file * 1_000L + i * 7L;
+					case "jittered" -> (file * (long) perFile + i) * 7L + random.nextInt(50);
+					default -> random.nextInt(files * perFile * 7);
+					};
+					store.add(entry(millis, "app." + file + ".log", ""));
+				}
+			}
+			int count = store.size();
+			for (int round = 0; round < 3; round++) {
+				long start = System.nanoTime();
+				int[] rows = new int[count];
+				Arrays.setAll(rows, i -> i);
+				LogStore.mergeSort(rows, new int[count], 0, count, (a, b) -> Long.compare(store.timestampNanos(a), store.timestampNanos(b)));
+				long fullSort = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				int[] merged = TimestampSort.order(store, count);
+				long runMerge = System.nanoTime() - start;
+				assertArrayEquals(rows, merged);
+				System.out.printf("%s round %d: %d rows in %d files, full sort %d ms, run merge %d ms%n", layout, round, count, files,
+						fullSort / 1_000_000, runMerge / 1_000_000);
+			}
+		}
+	}
+
+	private static LogEntry entry(long millis, String source, String message) {
+		return new LogEntry(START.plusNanos(millis * 1_000_000), "INFO", "main", "de.in.App", "", 0, message, source, message);
+	}
+}
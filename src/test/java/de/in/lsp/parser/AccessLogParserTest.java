@@ -6,6 +6,10 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.List;
 
 import org.junit.jupiter.api.Test;
@@ -32,13 +36,29 @@ class AccessLogParserTest {
 
 		LogEntry first = entries.get(0);
 		assertEquals("127.0.0.6", first.ip());
-		// Date: 06/Jan/2026:11:02:42 +0000 Our LocalDateTime doesn't store Zone, but we should check if it parsed something reasonable
+		// Date: 06/Jan/2026:11:02:42 +0000, normalized to the local zone at parse time
 		assertNotNull(first.timestamp());
-		assertEquals(2026, first.timestamp().getYear());
-		assertEquals(1, first.timestamp().getMonthValue());
-		assertEquals(6, first.timestamp().getDayOfMonth());
-		assertEquals(11, first.timestamp().getHour());
+		assertEquals(local(OffsetDateTime.of(2026, 1, 6, 11, 2, 42, 0, ZoneOffset.UTC)), first.timestamp());
 
 		assertTrue(first.message().contains("GET /viewer/assets/conf/appConfig.yaml"));
 	}
+
+	@Test
+	void testOffsetsAreNormalized() throws Exception {
+		PatternBasedLogParser parser = new PatternBasedLogParser("%h - - [%d{dd/MMM/yyyy:HH:mm:ss Z}] %msg%n");
+
+		// The second request happened 30 minutes before the first one, although its wall-clock time is later
+		String logContent = "10.0.0.1 - - [06/Jan/2026:11:00:00 +0000] \"GET /a HTTP/1.1\" 200 1\n"
+				+ "10.0.0.2 - - [06/Jan/2026:11:30:00 +0100] \"GET /b HTTP/1.1\" 200 1";
+
+		List<LogEntry> entries = parser.parse(new ByteArrayInputStream(logContent.getBytes(StandardCharsets.UTF_8)), "access.log");
+
+		assertEquals(2, entries.size());
+		assertEquals(local(OffsetDateTime.of(2026, 1, 6, 10, 30, 0, 0, ZoneOffset.UTC)), entries.get(1).timestamp());
+		assertTrue(entries.get(1).compareTo(entries.get(0)) < 0);
+	}
+
+	private static LocalDateTime local(OffsetDateTime time) {
+		return time.atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+	}
 }
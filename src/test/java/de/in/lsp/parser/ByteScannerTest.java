@@ -0,0 +1,76 @@
+package de.in.lsp.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the word-wise scans of {@link ByteScanner} against plain byte loops, including ranges that do not start or end on a word
+ * boundary and bytes with the high bit set.
+ *
+ * @author TiJaWo68
+ */
+class ByteScannerTest {
+
+	private static final byte[] ALPHABET = { 'a', '[', ']', '-', ' ', '\t', '\n', '\r', (byte) 0xC3, (byte) 0xBC, 0x7F, (byte) 0x80, 0 };
+
+	@Test
+	void testScansMatchByteLoops() {
+		Random random = new Random(42);
+		for (int round = 0; round < 2000; round++) {
+			byte[] data = new byte[random.nextInt(64)];
+			for (int i = 0; i < data.length; i++) {
+				// Mostly letters, so matches are spread over different word positions
+				data[i] = random.nextInt(4) == 0 ? ALPHABET[random.nextInt(ALPHABET.length)] : (byte) 'x';
+			}
+			ByteBuffer buffer = ByteBuffer.wrap(data);
+			int from = data.length == 0 ? 0 : random.nextInt(data.length);
+			int to = from + random.nextInt(data.length - from + 1);
+
+			assertEquals(lineEndLoop(data, from, to), ByteScanner.indexOfLineEnd(buffer, from, to));
+			assertEquals(asciiLoop(data, from, to), ByteScanner.isAscii(buffer, from, to));
+			for (byte value : ALPHABET) {
+				assertEquals(indexOfLoop(data, from, to, value), ByteScanner.indexOf(buffer, from, to, value));
+			}
+		}
+	}
+
+	@Test
+	void testCharSequenceIndexOf() {
+		String text = "2023-10-27 10:00:00.000 [main] INFO Test - Message";
+		ByteSlice slice = new ByteSlice(ByteBuffer.wrap(("xx" + text).getBytes()), 2, text.length());
+		for (char c : new char[] { '[', ']', '-', ' ', 'M', 'ü' }) {
+			for (int from = 0; from <= text.length(); from += 3) {
+				assertEquals(text.indexOf(c, from), ByteScanner.indexOf(slice, c, from));
+				assertEquals(text.indexOf(c, from), ByteScanner.indexOf(new StringBuilder(text), c, from));
+			}
+		}
+	}
+
+	private int lineEndLoop(byte[] data, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (data[i] == '\n' || data[i] == '\r')
+				return i;
+		}
+		return to;
+	}
+
+	private int indexOfLoop(byte[] data, int from, int to, byte value) {
+		for (int i = from; i < to; i++) {
+			if (data[i] == value)
+				return i;
+		}
+		return -1;
+	}
+
+	private boolean asciiLoop(byte[] data, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (data[i] < 0)
+				return false;
+		}
+		return true;
+	}
+}
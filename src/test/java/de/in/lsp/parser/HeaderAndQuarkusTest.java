@@ -63,7 +63,7 @@ public class HeaderAndQuarkusTest {
 
 	@Test
 	public void testLogManagerDetection() throws Exception {
-		de.in.lsp.manager.LogManager manager = new de.in.lsp.manager.LogManager();
+		de.in.lsp.manager.LogManager manager = new de.in.lsp.manager.LogManager(new de.in.lsp.manager.FormatDetectionCache(null));
 
 		String logContent = "Banner Line 1\n" + "Banner Line 2\n" + "2026-01-06 11:02:35,715 INFO  [io.quarkus] (main) Started\n";
 
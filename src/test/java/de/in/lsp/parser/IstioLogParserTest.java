@@ -6,6 +6,8 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.List;
 
 import org.junit.jupiter.api.Test;
@@ -36,7 +38,10 @@ class IstioLogParserTest {
 
 		LogEntry first = entries.get(0);
 		assertNotNull(first.timestamp());
-		assertEquals(LocalDateTime.of(2025, 12, 25, 8, 59, 40, 206963000), first.timestamp());
+		// The trailing Z marks UTC, entries are shown in the local zone
+		LocalDateTime expected = LocalDateTime.of(2025, 12, 25, 8, 59, 40, 206963000).atOffset(ZoneOffset.UTC)
+				.atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+		assertEquals(expected, first.timestamp());
 		assertEquals("info", first.level());
 		assertEquals("FLAG: --concurrency=\"0\"", first.message());
 		assertEquals("act4telerad-0_istio-proxy.log", first.loggerName());
@@ -0,0 +1,90 @@
+package de.in.lsp.parser;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the compiled layout matcher accepts exactly the lines the generated regex accepts and yields the same group boundaries.
+ *
+ * @author TiJaWo68
+ */
+class LayoutMatcherTest {
+
+	private static final List<String> LAYOUTS = List.of("%d{yyyy-MM-dd HH:mm:ss,SSS} %level [%logger] (%t) %msg%n",
+			"%d{yyyy-MM-dd HH:mm:ss.SSS} [%t] %-5level %logger{36} - %msg%n", "%d{yyyy-MM-dd HH:mm:ss,SSS} [%t] (%logger) - %msg%n",
+			"%level %d{yyyy-MM-dd HH:mm:ss,SSS} [%t] (%logger) - %msg%n", "%d{yyyy-MM-dd HH:mm:ss} : %msg%n",
+			"%d{yyyy-MM-dd HH:mm:ss,SSS} %level - %msg%n", "[%d{MMdd/HHmmss.SSS}:%level:%logger] %msg%n",
+			"%d{dd-MMM-yyyy HH:mm:ss.SSS} %level [%t] %logger %msg%n", "%d{EEE, dd MMM yyyy HH:mm:ss z} %level %logger > %msg%n",
+			"%level %d{yyyy-MM-dd HH:mm:ss.SSS} [%t] %logger: %msg%n", "%d{HH:mm:ss.SSS} [%t] %level  %logger - %msg%n",
+			"%d{yyyy-MM-dd HH:mm:ss,SSS} %level %t [%logger] %msg%n", "%h - - [%d{dd/MMM/yyyy:HH:mm:ss Z}] %msg%n", "%t %level",
+			"[%t]");
+
+	private static final String[] FRAGMENTS = { "2023-10-27", "10:00:00,123", "10:00:00.123", "INFO", "ERROR", "main", "[", "]", "(", ")",
+			" - ", "-", " ", "  ", "\t", ":", ">", "de.in.lsp.Main", "Thread-1", "a b", "x", "", "27/Oct/2023:10:00:00 +0000", "1027/100000.123",
+			"Fri, 27 Oct 2023 10:00:00 GMT", "192.168.0.1", "message with [brackets] - and (parens)", "é" };
+
+	@Test
+	void testLayoutMatcherEqualsRegex() {
+		Random random = new Random(11);
+		for (String layout : LAYOUTS) {
+			PatternBasedLogParser parser = new PatternBasedLogParser(layout);
+			int matched = 0;
+			for (int i = 0; i < 20_000; i++) {
+				String line = (i % 2 == 0) ? sampleFromLayout(layout, random) : randomLine(random);
+				Matcher matcher = parser.regexPattern().matcher(line);
+				int[] bounds = parser.layout().newBounds();
+				boolean matches = matcher.matches();
+				assertEquals(matches, parser.layout().match(line, bounds), layout + ": '" + line + "'");
+				if (matches) {
+					matched++;
+					int[] expected = new int[bounds.length];
+					for (int g = 1; g <= matcher.groupCount(); g++) {
+						expected[2 * g] = matcher.start(g);
+						expected[2 * g + 1] = matcher.end(g);
+					}
+					assertArrayEquals(expected, bounds, layout + ": '" + line + "'");
+				}
+			}
+			assertTrue(matched > 1000, layout + " matched only " + matched + " lines");
+		}
+	}
+
+	/**
+	 * Builds a line along the layout, filling placeholders with random fragments (which often contain the delimiters themselves).
+	 */
+	private String sampleFromLayout(String layout, Random random) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < layout.length(); i++) {
+			char c = layout.charAt(i);
+			if (c == '%') {
+				int j = i + 1;
+				while (j < layout.length() && (Character.isLetterOrDigit(layout.charAt(j)) || layout.charAt(j) == '-'))
+					j++;
+				if (j < layout.length() && layout.charAt(j) == '{')
+					j = layout.indexOf('}', j) + 1;
+				int parts = 1 + random.nextInt(3);
+				for (int p = 0; p < parts; p++)
+					sb.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+				i = j - 1;
+			} else {
+				sb.append(random.nextInt(20) == 0 ? "  " : String.valueOf(c));
+			}
+		}
+		return sb.toString();
+	}
+
+	private String randomLine(Random random) {
+		StringBuilder sb = new StringBuilder();
+		int parts = random.nextInt(12);
+		for (int p = 0; p < parts; p++)
+			sb.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+		return sb.toString();
+	}
+}
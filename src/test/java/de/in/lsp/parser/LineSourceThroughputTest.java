@@ -0,0 +1,90 @@
+package de.in.lsp.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Rough throughput comparison of the reader based and the memory-mapped line path. Disabled by default, run with
+ * {@code -Dlsp.benchmark=true}.
+ *
+ * @author TiJaWo68
+ */
+@EnabledIfSystemProperty(named = "lsp.benchmark", matches = "true")
+class LineSourceThroughputTest {
+
+	private static final int ENTRIES = 1_000_000;
+	private static final int ROUNDS = 5;
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void compareReaderAndMappedPath() throws Exception {
+		File file = tempDir.resolve("throughput.log").toFile();
+		try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8)) {
+			for (int i = 0; i < ENTRIES; i++) {
+				writer.printf("2023-10-27 10:%02d:%02d.%03d [worker-%d] INFO  de.in.lsp.Worker - Processing item %d of the current batch%n",
+						(i / 60) % 60, i % 60, i % 1000, i % 8, i);
+				if (i % 10 == 0) {
+					writer.println("java.lang.IllegalStateException: item " + i);
+					writer.println("\tat de.in.lsp.Worker.process(Worker.java:17)");
+					writer.println("\tat de.in.lsp.Worker.run(Worker.java:42)");
+				}
+			}
+		}
+		double megabytes = file.length() / (1024.0 * 1024.0);
+		PatternBasedLogParser parser = new PatternBasedLogParser("%d{yyyy-MM-dd HH:mm:ss.SSS} [%t] %-5level %logger{36} - %msg%n");
+
+		for (int round = 0; round < ROUNDS; round++) {
+			long readerLines = 0;
+			long start = System.nanoTime();
+			try (LineSource lines = LineSource.of(new FileInputStream(file))) {
+				while (lines.readLine() != null)
+					readerLines++;
+			}
+			long readerScan = System.nanoTime() - start;
+
+			long mappedLines = 0;
+			start = System.nanoTime();
+			try (LineSource lines = MappedLineSource.open(file)) {
+				while (lines.readLine() != null)
+					mappedLines++;
+			}
+			long mappedScan = System.nanoTime() - start;
+			assertEquals(readerLines, mappedLines);
+
+			// Only the entry counts are kept, so the second parse does not run with the first result still on the heap
+			start = System.nanoTime();
+			int viaReader;
+			try (InputStream is = new FileInputStream(file)) {
+				viaReader = parser.parse(is, file.getName()).size();
+			}
+			long readerParse = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			int viaMapped;
+			try (LineSource lines = MappedLineSource.open(file)) {
+				viaMapped = parser.parse(lines, file.getName()).size();
+			}
+			long mappedParse = System.nanoTime() - start;
+			assertEquals(viaReader, viaMapped);
+
+			System.out.printf("round %d: line scan reader %.0f MB/s, mapped %.0f MB/s | parse reader %.0f MB/s, mapped %.0f MB/s%n", round,
+					rate(megabytes, readerScan), rate(megabytes, mappedScan), rate(megabytes, readerParse), rate(megabytes, mappedParse));
+		}
+	}
+
+	private double rate(double megabytes, long nanos) {
+		return megabytes / (nanos / 1e9);
+	}
+}
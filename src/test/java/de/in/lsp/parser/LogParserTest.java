@@ -4,8 +4,10 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.jupiter.api.Test;
@@ -64,4 +66,40 @@ class LogParserTest {
 		assertTrue(error.message().contains("Database connection failed"));
 		assertTrue(error.message().contains("java.sql.SQLException: Access denied"));
 	}
+
+	@Test
+	void testStreamingParseEmitsCompletedEntries() throws Exception {
+		PatternBasedLogParser parser = new PatternBasedLogParser("%d{yyyy-MM-dd HH:mm:ss.SSS} [%t] %-5level %logger{36} - %msg%n");
+
+		String logContent = "Header line\n" + "2023-10-27 10:00:00.123 [main] INFO  de.in.lsp.Main - App started\n"
+				+ "2023-10-27 10:00:01.456 [main] ERROR de.in.lsp.Main - Failed\n" + "\tat de.in.lsp.Main.run(Main.java:7)\n"
+				+ "2023-10-27 10:00:02.000 [main] INFO  de.in.lsp.Main - Done";
+
+		List<String> linesReadAtEmit = new ArrayList<>();
+		List<LogEntry> streamed = new ArrayList<>();
+		int[] linesRead = { 0 };
+		LineSource source = LineSource.of(new ByteArrayInputStream(logContent.getBytes(StandardCharsets.UTF_8)));
+		LineSource counting = new LineSource() {
+			@Override
+			public CharSequence readLine() throws IOException {
+				CharSequence line = source.readLine();
+				if (line != null)
+					linesRead[0]++;
+				return line;
+			}
+
+			@Override
+			public void close() throws IOException {
+				source.close();
+			}
+		};
+		parser.parse(counting, "app.log", entry -> {
+			streamed.add(entry);
+			linesReadAtEmit.add(entry.message() + "@" + linesRead[0]);
+		});
+
+		assertEquals(parser.parse(new ByteArrayInputStream(logContent.getBytes(StandardCharsets.UTF_8)), "app.log"), streamed);
+		// Entries are handed on as soon as the next entry starts, the stack trace line stays with its entry
+		assertEquals(List.of("Header line@2", "App started@3", "Failed\n\tat de.in.lsp.Main.run(Main.java:7)@5", "Done@5"), linesReadAtEmit);
+	}
 }
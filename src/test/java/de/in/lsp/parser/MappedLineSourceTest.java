@@ -0,0 +1,83 @@
+package de.in.lsp.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests line splitting of the memory-mapped line source, including lines crossing mapping windows.
+ *
+ * @author TiJaWo68
+ */
+class MappedLineSourceTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void testLineTerminators() throws Exception {
+		String text = "first\nsecond\r\nthird\rfourth\n\nlast";
+		List<String> lines = readAll(new MappedLineSource(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8))));
+		assertEquals(List.of("first", "second", "third", "fourth", "", "last"), lines);
+	}
+
+	@Test
+	void testNonAsciiLinesAreDecodedAsUtf8() throws Exception {
+		String text = "Grüße aus München\nplain\n";
+		List<String> lines = readAll(new MappedLineSource(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8))));
+		assertEquals(List.of("Grüße aus München", "plain"), lines);
+	}
+
+	@Test
+	void testLinesCrossingWindowsMatchReaderSource() throws Exception {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			sb.append("2023-10-27 10:00:00.000 line ").append(i).append(i % 3 == 0 ? "\r\n" : "\n");
+		}
+		File file = tempDir.resolve("windows.log").toFile();
+		Files.writeString(file.toPath(), sb.toString(), StandardCharsets.UTF_8);
+
+		List<String> expected;
+		try (LineSource reader = LineSource.of(Files.newInputStream(file.toPath()))) {
+			expected = readAll(reader);
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			// A 64 byte window forces a remap every two lines, with CRLF pairs split across windows
+			List<String> mapped = readAll(new MappedLineSource(channel, false, 0, channel.size(), 64));
+			assertEquals(expected, mapped);
+		}
+	}
+
+	@Test
+	void testByteRangeOfSharedChannel() throws Exception {
+		File file = tempDir.resolve("range.log").toFile();
+		Files.writeString(file.toPath(), "aaa\nbbb\nccc\n", StandardCharsets.UTF_8);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+				LineSource source = new MappedLineSource(channel, 4, 8)) {
+			assertEquals("bbb", source.readLine().toString());
+			assertNull(source.readLine());
+		}
+	}
+
+	private List<String> readAll(LineSource source) throws IOException {
+		List<String> lines = new ArrayList<>();
+		CharSequence line;
+		while ((line = source.readLine()) != null) {
+			lines.add(line.toString());
+		}
+		return lines;
+	}
+}
@@ -0,0 +1,79 @@
+package de.in.lsp.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import de.in.lsp.model.LogEntry;
+
+/**
+ * Tests that the registry parsers are shared and give the same results when many threads use them at once.
+ *
+ * @author TiJaWo68
+ */
+class ParserRegistryTest {
+
+	@Test
+	void testRegistryIsSharedAndUnmodifiable() {
+		ParserRegistry registry = ParserRegistry.getInstance();
+		assertSame(registry, ParserRegistry.getInstance());
+		assertThrows(UnsupportedOperationException.class, () -> registry.getParsers().add(new FallbackLogParser()));
+	}
+
+	@Test
+	void testConcurrentParsesMatchSequentialParse() throws Exception {
+		List<LogParser> parsers = ParserRegistry.getInstance().getParsers();
+		List<String> logs = List.of(log("2023-10-27 10:00:%02d.%03d [main] INFO de.in.Server - Message %d"),
+				log("2026-01-06 11:02:%02d,%03d INFO  [io.quarkus] (main) Message %d"),
+				log("2025-03-01 12:00:%02d,%03d LOG: Message %d"));
+
+		List<List<LogEntry>> expected = new ArrayList<>();
+		for (LogParser parser : parsers) {
+			for (String log : logs) {
+				expected.add(parse(parser, log));
+			}
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			for (int round = 0; round < 4; round++) {
+				List<Future<List<LogEntry>>> futures = new ArrayList<>();
+				for (LogParser parser : parsers) {
+					for (String log : logs) {
+						futures.add(pool.submit(() -> parse(parser, log)));
+					}
+				}
+				for (int i = 0; i < futures.size(); i++) {
+					assertEquals(expected.get(i), futures.get(i).get());
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static List<LogEntry> parse(LogParser parser, String log) throws Exception {
+		return parser.parse(new ByteArrayInputStream(log.getBytes(StandardCharsets.UTF_8)), "test.log");
+	}
+
+	private static String log(String format) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			sb.append(String.format(format, i % 60, i % 1000, i)).append('\n');
+			if (i % 10 == 0) {
+				sb.append("\tat de.in.Worker.run(Worker.java:42)\n");
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,55 @@
+package de.in.lsp.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.in.lsp.model.LogEntry;
+
+/**
+ * Tests that the pending entry builder produces the same entries as repeated {@link LogEntry#appendMessage(String)} calls.
+ *
+ * @author TiJaWo68
+ */
+class PendingEntryTest {
+
+	@Test
+	void testContinuationLinesMatchAppendMessage() {
+		LogEntry first = new LogEntry(LocalDateTime.of(2023, 10, 27, 10, 0), "ERROR", "main", "de.in.Worker", "", 0, "Failed", "app.log",
+				"2023-10-27 10:00:00.000 [main] ERROR de.in.Worker - Failed");
+		LogEntry expected = first;
+		PendingEntry pending = new PendingEntry("app.log");
+		pending.start(first, e -> {
+		});
+		for (int i = 0; i < 400; i++) {
+			String frame = "\tat de.in.Worker.step" + i + "(Worker.java:" + i + ")";
+			expected = expected.appendMessage("\n" + frame);
+			pending.append(frame);
+		}
+
+		List<LogEntry> emitted = new ArrayList<>();
+		pending.emit(emitted::add);
+		assertEquals(List.of(expected), emitted);
+		assertFalse(pending.isPresent());
+	}
+
+	@Test
+	void testHeaderLinesBecomeOneEntry() {
+		PendingEntry pending = new PendingEntry("app.log");
+		pending.append("Starting server");
+		pending.append("Version 1.2");
+
+		List<LogEntry> emitted = new ArrayList<>();
+		LogEntry next = new LogEntry(LocalDateTime.of(2023, 10, 27, 10, 0), "INFO", "", "", "", 0, "Ready", "app.log", "Ready");
+		pending.start(next, emitted::add);
+		pending.emit(emitted::add);
+
+		String header = "Starting server\nVersion 1.2";
+		assertEquals(List.of(new LogEntry(null, "", "", "", "", 0, header, "app.log", header), next), emitted);
+	}
+}
@@ -0,0 +1,93 @@
+package de.in.lsp.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.in.lsp.model.LogEntry;
+
+/**
+ * Measures parsing of exception heavy logs (every fifth entry carries a 400 frame stack trace) and compares the pending entry builder
+ * with the former per-line {@link LogEntry#appendMessage(String)} assembly. Disabled by default, run with {@code -Dlsp.benchmark=true}.
+ *
+ * @author TiJaWo68
+ */
+@EnabledIfSystemProperty(named = "lsp.benchmark", matches = "true")
+class StackTraceAssemblyThroughputTest {
+
+	private static final int ENTRIES = 20_000;
+	private static final int FRAMES = 400;
+	private static final int ROUNDS = 5;
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void compareAssemblyStrategies() throws Exception {
+		File file = tempDir.resolve("exceptions.log").toFile();
+		try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8)) {
+			for (int i = 0; i < ENTRIES; i++) {
+				boolean error = i % 5 == 0;
+				writer.printf("2023-10-27 10:%02d:%02d,%03d %s [de.in.Channel] (worker-%d) Processing message %d%n", (i / 60) % 60, i % 60, i % 1000,
+						error ? "ERROR" : "INFO", i % 8, i);
+				if (error) {
+					writer.println("java.lang.IllegalStateException: message " + i);
+					for (int f = 0; f < FRAMES; f++) {
+						writer.println("\tat de.in.Channel.handler" + f + "(Channel.java:" + f + ")");
+					}
+				}
+			}
+		}
+		double megabytes = file.length() / (1024.0 * 1024.0);
+		PatternBasedLogParser parser = new PatternBasedLogParser("%d{yyyy-MM-dd HH:mm:ss,SSS} %level [%logger] (%t) %msg%n");
+
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			List<LogEntry> pending;
+			try (LineSource lines = MappedLineSource.open(file)) {
+				pending = parser.parse(lines, file.getName());
+			}
+			long pendingTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			List<LogEntry> appended;
+			try (LineSource lines = MappedLineSource.open(file)) {
+				appended = parseWithAppendMessage(parser, lines, file.getName());
+			}
+			long appendTime = System.nanoTime() - start;
+			assertEquals(appended, pending);
+
+			System.out.printf("round %d: pending builder %.0f MB/s, appendMessage %.0f MB/s%n", round, megabytes / (pendingTime / 1e9),
+					megabytes / (appendTime / 1e9));
+		}
+	}
+
+	/**
+	 * The assembly strategy used before the pending entry builder: a new record and two full string copies per continuation line.
+	 */
+	private List<LogEntry> parseWithAppendMessage(PatternBasedLogParser parser, LineSource lines, String sourceName) throws Exception {
+		List<LogEntry> entries = new ArrayList<>();
+		LogEntry lastEntry = null;
+		CharSequence line;
+		while ((line = lines.readLine()) != null) {
+			LogEntry newEntry = parser.canParse(line) ? parser.parseLine(line, sourceName, null) : null;
+			if (newEntry != null) {
+				entries.add(newEntry);
+				lastEntry = newEntry;
+			} else if (lastEntry != null) {
+				lastEntry = lastEntry.appendMessage("\n" + line);
+				entries.set(entries.size() - 1, lastEntry);
+			}
+		}
+		return entries;
+	}
+}
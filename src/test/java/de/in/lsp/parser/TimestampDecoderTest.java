@@ -0,0 +1,76 @@
+package de.in.lsp.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import de.in.lsp.model.LogEntry;
+
+/**
+ * Compares the compiled timestamp decoder with DateTimeFormatter for the numeric layouts used by the built-in parsers.
+ *
+ * @author TiJaWo68
+ */
+class TimestampDecoderTest {
+
+	private static final String[] PATTERNS = { "yyyy-MM-dd HH:mm:ss,SSS", "yyyy-MM-dd HH:mm:ss.SSS", "yyyy-MM-dd HH:mm:ss", "HH:mm:ss.SSS",
+			"HH:mm:ss,SSS", "yyyy-MM-dd'T'HH:mm:ss.SSSSSS'Z'", "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'" };
+
+	@Test
+	void testDecoderMatchesFormatter() {
+		Random random = new Random(7);
+		for (String pattern : PATTERNS) {
+			TimestampDecoder decoder = TimestampDecoder.compile(pattern);
+			assertNotNull(decoder, pattern);
+			DateTimeFormatter formatter = DateTimeFormatter.ofPattern(pattern, Locale.US);
+			TimestampDecoder.Cache cache = decoder.newCache();
+			for (int i = 0; i < 5000; i++) {
+				LocalDateTime value = LocalDateTime.of(1990 + random.nextInt(60), 1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(24),
+						random.nextInt(60), random.nextInt(60), random.nextInt(1_000_000_000));
+				String text = value.format(formatter);
+				long expected = Timestamps.parse(text, formatter, Timestamps.isUtc(pattern));
+				assertEquals(expected, decoder.decode(text, 0, text.length(), cache), pattern + ": " + text);
+				// Same second again, now served from the cache
+				assertEquals(expected, decoder.decode(text, 0, text.length(), cache), pattern + ": " + text);
+			}
+		}
+	}
+
+	@Test
+	void testInvalidTextIsLeftToFormatter() {
+		TimestampDecoder decoder = TimestampDecoder.compile("yyyy-MM-dd HH:mm:ss,SSS");
+		TimestampDecoder.Cache cache = decoder.newCache();
+		assertEquals(LogEntry.NO_TIMESTAMP, decoder.decode("2023-13-01 10:00:00,000", 0, 23, cache));
+		assertEquals(LogEntry.NO_TIMESTAMP, decoder.decode("2023-02-30 10:00:00,000", 0, 23, cache));
+		assertEquals(LogEntry.NO_TIMESTAMP, decoder.decode("2023-10-27 24:00:00,000", 0, 23, cache));
+		assertEquals(LogEntry.NO_TIMESTAMP, decoder.decode("2023-10-27 10:00:00.000", 0, 23, cache));
+		assertEquals(LogEntry.NO_TIMESTAMP, decoder.decode("2023-10-27 10:00:00,00", 0, 22, cache));
+		assertEquals(LogEntry.NO_TIMESTAMP, decoder.decode("2023-10-27 10:00:0x,000", 0, 23, cache));
+		assertEquals(LogEntry.NO_TIMESTAMP, decoder.decode("1601-01-01 00:00:00,000", 0, 23, cache));
+		assertEquals(LogEntry.toNanos(LocalDateTime.of(2024, 2, 29, 10, 0, 0, 5_000_000)),
+				decoder.decode("x2024-02-29 10:00:00,005", 1, 24, cache));
+	}
+
+	@Test
+	void testTimeOnlyLayoutUsesToday() {
+		TimestampDecoder decoder = TimestampDecoder.compile("HH:mm:ss.SSS");
+		assertEquals(LogEntry.toNanos(LocalDate.now().atTime(9, 0, 40, 743_000_000)), decoder.decode("09:00:40.743", 0, 12, null));
+	}
+
+	@Test
+	void testTextualPatternsAreNotCompiled() {
+		assertNull(TimestampDecoder.compile("EEE, dd MMM yyyy HH:mm:ss z"));
+		assertNull(TimestampDecoder.compile("dd/MMM/yyyy:HH:mm:ss Z"));
+		assertNull(TimestampDecoder.compile("dd-MMM-yyyy HH:mm:ss.SSS"));
+		assertNull(TimestampDecoder.compile("MMdd/HHmmss.SSS"));
+		assertNull(TimestampDecoder.compile("yyyy-MM-dd[ HH:mm:ss]"));
+	}
+}
@@ -0,0 +1,206 @@
+package de.in.lsp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.in.lsp.dto.LogGroup;
+import de.in.lsp.manager.FormatDetectionCache;
+import de.in.lsp.manager.LogManager;
+import de.in.lsp.model.LogEntry;
+import de.in.lsp.model.LogStore;
+import de.in.lsp.model.LogStoreView;
+
+/**
+ * Tests that loading a directory on several threads gives the same groups as loading it file by file. The wall-clock comparison on a
+ * directory of many rotated files is disabled by default, run it with {@code -Dlsp.benchmark=true}.
+ *
+ * @author TiJaWo68
+ */
+class LogFileServiceTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void testParallelLoadingMatchesSequential() throws Exception {
+		for (int i = 0; i < 12; i++) {
+			writeLog(tempDir.resolve("server." + i + ".log").toFile(), i, 500);
+		}
+		for (int i = 0; i < 5; i++) {
+			writeLog(tempDir.resolve("worker-2024-01-0" + (i + 1) + ".log").toFile(), i, 300);
+		}
+		writeLog(tempDir.resolve("audit.txt").toFile(), 0, 100);
+
+		Map<String, LogGroup> sequential = load(1);
+		Map<String, LogGroup> parallel = load(4);
+
+		assertEquals(Map.of("server", 12, "worker", 5, "audit", 1), fileCounts(sequential));
+		assertEquals(fileCounts(sequential), fileCounts(parallel));
+		for (String app : sequential.keySet()) {
+			assertEquals(sequential.get(app).getEntries().size(), parallel.get(app).getEntries().size());
+			assertEquals(timestamps(sequential.get(app)), timestamps(parallel.get(app)));
+			assertEquals(sequential.get(app).getSourceFiles(), parallel.get(app).getSourceFiles());
+		}
+		assertEquals(12 * 500, sequential.get("server").getEntries().size());
+	}
+
+	@Test
+	void testRowsArePublishedWhileLoading() throws Exception {
+		for (int i = 0; i < 20; i++) {
+			writeLog(tempDir.resolve("server." + i + ".log").toFile(), i, 5000);
+		}
+		LogFileService service = new LogFileService(new LogManager(new FormatDetectionCache(null)));
+		service.setLoadThreads(2);
+		service.setPublishInterval(1);
+		List<LogStoreView> batches = new ArrayList<>();
+		List<List<LogEntry>> published = new ArrayList<>();
+		Map<String, LogGroup> groups = new TreeMap<>();
+		service.loadAndMergeByPath(new String[] { tempDir.toString() }, new LogFileService.LoadListener() {
+			@Override
+			public void rowsLoaded(String appName, LogStoreView rows) {
+				assertEquals("server", appName);
+				batches.add(rows);
+				published.add(new ArrayList<>(rows));
+			}
+
+			@Override
+			public void groupLoaded(String appName, LogGroup group) {
+				groups.put(appName, group);
+			}
+		});
+
+		assertTrue(!batches.isEmpty(), "rows published while loading");
+		int publishedRows = batches.stream().mapToInt(List::size).sum();
+		assertTrue(publishedRows <= 20 * 5000);
+		// Sorting the complete group does not move the rows that were handed out before
+		for (int i = 0; i < batches.size(); i++) {
+			assertEquals(published.get(i), batches.get(i));
+		}
+		LogStore entries = groups.get("server").getEntries();
+		assertEquals(20 * 5000, entries.size());
+		for (int i = 1; i < entries.size(); i++) {
+			assertTrue(entries.timestampNanos(i - 1) <= entries.timestampNanos(i));
+		}
+	}
+
+	@Test
+	void testTaskReportsProgressAndCancels() throws Exception {
+		for (int i = 0; i < 20; i++) {
+			writeLog(tempDir.resolve("server." + i + ".log").toFile(), i, 5000);
+		}
+		LogFileService service = new LogFileService(new LogManager(new FormatDetectionCache(null)));
+		service.setLoadThreads(2);
+		service.setPublishInterval(1);
+
+		LoadTask task = new LoadTask();
+		Map<String, LogGroup> groups = new TreeMap<>();
+		AtomicBoolean loadCancelled = new AtomicBoolean();
+		service.loadAndMergeByPath(new String[] { tempDir.toString() }, listener(groups, null, loadCancelled), task);
+		assertTrue(task.isDone());
+		assertEquals(20, task.getFiles().size());
+		assertEquals(20, task.getDoneFileCount());
+		assertEquals(task.getTotalBytes(), task.getBytesRead());
+		assertEquals(20 * 5000, task.getEntries());
+		assertEquals(0, task.etaMillis());
+		assertTrue(task.megabytesPerSecond() > 0);
+		assertTrue(!loadCancelled.get());
+
+		// Cancelled with the first published rows, the remaining files are not loaded and no group is completed
+		LoadTask cancelled = new LoadTask();
+		groups.clear();
+		service.loadAndMergeByPath(new String[] { tempDir.toString() }, listener(groups, cancelled::cancel, loadCancelled), cancelled);
+		assertTrue(cancelled.isCancelled() && cancelled.isDone());
+		assertTrue(loadCancelled.get());
+		assertTrue(groups.isEmpty());
+		assertTrue(cancelled.getDoneFileCount() < 20);
+		assertTrue(cancelled.getBytesRead() < cancelled.getTotalBytes());
+	}
+
+	/**
+	 * Collects the groups, runs the action whenever rows are published and records a cancelled load.
+	 */
+	private static LogFileService.LoadListener listener(Map<String, LogGroup> groups, Runnable onRows, AtomicBoolean cancelled) {
+		return new LogFileService.LoadListener() {
+			@Override
+			public void rowsLoaded(String appName, LogStoreView rows) {
+				if (onRows != null) {
+					onRows.run();
+				}
+			}
+
+			@Override
+			public void loadCancelled() {
+				cancelled.set(true);
+			}
+
+			@Override
+			public void groupLoaded(String appName, LogGroup group) {
+				groups.put(appName, group);
+			}
+		};
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "lsp.benchmark", matches = "true")
+	void compareSequentialAndParallelLoading() throws Exception {
+		for (int i = 0; i < 200; i++) {
+			writeLog(tempDir.resolve("app-" + (char) ('a' + i % 4) + "." + i + ".log").toFile(), i, 20_000);
+		}
+		int cores = Runtime.getRuntime().availableProcessors();
+		for (int round = 0; round < 3; round++) {
+			for (int threads : new int[] { 1, 2, Math.max(4, cores) }) {
+				long start = System.nanoTime();
+				Map<String, LogGroup> groups = load(threads);
+				long millis = (System.nanoTime() - start) / 1_000_000;
+				int entries = groups.values().stream().mapToInt(g -> g.getEntries().size()).sum();
+				System.out.printf("round %d: %d files, %d entries with %d threads in %d ms%n", round, 200, entries, threads, millis);
+				assertEquals(200 * 20_000, entries);
+			}
+		}
+	}
+
+	private Map<String, LogGroup> load(int threads) {
+		LogFileService service = new LogFileService(new LogManager(new FormatDetectionCache(null)));
+		service.setLoadThreads(threads);
+		Map<String, LogGroup> groups = new TreeMap<>();
+		service.loadAndMergeByPath(new String[] { tempDir.toString() }, groups::put);
+		return groups;
+	}
+
+	private static Map<String, Integer> fileCounts(Map<String, LogGroup> groups) {
+		Map<String, Integer> counts = new TreeMap<>();
+		groups.forEach((app, group) -> counts.put(app, group.getFileCount()));
+		return counts;
+	}
+
+	private static ArrayList<Object> timestamps(LogGroup group) {
+		ArrayList<Object> timestamps = new ArrayList<>();
+		for (LogEntry entry : group.getEntries()) {
+			timestamps.add(entry.timestamp());
+		}
+		return timestamps;
+	}
+
+	private static void writeLog(File file, int index, int entries) throws Exception {
+		try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8)) {
+			for (int i = 0; i < entries; i++) {
+				writer.printf("2024-01-%02d 10:%02d:%02d.%03d [worker-%d] INFO  de.in.lsp.Worker - Processing item %d of file %d%n",
+						index % 28 + 1, (i / 60) % 60, i % 60, i % 1000, i % 8, i, index);
+			}
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package de.in.lsp.ui;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
@@ -14,6 +15,8 @@ import javax.swing.table.TableColumnModel;
 import org.junit.jupiter.api.Test;
 
 import de.in.lsp.model.LogEntry;
+import de.in.lsp.model.LogStore;
+import de.in.lsp.model.LogStoreView;
 
 /**
  * Tests for ensuring the Source column is only visible when multiple unique sources exist.
@@ -69,6 +72,30 @@ public class LogViewSourceColumnTest {
 		});
 	}
 
+	@Test
+	public void testSourceColumnShownOnceLoadedRowsAddSources() throws Exception {
+		SwingUtilities.invokeAndWait(() -> {
+			// A view opened with the first rows of a file while a second file is still loading
+			LocalDateTime now = LocalDateTime.now();
+			LogStore first = new LogStore(List.of(new LogEntry(now, "INFO", "main", "Logger", "127.0.0.1", "Msg1", "file1.log", null),
+					new LogEntry(now.plusSeconds(2), "INFO", "main", "Logger", "127.0.0.1", "Msg3", "file1.log", null)));
+			LogStore second = new LogStore(List.of(new LogEntry(now.plusSeconds(1), "INFO", "main", "Logger", "127.0.0.1", "Msg2",
+					"file2.log", null)));
+			LogView logView = createLogView(LogStoreView.range(first, 0, 1));
+			assertNull(getColumnByModelIndex(logView.getTable().getColumnModel(), 6));
+
+			logView.appendRows(LogStoreView.range(first, 1, 2));
+			logView.appendRows(LogStoreView.of(second));
+			assertEquals(3, logView.getTable().getRowCount());
+
+			LogStoreView sorted = LogStoreView.concat(List.of(first, second));
+			sorted.sort(null);
+			logView.replaceRows(sorted);
+			assertEquals("Msg2", logView.getEntries().message(1));
+			assertNotNull(getColumnByModelIndex(logView.getTable().getColumnModel(), 6), "Source column should be visible once loaded");
+		});
+	}
+
 	private LogView createLogView(List<LogEntry> entries) {
 		return new LogView(entries, "Test View", null, new LogViewListener() {
 			public void onFocusGained(LogView view) {
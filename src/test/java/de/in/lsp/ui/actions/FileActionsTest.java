@@ -0,0 +1,72 @@
+package de.in.lsp.ui.actions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+
+import javax.swing.JDesktopPane;
+import javax.swing.SwingUtilities;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import de.in.lsp.dto.LogGroup;
+import de.in.lsp.model.LogEntry;
+import de.in.lsp.model.LogStoreView;
+import de.in.lsp.service.LogFileService;
+import de.in.lsp.ui.LogView;
+import de.in.lsp.ui.LogViewListener;
+import de.in.lsp.ui.ViewManager;
+
+/**
+ * Tests that the views opened while files are loading follow the load, also when the user closes one of them.
+ *
+ * @author TiJaWo68
+ */
+class FileActionsTest {
+
+	@Test
+	void testClosedLoadingViewIsNotReopenedWithLaterRows() throws Exception {
+		ViewManager viewManager = new ViewManager(new JDesktopPane(), v -> {}, () -> {});
+		LogFileService service = mock(LogFileService.class);
+		FileActions actions = new FileActions(viewManager, service);
+		actions.backgroundLoadFiles(List.of(new File("app.log")), status -> {}, mock(LogViewListener.class), new HashMap<>());
+		ArgumentCaptor<LogFileService.LoadListener> captor = ArgumentCaptor.forClass(LogFileService.LoadListener.class);
+		verify(service).backgroundLoadFiles(any(), any(), captor.capture());
+		LogFileService.LoadListener listener = captor.getValue();
+
+		LogGroup group = new LogGroup();
+		group.addSourceFile("app.log");
+		for (int i = 0; i < 30; i++) {
+			group.addEntry(new LogEntry(LocalDateTime.of(2024, 1, 1, 10, 0).plusSeconds(i), "INFO", "main", "l", "", 0, "m" + i, "app.log",
+					"raw " + i));
+		}
+
+		listener.rowsLoaded("app", LogStoreView.range(group.getEntries(), 0, 10));
+		SwingUtilities.invokeAndWait(() -> {});
+		assertEquals(1, viewManager.getLogViews().size());
+		LogView loading = viewManager.getLogViews().get(0);
+		assertEquals(10, loading.getEntries().size());
+
+		SwingUtilities.invokeAndWait(() -> viewManager.removeView(loading));
+		listener.rowsLoaded("app", LogStoreView.range(group.getEntries(), 10, 20));
+		listener.rowsLoaded("app", LogStoreView.range(group.getEntries(), 20, 30));
+		SwingUtilities.invokeAndWait(() -> {});
+		assertEquals(0, viewManager.getLogViews().size());
+
+		// The loaded application opens with all of its rows
+		listener.groupLoaded("app", group.asView());
+		SwingUtilities.invokeAndWait(() -> {});
+		assertEquals(1, viewManager.getLogViews().size());
+		LogView loaded = viewManager.getLogViews().get(0);
+		assertNotSame(loading, loaded);
+		assertEquals(30, loaded.getEntries().size());
+	}
+}